@@ -52,7 +52,7 @@ public class RegionTreeAction extends BaseAction {
 			if (tree != null && tree > 0) {
 				children = new ArrayList<>();
 				if (regionTreeControl != null) {
-					children.add(regionTreeControl.getTree().getDescendantOrSelfById(tree));
+					children.add(regionTreeControl.getTreeNode(tree));
 				} else {
 					region = new Region();
 					DetachedCriteria dc = entityManager.detachedCriteria();
@@ -74,7 +74,7 @@ public class RegionTreeAction extends BaseAction {
 			}
 		} else {
 			if (regionTreeControl != null) {
-				region = regionTreeControl.getTree().getDescendantOrSelfById(parent);
+				region = regionTreeControl.getTreeNode(parent);
 			} else {
 				region = entityManager.get(parent);
 			}
@@ -2,6 +2,7 @@ package org.ironrhino.common.service;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -66,6 +67,27 @@ public class PageManagerImpl extends BaseManagerImpl<Page> implements PageManage
 		return super.delete(id);
 	}
 
+	@Override
+	@Transactional
+	@EvictCache(key = "${key = [];foreach (page : pages) { key.add(page.path); } return key;}", namespace = "page")
+	public void saveAll(Collection<Page> pages) {
+		super.saveAll(pages);
+	}
+
+	@Override
+	@Transactional
+	@EvictCache(key = "${key = [];foreach (page : pages) { key.add(page.path); } return key;}", namespace = "page")
+	public void updateAll(Collection<Page> pages) {
+		super.updateAll(pages);
+	}
+
+	@Override
+	@Transactional
+	@EvictCache(key = "${key = [];foreach (page : pages) { key.add(page.path); } return key;}", namespace = "page")
+	public void deleteAll(Collection<Page> pages) {
+		super.deleteAll(pages);
+	}
+
 	@Override
 	@Transactional(readOnly = true)
 	@CheckCache(key = "${path}", namespace = "page", eternal = true, cacheNull = true)
@@ -3,6 +3,7 @@ package org.ironrhino.common.support;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -238,6 +239,25 @@ public abstract class AbstractPollingControl<T extends BasePollingEntity> implem
 		return boundListOperations.rightPop();
 	}
 
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected List<String> pop(int count) {
+		if (count <= 1) {
+			String id = pop();
+			return id != null ? Collections.singletonList(id) : Collections.emptyList();
+		}
+		// RPOP with count requires redis 6.2+
+		List results = stringRedisTemplate.executePipelined((SessionCallback) redisOperations -> {
+			for (int i = 0; i < count; i++)
+				redisOperations.opsForList().rightPop(boundListOperations.getKey());
+			return null;
+		});
+		List<String> ids = new ArrayList<>(count);
+		for (Object result : results)
+			if (result != null)
+				ids.add((String) result);
+		return ids;
+	}
+
 	protected boolean isTemporaryError(Exception e) {
 		return e instanceof IOException || e.getCause() instanceof IOException;
 	}
@@ -1,156 +1,349 @@
 package org.ironrhino.common.support;
 
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
 import org.hibernate.query.Query;
+import org.hibernate.type.IntegerType;
+import org.hibernate.type.Type;
 import org.ironrhino.common.model.BasePollingEntity;
 import org.ironrhino.common.model.PollingStatus;
 import org.ironrhino.core.metrics.Metrics;
+import org.ironrhino.core.model.ResultPage;
 import org.ironrhino.core.util.ExceptionUtils;
 
 public abstract class BatchedPollingControl<T extends BasePollingEntity> extends AbstractPollingControl<T> {
 
-	@SuppressWarnings("rawtypes")
 	@Override
 	protected void doDequeue() {
 		entityManager.setEntityClass(entityClass);
 		int batchLimit = getBatchLimit();
 		while (true) {
 			List<T> entities = new ArrayList<>();
+			List<T> exhausted = new ArrayList<>();
+			Set<String> ids = new HashSet<>();
 			while (entities.size() < batchLimit) {
-				String id = pop();
-				if (id == null)
+				List<String> popped = pop(Math.min(batchLimit - entities.size(), ResultPage.DEFAULT_MAX_PAGESIZE));
+				if (popped.isEmpty())
 					break;
-				if (entities.stream().map(BasePollingEntity::getId).anyMatch(s -> s.equals(id)))
-					continue;
-				T entity = entityManager.get(id);
-				if (entity == null) {
-					logger.warn("not found: {}", id);
-					continue;
-				}
-				logger.info("dequeue {}", entity);
-				if (entity.getStatus() == PollingStatus.SUCCESSFUL || entity.getStatus() == PollingStatus.FAILED) {
-					logger.warn("status is {}: {}", entity.getStatus(), entity);
-					continue;
-				}
-				if (entity.getAttempts() >= getMaxAttempts()) {
-					logger.error("max attempts reached: {}", entity);
-					entityManager.executeUpdate(simpleUpdateStatusHql, entity.getId(), entity.getStatus(),
-							PollingStatus.FAILED, new Date(), "max attempts reached");
+				List<String> distinctIds = popped.stream().filter(ids::add).collect(Collectors.toList());
+				if (distinctIds.isEmpty())
 					continue;
+				List<T> loaded = entityManager.get(distinctIds);
+				for (int i = 0; i < distinctIds.size(); i++) {
+					T entity = loaded.get(i);
+					if (entity == null) {
+						logger.warn("not found: {}", distinctIds.get(i));
+						continue;
+					}
+					logger.info("dequeue {}", entity);
+					if (entity.getStatus() == PollingStatus.SUCCESSFUL || entity.getStatus() == PollingStatus.FAILED) {
+						logger.warn("status is {}: {}", entity.getStatus(), entity);
+						continue;
+					}
+					if (entity.getAttempts() >= getMaxAttempts()) {
+						logger.error("max attempts reached: {}", entity);
+						exhausted.add(entity);
+						continue;
+					}
+					entities.add(entity);
 				}
-				entities.add(entity);
+			}
+			if (!exhausted.isEmpty()) {
+				entityManager.execute(session -> {
+					AbstractEntityPersister persister = getPersister(session);
+					Batch<T> batch = new Batch<>(persister,
+							"update " + table(persister) + " set " + assignment(persister, "status") + ","
+									+ assignment(persister, "modifyDate") + "," + assignment(persister, "errorInfo")
+									+ where(persister),
+							persister.getPropertyType("status"), persister.getPropertyType("modifyDate"),
+							persister.getPropertyType("errorInfo"), persister.getIdentifierType(),
+							persister.getPropertyType("status"));
+					Date now = new Date();
+					for (T entity : exhausted)
+						batch.add(entity, PollingStatus.FAILED, PollingStatus.FAILED, now, "max attempts reached",
+								entity.getId(), entity.getStatus());
+					batch.execute(session);
+					return null;
+				});
 			}
 			if (entities.isEmpty())
 				break;
 			try {
 				Map<T, Result> results = Metrics.recordTimer("polling." + entityClass.getName(), () -> handle(entities),
 						"batch", "true");
+				Map<T, Exception> failures = new LinkedHashMap<>();
 				for (T entity : entities) {
 					Result obj = results.get(entity);
 					if (obj == null) {
 						logger.error("process {} failed cause updated fields is null or invalid", entity);
+					} else if (obj.getException() != null) {
+						Exception e = obj.getException();
+						logger.error(e.getMessage(), e);
+						failures.put(entity, e);
 					}
 				}
 				entityManager.execute(session -> {
-					results.entrySet().stream().filter(entry -> entry.getValue().getResult() != null).forEach(entry -> {
-						T entity = entry.getKey();
-						Map<String, Object> fields = entry.getValue().getResult();
-						StringBuilder sb = new StringBuilder("update ");
-						sb.append(entityClass.getSimpleName());
-						sb.append(" t set t.status=?3,t.modifyDate=?4,t.errorInfo=null,t.attempts=t.attempts+1");
-						int i = 5;
-						for (String field : fields.keySet())
-							sb.append(",t.").append(field).append("=?").append(i++);
-						sb.append(" where t.id=?1 and t.status=?2");
-						final String hql = sb.toString();
-						Query query = session.createQuery(hql);
-						query.setParameter(1, entity.getId());
-						query.setParameter(2, entity.getStatus());
-						query.setParameter(3, PollingStatus.SUCCESSFUL);
-						query.setParameter(4, new Date());
-						int index = 5;
-						for (String field : fields.keySet())
-							query.setParameter(index++, fields.get(field));
-						int ret = query.executeUpdate();
-						if (ret == 1) {
-							afterUpdated(session, entity);
-							logger.info("process {} successful", entity);
-						} else {
-							logger.warn("process {} successful but ignored", entity);
-						}
-					});
-					return null;
-				});
-				entityManager.execute(session -> {
-					results.entrySet().stream().filter(entry -> entry.getValue().getException() != null)
-							.forEach(entry -> {
-								T entity = entry.getKey();
-								Exception e = entry.getValue().getException();
-								logger.error(e.getMessage(), e);
-								String err = ExceptionUtils.getDetailMessage(e);
-								if (err.length() > 4000)
-									err = err.substring(0, 4000);
-								final String errorInfo = err;
-								boolean retryable = isTemporaryError(e);
-								entityManager.execute(s -> {
-									int result;
-									if (retryable) {
-										result = entityManager.executeUpdate(conditionalUpdateStatusHql, entity.getId(),
-												entity.getStatus(), getMaxAttempts(), PollingStatus.FAILED,
-												PollingStatus.TEMPORARY_ERROR, new Date(), errorInfo);
-									} else {
-										result = entityManager.executeUpdate(defaultUpdateStatusHql, entity.getId(),
-												entity.getStatus(), PollingStatus.FAILED, new Date(), errorInfo);
-									}
-									if (result == 1)
-										logger.info("process {} failed", entity);
-									else
-										logger.warn("process {} failed but ignored", entity);
-									return null;
-								});
-							});
-					return null;
-				});
-			} catch (
-
-			Exception e) {
-				logger.error(e.getMessage(), e);
-				String err = ExceptionUtils.getDetailMessage(e);
-				if (err.length() > 4000)
-					err = err.substring(0, 4000);
-				final String errorInfo = err;
-				boolean retryable = isTemporaryError(e);
-				entityManager.execute(session -> {
+					AbstractEntityPersister persister = getPersister(session);
+					// entities updating same fields share one statement
+					Map<List<String>, Batch<T>> batches = new LinkedHashMap<>();
+					Date now = new Date();
 					for (T entity : entities) {
-						int result;
-						if (retryable) {
-							result = entityManager.executeUpdate(conditionalUpdateStatusHql, entity.getId(),
-									entity.getStatus(), getMaxAttempts(), PollingStatus.FAILED,
-									PollingStatus.TEMPORARY_ERROR, new Date(), errorInfo);
-						} else {
-							result = entityManager.executeUpdate(defaultUpdateStatusHql, entity.getId(),
-									entity.getStatus(), PollingStatus.FAILED, new Date(), errorInfo);
+						Result obj = results.get(entity);
+						if (obj == null || obj.getResult() == null)
+							continue;
+						Map<String, Object> fields = obj.getResult();
+						List<String> names = new ArrayList<>(new TreeSet<>(fields.keySet()));
+						Batch<T> batch = batches.computeIfAbsent(names, key -> {
+							StringBuilder sb = new StringBuilder("update ");
+							sb.append(table(persister)).append(" set ");
+							sb.append(assignment(persister, "status")).append(',');
+							sb.append(assignment(persister, "modifyDate")).append(',');
+							sb.append(column(persister, "errorInfo")).append("=null,");
+							String attempts = column(persister, "attempts");
+							sb.append(attempts).append('=').append(attempts).append("+1");
+							List<Type> types = new ArrayList<>();
+							types.add(persister.getPropertyType("status"));
+							types.add(persister.getPropertyType("modifyDate"));
+							for (String field : key) {
+								sb.append(',').append(assignment(persister, field));
+								types.add(persister.getPropertyType(field));
+							}
+							sb.append(where(persister));
+							types.add(persister.getIdentifierType());
+							types.add(persister.getPropertyType("status"));
+							return new Batch<>(persister, sb.toString(), types.toArray(new Type[types.size()]));
+						});
+						Object[] parameters = new Object[names.size() + 4];
+						int index = 0;
+						parameters[index++] = PollingStatus.SUCCESSFUL;
+						parameters[index++] = now;
+						for (String field : names)
+							parameters[index++] = fields.get(field);
+						parameters[index++] = entity.getId();
+						parameters[index++] = entity.getStatus();
+						batch.add(entity, PollingStatus.SUCCESSFUL, parameters);
+					}
+					for (Batch<T> batch : batches.values()) {
+						Set<T> updated = batch.execute(session);
+						for (T entity : batch.entities) {
+							if (updated.contains(entity)) {
+								afterUpdated(session, entity);
+								logger.info("process {} successful", entity);
+							} else {
+								logger.warn("process {} successful but ignored", entity);
+							}
 						}
-						if (result == 1)
-							logger.info("process {} failed", entity);
-						else
-							logger.warn("process {} failed but ignored", entity);
 					}
 					return null;
 				});
+				if (!failures.isEmpty())
+					updateFailed(failures);
+			} catch (Exception e) {
+				logger.error(e.getMessage(), e);
+				Map<T, Exception> failures = new LinkedHashMap<>();
+				for (T entity : entities)
+					failures.put(entity, e);
+				updateFailed(failures);
 			}
 		}
 	}
 
+	private void updateFailed(Map<T, Exception> failures) {
+		entityManager.execute(session -> {
+			AbstractEntityPersister persister = getPersister(session);
+			String status = column(persister, "status");
+			String attempts = column(persister, "attempts");
+			String assignments = assignment(persister, "modifyDate") + "," + assignment(persister, "errorInfo") + ","
+					+ attempts + "=" + attempts + "+1";
+			Batch<T> conditional = new Batch<>(persister,
+					"update " + table(persister) + " set " + status + "=case when " + attempts
+							+ "+1>=? then ? else ? end," + assignments + where(persister),
+					IntegerType.INSTANCE, persister.getPropertyType("status"), persister.getPropertyType("status"),
+					persister.getPropertyType("modifyDate"), persister.getPropertyType("errorInfo"),
+					persister.getIdentifierType(), persister.getPropertyType("status"));
+			Batch<T> unconditional = new Batch<>(persister,
+					"update " + table(persister) + " set " + status + "=?," + assignments + where(persister),
+					persister.getPropertyType("status"), persister.getPropertyType("modifyDate"),
+					persister.getPropertyType("errorInfo"), persister.getIdentifierType(),
+					persister.getPropertyType("status"));
+			Date now = new Date();
+			failures.forEach((entity, e) -> {
+				String errorInfo = ExceptionUtils.getDetailMessage(e);
+				if (errorInfo.length() > 4000)
+					errorInfo = errorInfo.substring(0, 4000);
+				if (isTemporaryError(e)) {
+					PollingStatus expected = entity.getAttempts() + 1 >= getMaxAttempts() ? PollingStatus.FAILED
+							: PollingStatus.TEMPORARY_ERROR;
+					conditional.add(entity, expected, getMaxAttempts(), PollingStatus.FAILED,
+							PollingStatus.TEMPORARY_ERROR, now, errorInfo, entity.getId(), entity.getStatus());
+				} else {
+					unconditional.add(entity, PollingStatus.FAILED, PollingStatus.FAILED, now, errorInfo,
+							entity.getId(), entity.getStatus());
+				}
+			});
+			Set<T> updated = new HashSet<>(conditional.execute(session));
+			updated.addAll(unconditional.execute(session));
+			for (T entity : failures.keySet()) {
+				if (updated.contains(entity))
+					logger.info("process {} failed", entity);
+				else
+					logger.warn("process {} failed but ignored", entity);
+			}
+			return null;
+		});
+	}
+
+	private AbstractEntityPersister getPersister(Session session) {
+		return (AbstractEntityPersister) ((SessionFactoryImplementor) session.getSessionFactory()).getMetamodel()
+				.entityPersister(entityClass);
+	}
+
+	// fields of joined inheritance or secondary table are not in one table, use
+	// hql instead of sql for such entity
+	private static String table(AbstractEntityPersister persister) {
+		return persister.isMultiTable() ? persister.getEntityName() + " t" : persister.getTableName();
+	}
+
+	private static String column(AbstractEntityPersister persister, String property) {
+		return persister.isMultiTable() ? "t." + property : persister.getPropertyColumnNames(property)[0];
+	}
+
+	private static String assignment(AbstractEntityPersister persister, String property) {
+		if (persister.isMultiTable())
+			return column(persister, property) + "=?";
+		return Stream.of(persister.getPropertyColumnNames(property)).map(column -> column + "=?")
+				.collect(Collectors.joining(","));
+	}
+
+	private static String where(AbstractEntityPersister persister) {
+		String id = persister.isMultiTable() ? column(persister, persister.getIdentifierPropertyName())
+				: persister.getIdentifierColumnNames()[0];
+		return " where " + id + "=? and " + column(persister, "status") + "=?";
+	}
+
 	protected abstract Map<T, Result> handle(List<T> entity) throws Exception;
 
 	protected abstract int getBatchLimit();
 
+	private static class Batch<E extends BasePollingEntity> {
+
+		private final AbstractEntityPersister persister;
+
+		private final String statement;
+
+		private final Type[] types;
+
+		private final List<E> entities = new ArrayList<>();
+
+		private final List<PollingStatus> expectedStatuses = new ArrayList<>();
+
+		private final List<Object[]> parameters = new ArrayList<>();
+
+		Batch(AbstractEntityPersister persister, String statement, Type... types) {
+			this.persister = persister;
+			this.statement = statement;
+			this.types = types;
+		}
+
+		// expected status is used to check whether entity is updated if driver
+		// doesn't report update count
+		void add(E entity, PollingStatus expectedStatus, Object... params) {
+			entities.add(entity);
+			expectedStatuses.add(expectedStatus);
+			parameters.add(params);
+		}
+
+		// bypass session so statements are batched regardless of
+		// hibernate.jdbc.batch_size, returns entities actually updated
+		Set<E> execute(Session session) {
+			if (entities.isEmpty())
+				return Collections.emptySet();
+			int[] counts = persister.isMultiTable() ? executeHql(session) : executeBatch(session);
+			Set<E> updated = new HashSet<>();
+			List<Integer> unknown = new ArrayList<>();
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] == 1)
+					updated.add(entities.get(i));
+				else if (counts[i] == Statement.SUCCESS_NO_INFO)
+					unknown.add(i);
+			}
+			if (!unknown.isEmpty()) {
+				// some drivers execute batch without reporting update counts
+				String id = persister.getIdentifierPropertyName();
+				Map<Serializable, PollingStatus> current = new HashMap<>();
+				session.createQuery("select t." + id + ",t.status from " + persister.getEntityName() + " t where t."
+						+ id + " in (:ids)", Object[].class)
+						.setParameterList("ids",
+								unknown.stream().map(i -> entities.get(i).getId()).collect(Collectors.toList()))
+						.list().forEach(row -> current.put((Serializable) row[0], (PollingStatus) row[1]));
+				for (int i : unknown) {
+					E entity = entities.get(i);
+					if (current.get(entity.getId()) == expectedStatuses.get(i))
+						updated.add(entity);
+				}
+			}
+			for (E entity : updated)
+				session.getSessionFactory().getCache().evictEntityData(entity.getClass(), entity.getId());
+			return updated;
+		}
+
+		private int[] executeBatch(Session session) {
+			SharedSessionContractImplementor si = (SharedSessionContractImplementor) session;
+			return session.doReturningWork(connection -> {
+				try (PreparedStatement ps = connection.prepareStatement(statement)) {
+					for (Object[] params : parameters) {
+						int index = 1;
+						for (int i = 0; i < params.length; i++) {
+							types[i].nullSafeSet(ps, params[i], index, si);
+							index += types[i].getColumnSpan(si.getFactory());
+						}
+						ps.addBatch();
+					}
+					return ps.executeBatch();
+				}
+			});
+		}
+
+		private int[] executeHql(Session session) {
+			StringBuilder hql = new StringBuilder();
+			int ordinal = 1;
+			for (char c : statement.toCharArray()) {
+				hql.append(c);
+				if (c == '?')
+					hql.append(ordinal++);
+			}
+			int[] counts = new int[parameters.size()];
+			for (int i = 0; i < counts.length; i++) {
+				Query<?> query = session.createQuery(hql.toString());
+				Object[] params = parameters.get(i);
+				for (int j = 0; j < params.length; j++)
+					query.setParameter(j + 1, params[j], types[j]);
+				counts[i] = query.executeUpdate();
+			}
+			return counts;
+		}
+
+	}
+
 	public static class Result {
 
 		private final Map<String, Object> result;
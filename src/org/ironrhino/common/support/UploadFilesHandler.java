@@ -2,15 +2,21 @@ package org.ironrhino.common.support;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
 
 import javax.annotation.PostConstruct;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.ironrhino.core.fs.FileInfo;
 import org.ironrhino.core.fs.FileStorage;
 import org.ironrhino.core.servlet.AccessHandler;
 import org.ironrhino.core.spring.configuration.PriorityQualifier;
@@ -19,8 +25,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpRange;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StreamUtils;
 import org.springframework.util.StringUtils;
 
 import lombok.Getter;
@@ -52,6 +58,12 @@ public class UploadFilesHandler extends AccessHandler {
 	@Value("${uploadFilesHandler.uploadDir:" + DEFAULT_UPLOAD_DIR + "}")
 	protected String uploadDir = DEFAULT_UPLOAD_DIR;
 
+	// serve whole file if more ranges requested
+	@Getter
+	@Setter
+	@Value("${uploadFilesHandler.maxRanges:16}")
+	protected int maxRanges = 16;
+
 	private String pattern;
 
 	private boolean prependDefaultUploadDirForBucketBased;
@@ -87,47 +99,204 @@ public class UploadFilesHandler extends AccessHandler {
 
 	@Override
 	public boolean handle(HttpServletRequest request, HttpServletResponse response) {
-		long since = request.getDateHeader("If-Modified-Since");
 		String uri = RequestUtils.getRequestUri(request);
 		String path = uri.substring(pathPrefix.length());
 		if (prependDefaultUploadDirForBucketBased)
 			path = path.substring(DEFAULT_UPLOAD_DIR.length());
 		try {
 			path = URLDecoder.decode(path, "UTF-8");
-			long lastModified = uploadFileStorage.getLastModified(path);
-			lastModified = lastModified / 1000 * 1000;
-			if (since > 0 && since == lastModified) {
+			FileInfo fileInfo = uploadFileStorage.getFileInfo(path);
+			if (fileInfo == null) {
+				response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+				return true;
+			}
+			long lastModified = fileInfo.getLastModified() / 1000 * 1000;
+			long length = fileInfo.getSize();
+			String etag = length >= 0 && lastModified > 0
+					? '"' + Long.toHexString(lastModified) + '-' + Long.toHexString(length) + '"'
+					: null;
+			if (etag != null)
+				response.setHeader("ETag", etag);
+			if (lastModified > 0)
+				response.setDateHeader("Last-Modified", lastModified);
+			if (isNotModified(request, etag, lastModified)) {
 				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
 				return true;
 			}
-			try (InputStream is = uploadFileStorage.open(path)) {
-				if (is == null) {
-					response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-					return true;
-				}
-				if (lastModified > 0)
-					response.setDateHeader("Last-Modified", lastModified);
-				String filename = path.substring(path.lastIndexOf("/") + 1);
-				String contentType = servletContext.getMimeType(filename);
-				if (contentType != null)
-					response.setContentType(contentType);
-				try (OutputStream os = response.getOutputStream()) {
-					StreamUtils.copy(is, os);
-				} catch (Exception e) {
-					// supress ClientAbortException
-				}
+			String filename = path.substring(path.lastIndexOf("/") + 1);
+			String contentType = servletContext.getMimeType(filename);
+			if (contentType != null)
+				response.setContentType(contentType);
+			boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+			if (length < 0) {
+				// length unknown, ranges not supported
+				if (!head)
+					write(path, 0, Long.MAX_VALUE, response);
+				return true;
+			}
+			response.setHeader("Accept-Ranges", "bytes");
+			List<HttpRange> ranges = getRanges(request, etag, lastModified, length);
+			if (ranges == null) {
+				response.setHeader("Content-Range", "bytes */" + length);
+				response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
 				return true;
 			}
+			if (ranges.isEmpty()) {
+				response.setContentLengthLong(length);
+				if (!head)
+					write(path, 0, length, response);
+			} else if (ranges.size() == 1) {
+				long start = ranges.get(0).getRangeStart(length);
+				long end = ranges.get(0).getRangeEnd(length);
+				response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+				response.setHeader("Content-Range", "bytes " + start + '-' + end + '/' + length);
+				response.setContentLengthLong(end - start + 1);
+				if (!head)
+					write(path, start, end - start + 1, response);
+			} else {
+				writeMultipart(path, ranges, length, contentType, head, response);
+			}
+			return true;
 		} catch (FileNotFoundException fne) {
-			response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+			if (!response.isCommitted())
+				response.setStatus(HttpServletResponse.SC_NOT_FOUND);
 			return true;
 		} catch (IOException e) {
 			e.printStackTrace();
-			response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			if (!response.isCommitted())
+				response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
 			return true;
 		}
 	}
 
+	private void writeMultipart(String path, List<HttpRange> ranges, long length, String contentType, boolean head,
+			HttpServletResponse response) throws IOException {
+		String boundary = UUID.randomUUID().toString().replace("-", "");
+		List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+		long contentLength = 0;
+		for (HttpRange range : ranges) {
+			long start = range.getRangeStart(length);
+			long end = range.getRangeEnd(length);
+			StringBuilder sb = new StringBuilder("\r\n--").append(boundary).append("\r\n");
+			if (contentType != null)
+				sb.append("Content-Type: ").append(contentType).append("\r\n");
+			sb.append("Content-Range: bytes ").append(start).append('-').append(end).append('/').append(length)
+					.append("\r\n\r\n");
+			byte[] partHeader = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+			partHeaders.add(partHeader);
+			contentLength += partHeader.length + end - start + 1;
+		}
+		byte[] closeDelimiter = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+		contentLength += closeDelimiter.length;
+		response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+		response.setContentType("multipart/byteranges; boundary=" + boundary);
+		response.setContentLengthLong(contentLength);
+		if (head)
+			return;
+		try {
+			OutputStream os = response.getOutputStream();
+			for (int i = 0; i < ranges.size(); i++) {
+				long start = ranges.get(i).getRangeStart(length);
+				long end = ranges.get(i).getRangeEnd(length);
+				os.write(partHeaders.get(i));
+				uploadFileStorage.transferTo(path, start, end - start + 1, os);
+			}
+			os.write(closeDelimiter);
+			os.flush();
+		} catch (FileNotFoundException e) {
+			throw e;
+		} catch (IOException e) {
+			// supress ClientAbortException
+		}
+	}
+
+	private void write(String path, long position, long count, HttpServletResponse response) throws IOException {
+		try {
+			OutputStream os = response.getOutputStream();
+			uploadFileStorage.transferTo(path, position, count, os);
+			os.flush();
+		} catch (FileNotFoundException e) {
+			throw e;
+		} catch (IOException e) {
+			// supress ClientAbortException
+		}
+	}
+
+	private static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null) {
+			// If-Modified-Since should be ignored if If-None-Match present
+			if (etag == null)
+				return false;
+			for (String tag : ifNoneMatch.split(",")) {
+				tag = tag.trim();
+				if (tag.startsWith("W/"))
+					tag = tag.substring(2);
+				if (tag.equals("*") || tag.equals(etag))
+					return true;
+			}
+			return false;
+		}
+		long since = request.getDateHeader("If-Modified-Since");
+		return since > 0 && since == lastModified;
+	}
+
+	// empty means whole file, null means unsatisfiable
+	private List<HttpRange> getRanges(HttpServletRequest request, String etag, long lastModified, long length) {
+		String header = request.getHeader("Range");
+		String method = request.getMethod();
+		if (header == null || !"GET".equalsIgnoreCase(method) && !"HEAD".equalsIgnoreCase(method))
+			return Collections.emptyList();
+		String ifRange = request.getHeader("If-Range");
+		if (ifRange != null) {
+			// serve whole file if changed
+			if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+				if (!ifRange.equals(etag))
+					return Collections.emptyList();
+			} else {
+				try {
+					if (request.getDateHeader("If-Range") != lastModified)
+						return Collections.emptyList();
+				} catch (IllegalArgumentException e) {
+					return Collections.emptyList();
+				}
+			}
+		}
+		List<HttpRange> ranges;
+		try {
+			ranges = HttpRange.parseRanges(header);
+		} catch (IllegalArgumentException e) {
+			// invalid Range header should be ignored, see RFC 7233 section 3.1
+			return Collections.emptyList();
+		}
+		if (ranges.isEmpty() || ranges.size() > maxRanges)
+			return Collections.emptyList();
+		// drop unsatisfiable ranges and coalesce overlapping ranges
+		List<long[]> list = new ArrayList<>(ranges.size());
+		for (HttpRange range : ranges) {
+			long start = range.getRangeStart(length);
+			long end = range.getRangeEnd(length);
+			if (start < length && start <= end)
+				list.add(new long[] { start, end });
+		}
+		if (list.isEmpty())
+			return null;
+		list.sort(Comparator.comparingLong(r -> r[0]));
+		List<HttpRange> result = new ArrayList<>(list.size());
+		long[] current = list.get(0);
+		for (int i = 1; i < list.size(); i++) {
+			long[] next = list.get(i);
+			if (next[0] <= current[1] + 1) {
+				current[1] = Math.max(current[1], next[1]);
+			} else {
+				result.add(HttpRange.createByteRange(current[0], current[1]));
+				current = next;
+			}
+		}
+		result.add(HttpRange.createByteRange(current[0], current[1]));
+		return result;
+	}
+
 	private static String normalize(String path) {
 		if (path != null && path.length() > 0) {
 			if (!path.startsWith("/"))
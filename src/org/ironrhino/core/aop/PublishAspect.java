@@ -1,7 +1,9 @@
 package org.ironrhino.core.aop;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -12,6 +14,8 @@ import org.hibernate.event.spi.AbstractEvent;
 import org.hibernate.event.spi.PostDeleteEvent;
 import org.hibernate.event.spi.PostInsertEvent;
 import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.type.Type;
+import org.ironrhino.core.event.EntityOperationBatchEvent;
 import org.ironrhino.core.event.EntityOperationEvent;
 import org.ironrhino.core.event.EntityOperationType;
 import org.ironrhino.core.event.EventPublisher;
@@ -59,7 +63,9 @@ public class PublishAspect implements TransactionSynchronization, Ordered {
 		List<AbstractEvent> events = getHibernateEvents(false);
 		if (events == null || events.isEmpty())
 			return;
-		Map<Persistable<?>, EntityOperationType> actions = new HashMap<>();
+		Map<Persistable<?>, EntityOperationType> actions = new LinkedHashMap<>();
+		Map<Persistable<?>, Map<String, Serializable>> changes = new HashMap<>();
+		Map<Class<?>, PublishAware> annotations = new HashMap<>();
 		for (AbstractEvent event : events) {
 			Object entity;
 			EntityOperationType action;
@@ -79,14 +85,29 @@ public class PublishAspect implements TransactionSynchronization, Ordered {
 			if (previousAction == EntityOperationType.CREATE || previousAction == EntityOperationType.DELETE)
 				continue;
 			actions.put((Persistable<?>) entity, action);
+			if (action == EntityOperationType.UPDATE) {
+				PublishAware publishAware = annotations.computeIfAbsent(ReflectionUtils.getActualClass(entity),
+						clazz -> clazz.getAnnotation(PublishAware.class));
+				if (publishAware != null && publishAware.batch())
+					mergeChangedFields(changes, (Persistable<?>) entity, (PostUpdateEvent) event,
+							previousAction == EntityOperationType.UPDATE);
+			}
 		}
+		Map<Class<?>, EntityOperationBatchEvent<?>> batches = new LinkedHashMap<>();
 		for (Map.Entry<Persistable<?>, EntityOperationType> entry : actions.entrySet()) {
-			PublishAware publishAware = ReflectionUtils.getActualClass(entry.getKey())
-					.getAnnotation(PublishAware.class);
-			if (publishAware != null)
+			Class<?> clazz = ReflectionUtils.getActualClass(entry.getKey());
+			PublishAware publishAware = annotations.computeIfAbsent(clazz, c -> c.getAnnotation(PublishAware.class));
+			if (publishAware == null)
+				continue;
+			if (publishAware.batch())
+				batches.computeIfAbsent(clazz, PublishAspect::newBatchEvent).add(entry.getValue(),
+						entry.getKey().getId(), changes.get(entry.getKey()));
+			else
 				eventPublisher.publish(new EntityOperationEvent<>(entry.getKey(), entry.getValue()),
 						publishAware.scope());
 		}
+		for (Map.Entry<Class<?>, EntityOperationBatchEvent<?>> entry : batches.entrySet())
+			eventPublisher.publish(entry.getValue(), annotations.get(entry.getKey()).scope());
 	}
 
 	@Override
@@ -95,6 +116,39 @@ public class PublishAspect implements TransactionSynchronization, Ordered {
 			TransactionSynchronizationManager.unbindResource(HIBERNATE_EVENTS);
 	}
 
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static EntityOperationBatchEvent<?> newBatchEvent(Class<?> entityClass) {
+		return new EntityOperationBatchEvent(entityClass);
+	}
+
+	private static void mergeChangedFields(Map<Persistable<?>, Map<String, Serializable>> changes,
+			Persistable<?> entity, PostUpdateEvent event, boolean updatedBefore) {
+		int[] dirtyProperties = event.getDirtyProperties();
+		if (dirtyProperties == null) {
+			// changed fields unknown if dirty checking is skipped
+			changes.remove(entity);
+			return;
+		}
+		Map<String, Serializable> fields = changes.get(entity);
+		if (fields == null) {
+			if (updatedBefore)
+				return;
+			fields = new LinkedHashMap<>();
+			changes.put(entity, fields);
+		}
+		String[] names = event.getPersister().getPropertyNames();
+		Type[] types = event.getPersister().getPropertyTypes();
+		Object[] state = event.getState();
+		for (int i : dirtyProperties) {
+			Object value = state[i];
+			if (types[i].isCollectionType())
+				value = null;
+			else if (value instanceof Persistable)
+				value = ((Persistable<?>) value).getId();
+			fields.put(names[i], value instanceof Serializable ? (Serializable) value : null);
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	public static List<AbstractEvent> getHibernateEvents(boolean create) {
 		if (create && !TransactionSynchronizationManager.hasResource(HIBERNATE_EVENTS))
@@ -14,4 +14,7 @@ import org.ironrhino.core.metadata.Scope;
 @Inherited
 public @interface PublishAware {
 	Scope scope() default Scope.APPLICATION;
+
+	// publish EntityOperationBatchEvent per transaction instead of EntityOperationEvent per entity
+	boolean batch() default false;
 }
@@ -1,11 +1,23 @@
 package org.ironrhino.core.cache;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -16,9 +28,13 @@ import org.ironrhino.core.aop.BaseAspect;
 import org.ironrhino.core.metrics.Metrics;
 import org.ironrhino.core.model.NullObject;
 import org.ironrhino.core.util.ExpressionUtils;
+import org.ironrhino.core.util.NameableThreadFactory;
 import org.mvel2.PropertyAccessException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.Ordered;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
 @Aspect
@@ -27,13 +43,50 @@ public class CacheAspect extends BaseAspect {
 
 	private final static String MUTEX = "_MUTEX_";
 
+	private final static String REFRESH = "_REFRESH_";
+
+	private final static String STALE = "_STALE_";
+
+	private final static Object MISS = new Object();
+
+	private final Map<String, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+	// earliest time a hit could be inside refresh window, skip ttl lookup before it
+	private final Map<String, Long> refreshWindows = new ConcurrentHashMap<>();
+
 	@Autowired
 	private CacheManager cacheManager;
 
+	@Value("${cacheAspect.refreshThreads:2}")
+	private int refreshThreads = 2;
+
+	@Value("${cacheAspect.refreshQueueCapacity:1000}")
+	private int refreshQueueCapacity = 1000;
+
+	@Value("${cacheAspect.refreshWindowsCapacity:10000}")
+	private int refreshWindowsCapacity = 10000;
+
+	private ThreadPoolExecutor refreshExecutor;
+
 	public CacheAspect() {
 		order = Ordered.HIGHEST_PRECEDENCE + 3;
 	}
 
+	@PostConstruct
+	public void init() {
+		refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(refreshQueueCapacity), new NameableThreadFactory("cacheRefresh"),
+				(runnable, executor) -> {
+					logger.warn("Refresh ahead is discarded because queue is full");
+				});
+		refreshExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		refreshExecutor.shutdown();
+	}
+
 	@Around("execution(public * *(..)) and @annotation(checkCache)")
 	public Object get(ProceedingJoinPoint jp, CheckCache checkCache) throws Throwable {
 		if (isBypass())
@@ -44,82 +97,235 @@ public class CacheAspect extends BaseAspect {
 		keys = keys.stream().filter(s -> s != null).collect(Collectors.toList());
 		if (keys.isEmpty())
 			return jp.proceed();
-		String keyMutex = MUTEX + String.join("_", keys);
-		boolean mutexed = false;
 		Class<?> returnType = ((MethodSignature) jp.getSignature()).getMethod().getReturnType();
 		int timeToIdle = ExpressionUtils.evalInt(checkCache.timeToIdle(), context, 0);
-		for (String key : keys) {
-			Object value = timeToIdle > 0 ? cacheManager.getWithTti(key, namespace, timeToIdle, checkCache.timeUnit())
-					: cacheManager.get(key, namespace);
-			if (value instanceof NullObject) {
-				ExpressionUtils.eval(checkCache.onHit(), context);
-				instrument(namespace, true);
-				return null;
-			}
-			if (value != null) {
-				if (returnType.isPrimitive() && value.getClass() == ClassUtils.primitiveToWrapper(returnType)
-						|| returnType.isAssignableFrom(value.getClass())) {
-					putReturnValueIntoContext(context, value);
-					ExpressionUtils.eval(checkCache.onHit(), context);
-					instrument(namespace, true);
-					return value;
-				} else {
-					cacheManager.delete(key, namespace);
-				}
-			}
+		Object value = lookup(keys, namespace, timeToIdle, returnType, checkCache, context);
+		if (value != MISS) {
+			if (checkCache.refreshAhead() > 0)
+				refreshAheadIfNecessary(jp, checkCache, keys, namespace, context);
+			return value;
 		}
-		int throughPermits = checkCache.throughPermits();
 		int waitTimeout = checkCache.waitTimeout();
 		if (waitTimeout <= 0)
 			waitTimeout = 200;
 		else if (waitTimeout > 10000)
 			waitTimeout = 10000;
-		if (cacheManager.increment(keyMutex, 1, waitTimeout, TimeUnit.MILLISECONDS, namespace) <= throughPermits) {
+		if (!checkCache.singleFlight())
+			return load(jp, checkCache, keys, namespace, waitTimeout, returnType, context);
+		String flightKey = namespace + ':' + String.join("_", keys);
+		CompletableFuture<Object> flight = new CompletableFuture<>();
+		CompletableFuture<Object> inflight = flights.putIfAbsent(flightKey, flight);
+		if (inflight == null) {
+			try {
+				Object result = load(jp, checkCache, keys, namespace, waitTimeout, returnType, context);
+				flight.complete(result);
+				return result;
+			} catch (Throwable e) {
+				flight.completeExceptionally(e);
+				throw e;
+			} finally {
+				flights.remove(flightKey, flight);
+			}
+		}
+		try {
+			// wait until loader finished no matter how slow, instead of loading again after waitTimeout
+			Object result = inflight.get(Math.max(checkCache.singleFlightTimeout(), waitTimeout),
+					TimeUnit.MILLISECONDS);
+			// prefer cached value to avoid sharing mutable result of leader
+			Object cached = lookup(keys, namespace, 0, returnType, checkCache, context);
+			if (cached != MISS)
+				return cached;
+			if (result == null || isAssignable(returnType, result)) {
+				// not cached because of condition, share result of leader
+				putReturnValueIntoContext(context, result);
+				ExpressionUtils.eval(checkCache.onHit(), context);
+				instrument(namespace, true);
+				return result;
+			}
+		} catch (ExecutionException e) {
+			throw e.getCause();
+		} catch (TimeoutException e) {
+			// loading is hanging, try it ourselves
+		}
+		return load(jp, checkCache, keys, namespace, waitTimeout, returnType, context);
+	}
+
+	private Object load(ProceedingJoinPoint jp, CheckCache checkCache, List<String> keys, String namespace,
+			int waitTimeout, Class<?> returnType, Map<String, Object> context) throws Throwable {
+		String keyMutex = MUTEX + String.join("_", keys);
+		boolean mutexed = false;
+		if (cacheManager.increment(keyMutex, 1, waitTimeout, TimeUnit.MILLISECONDS,
+				namespace) <= checkCache.throughPermits()) {
 			mutexed = true;
 		} else {
 			Thread.sleep(waitTimeout);
-			for (String key : keys) {
-				Object value = cacheManager.get(key, namespace);
-				if (value instanceof NullObject) {
-					ExpressionUtils.eval(checkCache.onHit(), context);
-					instrument(namespace, true);
-					return null;
-				}
-				if (value != null) {
-					if (returnType.isPrimitive() && value.getClass() == ClassUtils.primitiveToWrapper(returnType)
-							|| returnType.isAssignableFrom(value.getClass())) {
-						putReturnValueIntoContext(context, value);
-						ExpressionUtils.eval(checkCache.onHit(), context);
-						instrument(namespace, true);
-						return value;
-					} else {
-						cacheManager.delete(key, namespace);
-					}
-				}
-			}
+			Object value = lookup(keys, namespace, 0, returnType, checkCache, context);
+			if (value != MISS)
+				return value;
 		}
 		ExpressionUtils.eval(checkCache.onMiss(), context);
 		instrument(namespace, false);
-		Object result = jp.proceed();
+		Object result;
+		try {
+			result = jp.proceed();
+		} catch (Throwable e) {
+			if (!checkCache.serveStaleOnError())
+				throw e;
+			Object stale = lookup(keys.stream().map(key -> STALE + key).collect(Collectors.toList()), namespace, 0,
+					returnType, checkCache, context);
+			if (stale == MISS)
+				throw e;
+			logger.warn("Serve stale value of namespace:{}, keys:{} because of {}", namespace, keys, e.toString());
+			return stale;
+		}
 		putReturnValueIntoContext(context, result);
-		if (ExpressionUtils.evalBoolean(checkCache.when(), context, true)) {
-			Object cacheResult = (result == null && checkCache.cacheNull()) ? NullObject.get() : result;
-			if (cacheResult != null) {
-				if (checkCache.eternal()) {
-					for (String key : keys)
-						cacheManager.putIfAbsent(key, cacheResult, 0, checkCache.timeUnit(), namespace);
+		cache(checkCache, keys, namespace, result, context, false);
+		if (mutexed)
+			cacheManager.decrement(keyMutex, 1, 0, TimeUnit.MILLISECONDS, namespace);
+		return result;
+	}
+
+	private void cache(CheckCache checkCache, List<String> keys, String namespace, Object result,
+			Map<String, Object> context, boolean overwrite) {
+		if (!ExpressionUtils.evalBoolean(checkCache.when(), context, true))
+			return;
+		Object cacheResult = (result == null && checkCache.cacheNull()) ? NullObject.get() : result;
+		if (cacheResult != null) {
+			int timeToLive = checkCache.eternal() ? 0
+					: ExpressionUtils.evalInt(checkCache.timeToLive(), context, 0);
+			boolean written = overwrite;
+			if (keys.size() == 1) {
+				if (overwrite)
+					cacheManager.put(keys.get(0), cacheResult, timeToLive, checkCache.timeUnit(), namespace);
+				else
+					written = cacheManager.putIfAbsent(keys.get(0), cacheResult, timeToLive, checkCache.timeUnit(),
+							namespace);
+			} else {
+				Map<String, Object> map = new HashMap<>();
+				for (String key : keys)
+					map.put(key, cacheResult);
+				if (overwrite)
+					cacheManager.mput(map, timeToLive, checkCache.timeUnit(), namespace);
+				else
+					written = Boolean.TRUE.equals(
+							cacheManager.mputIfAbsent(map, timeToLive, checkCache.timeUnit(), namespace).get(keys.get(0)));
+			}
+			if (timeToLive > 0) {
+				if (written && checkCache.refreshAhead() > 0 && cacheManager.supportsGetTtl())
+					markRefreshWindow(checkCache, keys, namespace, checkCache.timeUnit().toMillis(timeToLive),
+							checkCache.timeUnit().toMillis(timeToLive));
+				if (checkCache.serveStaleOnError())
+					cacheStale(checkCache, keys, namespace, cacheResult, timeToLive);
+			}
+		}
+		if (result != null)
+			ExpressionUtils.eval(checkCache.onPut(), context);
+	}
+
+	private void cacheStale(CheckCache checkCache, List<String> keys, String namespace, Object cacheResult,
+			int timeToLive) {
+		// stale value outlives the fresh one for another timeToLive
+		Map<String, Object> map = new HashMap<>();
+		for (String key : keys)
+			map.put(STALE + key, cacheResult);
+		cacheManager.mput(map, timeToLive * 2, checkCache.timeUnit(), namespace);
+	}
+
+	private void markRefreshWindow(CheckCache checkCache, List<String> keys, String namespace, long ttl,
+			long timeToLive) {
+		if (refreshWindows.size() >= refreshWindowsCapacity) {
+			long now = System.currentTimeMillis();
+			refreshWindows.values().removeIf(start -> start <= now);
+			if (refreshWindows.size() >= refreshWindowsCapacity)
+				refreshWindows.clear();
+		}
+		long window = (long) (timeToLive * checkCache.refreshAhead());
+		refreshWindows.put(namespace + ':' + String.join("_", keys), System.currentTimeMillis() + ttl - window);
+	}
+
+	private void refreshAheadIfNecessary(ProceedingJoinPoint jp, CheckCache checkCache, List<String> keys,
+			String namespace, Map<String, Object> context) {
+		if (checkCache.eternal() || !cacheManager.supportsGetTtl())
+			return;
+		int timeToLive = ExpressionUtils.evalInt(checkCache.timeToLive(), context, 0);
+		if (timeToLive <= 0)
+			return;
+		String windowKey = namespace + ':' + String.join("_", keys);
+		Long windowStart = refreshWindows.get(windowKey);
+		if (windowStart != null && System.currentTimeMillis() < windowStart)
+			return;
+		long timeToLiveMillis = checkCache.timeUnit().toMillis(timeToLive);
+		// the earliest expiring key decides, refresh overwrites all keys
+		long ttl = 0;
+		for (String key : keys) {
+			long t = cacheManager.ttl(key, namespace);
+			if (t > 0 && (ttl == 0 || t < ttl))
+				ttl = t;
+		}
+		if (ttl <= 0) {
+			refreshWindows.remove(windowKey);
+			return;
+		}
+		if (ttl >= timeToLiveMillis * checkCache.refreshAhead()) {
+			// entry written by others, remember its window to avoid ttl lookup on every hit
+			markRefreshWindow(checkCache, keys, namespace, ttl, timeToLiveMillis);
+			return;
+		}
+		// skip ttl lookup until refreshed entry marks a new window or current entry expires
+		refreshWindows.put(windowKey, System.currentTimeMillis() + ttl);
+		// only one caller across cluster will refresh until entry expires
+		if (cacheManager.increment(REFRESH + String.join("_", keys), 1, (int) Math.min(ttl, Integer.MAX_VALUE),
+				TimeUnit.MILLISECONDS, namespace) > 1)
+			return;
+		// only security context is propagated, request may be recycled and transaction is not shared
+		SecurityContext sc = SecurityContextHolder.getContext();
+		refreshExecutor.execute(() -> {
+			try {
+				SecurityContextHolder.setContext(sc);
+				Object result = jp.proceed();
+				putReturnValueIntoContext(context, result);
+				cache(checkCache, keys, namespace, result, context, true);
+			} catch (Throwable e) {
+				logger.warn("Refresh ahead of namespace:{}, keys:{} failed: {}", namespace, keys, e.toString());
+			} finally {
+				SecurityContextHolder.clearContext();
+			}
+		});
+	}
+
+	private Object lookup(List<String> keys, String namespace, int timeToIdle, Class<?> returnType,
+			CheckCache checkCache, Map<String, Object> context) {
+		Map<String, Object> values;
+		if (keys.size() == 1) {
+			String key = keys.get(0);
+			values = Collections.singletonMap(key,
+					timeToIdle > 0 ? cacheManager.getWithTti(key, namespace, timeToIdle, checkCache.timeUnit())
+							: cacheManager.get(key, namespace));
+		} else {
+			values = timeToIdle > 0 ? cacheManager.mgetWithTti(keys, namespace, timeToIdle, checkCache.timeUnit())
+					: cacheManager.mget(keys, namespace);
+			if (values == null)
+				values = Collections.emptyMap();
+		}
+		for (String key : keys) {
+			Object value = values.get(key);
+			if (value instanceof NullObject) {
+				ExpressionUtils.eval(checkCache.onHit(), context);
+				instrument(namespace, true);
+				return null;
+			}
+			if (value != null) {
+				if (isAssignable(returnType, value)) {
+					putReturnValueIntoContext(context, value);
+					ExpressionUtils.eval(checkCache.onHit(), context);
+					instrument(namespace, true);
+					return value;
 				} else {
-					int timeToLive = ExpressionUtils.evalInt(checkCache.timeToLive(), context, 0);
-					for (String key : keys)
-						cacheManager.putIfAbsent(key, cacheResult, timeToLive, checkCache.timeUnit(), namespace);
+					cacheManager.delete(key, namespace);
 				}
 			}
-			if (result != null)
-				ExpressionUtils.eval(checkCache.onPut(), context);
 		}
-		if (mutexed)
-			cacheManager.decrement(keyMutex, 1, 0, TimeUnit.MILLISECONDS, namespace);
-		return result;
+		return MISS;
 	}
 
 	@Around("execution(public * *(..)) and @annotation(evictCache)")
@@ -140,7 +346,9 @@ public class CacheAspect extends BaseAspect {
 		keys = keys.stream().filter(s -> s != null).collect(Collectors.toList());
 		if (isBypass() || keys.isEmpty())
 			return retval;
-		cacheManager.mdelete(new HashSet<>(keys), namespace);
+		Set<String> keysToDelete = new HashSet<>(keys);
+		keys.forEach(key -> keysToDelete.add(STALE + key));
+		cacheManager.mdelete(keysToDelete, namespace);
 		ExpressionUtils.eval(evictCache.onEvict(), context);
 		if (StringUtils.isNotBlank(evictCache.renew())) {
 			Object value = ExpressionUtils.eval(evictCache.renew(), context);
@@ -156,6 +364,11 @@ public class CacheAspect extends BaseAspect {
 		return retval;
 	}
 
+	private static boolean isAssignable(Class<?> returnType, Object value) {
+		return returnType.isPrimitive() && value.getClass() == ClassUtils.primitiveToWrapper(returnType)
+				|| returnType.isAssignableFrom(value.getClass());
+	}
+
 	private static void instrument(String namespace, boolean hit) {
 		Metrics.increment("cache." + namespace, "hit", String.valueOf(hit));
 	}
@@ -1,6 +1,7 @@
 package org.ironrhino.core.cache;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -28,10 +29,29 @@ public interface CacheManager {
 
 	Map<String, Object> mget(Collection<String> keys, String namespace);
 
+	default Map<String, Object> mgetWithTti(Collection<String> keys, String namespace, int timeToIdle,
+			TimeUnit timeUnit) {
+		if (keys == null)
+			throw new IllegalArgumentException("keys should not be null");
+		Map<String, Object> result = new HashMap<>();
+		for (String key : keys)
+			result.put(key, getWithTti(key, namespace, timeToIdle, timeUnit));
+		return result;
+	}
+
 	void mdelete(Collection<String> keys, String namespace);
 
 	boolean putIfAbsent(String key, Object value, int timeToLive, TimeUnit timeUnit, String namespace);
 
+	default Map<String, Boolean> mputIfAbsent(Map<String, Object> map, int timeToLive, TimeUnit timeUnit,
+			String namespace) {
+		if (map == null)
+			throw new IllegalArgumentException("map should not be null");
+		Map<String, Boolean> result = new HashMap<>();
+		map.forEach((key, value) -> result.put(key, putIfAbsent(key, value, timeToLive, timeUnit, namespace)));
+		return result;
+	}
+
 	// timeToLive = 0 not change expiration, timeToLive < 0 permanent
 	long increment(String key, long delta, int timeToLive, TimeUnit timeUnit, String namespace);
 
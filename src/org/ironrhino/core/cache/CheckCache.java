@@ -36,6 +36,20 @@ public @interface CheckCache {
 	// TimeUnit.MILLISECONDS
 	int waitTimeout() default 200;
 
+	// concurrent misses in same jvm wait for one loading instead of sleeping
+	boolean singleFlight() default true;
+
+	// TimeUnit.MILLISECONDS, max time concurrent misses wait for loading
+	int singleFlightTimeout() default 10000;
+
+	// refresh asynchronously if remaining ttl less than timeToLive * refreshAhead
+	// refreshing runs in background thread with caller's security context only,
+	// request attributes and transaction of caller are not available
+	float refreshAhead() default 0;
+
+	// serve stale value if loading failed, stale value kept for another timeToLive
+	boolean serveStaleOnError() default false;
+
 	// mvel expression
 	String onHit() default "";
 
@@ -23,6 +23,9 @@ import org.ironrhino.core.cache.CacheManager;
 import org.ironrhino.core.spring.configuration.ServiceImplementationConditional;
 import org.springframework.stereotype.Component;
 
+import lombok.Getter;
+import lombok.Setter;
+
 @Component("cacheManager")
 @ServiceImplementationConditional(profiles = DEFAULT)
 public class Cache2kCacheManager implements CacheManager {
@@ -31,6 +34,15 @@ public class Cache2kCacheManager implements CacheManager {
 
 	private org.cache2k.CacheManager cache2kCacheManager;
 
+	@Getter
+	@Setter
+	private long entryCapacity = 10000;
+
+	// TimeUnit.SECONDS
+	@Getter
+	@Setter
+	private int expireAfterWrite = 3600;
+
 	@PostConstruct
 	public void init() {
 		int number = INSTANCE_NUMBER.getAndIncrement();
@@ -237,8 +249,8 @@ public class Cache2kCacheManager implements CacheManager {
 				if (cache == null) {
 					Cache2kConfiguration<String, Object> cfg = Cache2kConfiguration.of(String.class, Object.class);
 					cfg.setName(namespace);
-					cfg.setExpireAfterWrite(3600 * 1000);
-					cfg.setEntryCapacity(10000);
+					cfg.setExpireAfterWrite(TimeUnit.SECONDS.toMillis(expireAfterWrite));
+					cfg.setEntryCapacity(entryCapacity);
 					cache = cache2kCacheManager.createCache(cfg);
 				}
 			}
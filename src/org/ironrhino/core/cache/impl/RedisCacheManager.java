@@ -3,6 +3,7 @@ package org.ironrhino.core.cache.impl;
 import static org.ironrhino.core.metadata.Profiles.CLOUD;
 import static org.ironrhino.core.metadata.Profiles.DUAL;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -19,15 +20,19 @@ import org.apache.commons.lang3.StringUtils;
 import org.ironrhino.core.cache.CacheManager;
 import org.ironrhino.core.spring.configuration.PriorityQualifier;
 import org.ironrhino.core.spring.configuration.ServiceImplementationConditional;
+import org.ironrhino.core.spring.data.redis.CompressionRedisSerializer;
 import org.ironrhino.core.spring.data.redis.FallbackToStringSerializer;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.ApplicationContext;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.SerializationException;
 import org.springframework.stereotype.Component;
@@ -37,7 +42,7 @@ import lombok.extern.slf4j.Slf4j;
 
 @SuppressWarnings({ "unchecked", "rawtypes" })
 @Component("cacheManager")
-@ServiceImplementationConditional(profiles = { DUAL, CLOUD })
+@ServiceImplementationConditional(profiles = { DUAL + " & !near-cache", CLOUD + " & !near-cache" })
 @Slf4j
 public class RedisCacheManager implements CacheManager {
 
@@ -47,6 +52,10 @@ public class RedisCacheManager implements CacheManager {
 
 	public static final String TEMPLATES_PREFIX = "redisCacheManager.templates.";
 
+	public static final String COMPRESSION_THRESHOLD = "redisCacheManager.compressionThreshold";
+
+	public static final String COMPRESSION_THRESHOLDS_PREFIX = "redisCacheManager.compressionThresholds.";
+
 	@Autowired
 	@PriorityQualifier
 	private RedisTemplate cacheRedisTemplate;
@@ -61,6 +70,10 @@ public class RedisCacheManager implements CacheManager {
 
 	private Map<String, RedisTemplate> cache = new ConcurrentHashMap<>();
 
+	private RedisSerializer defaultSerializer;
+
+	private int compressionThreshold;
+
 	private RedisScript<Long> incrementAndExpireScript = new DefaultRedisScript<>(
 			"local v=redis.call('incrby',KEYS[1],ARGV[1]) redis.call('pexpire',KEYS[1],ARGV[2]) return v", Long.class);
 
@@ -73,14 +86,17 @@ public class RedisCacheManager implements CacheManager {
 		String defaultSerializerClass = ctx.getEnvironment().getProperty(DEFAULT_SERIALIZER);
 		if (StringUtils.isNotBlank(defaultSerializerClass)) {
 			try {
-				cacheRedisTemplate.setValueSerializer((RedisSerializer) BeanUtils.instantiateClass(
-						ClassUtils.forName(defaultSerializerClass, RedisCacheManager.class.getClassLoader())));
+				defaultSerializer = (RedisSerializer) BeanUtils.instantiateClass(
+						ClassUtils.forName(defaultSerializerClass, RedisCacheManager.class.getClassLoader()));
 			} catch (Exception e) {
 				throw new RuntimeException(e);
 			}
 		} else {
-			cacheRedisTemplate.setValueSerializer(new FallbackToStringSerializer());
+			defaultSerializer = new FallbackToStringSerializer();
 		}
+		compressionThreshold = ctx.getEnvironment().getProperty(COMPRESSION_THRESHOLD, int.class, 0);
+		// always decorated to read compressed values even if compression disabled
+		cacheRedisTemplate.setValueSerializer(new CompressionRedisSerializer(defaultSerializer, compressionThreshold));
 	}
 
 	@Override
@@ -179,11 +195,20 @@ public class RedisCacheManager implements CacheManager {
 			throw new IllegalArgumentException("map should not be null");
 		RedisTemplate redisTemplate = findRedisTemplate(namespace);
 		try {
-			Map<String, Object> temp = new HashMap<>();
-			map.forEach((key, value) -> temp.put(generateKey(key, namespace), value));
-			redisTemplate.opsForValue().multiSet(temp);
-			if (timeToLive > 0)
-				temp.keySet().forEach(key -> redisTemplate.expire(key, timeToLive, timeUnit));
+			if (timeToLive > 0) {
+				RedisSerializer keySerializer = redisTemplate.getKeySerializer();
+				RedisSerializer valueSerializer = redisTemplate.getValueSerializer();
+				Expiration expiration = Expiration.from(timeToLive, timeUnit);
+				redisTemplate.executePipelined((RedisCallback) conn -> {
+					map.forEach((key, value) -> conn.set(keySerializer.serialize(generateKey(key, namespace)),
+							valueSerializer.serialize(value), expiration, SetOption.upsert()));
+					return null;
+				});
+			} else {
+				Map<String, Object> temp = new HashMap<>();
+				map.forEach((key, value) -> temp.put(generateKey(key, namespace), value));
+				redisTemplate.opsForValue().multiSet(temp);
+			}
 		} catch (Exception e) {
 			log.error(e.getMessage(), e);
 		}
@@ -204,6 +229,48 @@ public class RedisCacheManager implements CacheManager {
 				i++;
 			}
 			return result;
+		} catch (SerializationException e) {
+			log.warn(e.getMessage());
+			Map<String, Object> result = new HashMap<>();
+			for (String key : keys)
+				result.put(key, get(key, namespace));
+			return result;
+		} catch (Exception e) {
+			log.error(e.getMessage(), e);
+			return null;
+		}
+	}
+
+	@Override
+	public Map<String, Object> mgetWithTti(Collection<String> keys, String namespace, int timeToIdle,
+			TimeUnit timeUnit) {
+		if (keys == null)
+			throw new IllegalArgumentException("keys should not be null");
+		if (timeToIdle <= 0)
+			return mget(keys, namespace);
+		List<String> list = keys.stream().filter(StringUtils::isNotBlank).distinct().collect(Collectors.toList());
+		RedisTemplate redisTemplate = findRedisTemplate(namespace);
+		RedisSerializer keySerializer = redisTemplate.getKeySerializer();
+		long millis = timeUnit.toMillis(timeToIdle);
+		try {
+			List<Object> results = redisTemplate.executePipelined((RedisCallback) conn -> {
+				for (String key : list) {
+					byte[] rawKey = keySerializer.serialize(generateKey(key, namespace));
+					conn.get(rawKey);
+					conn.pExpire(rawKey, millis);
+				}
+				return null;
+			});
+			Map<String, Object> result = new HashMap<>();
+			for (int i = 0; i < list.size(); i++)
+				result.put(list.get(i), results.get(i * 2));
+			return result;
+		} catch (SerializationException e) {
+			log.warn(e.getMessage());
+			Map<String, Object> result = new HashMap<>();
+			for (String key : list)
+				result.put(key, getWithTti(key, namespace, timeToIdle, timeUnit));
+			return result;
 		} catch (Exception e) {
 			log.error(e.getMessage(), e);
 			return null;
@@ -239,6 +306,30 @@ public class RedisCacheManager implements CacheManager {
 		return result;
 	}
 
+	@Override
+	public Map<String, Boolean> mputIfAbsent(Map<String, Object> map, int timeToLive, TimeUnit timeUnit,
+			String namespace) {
+		if (map == null)
+			throw new IllegalArgumentException("map should not be null");
+		if (map.values().stream().anyMatch(v -> v == null))
+			throw new IllegalArgumentException("value should not be null");
+		List<String> keys = new ArrayList<>(map.keySet());
+		RedisTemplate redisTemplate = findRedisTemplate(namespace);
+		RedisSerializer keySerializer = redisTemplate.getKeySerializer();
+		RedisSerializer valueSerializer = redisTemplate.getValueSerializer();
+		Expiration expiration = timeToLive > 0 ? Expiration.from(timeToLive, timeUnit) : Expiration.persistent();
+		List<Object> results = redisTemplate.executePipelined((RedisCallback) conn -> {
+			for (String key : keys)
+				conn.set(keySerializer.serialize(generateKey(key, namespace)), valueSerializer.serialize(map.get(key)),
+						expiration, SetOption.ifAbsent());
+			return null;
+		});
+		Map<String, Boolean> result = new HashMap<>();
+		for (int i = 0; i < keys.size(); i++)
+			result.put(keys.get(i), Boolean.TRUE.equals(results.get(i)));
+		return result;
+	}
+
 	@Override
 	public long increment(String key, long delta, int timeToLive, TimeUnit timeUnit, String namespace) {
 		String actualkey = generateKey(key, namespace);
@@ -275,6 +366,21 @@ public class RedisCacheManager implements CacheManager {
 		return result;
 	}
 
+	protected void expire(Collection<String> keys, String namespace, int timeToLive, TimeUnit timeUnit) {
+		RedisTemplate redisTemplate = findRedisTemplate(namespace);
+		RedisSerializer keySerializer = redisTemplate.getKeySerializer();
+		long millis = timeUnit.toMillis(timeToLive);
+		try {
+			redisTemplate.executePipelined((RedisCallback) conn -> {
+				for (String key : keys)
+					conn.pExpire(keySerializer.serialize(generateKey(key, namespace)), millis);
+				return null;
+			});
+		} catch (Exception e) {
+			log.error(e.getMessage(), e);
+		}
+	}
+
 	private String generateKey(String key, String namespace) {
 		if (key == null)
 			throw new IllegalArgumentException("key should not be null");
@@ -313,17 +419,23 @@ public class RedisCacheManager implements CacheManager {
 		if (StringUtils.isNotBlank(templateBeanName))
 			return ctx.getBean(templateBeanName, RedisTemplate.class);
 		String serializerClass = ctx.getEnvironment().getProperty(SERIALIZERS_PREFIX + namespace);
-		if (StringUtils.isBlank(serializerClass))
+		Integer threshold = ctx.getEnvironment().getProperty(COMPRESSION_THRESHOLDS_PREFIX + namespace, Integer.class);
+		if (StringUtils.isBlank(serializerClass) && threshold == null)
 			return cacheRedisTemplate;
 		return cache.computeIfAbsent(namespace, key -> {
 			RedisTemplate rt = new RedisTemplate();
 			BeanUtils.copyProperties(cacheRedisTemplate, rt);
-			try {
-				rt.setValueSerializer((RedisSerializer) BeanUtils.instantiateClass(
-						ClassUtils.forName(serializerClass, RedisCacheManager.class.getClassLoader())));
-			} catch (Exception e) {
-				throw new RuntimeException(e);
+			RedisSerializer serializer = defaultSerializer;
+			if (StringUtils.isNotBlank(serializerClass)) {
+				try {
+					serializer = (RedisSerializer) BeanUtils.instantiateClass(
+							ClassUtils.forName(serializerClass, RedisCacheManager.class.getClassLoader()));
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
 			}
+			rt.setValueSerializer(new CompressionRedisSerializer(serializer,
+					threshold != null ? threshold : compressionThreshold));
 			rt.afterPropertiesSet();
 			return rt;
 		});
@@ -0,0 +1,376 @@
+package org.ironrhino.core.cache.impl;
+
+import static org.ironrhino.core.metadata.Profiles.CLOUD;
+import static org.ironrhino.core.metadata.Profiles.DUAL;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.ironrhino.core.metrics.Metrics;
+import org.ironrhino.core.spring.configuration.PriorityQualifier;
+import org.ironrhino.core.spring.configuration.ServiceImplementationConditional;
+import org.ironrhino.core.util.AppInfo;
+import org.ironrhino.core.util.JsonUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link RedisCacheManager} with an in-process near cache tier for opted-in
+ * namespaces, enable it by
+ * {@code org.ironrhino.core.cache.CacheManager=org.ironrhino.core.cache.impl.TwoTierCacheManager}
+ * in applicationContext.properties or by activating profile {@code near-cache}
+ * along with {@code dual} or {@code cloud}, then opt-in namespace by
+ * {@code twoTierCacheManager.namespaces.<namespace>=<local time to live in seconds>}.
+ * <p>
+ * Every write to an opted-in namespace is broadcasted over redis pub/sub, other
+ * nodes will evict their local entries. Counters maintained by
+ * {@code increment} always go to redis and should not be read by {@code get}.
+ * </p>
+ */
+@Component("cacheManager")
+@ServiceImplementationConditional(profiles = { DUAL + " & near-cache", CLOUD + " & near-cache" })
+@Slf4j
+public class TwoTierCacheManager extends RedisCacheManager {
+
+	public static final String NAMESPACES_PREFIX = "twoTierCacheManager.namespaces.";
+
+	public static final String CHANNEL_NAME = "twoTierCacheManager.invalidation";
+
+	@Autowired
+	private Environment env;
+
+	@Autowired
+	@Qualifier("stringRedisTemplate")
+	@PriorityQualifier
+	private StringRedisTemplate cacheStringRedisTemplate;
+
+	@Autowired
+	@PriorityQualifier
+	private RedisMessageListenerContainer cacheRedisMessageListenerContainer;
+
+	@Value("${twoTierCacheManager.entryCapacity:10000}")
+	private long entryCapacity = 10000;
+
+	@Value("${twoTierCacheManager.renewInterval:1000}")
+	private long renewInterval = 1000;
+
+	private final Cache2kCacheManager localCacheManager = new Cache2kCacheManager();
+
+	private final Map<String, Integer> localTimeToLives = new ConcurrentHashMap<>();
+
+	// namespace -> time to idle in milliseconds -> keys hit locally
+	private final Map<String, Map<Long, Set<String>>> pendingRenewals = new ConcurrentHashMap<>();
+
+	private final String origin = AppInfo.getInstanceId(true) + '@' + System.identityHashCode(this);
+
+	@Override
+	@PostConstruct
+	public void init() {
+		super.init();
+		localCacheManager.setEntryCapacity(entryCapacity);
+		localCacheManager.init();
+		cacheRedisMessageListenerContainer.addMessageListener((message, pattern) -> {
+			try {
+				Invalidation invalidation = JsonUtils.fromJson(new String(message.getBody(), StandardCharsets.UTF_8),
+						Invalidation.class);
+				if (origin.equals(invalidation.getOrigin()))
+					return;
+				if (invalidation.getKeys() == null)
+					localCacheManager.invalidate(invalidation.getNamespace());
+				else
+					localCacheManager.mdelete(invalidation.getKeys(), invalidation.getNamespace());
+			} catch (Exception e) {
+				log.error(e.getMessage(), e);
+			}
+		}, new ChannelTopic(CHANNEL_NAME));
+	}
+
+	@PreDestroy
+	public void destroy() {
+		localCacheManager.destroy();
+	}
+
+	@Override
+	public void put(String key, Object value, int timeToLive, TimeUnit timeUnit, String namespace) {
+		super.put(key, value, timeToLive, timeUnit, namespace);
+		if (isNearCached(namespace)) {
+			localCacheManager.put(key, value, localTimeToLive(namespace, timeToLive, timeUnit), TimeUnit.SECONDS,
+					namespace);
+			publish(namespace, Collections.singleton(key));
+		}
+	}
+
+	@Override
+	public boolean exists(String key, String namespace) {
+		if (isNearCached(namespace) && localCacheManager.exists(key, namespace))
+			return true;
+		return super.exists(key, namespace);
+	}
+
+	@Override
+	public Object get(String key, String namespace) {
+		if (!isNearCached(namespace))
+			return super.get(key, namespace);
+		Object value = localCacheManager.get(key, namespace);
+		instrument(namespace, "local", value != null);
+		if (value != null)
+			return value;
+		value = super.get(key, namespace);
+		instrument(namespace, "remote", value != null);
+		if (value != null)
+			localCacheManager.put(key, value, localTimeToLive(namespace), TimeUnit.SECONDS, namespace);
+		return value;
+	}
+
+	@Override
+	public Object getWithTti(String key, String namespace, int timeToIdle, TimeUnit timeUnit) {
+		if (!isNearCached(namespace))
+			return super.getWithTti(key, namespace, timeToIdle, timeUnit);
+		Object value = localCacheManager.get(key, namespace);
+		instrument(namespace, "local", value != null);
+		if (value != null) {
+			if (timeToIdle > 0)
+				renew(Collections.singleton(key), namespace, timeToIdle, timeUnit);
+			return value;
+		}
+		value = super.getWithTti(key, namespace, timeToIdle, timeUnit);
+		instrument(namespace, "remote", value != null);
+		if (value != null)
+			localCacheManager.put(key, value, localTimeToLive(namespace, timeToIdle, timeUnit), TimeUnit.SECONDS,
+					namespace);
+		return value;
+	}
+
+	@Override
+	public void setTtl(String key, String namespace, int timeToLive, TimeUnit timeUnit) {
+		super.setTtl(key, namespace, timeToLive, timeUnit);
+		if (isNearCached(namespace)) {
+			localCacheManager.delete(key, namespace);
+			publish(namespace, Collections.singleton(key));
+		}
+	}
+
+	@Override
+	public void delete(String key, String namespace) {
+		super.delete(key, namespace);
+		if (isNearCached(namespace)) {
+			localCacheManager.delete(key, namespace);
+			publish(namespace, Collections.singleton(key));
+		}
+	}
+
+	@Override
+	public void mput(Map<String, Object> map, int timeToLive, TimeUnit timeUnit, String namespace) {
+		super.mput(map, timeToLive, timeUnit, namespace);
+		if (isNearCached(namespace)) {
+			localCacheManager.mput(map, localTimeToLive(namespace, timeToLive, timeUnit), TimeUnit.SECONDS,
+					namespace);
+			publish(namespace, map.keySet());
+		}
+	}
+
+	@Override
+	public Map<String, Object> mget(Collection<String> keys, String namespace) {
+		if (!isNearCached(namespace))
+			return super.mget(keys, namespace);
+		return mget(keys, namespace, 0, null);
+	}
+
+	@Override
+	public Map<String, Object> mgetWithTti(Collection<String> keys, String namespace, int timeToIdle,
+			TimeUnit timeUnit) {
+		if (!isNearCached(namespace))
+			return super.mgetWithTti(keys, namespace, timeToIdle, timeUnit);
+		return mget(keys, namespace, timeToIdle, timeUnit);
+	}
+
+	private Map<String, Object> mget(Collection<String> keys, String namespace, int timeToIdle, TimeUnit timeUnit) {
+		if (keys == null)
+			throw new IllegalArgumentException("keys should not be null");
+		Map<String, Object> result = new HashMap<>(localCacheManager.mget(keys, namespace));
+		Set<String> missing = keys.stream().filter(StringUtils::isNotBlank).filter(k -> result.get(k) == null)
+				.collect(Collectors.toCollection(HashSet::new));
+		instrument(namespace, "local", missing.isEmpty());
+		if (timeToIdle > 0 && !result.isEmpty())
+			renew(result.keySet(), namespace, timeToIdle, timeUnit);
+		if (missing.isEmpty())
+			return result;
+		Map<String, Object> remote = timeToIdle > 0 ? super.mgetWithTti(missing, namespace, timeToIdle, timeUnit)
+				: super.mget(missing, namespace);
+		if (remote == null)
+			return result;
+		Map<String, Object> found = new HashMap<>();
+		remote.forEach((k, v) -> {
+			result.put(k, v);
+			if (v != null)
+				found.put(k, v);
+		});
+		instrument(namespace, "remote", found.size() == missing.size());
+		if (!found.isEmpty())
+			localCacheManager.mput(found,
+					timeToIdle > 0 ? localTimeToLive(namespace, timeToIdle, timeUnit) : localTimeToLive(namespace),
+					TimeUnit.SECONDS, namespace);
+		return result;
+	}
+
+	@Override
+	public void mdelete(Collection<String> keys, String namespace) {
+		super.mdelete(keys, namespace);
+		if (isNearCached(namespace)) {
+			localCacheManager.mdelete(keys, namespace);
+			publish(namespace, keys);
+		}
+	}
+
+	@Override
+	public boolean putIfAbsent(String key, Object value, int timeToLive, TimeUnit timeUnit, String namespace) {
+		boolean b = super.putIfAbsent(key, value, timeToLive, timeUnit, namespace);
+		if (b && isNearCached(namespace)) {
+			localCacheManager.put(key, value, localTimeToLive(namespace, timeToLive, timeUnit), TimeUnit.SECONDS,
+					namespace);
+			publish(namespace, Collections.singleton(key));
+		}
+		return b;
+	}
+
+	@Override
+	public Map<String, Boolean> mputIfAbsent(Map<String, Object> map, int timeToLive, TimeUnit timeUnit,
+			String namespace) {
+		Map<String, Boolean> result = super.mputIfAbsent(map, timeToLive, timeUnit, namespace);
+		if (isNearCached(namespace)) {
+			Map<String, Object> put = new HashMap<>();
+			result.forEach((k, b) -> {
+				if (b)
+					put.put(k, map.get(k));
+			});
+			if (!put.isEmpty()) {
+				localCacheManager.mput(put, localTimeToLive(namespace, timeToLive, timeUnit), TimeUnit.SECONDS,
+						namespace);
+				publish(namespace, put.keySet());
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public long increment(String key, long delta, int timeToLive, TimeUnit timeUnit, String namespace) {
+		if (isNearCached(namespace))
+			localCacheManager.delete(key, namespace);
+		return super.increment(key, delta, timeToLive, timeUnit, namespace);
+	}
+
+	@Override
+	public void invalidate(String namespace) {
+		super.invalidate(namespace);
+		if (isNearCached(namespace)) {
+			localCacheManager.invalidate(namespace);
+			publish(namespace, null);
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${twoTierCacheManager.renewInterval:1000}")
+	public void renewPending() {
+		pendingRenewals.forEach((namespace, map) -> map.forEach((millis, keys) -> {
+			List<String> batch = new ArrayList<>();
+			for (Iterator<String> it = keys.iterator(); it.hasNext();) {
+				batch.add(it.next());
+				it.remove();
+			}
+			if (!batch.isEmpty())
+				expire(batch, namespace, millis.intValue(), TimeUnit.MILLISECONDS);
+		}));
+	}
+
+	private void renew(Collection<String> keys, String namespace, int timeToIdle, TimeUnit timeUnit) {
+		// renew remote idle time without transferring value
+		long millis = timeUnit.toMillis(timeToIdle);
+		if (millis <= 2 * renewInterval) {
+			// too short to defer
+			expire(keys, namespace, timeToIdle, timeUnit);
+			return;
+		}
+		// local hits are coalesced and renewed in background
+		pendingRenewals.computeIfAbsent(namespace, ns -> new ConcurrentHashMap<>())
+				.computeIfAbsent(millis, ms -> ConcurrentHashMap.newKeySet()).addAll(keys);
+	}
+
+	protected boolean isNearCached(String namespace) {
+		return localTimeToLive(namespace) > 0;
+	}
+
+	private int localTimeToLive(String namespace) {
+		if (StringUtils.isBlank(namespace))
+			return 0;
+		return localTimeToLives.computeIfAbsent(namespace,
+				ns -> env.getProperty(NAMESPACES_PREFIX + ns, Integer.class, 0));
+	}
+
+	private int localTimeToLive(String namespace, int timeToLive, TimeUnit timeUnit) {
+		int localTimeToLive = localTimeToLive(namespace);
+		if (timeToLive > 0) {
+			long seconds = Math.max(timeUnit.toSeconds(timeToLive), 1);
+			if (seconds < localTimeToLive)
+				return (int) seconds;
+		}
+		return localTimeToLive;
+	}
+
+	private void publish(String namespace, Collection<String> keys) {
+		Invalidation invalidation = new Invalidation();
+		invalidation.setOrigin(origin);
+		invalidation.setNamespace(namespace);
+		if (keys != null)
+			invalidation.setKeys(new HashSet<>(keys));
+		try {
+			cacheStringRedisTemplate.convertAndSend(CHANNEL_NAME, JsonUtils.toJson(invalidation));
+		} catch (Exception e) {
+			log.error(e.getMessage(), e);
+		}
+	}
+
+	private static void instrument(String namespace, String tier, boolean hit) {
+		Metrics.increment("cache." + namespace + "." + tier, "hit", String.valueOf(hit));
+	}
+
+	@Data
+	@NoArgsConstructor
+	static class Invalidation implements Serializable {
+
+		private static final long serialVersionUID = 2618839470361628593L;
+
+		private String origin;
+
+		private String namespace;
+
+		private Set<String> keys;
+
+	}
+
+}
@@ -9,20 +9,31 @@ import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+
 import org.ironrhino.core.coordination.LockService;
+import org.ironrhino.core.metrics.Metrics;
 import org.ironrhino.core.spring.configuration.PriorityQualifier;
 import org.ironrhino.core.spring.configuration.ServiceImplementationConditional;
 import org.ironrhino.core.util.AppInfo;
+import org.ironrhino.core.util.ReleaseSignals;
+import org.ironrhino.core.util.ReleaseSignals.Signal;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Component;
 
 import lombok.Getter;
@@ -33,6 +44,12 @@ public class RedisLockService implements LockService {
 
 	private static final String NAMESPACE = "lock:";
 
+	private static final String NAMESPACE_QUEUE = NAMESPACE + "queue:";
+
+	private static final String NAMESPACE_TIMEOUT = NAMESPACE + "timeout:";
+
+	private static final String CHANNEL_NAME = NAMESPACE + "released";
+
 	@Getter
 	@Value("${lockService.maxHoldTime:18000}")
 	private int maxHoldTime = 18000;
@@ -45,70 +62,111 @@ public class RedisLockService implements LockService {
 	@Value("${lockService.heartbeatInterval:10}")
 	private int heartbeatInterval = 10;
 
+	// grant lock to waiters in arrival order
+	@Getter
+	@Value("${lockService.fair:false}")
+	private boolean fair;
+
+	// same thread could acquire lock again without blocking itself
+	@Getter
+	@Value("${lockService.reentrant:false}")
+	private boolean reentrant;
+
+	// milliseconds, fallback polling interval if release message missed
+	@Getter
+	@Value("${lockService.maxWaitInterval:1000}")
+	private long maxWaitInterval = 1000;
+
 	@Autowired
 	@Qualifier("stringRedisTemplate")
 	@PriorityQualifier
 	private StringRedisTemplate coordinationStringRedisTemplate;
 
+	@Autowired(required = false)
+	@PriorityQualifier
+	private RedisMessageListenerContainer coordinationRedisMessageListenerContainer;
+
 	private RedisScript<Long> compareAndDeleteScript = new DefaultRedisScript<>(
 			"if redis.call('get',KEYS[1]) == ARGV[1] then return redis.call('del',KEYS[1]) else return redis.call('exists',KEYS[1]) == 0 and 2 or 0 end",
 			Long.class);
 
+	// KEYS: lock, queue, timeout ARGV: holder, maxHoldTime, milliseconds to keep queueing
+	private RedisScript<Long> fairLockScript = new DefaultRedisScript<>(
+			"redis.replicate_commands() local t=redis.call('time') local now=tonumber(t[1])*1000+math.floor(tonumber(t[2])/1000) "
+					+ "while true do local first=redis.call('lindex',KEYS[2],0) if not first then break end "
+					+ "local expiry=redis.call('zscore',KEYS[3],first) if expiry and tonumber(expiry) > now then break end "
+					+ "redis.call('lpop',KEYS[2]) redis.call('zrem',KEYS[3],first) end "
+					+ "local first=redis.call('lindex',KEYS[2],0) "
+					+ "if redis.call('exists',KEYS[1])==0 and (not first or first==ARGV[1]) then "
+					+ "redis.call('set',KEYS[1],ARGV[1],'ex',ARGV[2]) "
+					+ "if first==ARGV[1] then redis.call('lpop',KEYS[2]) redis.call('zrem',KEYS[3],ARGV[1]) end return 1 end "
+					+ "local wait=tonumber(ARGV[3]) if wait > 0 then "
+					+ "if not redis.call('zscore',KEYS[3],ARGV[1]) then redis.call('rpush',KEYS[2],ARGV[1]) end "
+					+ "redis.call('zadd',KEYS[3],now+wait,ARGV[1]) "
+					+ "redis.call('pexpire',KEYS[2],wait) redis.call('pexpire',KEYS[3],wait) end return 0",
+			Long.class);
+
+	private RedisScript<Long> leaveQueueScript = new DefaultRedisScript<>(
+			"redis.call('lrem',KEYS[1],0,ARGV[1]) return redis.call('zrem',KEYS[2],ARGV[1])", Long.class);
+
+	private final ReleaseSignals signals = new ReleaseSignals();
+
+	// locks held by this instance, for hold time and reentrant count
+	private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void init() {
+		if (coordinationRedisMessageListenerContainer != null)
+			coordinationRedisMessageListenerContainer.addMessageListener((message, pattern) -> {
+				signals.signalAll(new String(message.getBody(), StandardCharsets.UTF_8));
+			}, new ChannelTopic(CHANNEL_NAME));
+	}
+
 	@Override
 	public boolean tryLock(String name) {
-		String key = NAMESPACE + name;
-		String holder = holder();
-		Boolean success = coordinationStringRedisTemplate.opsForValue().setIfAbsent(key, holder, this.maxHoldTime,
-				TimeUnit.SECONDS);
-		if (success == null)
-			throw new RuntimeException("Unexpected null");
-		if (success) {
+		if (reenter(name))
 			return true;
-		} else {
-			if (AppInfo.getContextPath() == null) // not in servlet container
-				return false;
-			boolean detectAlive = false;
-			if (this.maxHoldTime > this.suspiciousHoldTime) {
-				Long value = coordinationStringRedisTemplate.getExpire(key, TimeUnit.SECONDS);
-				detectAlive = value != null && this.maxHoldTime - value > this.suspiciousHoldTime;
-			}
-			if (detectAlive) {
-				String currentHolder = coordinationStringRedisTemplate.opsForValue().get(key);
-				if (currentHolder == null || currentHolder.startsWith(AppInfo.getInstanceId())) // self
-					return false;
-				boolean alive;
-				String hbKey = NAMESPACE + "hb:" + currentHolder;
-				String hbValue = "1";
-				if (!(alive = hbValue.equals(coordinationStringRedisTemplate.opsForValue().get(hbKey)))) {
-					if (alive = isAlive(currentHolder))
-						coordinationStringRedisTemplate.opsForValue().set(hbKey, hbValue, heartbeatInterval,
-								TimeUnit.SECONDS);
-				}
-				if (!alive) {
-					Long ret = coordinationStringRedisTemplate.execute(compareAndDeleteScript,
-							Collections.singletonList(key), currentHolder);
-					if (ret != null && ret != 0)
-						return tryLock(name);
-				}
-			}
+		if (!doTryLock(name, 0))
 			return false;
-		}
+		holds.put(name, new Hold(holder()));
+		return true;
 	}
 
 	@Override
 	public boolean tryLock(String name, long timeout, TimeUnit unit) {
-		boolean success = tryLock(name);
-		long millisTimeout = unit.toMillis(timeout);
-		long start = System.currentTimeMillis();
-		while (!success) {
-			try {
-				Thread.sleep(100);
-			} catch (InterruptedException e) {
-				return false;
+		if (reenter(name))
+			return true;
+		long start = System.nanoTime();
+		long nanos = unit.toNanos(timeout);
+		long deadline = nanos > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : start + nanos;
+		Signal signal = signals.enter(name);
+		long waitInterval = coordinationRedisMessageListenerContainer != null ? maxWaitInterval : 100;
+		boolean success = false;
+		try {
+			while (true) {
+				long version = signal.getVersion();
+				// keep position in queue a little longer than next attempt
+				if (doTryLock(name, waitInterval * 3)) {
+					success = true;
+					break;
+				}
+				long remaining = deadline == Long.MAX_VALUE ? Long.MAX_VALUE
+						: TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (remaining <= 0)
+					break;
+				signal.await(version, Math.min(remaining, waitInterval));
 			}
-			if ((System.currentTimeMillis() - start) >= millisTimeout)
-				break;
-			success = tryLock(name);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			signals.leave(name, signal);
+		}
+		if (fair && !success)
+			coordinationStringRedisTemplate.execute(leaveQueueScript,
+					Arrays.asList(NAMESPACE_QUEUE + name, NAMESPACE_TIMEOUT + name), holder());
+		if (success) {
+			Metrics.recordTimer("lock.wait", System.nanoTime() - start, TimeUnit.NANOSECONDS, "name", name);
+			holds.put(name, new Hold(holder()));
 		}
 		return success;
 	}
@@ -122,15 +180,96 @@ public class RedisLockService implements LockService {
 	public void unlock(String name) {
 		String key = NAMESPACE + name;
 		String holder = holder();
+		Hold hold = holds.get(name);
+		boolean own = hold != null && hold.holder.equals(holder);
+		if (own) {
+			if (--hold.count > 0)
+				return;
+			holds.remove(name, hold);
+		}
 		Long ret = coordinationStringRedisTemplate.execute(compareAndDeleteScript, Collections.singletonList(key),
 				holder);
 		if (ret == null)
 			throw new RuntimeException("Unexpected null");
+		if (hold != null && !own && ret != 0) // stale hold of lost lock
+			holds.remove(name, hold);
 		if (ret == 0) {
 			throw new IllegalStateException("Lock[" + name + "] is not held by :" + holder);
 		} else if (ret == 2) {
 			// lock hold timeout
+		} else {
+			coordinationStringRedisTemplate.convertAndSend(CHANNEL_NAME, name);
+		}
+		if (own)
+			Metrics.recordTimer("lock.hold", System.nanoTime() - hold.acquired, TimeUnit.NANOSECONDS, "name", name);
+	}
+
+	private boolean reenter(String name) {
+		if (!reentrant)
+			return false;
+		Hold hold = holds.get(name);
+		String holder = holder();
+		if (hold == null || !hold.holder.equals(holder))
+			return false;
+		// lock may be expired or taken over by others since last acquired
+		if (!holder.equals(coordinationStringRedisTemplate.opsForValue().get(NAMESPACE + name))) {
+			holds.remove(name, hold);
+			return false;
+		}
+		hold.count++;
+		return true;
+	}
+
+	private boolean doTryLock(String name, long queueingTime) {
+		String key = NAMESPACE + name;
+		String holder = holder();
+		boolean success;
+		if (fair) {
+			List<String> keys = Arrays.asList(key, NAMESPACE_QUEUE + name, NAMESPACE_TIMEOUT + name);
+			Long ret = coordinationStringRedisTemplate.execute(fairLockScript, keys, holder,
+					String.valueOf(this.maxHoldTime), String.valueOf(queueingTime));
+			if (ret == null)
+				throw new RuntimeException("Unexpected null");
+			success = ret == 1;
+		} else {
+			Boolean ret = coordinationStringRedisTemplate.opsForValue().setIfAbsent(key, holder, this.maxHoldTime,
+					TimeUnit.SECONDS);
+			if (ret == null)
+				throw new RuntimeException("Unexpected null");
+			success = ret;
+		}
+		if (success)
+			return true;
+		return releaseIfHolderDead(key) && doTryLock(name, queueingTime);
+	}
+
+	private boolean releaseIfHolderDead(String key) {
+		if (AppInfo.getContextPath() == null) // not in servlet container
+			return false;
+		boolean detectAlive = false;
+		if (this.maxHoldTime > this.suspiciousHoldTime) {
+			Long value = coordinationStringRedisTemplate.getExpire(key, TimeUnit.SECONDS);
+			detectAlive = value != null && this.maxHoldTime - value > this.suspiciousHoldTime;
 		}
+		if (detectAlive) {
+			String currentHolder = coordinationStringRedisTemplate.opsForValue().get(key);
+			if (currentHolder == null || currentHolder.startsWith(AppInfo.getInstanceId())) // self
+				return false;
+			boolean alive;
+			String hbKey = NAMESPACE + "hb:" + currentHolder;
+			String hbValue = "1";
+			if (!(alive = hbValue.equals(coordinationStringRedisTemplate.opsForValue().get(hbKey)))) {
+				if (alive = isAlive(currentHolder))
+					coordinationStringRedisTemplate.opsForValue().set(hbKey, hbValue, heartbeatInterval,
+							TimeUnit.SECONDS);
+			}
+			if (!alive) {
+				Long ret = coordinationStringRedisTemplate.execute(compareAndDeleteScript,
+						Collections.singletonList(key), currentHolder);
+				return ret != null && ret != 0;
+			}
+		}
+		return false;
 	}
 
 	private static String holder() {
@@ -164,4 +303,18 @@ public class RedisLockService implements LockService {
 		return false;
 	}
 
+	private static class Hold {
+
+		private final String holder;
+
+		private final long acquired = System.nanoTime();
+
+		private int count = 1;
+
+		Hold(String holder) {
+			this.holder = holder;
+		}
+
+	}
+
 }
@@ -1,23 +1,345 @@
 package org.ironrhino.core.event;
 
-import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+import javax.annotation.PreDestroy;
+
+import org.ironrhino.core.metrics.Metrics;
 import org.ironrhino.core.spring.configuration.ApplicationContextPropertiesConditional;
+import org.ironrhino.core.util.NameableThreadFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.SimpleApplicationEventMulticaster;
-import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.Ordered;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.OrderUtils;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dispatch events asynchronously, every event class has its own lane with
+ * {@code concurrency} workers and bounded queues, so burst of one event type
+ * will not starve others. Events implementing {@link OrderedEvent} with same
+ * key are handled in order by same worker, publisher is blocked if queue of
+ * that worker is full, {@code rejectionPolicy} applies to events without key
+ * only, queued listeners with higher precedence are invoked first. Lane can be
+ * tuned by
+ * {@code applicationEventMulticaster.lanes.<event class name>.concurrency} and
+ * {@code applicationEventMulticaster.lanes.<event class name>.queueCapacity}.
+ */
 @ApplicationContextPropertiesConditional(key = "applicationEventMulticaster.async", value = "true")
 @Component
+@Slf4j
 public class ApplicationEventMulticaster extends SimpleApplicationEventMulticaster {
 
+	public static final String LANES_PREFIX = "applicationEventMulticaster.lanes.";
+
 	@Autowired
-	private AsyncTaskExecutor taskExecutor;
+	private Environment env;
+
+	@Getter
+	@Value("${applicationEventMulticaster.concurrency:4}")
+	private int concurrency = 4;
+
+	@Getter
+	@Value("${applicationEventMulticaster.queueCapacity:1000}")
+	private int queueCapacity = 1000;
+
+	@Getter
+	@Value("${applicationEventMulticaster.rejectionPolicy:CALLER_RUNS}")
+	private RejectionPolicy rejectionPolicy = RejectionPolicy.CALLER_RUNS;
+
+	// requires JDK 21+, fallback to platform threads
+	@Value("${applicationEventMulticaster.virtualThreads:false}")
+	private boolean virtualThreads;
+
+	@Value("${applicationEventMulticaster.shutdownTimeout:10000}")
+	private long shutdownTimeout = 10000;
+
+	private final Map<Class<?>, Lane> lanes = new ConcurrentHashMap<>();
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	@Override
+	public void multicastEvent(ApplicationEvent event, ResolvableType eventType) {
+		Collection<ApplicationListener<?>> listeners = getApplicationListeners(event,
+				eventType != null ? eventType : ResolvableType.forInstance(event));
+		if (listeners.isEmpty())
+			return;
+		Lane lane = lanes.computeIfAbsent(event.getClass(), Lane::new);
+		Object key = event instanceof OrderedEvent ? ((OrderedEvent) event).getOrderingKey() : null;
+		for (ApplicationListener<?> listener : listeners)
+			lane.dispatch(new Task(lane, listener, event, key));
+	}
+
+	@PreDestroy
+	public void destroy() throws InterruptedException {
+		for (Lane lane : lanes.values())
+			lane.shutdown();
+		long deadline = System.currentTimeMillis() + shutdownTimeout;
+		for (Lane lane : lanes.values())
+			if (!lane.awaitTermination(deadline - System.currentTimeMillis()))
+				log.warn("Discard {} pending events of {}", lane.size(), lane.name);
+	}
+
+	int getQueueSize(Class<? extends ApplicationEvent> eventClass) {
+		Lane lane = lanes.get(eventClass);
+		return lane != null ? lane.size() : 0;
+	}
+
+	private ThreadFactory createThreadFactory(String name) {
+		if (virtualThreads) {
+			try {
+				Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+				Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+				builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+				return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			} catch (ReflectiveOperationException e) {
+				log.warn("Virtual threads is not available, fallback to platform threads");
+				virtualThreads = false;
+			}
+		}
+		return new NameableThreadFactory(name);
+	}
+
+	// applies to events without ordering key, keyed events block publisher
+	public enum RejectionPolicy {
+		CALLER_RUNS, DISCARD_OLDEST;
+	}
+
+	private class Lane {
+
+		private final String name;
+
+		private final ThreadPoolExecutor[] workers;
+
+		private final AtomicInteger next = new AtomicInteger();
+
+		Lane(Class<?> eventClass) {
+			name = eventClass.getName();
+			int workerCount = env.getProperty(LANES_PREFIX + name + ".concurrency", Integer.class, concurrency);
+			int capacity = env.getProperty(LANES_PREFIX + name + ".queueCapacity", Integer.class, queueCapacity);
+			ThreadFactory threadFactory = createThreadFactory("event-" + eventClass.getSimpleName());
+			workers = new ThreadPoolExecutor[Math.max(workerCount, 1)];
+			for (int i = 0; i < workers.length; i++) {
+				// single thread per worker to keep order of same key
+				workers[i] = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+						new BoundedPriorityQueue(Math.max(capacity / workers.length, 1)), threadFactory,
+						this::reject);
+				workers[i].allowCoreThreadTimeOut(true);
+			}
+			Metrics.gauge("event.queue.size", this, Lane::size, "event", name);
+		}
+
+		void dispatch(Task task) {
+			int index = task.key != null ? task.key.hashCode() : next.getAndIncrement();
+			workers[(index & Integer.MAX_VALUE) % workers.length].execute(task);
+		}
+
+		int size() {
+			int size = 0;
+			for (ThreadPoolExecutor worker : workers)
+				size += worker.getQueue().size();
+			return size;
+		}
+
+		void shutdown() {
+			for (ThreadPoolExecutor worker : workers)
+				worker.shutdown();
+		}
+
+		boolean awaitTermination(long timeout) throws InterruptedException {
+			for (ThreadPoolExecutor worker : workers)
+				if (timeout <= 0 || !worker.awaitTermination(timeout, TimeUnit.MILLISECONDS))
+					return false;
+			return true;
+		}
+
+		private void reject(Runnable task, ThreadPoolExecutor executor) {
+			if (executor.isShutdown()) {
+				log.warn("Discard event {} since lane {} is shutdown", ((Task) task).event, name);
+				return;
+			}
+			BoundedPriorityQueue queue = (BoundedPriorityQueue) executor.getQueue();
+			if (((Task) task).key != null) {
+				// running on caller or discarding will break order of same key
+				Metrics.increment("event.rejected", "event", name, "policy", "BLOCK");
+				try {
+					queue.putBlocking(task);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					log.warn("Discard event {} of lane {} since interrupted", ((Task) task).event, name);
+				}
+				return;
+			}
+			Metrics.increment("event.rejected", "event", name, "policy", rejectionPolicy.name());
+			if (rejectionPolicy == RejectionPolicy.CALLER_RUNS) {
+				task.run();
+			} else {
+				Task evicted = queue.evictOldestWithoutKey();
+				if (evicted == null) {
+					log.warn("Discard event {} of lane {} since queue is full", ((Task) task).event, name);
+					return;
+				}
+				log.warn("Discard event {} of lane {} since queue is full", evicted.event, name);
+				executor.execute(task);
+			}
+		}
+
+	}
+
+	private class Task implements Runnable, Comparable<Task> {
+
+		private final Lane lane;
+
+		private final ApplicationListener<?> listener;
+
+		private final ApplicationEvent event;
+
+		private final Object key;
+
+		private final int order;
+
+		private final long seq;
+
+		private final long enqueued = System.nanoTime();
+
+		Task(Lane lane, ApplicationListener<?> listener, ApplicationEvent event, Object key) {
+			this.lane = lane;
+			this.listener = listener;
+			this.event = event;
+			this.key = key;
+			this.order = listener instanceof Ordered ? ((Ordered) listener).getOrder()
+					: OrderUtils.getOrder(listener.getClass(), Ordered.LOWEST_PRECEDENCE);
+			this.seq = sequence.getAndIncrement();
+		}
+
+		@Override
+		public void run() {
+			long start = System.nanoTime();
+			Metrics.recordTimer("event.wait", start - enqueued, TimeUnit.NANOSECONDS, "event", lane.name);
+			try {
+				invokeListener(listener, event);
+			} finally {
+				Metrics.recordTimer("event.handle", System.nanoTime() - start, TimeUnit.NANOSECONDS, "event",
+						lane.name);
+			}
+		}
+
+		@Override
+		public int compareTo(Task o) {
+			int result = Integer.compare(order, o.order);
+			return result != 0 ? result : Long.compare(seq, o.seq);
+		}
+
+	}
+
+	private static class BoundedPriorityQueue extends PriorityBlockingQueue<Runnable> {
+
+		private static final long serialVersionUID = 5315893764212458367L;
+
+		private final int capacity;
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private final Condition notFull = lock.newCondition();
+
+		BoundedPriorityQueue(int capacity) {
+			this.capacity = capacity;
+		}
+
+		@Override
+		public boolean offer(Runnable task) {
+			lock.lock();
+			try {
+				if (size() >= capacity)
+					return false;
+				return super.offer(task);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void putBlocking(Runnable task) throws InterruptedException {
+			lock.lockInterruptibly();
+			try {
+				while (size() >= capacity)
+					notFull.await();
+				super.offer(task);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public Runnable take() throws InterruptedException {
+			return signalNotFull(super.take());
+		}
+
+		@Override
+		public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+			return signalNotFull(super.poll(timeout, unit));
+		}
+
+		@Override
+		public Runnable poll() {
+			return signalNotFull(super.poll());
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			return signalNotFull(super.remove(o) ? o : null) != null;
+		}
+
+		@Override
+		public int remainingCapacity() {
+			return Math.max(capacity - size(), 0);
+		}
+
+		Task evictOldestWithoutKey() {
+			lock.lock();
+			try {
+				Task oldest = null;
+				for (Runnable r : this) {
+					Task task = (Task) r;
+					if (task.key == null && (oldest == null || task.seq < oldest.seq))
+						oldest = task;
+				}
+				if (oldest != null)
+					remove(oldest);
+				return oldest;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private <T> T signalNotFull(T removed) {
+			if (removed != null) {
+				lock.lock();
+				try {
+					notFull.signal();
+				} finally {
+					lock.unlock();
+				}
+			}
+			return removed;
+		}
 
-	@PostConstruct
-	public void afterPropertiesSet() {
-		setTaskExecutor(taskExecutor);
 	}
 
 }
@@ -0,0 +1,86 @@
+package org.ironrhino.core.event;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ironrhino.core.model.Persistable;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.ResolvableTypeProvider;
+
+/**
+ * All operations of one entity class in one transaction, carries ids and
+ * changed fields instead of whole entities, published in place of
+ * {@link EntityOperationEvent} for entities annotated with
+ * {@code @PublishAware(batch = true)}.
+ */
+public class EntityOperationBatchEvent<T extends Persistable<?>> extends BaseEvent<Class<T>>
+		implements ResolvableTypeProvider, OrderedEvent {
+
+	private static final long serialVersionUID = 4617542946281950362L;
+
+	private final Map<EntityOperationType, List<Serializable>> ids = new EnumMap<>(EntityOperationType.class);
+
+	private final Map<Serializable, Map<String, Serializable>> changedFields = new HashMap<>();
+
+	public EntityOperationBatchEvent(Class<T> entityClass) {
+		super(entityClass);
+	}
+
+	public Class<T> getEntityClass() {
+		return getSource();
+	}
+
+	/**
+	 * @param type
+	 *            operation type
+	 * @param id
+	 *            entity id
+	 * @param fields
+	 *            changed fields of update, null means unknown
+	 */
+	public void add(EntityOperationType type, Serializable id, Map<String, Serializable> fields) {
+		ids.computeIfAbsent(type, k -> new ArrayList<>()).add(id);
+		if (type == EntityOperationType.UPDATE && fields != null)
+			changedFields.put(id, fields);
+	}
+
+	public List<Serializable> getIds(EntityOperationType type) {
+		List<Serializable> list = ids.get(type);
+		return list != null ? Collections.unmodifiableList(list) : Collections.emptyList();
+	}
+
+	/**
+	 * @param id
+	 *            id of updated entity
+	 * @return changed fields, or null if unknown, values of associations are
+	 *         replaced with their ids
+	 */
+	public Map<String, Serializable> getChangedFields(Serializable id) {
+		Map<String, Serializable> fields = changedFields.get(id);
+		return fields != null ? Collections.unmodifiableMap(fields) : null;
+	}
+
+	public int size() {
+		return ids.values().stream().mapToInt(List::size).sum();
+	}
+
+	public boolean isEmpty() {
+		return ids.isEmpty();
+	}
+
+	@Override
+	public Object getOrderingKey() {
+		return getSource().getName();
+	}
+
+	@Override
+	public ResolvableType getResolvableType() {
+		return ResolvableType.forClassWithGenerics(getClass(), getSource());
+	}
+
+}
@@ -6,7 +6,8 @@ import org.springframework.core.ResolvableTypeProvider;
 
 import lombok.Getter;
 
-public class EntityOperationEvent<T extends Persistable<?>> extends BaseEvent<T> implements ResolvableTypeProvider {
+public class EntityOperationEvent<T extends Persistable<?>> extends BaseEvent<T>
+		implements ResolvableTypeProvider, OrderedEvent {
 
 	private static final long serialVersionUID = -3336231774669978161L;
 
@@ -22,6 +23,11 @@ public class EntityOperationEvent<T extends Persistable<?>> extends BaseEvent<T>
 		return getSource();
 	}
 
+	@Override
+	public Object getOrderingKey() {
+		return getSource().getId();
+	}
+
 	@Override
 	public ResolvableType getResolvableType() {
 		return ResolvableType.forClassWithGenerics(getClass(), ResolvableType.forInstance(getSource()));
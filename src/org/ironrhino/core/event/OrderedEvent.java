@@ -0,0 +1,11 @@
+package org.ironrhino.core.event;
+
+/**
+ * Events with same ordering key are delivered in publishing order by
+ * asynchronous {@link ApplicationEventMulticaster}
+ */
+public interface OrderedEvent {
+
+	Object getOrderingKey();
+
+}
@@ -0,0 +1,41 @@
+package org.ironrhino.core.fs;
+
+import org.ironrhino.core.fs.impl.CachingFileStorage;
+import org.ironrhino.core.spring.configuration.ApplicationContextPropertiesConditional;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Decorate {@code fileStorage} with {@link CachingFileStorage} as
+ * {@code uploadFileStorage}, which is preferred by {@code @PriorityQualifier}
+ * injection points such as {@code UploadFilesHandler} and
+ * {@code UploadAction}, enabled by {@code fileStorage.caching.enabled=true}.
+ */
+@Configuration
+@ApplicationContextPropertiesConditional(key = "fileStorage.caching.enabled", value = "true")
+@Getter
+@Setter
+public class CachingFileStorageConfiguration {
+
+	// milliseconds
+	@Value("${fileStorage.caching.timeToLive:60000}")
+	private long timeToLive = 60000;
+
+	// milliseconds
+	@Value("${fileStorage.caching.negativeTimeToLive:10000}")
+	private long negativeTimeToLive = 10000;
+
+	@Value("${fileStorage.caching.capacity:10000}")
+	private long capacity = 10000;
+
+	@Bean(autowireCandidate = false)
+	public CachingFileStorage uploadFileStorage(@Qualifier("fileStorage") FileStorage fileStorage) {
+		return new CachingFileStorage(fileStorage, timeToLive, negativeTimeToLive, capacity);
+	}
+
+}
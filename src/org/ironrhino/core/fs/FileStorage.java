@@ -2,11 +2,15 @@ package org.ironrhino.core.fs;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Comparator;
 import java.util.List;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.springframework.http.MediaTypeFactory;
 
 public interface FileStorage {
@@ -30,43 +34,10 @@ public interface FileStorage {
 	}
 
 	default void migrateTo(FileStorage target, String directory, boolean removeSourceFiles) throws IOException {
-		if (directory == null)
-			directory = "/";
-		if (!directory.endsWith("/"))
-			directory = directory + "/";
-		boolean paging = this.isBucketBased();
-		if (paging) {
-			String marker = null;
-			Paged<FileInfo> files = null;
-			do {
-				files = this.listFilesAndDirectory(directory, 100, marker);
-				for (FileInfo entry : files.getResult()) {
-					String path = directory + entry.getName();
-					if (entry.isFile()) {
-						target.write(this.open(path), path);
-						if (removeSourceFiles)
-							this.delete(path);
-					} else {
-						migrateTo(target, path, removeSourceFiles);
-					}
-				}
-				marker = files.getNextMarker();
-			} while (marker != null);
-		} else {
-			List<FileInfo> files = this.listFilesAndDirectory(directory);
-			for (FileInfo entry : files) {
-				String path = directory + entry.getName();
-				if (entry.isFile()) {
-					target.write(this.open(path), path);
-					if (removeSourceFiles)
-						this.delete(path);
-				} else {
-					migrateTo(target, path, removeSourceFiles);
-				}
-			}
-		}
-		if (removeSourceFiles && !directory.equals("/"))
-			this.delete(directory);
+		FileStorageMigrator migrator = new FileStorageMigrator(this, target);
+		migrator.setRemoveSourceFiles(removeSourceFiles);
+		migrator.setSkipIdentical(false);
+		migrator.migrate(directory);
 	}
 
 	default void write(File file, String path) throws IOException {
@@ -90,6 +61,70 @@ public interface FileStorage {
 
 	InputStream open(String path) throws IOException;
 
+	/**
+	 * Open part of file, storage supports ranged read natively should override
+	 * it
+	 *
+	 * @param path
+	 *            file path
+	 * @param position
+	 *            start position
+	 * @param count
+	 *            max bytes to read
+	 * @return null if file not exists
+	 * @throws IOException
+	 *             if I/O error occurs
+	 */
+	default InputStream open(String path, long position, long count) throws IOException {
+		InputStream is = open(path);
+		if (is == null)
+			return null;
+		try {
+			IOUtils.skipFully(is, position);
+		} catch (IOException e) {
+			is.close();
+			throw e;
+		}
+		return new BoundedInputStream(is, count);
+	}
+
+	/**
+	 * Write part of file to output stream, storage could override it with more
+	 * efficient transfer, note that zero copy is not possible if output stream
+	 * is not backed by file or socket channel such as servlet response
+	 *
+	 * @param path
+	 *            file path
+	 * @param position
+	 *            start position
+	 * @param count
+	 *            max bytes to write
+	 * @param os
+	 *            output stream, will not be closed
+	 * @return bytes written
+	 * @throws IOException
+	 *             if I/O error occurs
+	 */
+	default long transferTo(String path, long position, long count, OutputStream os) throws IOException {
+		try (InputStream is = open(path, position, count)) {
+			if (is == null)
+				throw new FileNotFoundException(path);
+			return IOUtils.copyLarge(is, os);
+		}
+	}
+
+	/**
+	 * @param path
+	 *            file path
+	 * @return null if file not exists, size is -1 if unknown
+	 */
+	default FileInfo getFileInfo(String path) {
+		if (!exists(path) || isDirectory(path))
+			return null;
+		int index = path.lastIndexOf('/');
+		return new FileInfo(index >= 0 ? path.substring(index + 1) : path, true, -1, getLastModified(path));
+	}
+
 	boolean mkdir(String path);
 
 	boolean delete(String path);
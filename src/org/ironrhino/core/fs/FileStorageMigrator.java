@@ -0,0 +1,489 @@
+package org.ironrhino.core.fs;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.ironrhino.core.fs.impl.FtpFileStorage;
+import org.ironrhino.core.metrics.Metrics;
+import org.ironrhino.core.util.LimitExceededException;
+import org.ironrhino.core.util.NameableThreadFactory;
+import org.springframework.aop.framework.AopProxyUtils;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Migrate files between {@link FileStorage}s by {@code concurrency} workers.
+ * Directories are listed page by page, position is saved to
+ * {@code checkpointFile} once all entries of a page are migrated, completed
+ * directories are recorded too, so an interrupted migration resumes from the
+ * last checkpoint, files already in target with same size are skipped if
+ * {@code skipIdentical} enabled. The checkpoint file is deleted after all files
+ * migrated.
+ */
+@Slf4j
+public class FileStorageMigrator {
+
+	private final FileStorage source;
+
+	private final FileStorage target;
+
+	private final String[] tags;
+
+	@Getter
+	@Setter
+	private int concurrency = 1;
+
+	@Getter
+	@Setter
+	private int pageSize = FileStorage.DEFAULT_PAGE_SIZE;
+
+	@Getter
+	@Setter
+	private boolean removeSourceFiles;
+
+	@Getter
+	@Setter
+	private boolean skipIdentical = true;
+
+	// null means not resumable
+	@Getter
+	@Setter
+	private File checkpointFile;
+
+	// milliseconds
+	@Getter
+	@Setter
+	private long progressInterval = 10000;
+
+	@Setter
+	private Consumer<Progress> progressListener;
+
+	public FileStorageMigrator(FileStorage source, FileStorage target) {
+		this.source = source;
+		this.target = target;
+		this.tags = new String[] { "source", nameOf(source), "target", nameOf(target) };
+	}
+
+	public Progress migrate(String directory) throws IOException {
+		if (directory == null)
+			directory = "/";
+		if (!directory.endsWith("/"))
+			directory = directory + "/";
+		int workers = Math.max(1, Math.min(concurrency, maxConcurrency()));
+		Migration migration = new Migration(workers);
+		try {
+			if (!migration.checkpoint.isCompleted(directory))
+				migration.walk(directory, null);
+			migration.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Migration is interrupted");
+		} finally {
+			migration.close();
+		}
+		Progress progress = migration.progress;
+		if (progress.getFailed() > 0)
+			throw new IOException(progress.getFailed() + " files failed to migrate, rerun to resume");
+		migration.checkpoint.delete();
+		return progress;
+	}
+
+	private int maxConcurrency() {
+		// every worker holds an ftp connection during transfer
+		int max = Integer.MAX_VALUE;
+		Object s = unwrap(source);
+		Object t = unwrap(target);
+		if (s instanceof FtpFileStorage)
+			max = ((FtpFileStorage) s).getMaxTotal();
+		if (t instanceof FtpFileStorage)
+			max = Math.min(max, ((FtpFileStorage) t).getMaxTotal());
+		if (s == t && s instanceof FtpFileStorage)
+			max = max / 2;
+		return max;
+	}
+
+	private static String nameOf(FileStorage fs) {
+		String name = fs.getName();
+		return name != null ? name : fs.getClass().getSimpleName();
+	}
+
+	private static Object unwrap(FileStorage fs) {
+		Object target = AopProxyUtils.getSingletonTarget(fs);
+		return target != null ? target : fs;
+	}
+
+	private class Migration {
+
+		private final int permits;
+
+		private final Semaphore semaphore;
+
+		private final ExecutorService executor;
+
+		private final Checkpoint checkpoint;
+
+		private final Progress progress = new Progress();
+
+		private volatile long lastReported = System.currentTimeMillis();
+
+		Migration(int workers) throws IOException {
+			this.permits = workers * 2;
+			this.semaphore = new Semaphore(permits);
+			this.executor = workers > 1
+					? new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+							new NameableThreadFactory("fileStorageMigrator"))
+					: null;
+			this.checkpoint = new Checkpoint(checkpointFile);
+		}
+
+		void walk(String path, Page parent) throws IOException, InterruptedException {
+			Directory directory = new Directory(path, parent);
+			String marker = checkpoint.getMarker(path);
+			// paged listing of non bucket based storage lists whole directory for every page
+			List<FileInfo> entries = source.isBucketBased() ? null : source.listFilesAndDirectory(path);
+			Map<String, FileInfo> existingFiles = skipIdentical ? listTargetFiles(path) : null;
+			do {
+				Paged<FileInfo> paged = entries != null ? Paged.from(entries, pageSize, marker, FileInfo::getName)
+						: source.listFilesAndDirectory(path, pageSize, marker);
+				Page page = directory.newPage(paged.getNextMarker());
+				for (FileInfo entry : paged.getResult()) {
+					String entryPath = path + entry.getName();
+					if (entry.isFile()) {
+						page.pending.incrementAndGet();
+						submit(() -> copy(entryPath, entry, existingFiles, page));
+					} else if (!checkpoint.isCompleted(entryPath + "/")) {
+						page.pending.incrementAndGet();
+						walk(entryPath + "/", page);
+					}
+				}
+				page.entryDone();
+				marker = paged.getNextMarker();
+				report(false);
+			} while (marker != null);
+			directory.pageDone();
+		}
+
+		private Map<String, FileInfo> listTargetFiles(String path) {
+			// one listing per directory instead of getFileInfo per file
+			Map<String, FileInfo> map = new HashMap<>();
+			try {
+				for (FileInfo file : target.listFiles(path))
+					map.put(file.getName(), file);
+			} catch (LimitExceededException e) {
+				return null;
+			}
+			return map;
+		}
+
+		private void submit(Runnable task) throws InterruptedException {
+			if (executor == null) {
+				task.run();
+				return;
+			}
+			semaphore.acquire();
+			try {
+				executor.execute(() -> {
+					try {
+						task.run();
+					} finally {
+						semaphore.release();
+					}
+				});
+			} catch (RuntimeException e) {
+				semaphore.release();
+				throw e;
+			}
+		}
+
+		private void copy(String path, FileInfo entry, Map<String, FileInfo> existingFiles, Page page) {
+			try {
+				FileInfo existing = null;
+				if (skipIdentical)
+					existing = existingFiles != null ? existingFiles.get(entry.getName()) : target.getFileInfo(path);
+				if (existing != null && existing.getSize() == entry.getSize()
+						&& existing.getLastModified() >= entry.getLastModified()) {
+					progress.skipped.incrementAndGet();
+					Metrics.increment("fs.migration.files", tags("result", "skipped"));
+				} else {
+					try (InputStream is = source.open(path)) {
+						if (is != null) {
+							if (entry.getSize() > 0)
+								target.write(is, path, entry.getSize());
+							else
+								target.write(is, path);
+							progress.copied.incrementAndGet();
+							progress.bytes.addAndGet(Math.max(entry.getSize(), 0));
+							Metrics.increment("fs.migration.files", tags("result", "copied"));
+							Metrics.increment("fs.migration.bytes", Math.max(entry.getSize(), 0), tags);
+						}
+					}
+				}
+				if (removeSourceFiles)
+					source.delete(path);
+				page.entryDone();
+			} catch (Exception e) {
+				// page will not be checkpointed
+				progress.failed.incrementAndGet();
+				Metrics.increment("fs.migration.files", tags("result", "failed"));
+				log.error("Failed to migrate " + path, e);
+			}
+			report(false);
+		}
+
+		private String[] tags(String key, String value) {
+			String[] array = Arrays.copyOf(tags, tags.length + 2);
+			array[tags.length] = key;
+			array[tags.length + 1] = value;
+			return array;
+		}
+
+		void await() throws InterruptedException {
+			if (executor == null)
+				return;
+			while (!semaphore.tryAcquire(permits, progressInterval, TimeUnit.MILLISECONDS))
+				report(false);
+			semaphore.release(permits);
+		}
+
+		void close() {
+			if (executor != null)
+				executor.shutdownNow();
+			checkpoint.close();
+			report(true);
+		}
+
+		private void report(boolean force) {
+			long now = System.currentTimeMillis();
+			if (!force && now - lastReported < progressInterval)
+				return;
+			lastReported = now;
+			log.info("Migrating from {} to {}: {}", tags[1], tags[3], progress);
+			if (progressListener != null)
+				progressListener.accept(progress);
+		}
+
+		private class Directory {
+
+			private final String path;
+
+			private final Page parent;
+
+			// one for listing in progress
+			private final AtomicInteger pending = new AtomicInteger(1);
+
+			private final Map<Integer, String> completedPages = new HashMap<>();
+
+			private int pages;
+
+			private int committed;
+
+			Directory(String path, Page parent) {
+				this.path = path;
+				this.parent = parent;
+			}
+
+			Page newPage(String nextMarker) {
+				pending.incrementAndGet();
+				return new Page(this, pages++, nextMarker);
+			}
+
+			void pageCompleted(Page page) {
+				synchronized (this) {
+					completedPages.put(page.index, page.nextMarker);
+					// only contiguous completed pages are checkpointed
+					while (completedPages.containsKey(committed)) {
+						String marker = completedPages.remove(committed++);
+						if (marker != null)
+							checkpoint.saveMarker(path, marker);
+					}
+				}
+				pageDone();
+			}
+
+			void pageDone() {
+				if (pending.decrementAndGet() > 0)
+					return;
+				checkpoint.saveCompleted(path);
+				if (removeSourceFiles && !path.equals("/"))
+					source.delete(path);
+				if (parent != null)
+					parent.entryDone();
+			}
+
+		}
+
+		private class Page {
+
+			private final Directory directory;
+
+			private final int index;
+
+			private final String nextMarker;
+
+			// one for listing in progress
+			private final AtomicInteger pending = new AtomicInteger(1);
+
+			Page(Directory directory, int index, String nextMarker) {
+				this.directory = directory;
+				this.index = index;
+				this.nextMarker = nextMarker;
+			}
+
+			void entryDone() {
+				if (pending.decrementAndGet() == 0)
+					directory.pageCompleted(this);
+			}
+
+		}
+
+	}
+
+	private static class Checkpoint {
+
+		private static final String COMPLETED = "D";
+
+		private static final String MARKER = "M";
+
+		private final File file;
+
+		private final Set<String> completed = new HashSet<>();
+
+		private final Map<String, String> markers = new HashMap<>();
+
+		private BufferedWriter writer;
+
+		Checkpoint(File file) throws IOException {
+			this.file = file;
+			if (file == null)
+				return;
+			if (file.exists()) {
+				List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+				for (String line : lines) {
+					String[] arr = line.split("\t");
+					if (arr[0].equals(COMPLETED) && arr.length == 2)
+						completed.add(arr[1]);
+					else if (arr[0].equals(MARKER) && arr.length == 3)
+						markers.put(arr[1], arr[2]);
+				}
+				if (!completed.isEmpty() || !markers.isEmpty())
+					log.info("Resume migration from checkpoint {}", file);
+			}
+			writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+					StandardOpenOption.APPEND);
+		}
+
+		boolean isCompleted(String path) {
+			return completed.contains(path);
+		}
+
+		String getMarker(String path) {
+			return markers.get(path);
+		}
+
+		void saveCompleted(String path) {
+			write(COMPLETED + '\t' + path);
+		}
+
+		void saveMarker(String path, String marker) {
+			write(MARKER + '\t' + path + '\t' + marker);
+		}
+
+		private synchronized void write(String line) {
+			if (writer == null)
+				return;
+			try {
+				writer.write(line);
+				writer.newLine();
+				writer.flush();
+			} catch (IOException e) {
+				log.error("Failed to save checkpoint", e);
+			}
+		}
+
+		synchronized void close() {
+			if (writer == null)
+				return;
+			try {
+				writer.close();
+			} catch (IOException e) {
+				log.error(e.getMessage(), e);
+			}
+			writer = null;
+		}
+
+		void delete() {
+			if (file != null && !file.delete())
+				log.warn("Failed to delete checkpoint {}", file);
+		}
+
+	}
+
+	public static class Progress {
+
+		private final long startTime = System.currentTimeMillis();
+
+		private final AtomicLong copied = new AtomicLong();
+
+		private final AtomicLong skipped = new AtomicLong();
+
+		private final AtomicLong failed = new AtomicLong();
+
+		private final AtomicLong bytes = new AtomicLong();
+
+		public long getCopied() {
+			return copied.get();
+		}
+
+		public long getSkipped() {
+			return skipped.get();
+		}
+
+		public long getFailed() {
+			return failed.get();
+		}
+
+		public long getBytes() {
+			return bytes.get();
+		}
+
+		public long getElapsed() {
+			return System.currentTimeMillis() - startTime;
+		}
+
+		// files per second
+		public double getThroughput() {
+			long elapsed = getElapsed();
+			return elapsed > 0 ? (getCopied() + getSkipped()) * 1000.0 / elapsed : 0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("copied=%d, skipped=%d, failed=%d, bytes=%d, elapsed=%dms, throughput=%.1f files/s",
+					getCopied(), getSkipped(), getFailed(), getBytes(), getElapsed(), getThroughput());
+		}
+
+	}
+
+}
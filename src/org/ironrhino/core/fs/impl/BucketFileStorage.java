@@ -84,6 +84,31 @@ public abstract class BucketFileStorage extends AbstractFileStorage {
 	protected abstract void doWrite(InputStream is, String path, long contentLength, String contentType)
 			throws IOException;
 
+	@Override
+	public InputStream open(String path, long position, long count) throws IOException {
+		if (path.equals("") || path.endsWith("/"))
+			return null;
+		return doOpen(normalizePath(path), position, count);
+	}
+
+	// override with ranged GET instead of reading and skipping
+	protected InputStream doOpen(String path, long position, long count) throws IOException {
+		return super.open(path, position, count);
+	}
+
+	@Override
+	public FileInfo getFileInfo(String path) {
+		if (path.equals("") || path.endsWith("/"))
+			return null;
+		return doGetFileInfo(normalizePath(path));
+	}
+
+	// override with single metadata request for size and last modified, null if
+	// not exists
+	protected FileInfo doGetFileInfo(String path) {
+		return super.getFileInfo(path);
+	}
+
 	@Override
 	public String getFileUrl(String path) {
 		String domain = getDomain();
@@ -0,0 +1,287 @@
+package org.ironrhino.core.fs.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.cache2k.Cache;
+import org.cache2k.Cache2kBuilder;
+import org.ironrhino.core.fs.FileInfo;
+import org.ironrhino.core.fs.FileStorage;
+import org.ironrhino.core.fs.Paged;
+import org.ironrhino.core.util.FileUtils;
+
+import lombok.Getter;
+
+/**
+ * Read-through cache of metadata for slow storage such as ftp, caches
+ * {@link #getFileInfo(String)}, {@link #exists(String)},
+ * {@link #isDirectory(String)} and {@link #getLastModified(String)} of files
+ * for {@code timeToLive} and absence for {@code negativeTimeToLive}, entries
+ * are invalidated by write, mkdir, delete and rename through this instance,
+ * changes made by other nodes are visible after expiration. It could be
+ * enabled for uploaded files by {@code fileStorage.caching.enabled=true}, see
+ * {@link org.ironrhino.core.fs.CachingFileStorageConfiguration}.
+ */
+public class CachingFileStorage implements FileStorage {
+
+	private static final AtomicInteger INSTANCE_NUMBER = new AtomicInteger();
+
+	private final FileStorage delegate;
+
+	// milliseconds
+	@Getter
+	private final long timeToLive;
+
+	// milliseconds
+	@Getter
+	private final long negativeTimeToLive;
+
+	private final Cache<String, Metadata> cache;
+
+	public CachingFileStorage(FileStorage delegate) {
+		this(delegate, 60000, 10000, 10000);
+	}
+
+	public CachingFileStorage(FileStorage delegate, long timeToLive, long negativeTimeToLive, long capacity) {
+		this.delegate = delegate;
+		this.timeToLive = timeToLive;
+		this.negativeTimeToLive = negativeTimeToLive;
+		this.cache = Cache2kBuilder.of(String.class, Metadata.class)
+				.name(CachingFileStorage.class, "metadata" + INSTANCE_NUMBER.getAndIncrement())
+				.entryCapacity(capacity).expiryPolicy((key, value, loadTime,
+						oldEntry) -> loadTime + (value.isMissing() ? negativeTimeToLive : timeToLive))
+				.build();
+	}
+
+	@PreDestroy
+	public void destroy() {
+		cache.close();
+	}
+
+	@Override
+	public String getName() {
+		return delegate.getName();
+	}
+
+	@Override
+	public boolean isBucketBased() {
+		return delegate.isBucketBased();
+	}
+
+	@Override
+	public boolean isRelativeProtocolAllowed() {
+		return delegate.isRelativeProtocolAllowed();
+	}
+
+	@Override
+	public void write(File file, String path) throws IOException {
+		try {
+			delegate.write(file, path);
+		} finally {
+			invalidate(path);
+		}
+	}
+
+	@Override
+	public void write(InputStream is, String path) throws IOException {
+		try {
+			delegate.write(is, path);
+		} finally {
+			invalidate(path);
+		}
+	}
+
+	@Override
+	public void write(InputStream is, String path, long contentLength) throws IOException {
+		try {
+			delegate.write(is, path, contentLength);
+		} finally {
+			invalidate(path);
+		}
+	}
+
+	@Override
+	public void write(InputStream is, String path, long contentLength, String contentType) throws IOException {
+		try {
+			delegate.write(is, path, contentLength, contentType);
+		} finally {
+			invalidate(path);
+		}
+	}
+
+	@Override
+	public InputStream open(String path) throws IOException {
+		if (getMetadata(path).isMissing())
+			return null;
+		return delegate.open(path);
+	}
+
+	@Override
+	public InputStream open(String path, long position, long count) throws IOException {
+		if (getMetadata(path).isMissing())
+			return null;
+		return delegate.open(path, position, count);
+	}
+
+	@Override
+	public long transferTo(String path, long position, long count, OutputStream os) throws IOException {
+		// not consult cache, callers already checked getFileInfo() and missing file is
+		// reported as FileNotFoundException by delegate, keep its efficient transfer
+		return delegate.transferTo(path, position, count, os);
+	}
+
+	@Override
+	public FileInfo getFileInfo(String path) {
+		return getMetadata(path).getFileInfo();
+	}
+
+	@Override
+	public boolean mkdir(String path) {
+		try {
+			return delegate.mkdir(path);
+		} finally {
+			invalidate(path);
+		}
+	}
+
+	@Override
+	public boolean delete(String path) {
+		Metadata metadata = cache.peek(normalize(path));
+		try {
+			return delegate.delete(path);
+		} finally {
+			if (metadata == null || metadata.isDirectory())
+				invalidateTree(path);
+			invalidate(path);
+		}
+	}
+
+	@Override
+	public boolean exists(String path) {
+		return !getMetadata(path).isMissing();
+	}
+
+	@Override
+	public boolean rename(String fromPath, String toPath) {
+		try {
+			return delegate.rename(fromPath, toPath);
+		} finally {
+			// descendants are moved if it is directory
+			invalidate(fromPath);
+			invalidateTree(fromPath);
+			invalidate(toPath);
+			invalidateTree(toPath);
+		}
+	}
+
+	@Override
+	public boolean isDirectory(String path) {
+		return getMetadata(path).isDirectory();
+	}
+
+	@Override
+	public long getLastModified(String path) {
+		Metadata metadata = getMetadata(path);
+		if (metadata.isMissing())
+			return 0;
+		FileInfo fileInfo = metadata.getFileInfo();
+		return fileInfo != null ? fileInfo.getLastModified() : delegate.getLastModified(path);
+	}
+
+	@Override
+	public List<FileInfo> listFiles(String path) {
+		return delegate.listFiles(path);
+	}
+
+	@Override
+	public Paged<FileInfo> listFiles(String path, int limit, String marker) {
+		return delegate.listFiles(path, limit, marker);
+	}
+
+	@Override
+	public List<FileInfo> listFilesAndDirectory(String path) {
+		return delegate.listFilesAndDirectory(path);
+	}
+
+	@Override
+	public Paged<FileInfo> listFilesAndDirectory(String path, int limit, String marker) {
+		return delegate.listFilesAndDirectory(path, limit, marker);
+	}
+
+	@Override
+	public String getFileUrl(String path) {
+		return delegate.getFileUrl(path);
+	}
+
+	private Metadata getMetadata(String path) {
+		return cache.computeIfAbsent(normalize(path), () -> {
+			FileInfo fileInfo = delegate.getFileInfo(path);
+			if (fileInfo != null)
+				return new Metadata(fileInfo, false);
+			return delegate.isDirectory(path) ? Metadata.DIRECTORY : Metadata.MISSING;
+		});
+	}
+
+	private void invalidate(String path) {
+		// ancestors may be created implicitly
+		String key = normalize(path);
+		while (true) {
+			cache.remove(key);
+			if (key.equals("/"))
+				break;
+			int index = key.lastIndexOf('/');
+			key = index > 0 ? key.substring(0, index) : "/";
+		}
+	}
+
+	private void invalidateTree(String path) {
+		String prefix = normalize(path) + '/';
+		List<String> keys = new ArrayList<>();
+		for (String key : cache.keys())
+			if (key.startsWith(prefix))
+				keys.add(key);
+		cache.removeAll(keys);
+	}
+
+	private static String normalize(String path) {
+		path = FileUtils.normalizePath(path);
+		if (path == null || path.isEmpty())
+			return "/";
+		if (path.charAt(0) != '/')
+			path = '/' + path;
+		if (path.length() > 1 && path.endsWith("/"))
+			path = path.substring(0, path.length() - 1);
+		return path;
+	}
+
+	private static class Metadata {
+
+		static final Metadata DIRECTORY = new Metadata(null, true);
+
+		static final Metadata MISSING = new Metadata(null, false);
+
+		@Getter
+		private final FileInfo fileInfo;
+
+		@Getter
+		private final boolean directory;
+
+		Metadata(FileInfo fileInfo, boolean directory) {
+			this.fileInfo = fileInfo;
+			this.directory = directory;
+		}
+
+		boolean isMissing() {
+			return fileInfo == null && !directory;
+		}
+
+	}
+
+}
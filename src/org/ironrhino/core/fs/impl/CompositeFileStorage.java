@@ -2,6 +2,7 @@ package org.ironrhino.core.fs.impl;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -48,6 +49,24 @@ public class CompositeFileStorage implements FileStorage {
 		return is != null ? is : fallbackFileStorage.open(path);
 	}
 
+	@Override
+	public InputStream open(String path, long position, long count) throws IOException {
+		InputStream is = mainFileStorage.open(path, position, count);
+		return is != null ? is : fallbackFileStorage.open(path, position, count);
+	}
+
+	@Override
+	public long transferTo(String path, long position, long count, OutputStream os) throws IOException {
+		FileStorage fs = mainFileStorage.exists(path) ? mainFileStorage : fallbackFileStorage;
+		return fs.transferTo(path, position, count, os);
+	}
+
+	@Override
+	public FileInfo getFileInfo(String path) {
+		FileInfo info = mainFileStorage.getFileInfo(path);
+		return info != null ? info : fallbackFileStorage.getFileInfo(path);
+	}
+
 	@Override
 	public boolean exists(String path) {
 		boolean b = mainFileStorage.exists(path);
@@ -8,6 +8,7 @@ import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
@@ -16,6 +17,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
@@ -235,42 +238,113 @@ public class FtpFileStorage extends AbstractFileStorage {
 	public InputStream open(String path) throws IOException {
 		return execute(ftpClient -> {
 			String pathname = getPathname(path, ftpClient);
-			FTPFile[] files = ftpClient.listFiles(pathname);
-			if (files == null || files.length != 1 || !files[0].isFile())
+			FTPFile file = getFile(pathname, ftpClient);
+			if (file == null)
 				return null;
-			long size = files[0].getSize();
+			long size = file.getSize();
 			if (size <= bufferThreshold) {
 				// small file
 				ByteArrayOutputStream bos = new ByteArrayOutputStream((int) size);
 				ftpClient.retrieveFile(pathname, bos);
 				return new ByteArrayInputStream(bos.toByteArray());
 			}
-			return new ProxyInputStream(ftpClient.retrieveFileStream(pathname)) {
-
-				private AtomicBoolean closed = new AtomicBoolean();
+			return pooledInputStream(ftpClient.retrieveFileStream(pathname), ftpClient);
+		});
+	}
 
-				@Override
-				public void close() throws IOException {
-					if (!closed.compareAndSet(false, true))
-						return;
+	@Override
+	public InputStream open(String path, long position, long count) throws IOException {
+		return execute(ftpClient -> {
+			String pathname = getPathname(path, ftpClient);
+			FTPFile file = getFile(pathname, ftpClient);
+			if (file == null)
+				return null;
+			if (position >= file.getSize())
+				return new ByteArrayInputStream(new byte[0]);
+			// REST command makes server start transfer at position
+			ftpClient.setRestartOffset(position);
+			try {
+				long length = Math.min(count, file.getSize() - position);
+				InputStream is = ftpClient.retrieveFileStream(pathname);
+				if (is == null)
+					throw new IOException(ftpClient.getReplyString());
+				if (length <= bufferThreshold) {
+					// small range, stop transfer after requested bytes
+					byte[] bytes = new byte[(int) length];
+					int n;
 					try {
-						super.close();
+						n = IOUtils.read(is, bytes);
 					} finally {
+						is.close();
+					}
+					// server may reply 426 since transfer is aborted, connection is still usable
+					ftpClient.completePendingCommand();
+					return new ByteArrayInputStream(bytes, 0, n);
+				}
+				return pooledInputStream(new BoundedInputStream(is, count), ftpClient);
+			} finally {
+				// restart offset is kept by pooled client
+				ftpClient.setRestartOffset(0);
+			}
+		});
+	}
+
+	@Override
+	public FileInfo getFileInfo(String path) {
+		return executeWrapped(ftpClient -> {
+			FTPFile file = getFile(getPathname(path, ftpClient), ftpClient);
+			if (file == null)
+				return null;
+			int index = path.lastIndexOf('/');
+			return new FileInfo(index >= 0 ? path.substring(index + 1) : path, true, file.getSize(),
+					getLastModified(file));
+		});
+	}
+
+	private static long getLastModified(FTPFile file) {
+		// timestamp is null if server's listing cannot be parsed
+		Calendar timestamp = file.getTimestamp();
+		return timestamp != null ? timestamp.getTimeInMillis() : 0;
+	}
+
+	private FTPFile getFile(String pathname, FTPClient ftpClient) throws IOException {
+		// listing a file returns itself, one round trip for existence, size and timestamp
+		FTPFile[] files = ftpClient.listFiles(pathname);
+		if (files == null || files.length != 1 || !files[0].isFile())
+			return null;
+		String name = pathname.substring(pathname.lastIndexOf('/') + 1);
+		String fileName = files[0].getName();
+		if (!fileName.equals(name) && !fileName.endsWith("/" + name))
+			return null; // directory contains single file
+		return files[0];
+	}
+
+	private InputStream pooledInputStream(InputStream is, FTPClient ftpClient) {
+		return new ProxyInputStream(is) {
+
+			private AtomicBoolean closed = new AtomicBoolean();
+
+			@Override
+			public void close() throws IOException {
+				if (!closed.compareAndSet(false, true))
+					return;
+				try {
+					super.close();
+				} finally {
+					try {
+						ftpClient.completePendingCommand();
+						pool.returnObject(ftpClient);
+					} catch (Exception e) {
 						try {
-							ftpClient.completePendingCommand();
-							pool.returnObject(ftpClient);
-						} catch (Exception e) {
-							try {
-								pool.invalidateObject(ftpClient);
-							} catch (Exception e1) {
-								log.error(e1.getMessage(), e1);
-							}
-							log.error(e.getMessage(), e);
+							pool.invalidateObject(ftpClient);
+						} catch (Exception e1) {
+							log.error(e1.getMessage(), e1);
 						}
+						log.error(e.getMessage(), e);
 					}
 				}
-			};
-		});
+			}
+		};
 	}
 
 	@Override
@@ -365,7 +439,7 @@ public class FtpFileStorage extends AbstractFileStorage {
 			List<FileInfo> list = new ArrayList<>();
 			for (FTPFile f : ftpClient.listFiles(getPathname(path, ftpClient))) {
 				if (f.isFile())
-					list.add(new FileInfo(f.getName(), true, f.getSize(), f.getTimestamp().getTimeInMillis()));
+					list.add(new FileInfo(f.getName(), true, f.getSize(), getLastModified(f)));
 				if (list.size() > MAX_PAGE_SIZE)
 					throw new LimitExceededException("Exceed max size:" + MAX_PAGE_SIZE);
 			}
@@ -380,7 +454,7 @@ public class FtpFileStorage extends AbstractFileStorage {
 		List<FileInfo> result = executeWrapped(ftpClient -> {
 			final List<FileInfo> list = new ArrayList<>();
 			for (FTPFile f : ftpClient.listFiles(getPathname(path, ftpClient)))
-				list.add(new FileInfo(f.getName(), f.isFile(), f.getSize(), f.getTimestamp().getTimeInMillis()));
+				list.add(new FileInfo(f.getName(), f.isFile(), f.getSize(), getLastModified(f)));
 			if (list.size() > MAX_PAGE_SIZE)
 				throw new LimitExceededException("Exceed max size:" + MAX_PAGE_SIZE);
 			return list;
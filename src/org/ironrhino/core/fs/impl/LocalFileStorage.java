@@ -5,15 +5,22 @@ import static org.ironrhino.core.metadata.Profiles.DUAL;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.annotation.PostConstruct;
 
+import org.apache.commons.io.input.BoundedInputStream;
 import org.ironrhino.core.fs.FileInfo;
 import org.ironrhino.core.spring.configuration.ServiceImplementationConditional;
 import org.ironrhino.core.util.FileUtils;
@@ -69,6 +76,50 @@ public class LocalFileStorage extends AbstractFileStorage {
 		return new FileInputStream(file);
 	}
 
+	@Override
+	public InputStream open(String path, long position, long count) throws IOException {
+		path = normalizePath(path);
+		File file = new File(directory, path);
+		if (!file.exists() || file.isDirectory())
+			return null;
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		channel.position(position);
+		return new BoundedInputStream(Channels.newInputStream(channel), count);
+	}
+
+	@Override
+	public long transferTo(String path, long position, long count, OutputStream os) throws IOException {
+		path = normalizePath(path);
+		File file = new File(directory, path);
+		if (!file.isFile())
+			throw new FileNotFoundException(path);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			count = Math.min(count, channel.size() - position);
+			// zero copy only if target is file, wrapped stream like servlet response is
+			// copied through user space buffer of FileChannel
+			WritableByteChannel target = os instanceof FileOutputStream ? ((FileOutputStream) os).getChannel()
+					: Channels.newChannel(os);
+			long transferred = 0;
+			while (transferred < count) {
+				// kernel may transfer less than requested
+				long n = channel.transferTo(position + transferred, count - transferred, target);
+				if (n <= 0)
+					break;
+				transferred += n;
+			}
+			return transferred;
+		}
+	}
+
+	@Override
+	public FileInfo getFileInfo(String path) {
+		path = normalizePath(path);
+		File file = new File(directory, path);
+		if (!file.isFile())
+			return null;
+		return new FileInfo(file.getName(), true, file.length(), file.lastModified());
+	}
+
 	@Override
 	public boolean mkdir(String path) {
 		path = normalizePath(path);
@@ -7,27 +7,49 @@ import static org.springframework.data.mongodb.core.query.Criteria.where;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.annotation.PostConstruct;
 
+import org.apache.commons.io.IOUtils;
 import org.ironrhino.core.fs.FileInfo;
 import org.ironrhino.core.spring.configuration.ServiceImplementationConditional;
 import org.ironrhino.core.util.ErrorMessage;
 import org.ironrhino.core.util.FileUtils;
 import org.ironrhino.core.util.LimitExceededException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StreamUtils;
 import org.springframework.util.StringUtils;
 
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 
+/**
+ * Files are stored inline as single document by default, which is limited to
+ * 16MB and buffered in heap, enable {@code mongoFileStorage.chunked} to store
+ * new files as fixed size chunks like GridFS, chunks are written and read in
+ * streaming, ranged reads fetch only overlapped chunks and up to
+ * {@code mongoFileStorage.prefetchChunks} chunks are fetched in parallel.
+ * Files stored inline remain readable in chunked mode.
+ */
 @Component("fileStorage")
 @ServiceImplementationConditional(profiles = { CLOUD, CLUSTER })
 public class MongoFileStorage extends AbstractFileStorage {
@@ -35,10 +57,31 @@ public class MongoFileStorage extends AbstractFileStorage {
 	@Autowired
 	private MongoTemplate mongoTemplate;
 
+	@Autowired(required = false)
+	private ExecutorService executorService;
+
+	@Getter
+	@Setter
+	@Value("${mongoFileStorage.chunked:false}")
+	private boolean chunked;
+
+	@Getter
+	@Setter
+	@Value("${mongoFileStorage.chunkSize:261120}")
+	private int chunkSize = 255 * 1024;
+
+	@Getter
+	@Setter
+	@Value("${mongoFileStorage.prefetchChunks:4}")
+	private int prefetchChunks = 4;
+
 	@PostConstruct
 	public void afterPropertiesSet() {
 		if (!mongoTemplate.collectionExists(File.class))
 			mongoTemplate.createCollection(File.class);
+		if (!mongoTemplate.collectionExists(Chunk.class))
+			mongoTemplate.createCollection(Chunk.class);
+		mongoTemplate.indexOps(Chunk.class).ensureIndex(new Index().on("fileId", Direction.ASC));
 	}
 
 	@Override
@@ -49,22 +92,81 @@ public class MongoFileStorage extends AbstractFileStorage {
 		int lastIndex = path.lastIndexOf('/');
 		if (lastIndex > 0)
 			mkdir(path.substring(0, lastIndex));
+		File previous = mongoTemplate.findById(path, File.class);
 		try (InputStream ins = is) {
 			File file = new File();
 			file.setPath(path);
-			file.setData(StreamUtils.copyToByteArray(is));
+			if (chunked)
+				writeChunks(ins, file);
+			else
+				file.setData(IOUtils.toByteArray(ins));
 			file.setLastModified(System.currentTimeMillis());
 			mongoTemplate.save(file);
 		}
+		if (previous != null && previous.getFileId() != null)
+			removeChunks(previous.getFileId());
+	}
+
+	private void writeChunks(InputStream is, File file) throws IOException {
+		// chunks of new version are invisible until file saved
+		String fileId = UUID.randomUUID().toString().replace("-", "");
+		byte[] buffer = new byte[chunkSize];
+		long length = 0;
+		int n = 0;
+		try {
+			int size;
+			while ((size = IOUtils.read(is, buffer)) > 0) {
+				Chunk chunk = new Chunk();
+				chunk.setId(Chunk.id(fileId, n));
+				chunk.setFileId(fileId);
+				chunk.setN(n++);
+				chunk.setData(size == buffer.length ? buffer : Arrays.copyOf(buffer, size));
+				mongoTemplate.insert(chunk);
+				length += size;
+				if (size < buffer.length)
+					break;
+			}
+		} catch (IOException | RuntimeException e) {
+			removeChunks(fileId);
+			throw e;
+		}
+		file.setFileId(fileId);
+		file.setChunkSize(chunkSize);
+		file.setLength(length);
+	}
+
+	private void removeChunks(String fileId) {
+		mongoTemplate.remove(new Query(where("fileId").is(fileId)), Chunk.class);
 	}
 
 	@Override
 	public InputStream open(String path) throws IOException {
+		return open(path, 0, Long.MAX_VALUE);
+	}
+
+	@Override
+	public InputStream open(String path, long position, long count) throws IOException {
 		path = normalizePath(path);
 		File file = mongoTemplate.findById(path, File.class);
 		if (file == null || file.isDirectory())
 			return null;
-		return new ByteArrayInputStream(file.getData());
+		if (file.getFileId() == null) {
+			byte[] data = file.getData() != null ? file.getData() : new byte[0];
+			int offset = (int) Math.min(position, data.length);
+			return new ByteArrayInputStream(data, offset, (int) Math.min(count, data.length - offset));
+		}
+		return new ChunkedInputStream(file, position, count);
+	}
+
+	@Override
+	public FileInfo getFileInfo(String path) {
+		if (path.equals("") || path.endsWith("/"))
+			return null;
+		path = normalizePath(path);
+		File file = mongoTemplate.findById(path, File.class);
+		if (file == null || file.isDirectory())
+			return null;
+		return new FileInfo(path.substring(path.lastIndexOf('/') + 1), true, file.getSize(), file.getLastModified());
 	}
 
 	@Override
@@ -116,7 +218,9 @@ public class MongoFileStorage extends AbstractFileStorage {
 			mongoTemplate.remove(new Query(where("path").is(path)), File.class);
 			return true;
 		} else {
-			mongoTemplate.remove(new Query(where("path").is(path)), File.class);
+			File file = mongoTemplate.findAndRemove(new Query(where("path").is(path)), File.class);
+			if (file != null && file.getFileId() != null)
+				removeChunks(file.getFileId());
 			return true;
 		}
 	}
@@ -154,14 +258,23 @@ public class MongoFileStorage extends AbstractFileStorage {
 		if (fromfile == null)
 			return false;
 		File tofile = mongoTemplate.findById(toPath, File.class);
+		String overwrittenFileId = null;
 		if (tofile == null) {
 			tofile = new File();
 			tofile.setPath(toPath);
+		} else {
+			overwrittenFileId = tofile.getFileId();
 		}
+		// chunks are shared by reference
 		tofile.setData(fromfile.getData());
+		tofile.setFileId(fromfile.getFileId());
+		tofile.setChunkSize(fromfile.getChunkSize());
+		tofile.setLength(fromfile.getLength());
 		tofile.setLastModified(fromfile.getLastModified());
 		mongoTemplate.save(tofile);
 		mongoTemplate.remove(fromfile);
+		if (overwrittenFileId != null)
+			removeChunks(overwrittenFileId);
 		return true;
 	}
 
@@ -192,7 +305,7 @@ public class MongoFileStorage extends AbstractFileStorage {
 		for (File f : files) {
 			String name = f.getPath();
 			name = name.substring(path.length());
-			list.add(new FileInfo(name, true, f.getData().length, f.getLastModified()));
+			list.add(new FileInfo(name, true, f.getSize(), f.getLastModified()));
 			if (list.size() > MAX_PAGE_SIZE)
 				throw new LimitExceededException("Exceed max size:" + MAX_PAGE_SIZE);
 		}
@@ -218,7 +331,7 @@ public class MongoFileStorage extends AbstractFileStorage {
 			name = name.substring(path.length());
 			if (f.isDirectory() && name.endsWith("/"))
 				name = name.substring(0, name.length() - 1);
-			list.add(new FileInfo(name, !f.isDirectory(), f.isDirectory() ? 0 : f.getData().length,
+			list.add(new FileInfo(name, !f.isDirectory(), f.isDirectory() ? 0 : f.getSize(),
 					f.getLastModified()));
 			if (list.size() > MAX_PAGE_SIZE)
 				throw new LimitExceededException("Exceed max size:" + MAX_PAGE_SIZE);
@@ -243,8 +356,140 @@ public class MongoFileStorage extends AbstractFileStorage {
 
 		private long lastModified;
 
+		// inline content
 		private byte[] data;
 
+		// content stored as chunks
+		private String fileId;
+
+		private int chunkSize;
+
+		private long length;
+
+		long getSize() {
+			return data != null ? data.length : length;
+		}
+
+	}
+
+	@Data
+	private static class Chunk implements Serializable {
+
+		private static final long serialVersionUID = 3505413936436414283L;
+
+		@Id
+		private String id;
+
+		private String fileId;
+
+		private int n;
+
+		private byte[] data;
+
+		static String id(String fileId, int n) {
+			return fileId + ':' + n;
+		}
+
+	}
+
+	private class ChunkedInputStream extends InputStream {
+
+		private final String fileId;
+
+		private final int lastChunk;
+
+		private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+		private int nextChunk;
+
+		private long remaining;
+
+		private byte[] current;
+
+		private int pos;
+
+		ChunkedInputStream(File file, long position, long count) {
+			this.fileId = file.getFileId();
+			long length = file.getLength();
+			position = Math.min(position, length);
+			this.remaining = Math.min(count, length - position);
+			int size = file.getChunkSize();
+			this.nextChunk = (int) (position / size);
+			this.lastChunk = remaining > 0 ? (int) ((position + remaining - 1) / size) : -1;
+			this.pos = (int) (position % size);
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!ensureCurrent())
+				return -1;
+			remaining--;
+			return current[pos++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			if (!ensureCurrent())
+				return -1;
+			int n = (int) Math.min(Math.min(len, current.length - pos), remaining);
+			System.arraycopy(current, pos, b, off, n);
+			pos += n;
+			remaining -= n;
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return current != null ? (int) Math.min(current.length - pos, remaining) : 0;
+		}
+
+		@Override
+		public void close() {
+			remaining = 0;
+			for (Future<byte[]> future : pending)
+				future.cancel(false);
+			pending.clear();
+		}
+
+		private boolean ensureCurrent() throws IOException {
+			if (remaining <= 0)
+				return false;
+			if (current != null && pos < current.length)
+				return true;
+			int offset = current == null ? pos : 0;
+			while (pending.size() < Math.max(prefetchChunks, 1) && nextChunk <= lastChunk)
+				pending.add(fetch(nextChunk++));
+			Future<byte[]> future = pending.poll();
+			if (future == null)
+				return false;
+			try {
+				current = future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException(e.getMessage());
+			} catch (ExecutionException e) {
+				throw new IOException(e.getCause());
+			}
+			pos = offset;
+			return pos < current.length;
+		}
+
+		private Future<byte[]> fetch(int n) {
+			String id = Chunk.id(fileId, n);
+			if (executorService == null || prefetchChunks <= 1)
+				return CompletableFuture.completedFuture(load(id));
+			return executorService.submit(() -> load(id));
+		}
+
+		private byte[] load(String id) {
+			Chunk chunk = mongoTemplate.findById(id, Chunk.class);
+			if (chunk == null)
+				throw new IllegalStateException("Chunk " + id + " is missing");
+			return chunk.getData();
+		}
+
 	}
 
 }
@@ -442,8 +442,13 @@ public class JdbcQueryService {
 		validateAndConvertTypes(sql, paramMap);
 		boolean hasLimit = hasLimit(sql);
 		resultPage.setPaginating(!hasLimit);
+		boolean keyset = resultPage.isKeyset() && !hasLimit;
 		jdbcTemplate.setQueryTimeout(queryTimeout);
-		resultPage.setTotalResults(count(sql, paramMap));
+		if (!resultPage.isCounting())
+			resultPage.setTotalResults(-1);
+		else if (!(keyset && resultPage.getCursor() != null && resultPage.getTotalResults() >= 0))
+			// reuse count of first page if keyset
+			resultPage.setTotalResults(count(sql, paramMap));
 		if (resultPage.getTotalResults() > getCsvMaxRows() && (hasLimit || !(databaseProduct == DatabaseProduct.MYSQL
 				|| databaseProduct == DatabaseProduct.MARIADB || databaseProduct == DatabaseProduct.POSTGRESQL
 				|| databaseProduct == DatabaseProduct.H2 || databaseProduct == DatabaseProduct.HSQL
@@ -454,12 +459,111 @@ public class JdbcQueryService {
 			throw new ErrorMessage("query.result.number.exceed", new Object[] { getCsvMaxRows() });
 		long time = System.currentTimeMillis();
 		jdbcTemplate.setQueryTimeout(queryTimeout);
-		resultPage.setResult(query(sql, paramMap, resultPage.getPageSize(),
-				(resultPage.getPageNo() - 1) * resultPage.getPageSize()));
+		if (keyset)
+			resultPage.setResult(queryByKeyset(sql, paramMap, resultPage));
+		else
+			resultPage.setResult(query(sql, paramMap, resultPage.getPageSize(),
+					(resultPage.getPageNo() - 1) * resultPage.getPageSize()));
 		resultPage.setTookInMillis(System.currentTimeMillis() - time);
 		return resultPage;
 	}
 
+	private List<Map<String, Object>> queryByKeyset(String sql, Map<String, Object> paramMap,
+			ResultPage<Map<String, Object>> resultPage) {
+		String orderby = SqlUtils.extractOrderby(sql);
+		if (orderby == null)
+			throw new IllegalArgumentException("Keyset pagination requires order by clause");
+		String alias = "tks";
+		while (sql.contains(alias))
+			alias += "0";
+		// sort keys should be selected columns
+		String[] items = orderby.split("\\s*,\\s*");
+		String[] columns = new String[items.length];
+		boolean[] descending = new boolean[items.length];
+		boolean[] nullsLast = new boolean[items.length];
+		for (int i = 0; i < items.length; i++) {
+			String[] arr = items[i].trim().split("\\s+");
+			String column = arr[0];
+			int index = column.lastIndexOf('.');
+			if (index > 0)
+				column = column.substring(index + 1);
+			columns[i] = column;
+			descending[i] = arr.length > 1 && arr[1].equalsIgnoreCase("desc");
+			// treat null as the largest value unless specified
+			nullsLast[i] = !descending[i];
+			for (int j = 1; j < arr.length - 1; j++)
+				if (arr[j].equalsIgnoreCase("nulls"))
+					nullsLast[i] = arr[j + 1].equalsIgnoreCase("last");
+		}
+		Map<String, Object> params = new HashMap<>(paramMap);
+		StringBuilder sb = new StringBuilder("select * from (\n").append(SqlUtils.trimOrderby(sql)).append("\n) ")
+				.append(alias);
+		Object[] cursor = resultPage.getCursor();
+		if (cursor != null) {
+			if (cursor.length != columns.length)
+				throw new IllegalArgumentException("Cursor should contain values of " + orderby);
+			// (k1 > c1) or (k1 = c1 and k2 > c2) or ...
+			sb.append(" where ");
+			boolean first = true;
+			for (int i = 0; i < columns.length; i++) {
+				String column = alias + '.' + columns[i];
+				if (cursor[i] == null && nullsLast[i])
+					continue; // nothing after null
+				if (!first)
+					sb.append(" or ");
+				first = false;
+				sb.append('(');
+				for (int j = 0; j < i; j++) {
+					sb.append(alias).append('.').append(columns[j]);
+					if (cursor[j] != null)
+						sb.append(" = :").append(alias).append(j);
+					else
+						sb.append(" is null");
+					sb.append(" and ");
+				}
+				if (cursor[i] == null) {
+					sb.append(column).append(" is not null");
+				} else {
+					if (nullsLast[i])
+						sb.append('(').append(column).append(" is null or ");
+					sb.append(column).append(descending[i] ? " < :" : " > :").append(alias).append(i);
+					if (nullsLast[i])
+						sb.append(')');
+				}
+				sb.append(')');
+			}
+			if (first)
+				sb.append("1=0");
+			for (int i = 0; i < columns.length; i++)
+				if (cursor[i] != null)
+					params.put(alias + i, cursor[i]);
+		}
+		// emulate nulls first/last since syntax is not portable
+		sb.append(" order by ");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0)
+				sb.append(", ");
+			String column = alias + '.' + columns[i];
+			sb.append("case when ").append(column).append(nullsLast[i] ? " is null then 1 else 0 end, "
+					: " is null then 0 else 1 end, ").append(column);
+			if (descending[i])
+				sb.append(" desc");
+		}
+		int pageSize = resultPage.getPageSize();
+		// fetch one more row to detect next page
+		List<Map<String, Object>> list = query(sb.toString(), params, pageSize + 1, 0);
+		Object[] nextCursor = null;
+		if (list.size() > pageSize) {
+			list = new ArrayList<>(list.subList(0, pageSize));
+			Map<String, Object> last = list.get(pageSize - 1);
+			nextCursor = new Object[columns.length];
+			for (int i = 0; i < columns.length; i++)
+				nextCursor[i] = last.get(columns[i].replace(quoteString, ""));
+		}
+		resultPage.setNextCursor(nextCursor);
+		return list;
+	}
+
 	@Transactional(readOnly = true)
 	public void query(String sql, Map<String, ?> paramMap, final LineHandler lh) {
 		query(sql, paramMap, new RowHandler() {
@@ -2,6 +2,7 @@ package org.ironrhino.core.jdbc;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -16,7 +17,9 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.function.IntFunction;
 
 import javax.persistence.Id;
 import javax.sql.DataSource;
@@ -42,7 +45,9 @@ import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.lang.NonNull;
@@ -78,6 +83,8 @@ public class JdbcRepositoryFactoryBean extends MethodInterceptorFactoryBean
 
 	private Partitioner defaultPartitioner;
 
+	private final Map<Method, InvocationPlan> invocationPlans = new ConcurrentHashMap<>();
+
 	public JdbcRepositoryFactoryBean(Class<?> jdbcRepositoryClass, JdbcTemplate jdbcTemplate) {
 		Assert.notNull(jdbcRepositoryClass, "jdbcRepositoryClass shouldn't be null");
 		Assert.notNull(jdbcTemplate, "jdbcTemplate shouldn't be null");
@@ -114,6 +121,15 @@ public class JdbcRepositoryFactoryBean extends MethodInterceptorFactoryBean
 		Partition partition = jdbcRepositoryClass.getAnnotation(Partition.class);
 		if (partition != null)
 			defaultPartitioner = beanFactory.getBean(partition.partitioner());
+		for (Method method : jdbcRepositoryClass.getMethods()) {
+			if (method.isDefault() || method.getDeclaringClass() == Object.class)
+				continue;
+			try {
+				invocationPlans.put(method, new InvocationPlan(method));
+			} catch (RuntimeException e) {
+				// defer error to invocation
+			}
+		}
 	}
 
 	private Map<String, String> loadSqls() {
@@ -175,211 +191,275 @@ public class JdbcRepositoryFactoryBean extends MethodInterceptorFactoryBean
 		return jdbcRepositoryClass;
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	protected Object doInvoke(MethodInvocation methodInvocation) {
-		if (AppInfo.getStage() == Stage.DEVELOPMENT)
+		if (AppInfo.getStage() == Stage.DEVELOPMENT) {
 			this.sqls = loadSqls();
-		Method method = methodInvocation.getMethod();
-		String methodName = method.getName();
-		String sql = sqls.get(methodName);
-		if (StringUtils.isBlank(sql)) {
-			Sql anno = AnnotationUtils.findAnnotation(method, Sql.class);
-			if (anno != null)
-				sql = anno.value();
+			invocationPlans.clear();
 		}
-		if (StringUtils.isBlank(sql))
-			throw new RuntimeException(
-					"No sql found for method: " + jdbcRepositoryClass.getName() + "." + methodName + "()");
-		SqlVerb sqlVerb = SqlVerb.parseBySql(sql);
-		if (sqlVerb == null) {
-			Transactional transactional = AnnotatedElementUtils.findMergedAnnotation(method, Transactional.class);
-			if (transactional == null)
-				transactional = AnnotatedElementUtils.findMergedAnnotation(jdbcRepositoryClass, Transactional.class);
-			if (transactional != null && transactional.readOnly()) {
-				sqlVerb = SqlVerb.SELECT;
+		InvocationPlan plan = invocationPlans.computeIfAbsent(methodInvocation.getMethod(), InvocationPlan::new);
+		return plan.invoke(methodInvocation.getArguments());
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <T> T create(Class<T> jdbcRepositoryClass, DataSource dataSource) {
+		return (T) new JdbcRepositoryFactoryBean(jdbcRepositoryClass, dataSource).getObject();
+	}
+
+	@FunctionalInterface
+	private interface QueryHandler {
+
+		Object query(String sql, SqlParameterSource sqlParameterSource, RowCallbackHandler rch);
+
+	}
+
+	/**
+	 * Everything can be resolved from method, runtime only binds arguments and
+	 * executes sql.
+	 */
+	private class InvocationPlan {
+
+		private final String sql;
+
+		private final SqlVerb sqlVerb;
+
+		private final boolean templated;
+
+		private final String[] names;
+
+		private final Annotation[][] parameterAnnotations;
+
+		private final Type[] parameterTypes;
+
+		private final PartitionKey partitionKey;
+
+		private final Partitioner partitioner;
+
+		private final QueryHandler queryHandler;
+
+		private final IntFunction<Object> rowsConverter;
+
+		InvocationPlan(Method method) {
+			String methodName = method.getName();
+			String sql = sqls.get(methodName);
+			if (StringUtils.isBlank(sql)) {
+				Sql anno = AnnotationUtils.findAnnotation(method, Sql.class);
+				if (anno != null)
+					sql = anno.value();
 			}
+			if (StringUtils.isBlank(sql))
+				throw new RuntimeException(
+						"No sql found for method: " + jdbcRepositoryClass.getName() + "." + methodName + "()");
+			SqlVerb sqlVerb = SqlVerb.parseBySql(sql);
 			if (sqlVerb == null) {
-				if (methodName.startsWith("get") || methodName.startsWith("load") || methodName.startsWith("query")
-						|| methodName.startsWith("find") || methodName.startsWith("search")
-						|| methodName.startsWith("list") || methodName.startsWith("count"))
+				Transactional transactional = AnnotatedElementUtils.findMergedAnnotation(method, Transactional.class);
+				if (transactional == null)
+					transactional = AnnotatedElementUtils.findMergedAnnotation(jdbcRepositoryClass,
+							Transactional.class);
+				if (transactional != null && transactional.readOnly()) {
 					sqlVerb = SqlVerb.SELECT;
+				}
+				if (sqlVerb == null) {
+					if (methodName.startsWith("get") || methodName.startsWith("load") || methodName.startsWith("query")
+							|| methodName.startsWith("find") || methodName.startsWith("search")
+							|| methodName.startsWith("list") || methodName.startsWith("count"))
+						sqlVerb = SqlVerb.SELECT;
+				}
+			}
+			if (sqlVerb == null)
+				throw new IllegalArgumentException("Invalid sql: " + sql);
+			this.sql = sql;
+			this.sqlVerb = sqlVerb;
+			this.templated = sql.indexOf('@') > -1;
+			if (method.getParameterCount() > 0) {
+				names = ReflectionUtils.getParameterNames(method);
+				if (names == null)
+					throw new RuntimeException("No parameter names discovered for method, please consider using @Param");
+			} else {
+				names = new String[0];
+			}
+			parameterAnnotations = method.getParameterAnnotations();
+			parameterTypes = method.getGenericParameterTypes();
+			partitionKey = AnnotationUtils.findAnnotation(method, PartitionKey.class);
+			if (partitionKey != null) {
+				Partition p = AnnotationUtils.findAnnotation(method, Partition.class);
+				partitioner = p != null ? beanFactory.getBean(p.partitioner()) : defaultPartitioner;
+			} else {
+				partitioner = null;
+			}
+			Type returnType = method.getGenericReturnType();
+			if (sqlVerb == SqlVerb.SELECT) {
+				queryHandler = createQueryHandler(returnType);
+				rowsConverter = null;
+			} else {
+				queryHandler = null;
+				rowsConverter = createRowsConverter(returnType);
 			}
 		}
-		if (sqlVerb == null)
-			throw new IllegalArgumentException("Invalid sql: " + sql);
-
-		Object[] arguments = methodInvocation.getArguments();
-		NestedPathMapSqlParameterSource sqlParameterSource = new NestedPathMapSqlParameterSource();
-		Map<String, Object> context = new HashMap<>();
-		RowCallbackHandler rch = null;
-		if (arguments.length > 0) {
-			String[] names = ReflectionUtils.getParameterNames(methodInvocation.getMethod());
-			if (names == null)
-				throw new RuntimeException("No parameter names discovered for method, please consider using @Param");
+
+		Object invoke(Object[] arguments) {
+			String sql = this.sql;
+			if (partitionKey != null || templated && arguments.length > 0) {
+				Map<String, Object> context = new HashMap<>();
+				for (int i = 0; i < names.length; i++)
+					context.put(names[i], arguments[i]);
+				if (partitionKey != null) {
+					if (partitioner == null)
+						throw new IllegalStateException("No partitioner found");
+					String partition = partitioner.partition(ExpressionUtils.eval(partitionKey.value(), context));
+					if (partition != null)
+						context.put("PARTITION", partition);
+				}
+				// evaluate template before expanding, it's cached by sql
+				if (templated && !context.isEmpty())
+					sql = ExpressionUtils.evalString(sql, context);
+			}
+			NestedPathMapSqlParameterSource sqlParameterSource = new NestedPathMapSqlParameterSource();
+			RowCallbackHandler rch = null;
 			for (int i = 0; i < names.length; i++) {
 				Object arg = arguments[i];
-				context.put(names[i], arg);
-				if (arg != null) {
-					if (arg instanceof Limiting) {
-						sql = SqlUtils.appendLimitingClause(databaseProduct, databaseMajorVersion, databaseMinorVersion,
-								sql, names[i], (Limiting) arg);
+				if (arg == null)
+					continue;
+				if (arg instanceof Limiting) {
+					sql = SqlUtils.appendLimitingClause(databaseProduct, databaseMajorVersion, databaseMinorVersion, sql,
+							names[i], (Limiting) arg);
+				}
+				if (arg instanceof RowCallbackHandler) {
+					rch = (RowCallbackHandler) arg;
+				}
+				if (arg instanceof Object[]) {
+					Object[] objects = (Object[]) arg;
+					if (objects.length > maxCollectionSize)
+						throw new IllegalArgumentException(
+								"Array length is " + objects.length + ", exceed max allowed " + maxCollectionSize);
+					sql = SqlUtils.expandCollectionParameter(sql, names[i], objects.length);
+					if (objects.length > 0 && Enum.class.isAssignableFrom(arg.getClass().getComponentType())) {
+						Object[] converted = new Object[objects.length];
+						for (int j = 0; j < objects.length; j++)
+							converted[j] = JdbcHelper.convertEnum(objects[j], parameterAnnotations[i]);
+						arg = converted;
 					}
-					if (arg instanceof RowCallbackHandler) {
-						rch = (RowCallbackHandler) arg;
+				}
+				if (arg instanceof Collection) {
+					Collection<?> collection = (Collection<?>) arg;
+					if (collection.size() > maxCollectionSize)
+						throw new IllegalArgumentException("Collection size is " + collection.size()
+								+ ", exceed max allowed " + maxCollectionSize);
+					if (collection.size() > 0 && collection.iterator().next() instanceof Enum) {
+						List<Object> objects = new ArrayList<>();
+						for (Object obj : collection)
+							objects.add(JdbcHelper.convertEnum(obj, parameterAnnotations[i]));
+						arg = objects;
 					}
-					if (arg instanceof Object[]) {
-						Object[] objects = (Object[]) arg;
-						if (objects.length > maxCollectionSize)
-							throw new IllegalArgumentException(
-									"Array length is " + objects.length + ", exceed max allowed " + maxCollectionSize);
-						sql = SqlUtils.expandCollectionParameter(sql, names[i], objects.length);
-						if (objects.length > 0 && Enum.class.isAssignableFrom(arg.getClass().getComponentType())) {
-							for (int j = 0; j < objects.length; j++)
-								objects[j] = JdbcHelper.convertEnum(objects[j],
-										methodInvocation.getMethod().getParameterAnnotations()[i]);
-							arg = objects;
+				}
+				if (arg instanceof Enum) {
+					arg = JdbcHelper.convertEnum(arg, parameterAnnotations[i]);
+				}
+				sqlParameterSource.addValue(names[i], arg);
+			}
+			if (queryHandler != null)
+				return queryHandler.query(sql, sqlParameterSource, rch);
+			int rows;
+			if (sqlVerb == SqlVerb.INSERT) {
+				KeyHolder keyHolder = new GeneratedKeyHolder();
+				rows = namedParameterJdbcTemplate.update(sql, sqlParameterSource, keyHolder);
+				try {
+					Number key = keyHolder.getKey();
+					if (key != null)
+						populateGeneratedKey(arguments, key);
+				} catch (DataAccessException e) {
+				}
+			} else {
+				rows = namedParameterJdbcTemplate.update(sql, sqlParameterSource);
+			}
+			return rowsConverter.apply(rows);
+		}
 
-						}
-					}
-					if (arg instanceof Collection) {
-						Collection<?> collection = (Collection<?>) arg;
-						if (collection.size() > maxCollectionSize)
-							throw new IllegalArgumentException("Collection size is " + collection.size()
-									+ ", exceed max allowed " + maxCollectionSize);
-						// sql = SqlUtils.expandCollectionParameter(sql, names[i], collection.size());
-						if (collection.size() > 0 && collection.iterator().next() instanceof Enum) {
-							List<Object> objects = new ArrayList<>();
-							for (Object obj : collection)
-								objects.add(JdbcHelper.convertEnum(obj,
-										methodInvocation.getMethod().getParameterAnnotations()[i]));
-							arg = objects;
-						}
+		@SuppressWarnings("unchecked")
+		private void populateGeneratedKey(Object[] arguments, Number key) {
+			for (int index = 0; index < arguments.length; index++) {
+				Object arg = arguments[index];
+				if (arg == null || BeanUtils.isSimpleValueType(arg.getClass()))
+					continue;
+				if (arg instanceof Consumer) {
+					Type t = parameterTypes[index];
+					if (t instanceof ParameterizedType) {
+						t = ((ParameterizedType) t).getActualTypeArguments()[0];
+						if (t instanceof Class && Number.class.isAssignableFrom((Class<?>) t))
+							((Consumer<Number>) arg).accept(key);
 					}
-					if (arg instanceof Enum) {
-						arg = JdbcHelper.convertEnum(arg, methodInvocation.getMethod().getParameterAnnotations()[i]);
-					}
-					sqlParameterSource.addValue(names[i], arg);
+					continue;
+				}
+				Set<String> ids = org.ironrhino.core.util.AnnotationUtils.getAnnotatedPropertyNames(arg.getClass(),
+						Id.class);
+				if (ids.size() == 1) {
+					org.ironrhino.core.util.BeanUtils.setPropertyValue(arg, ids.iterator().next(), key);
 				}
 			}
 		}
-		PartitionKey partitionKey = AnnotationUtils.findAnnotation(method, PartitionKey.class);
-		if (partitionKey != null) {
-			Partitioner partitioner = defaultPartitioner;
-			Partition p = AnnotationUtils.findAnnotation(method, Partition.class);
-			if (p != null)
-				partitioner = beanFactory.getBean(p.partitioner());
-			if (partitioner == null)
-				throw new IllegalStateException("No partitioner found");
-			String partition = partitioner.partition(ExpressionUtils.eval(partitionKey.value(), context));
-			if (partition != null)
-				context.put("PARTITION", partition);
-		}
-		if (!context.isEmpty() && (sql.indexOf('@') > -1))
-			sql = ExpressionUtils.evalString(sql, context);
 
-		Type returnType = method.getGenericReturnType();
-		switch (sqlVerb) {
-		case SELECT:
+		private QueryHandler createQueryHandler(Type returnType) {
 			if (returnType instanceof Class) {
 				if (returnType == void.class) {
-					if (rch == null)
-						throw new IllegalStateException("RowCallbackHandler should present");
-					namedParameterJdbcTemplate.query(sql, sqlParameterSource, rch);
-					return null;
+					return (sql, sqlParameterSource, rch) -> {
+						if (rch == null)
+							throw new IllegalStateException("RowCallbackHandler should present");
+						namedParameterJdbcTemplate.query(sql, sqlParameterSource, rch);
+						return null;
+					};
 				}
 				Class<?> clz = (Class<?>) returnType;
 				if (BeanUtils.isSimpleValueType(clz)) {
-					try {
-						return namedParameterJdbcTemplate.queryForObject(sql, sqlParameterSource, clz);
-					} catch (EmptyResultDataAccessException e) {
-						if (!clz.isPrimitive())
-							return null;
-						throw e;
-					}
+					return (sql, sqlParameterSource, rch) -> {
+						try {
+							return namedParameterJdbcTemplate.queryForObject(sql, sqlParameterSource, clz);
+						} catch (EmptyResultDataAccessException e) {
+							if (!clz.isPrimitive())
+								return null;
+							throw e;
+						}
+					};
 				} else {
-					List<?> result = namedParameterJdbcTemplate.query(sql, sqlParameterSource,
-							new EntityBeanPropertyRowMapper<>(clz));
-					if (result.size() > 1)
-						throw new RuntimeException("Incorrect result size: expected 1, actual " + result.size());
-					return result.isEmpty() ? null : result.get(0);
+					RowMapper<?> rowMapper = new EntityBeanPropertyRowMapper<>(clz);
+					return (sql, sqlParameterSource, rch) -> single(
+							namedParameterJdbcTemplate.query(sql, sqlParameterSource, rowMapper));
 				}
 			} else if (returnType instanceof ParameterizedType) {
 				ParameterizedType pt = (ParameterizedType) returnType;
-				if (pt.getRawType() == List.class || pt.getRawType() == Collection.class) {
-					Type type = pt.getActualTypeArguments()[0];
-					if (type instanceof Class) {
-						Class<?> clz = (Class<?>) type;
-						if (BeanUtils.isSimpleValueType(clz)) {
-							return namedParameterJdbcTemplate.queryForList(sql, sqlParameterSource, clz);
-						} else {
-							return namedParameterJdbcTemplate.query(sql, sqlParameterSource,
-									new EntityBeanPropertyRowMapper<>(clz));
-						}
-					}
-				} else if (pt.getRawType() == Optional.class) {
-					Type type = pt.getActualTypeArguments()[0];
-					if (type instanceof Class) {
-						Class<?> clz = (Class<?>) type;
-						if (BeanUtils.isSimpleValueType(clz)) {
-							return Optional.ofNullable(
-									namedParameterJdbcTemplate.queryForObject(sql, sqlParameterSource, clz));
-						} else {
-							List<?> result = namedParameterJdbcTemplate.query(sql, sqlParameterSource,
-									new EntityBeanPropertyRowMapper<>(clz));
-							if (result.size() > 1)
-								throw new RuntimeException(
-										"Incorrect result size: expected 1, actual " + result.size());
-							return Optional.ofNullable(result.isEmpty() ? null : result.get(0));
-						}
+				Type type = pt.getActualTypeArguments()[0];
+				if (type instanceof Class) {
+					Class<?> clz = (Class<?>) type;
+					boolean simple = BeanUtils.isSimpleValueType(clz);
+					RowMapper<?> rowMapper = simple ? null : new EntityBeanPropertyRowMapper<>(clz);
+					if (pt.getRawType() == List.class || pt.getRawType() == Collection.class) {
+						if (simple)
+							return (sql, sqlParameterSource, rch) -> namedParameterJdbcTemplate.queryForList(sql,
+									sqlParameterSource, clz);
+						return (sql, sqlParameterSource, rch) -> namedParameterJdbcTemplate.query(sql,
+								sqlParameterSource, rowMapper);
+					} else if (pt.getRawType() == Optional.class) {
+						if (simple)
+							return (sql, sqlParameterSource, rch) -> Optional
+									.ofNullable(namedParameterJdbcTemplate.queryForObject(sql, sqlParameterSource, clz));
+						return (sql, sqlParameterSource, rch) -> Optional
+								.ofNullable(single(namedParameterJdbcTemplate.query(sql, sqlParameterSource, rowMapper)));
 					}
 				}
 			}
 			throw new UnsupportedOperationException("Unsupported return type: " + returnType.getTypeName());
-		default:
-			int rows;
-			if (sqlVerb == SqlVerb.INSERT) {
-				KeyHolder keyHolder = new GeneratedKeyHolder();
-				rows = namedParameterJdbcTemplate.update(sql, sqlParameterSource, keyHolder);
-				try {
-					Number key = keyHolder.getKey();
-					if (key != null) {
-						Type[] types = methodInvocation.getMethod().getGenericParameterTypes();
-						for (int index = 0; index < arguments.length; index++) {
-							Object arg = arguments[index];
-							if (arg == null || BeanUtils.isSimpleValueType(arg.getClass()))
-								continue;
-							if (arg instanceof Consumer) {
-								Type t = types[index];
-								if (t instanceof ParameterizedType) {
-									t = ((ParameterizedType) t).getActualTypeArguments()[0];
-									if (t instanceof Class && Number.class.isAssignableFrom((Class<?>) t))
-										((Consumer<Number>) arg).accept(key);
-								}
-								continue;
-							}
-							Set<String> ids = org.ironrhino.core.util.AnnotationUtils
-									.getAnnotatedPropertyNames(arg.getClass(), Id.class);
-							if (ids.size() == 1) {
-								org.ironrhino.core.util.BeanUtils.setPropertyValue(arg, ids.iterator().next(), key);
-							}
-						}
-					}
-				} catch (DataAccessException e) {
-				}
-			} else {
-				rows = namedParameterJdbcTemplate.update(sql, sqlParameterSource);
-			}
+		}
+
+		private IntFunction<Object> createRowsConverter(Type returnType) {
 			if (returnType == void.class) {
-				return null;
+				return rows -> null;
 			} else if (returnType == int.class || returnType == Integer.class) {
-				return rows;
+				return rows -> rows;
 			} else if (returnType == long.class || returnType == Long.class) {
-				return (long) rows;
+				return rows -> (long) rows;
 			} else if (returnType == short.class || returnType == Short.class) {
-				return (short) rows;
+				return rows -> (short) rows;
 			} else if (returnType == boolean.class || returnType == Boolean.class) {
-				return rows > 0;
+				return rows -> rows > 0;
 			} else {
 				throw new UnsupportedOperationException("Unsupported return type: " + returnType.getTypeName());
 			}
@@ -387,9 +467,10 @@ public class JdbcRepositoryFactoryBean extends MethodInterceptorFactoryBean
 
 	}
 
-	@SuppressWarnings("unchecked")
-	public static <T> T create(Class<T> jdbcRepositoryClass, DataSource dataSource) {
-		return (T) new JdbcRepositoryFactoryBean(jdbcRepositoryClass, dataSource).getObject();
+	private static Object single(List<?> result) {
+		if (result.size() > 1)
+			throw new RuntimeException("Incorrect result size: expected 1, actual " + result.size());
+		return result.isEmpty() ? null : result.get(0);
 	}
 
 }
@@ -1,17 +1,30 @@
 package org.ironrhino.core.jdbc;
 
 import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.BeanInstantiationException;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeanWrapper;
 import org.springframework.beans.NotWritablePropertyException;
@@ -45,6 +58,16 @@ class MyBeanPropertyRowMapper<T> implements RowMapper<T> {
 
 	private Set<String> mappedProperties;
 
+	// subclasses may customize mapping by overriding
+	private final boolean planned = getClass() == MyBeanPropertyRowMapper.class
+			|| getClass() == EntityBeanPropertyRowMapper.class;
+
+	private final Map<List<String>, RowPlan> rowPlans = new ConcurrentHashMap<>();
+
+	private final ThreadLocal<CurrentRowPlan<RowPlan>> currentRowPlan = new ThreadLocal<>();
+
+	private MethodHandle constructor;
+
 	public MyBeanPropertyRowMapper() {
 	}
 
@@ -97,6 +120,8 @@ class MyBeanPropertyRowMapper<T> implements RowMapper<T> {
 
 	protected void initialize(Class<T> mappedClass) {
 		this.mappedClass = mappedClass;
+		this.constructor = findConstructor(mappedClass);
+		rowPlans.clear();
 		mappedFields = new HashMap<>();
 		mappedProperties = new HashSet<>();
 		PropertyDescriptor[] pds = BeanUtils.getPropertyDescriptors(mappedClass);
@@ -137,6 +162,8 @@ class MyBeanPropertyRowMapper<T> implements RowMapper<T> {
 	@Override
 	public T mapRow(ResultSet rs, int rowNumber) throws SQLException {
 		Assert.state(mappedClass != null, "Mapped class was not specified");
+		if (planned)
+			return getRowPlan(rs).mapRow(rs, rowNumber);
 		T mappedObject = BeanUtils.instantiateClass(mappedClass);
 		BeanWrapper bw = PropertyAccessorFactory.forBeanPropertyAccess(mappedObject);
 		initBeanWrapper(bw);
@@ -155,53 +182,236 @@ class MyBeanPropertyRowMapper<T> implements RowMapper<T> {
 				fromFind = true;
 			}
 			if (pd != null) {
-				try {
-					Object value = getColumnValue(rs, index, pd);
-					if ((rowNumber == 0) && (logger.isDebugEnabled())) {
-						logger.debug("Mapping column '" + column + "' to property '" + pd.getName() + "' of type '"
-								+ ClassUtils.getQualifiedName(pd.getPropertyType()) + "'");
-					}
-					try {
-						if (fromFind)
-							bw.setPropertyValue(column, value);
-						else
-							bw.setPropertyValue(pd.getName(), value);
-					} catch (TypeMismatchException ex) {
-						if ((value == null) && (primitivesDefaultedForNullValue)) {
-							if (logger.isDebugEnabled()) {
-								logger.debug("Intercepted TypeMismatchException for row " + rowNumber + " and column '"
-										+ column + "' with null value when setting property '" + pd
-
-												.getName()
-										+ "' of type '" + ClassUtils.getQualifiedName(pd.getPropertyType())
-										+ "' on object: " + mappedObject, ex);
-							}
-
-						} else {
-							throw ex;
-						}
-					}
-					if (populatedProperties != null) {
-						populatedProperties.add(pd.getName());
-					}
-				} catch (NotWritablePropertyException ex) {
-					throw new DataRetrievalFailureException(
-							"Unable to map column '" + column + "' to property '" + pd.getName() + "'", ex);
-
+				populate(bw, rs, rowNumber, index, column, pd, fromFind);
+				if (populatedProperties != null) {
+					populatedProperties.add(pd.getName());
 				}
-
 			} else if ((rowNumber == 0) && (logger.isDebugEnabled())) {
 				logger.debug("No property found for column '" + column + "' mapped to field '" + field + "'");
 			}
 		}
 
+		checkFullyPopulated(populatedProperties);
+		return mappedObject;
+	}
+
+	private void populate(BeanWrapper bw, ResultSet rs, int rowNumber, int index, String column,
+			PropertyDescriptor pd, boolean fromFind) throws SQLException {
+		try {
+			Object value = getColumnValue(rs, index, pd);
+			if ((rowNumber == 0) && (logger.isDebugEnabled())) {
+				logger.debug("Mapping column '" + column + "' to property '" + pd.getName() + "' of type '"
+						+ ClassUtils.getQualifiedName(pd.getPropertyType()) + "'");
+			}
+			try {
+				if (fromFind)
+					bw.setPropertyValue(column, value);
+				else
+					bw.setPropertyValue(pd.getName(), value);
+			} catch (TypeMismatchException ex) {
+				if ((value == null) && (primitivesDefaultedForNullValue)) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Intercepted TypeMismatchException for row " + rowNumber + " and column '"
+								+ column + "' with null value when setting property '" + pd
+
+										.getName()
+								+ "' of type '" + ClassUtils.getQualifiedName(pd.getPropertyType())
+								+ "' on object: " + bw.getWrappedInstance(), ex);
+					}
+
+				} else {
+					throw ex;
+				}
+			}
+		} catch (NotWritablePropertyException ex) {
+			throw new DataRetrievalFailureException(
+					"Unable to map column '" + column + "' to property '" + pd.getName() + "'", ex);
+
+		}
+	}
+
+	private void checkFullyPopulated(Set<String> populatedProperties) {
 		if ((populatedProperties != null) && (!populatedProperties.equals(mappedProperties))) {
 			throw new InvalidDataAccessApiUsageException(
 					"Given ResultSet does not contain all fields necessary to populate object of class ["
 							+ mappedClass.getName() + "]: " + mappedProperties);
 		}
+	}
 
-		return mappedObject;
+	private RowPlan getRowPlan(ResultSet rs) throws SQLException {
+		// plan is resolved once per ResultSet since mapper may be shared
+		CurrentRowPlan<RowPlan> current = currentRowPlan.get();
+		if (current != null && current.resultSet.get() == rs) {
+			RowPlan rowPlan = current.rowPlan.get();
+			if (rowPlan != null)
+				return rowPlan;
+		}
+		ResultSetMetaData rsmd = rs.getMetaData();
+		String[] columns = new String[rsmd.getColumnCount()];
+		for (int i = 0; i < columns.length; i++)
+			columns[i] = JdbcUtils.lookupColumnName(rsmd, i + 1);
+		RowPlan rowPlan = rowPlans.computeIfAbsent(Arrays.asList(columns), key -> new RowPlan(columns));
+		currentRowPlan.set(new CurrentRowPlan<>(rs, rowPlan));
+		return rowPlan;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T instantiate() {
+		if (constructor == null)
+			return BeanUtils.instantiateClass(mappedClass);
+		try {
+			return (T) constructor.invokeExact();
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new BeanInstantiationException(mappedClass, e.getMessage(), e);
+		}
+	}
+
+	private static MethodHandle findConstructor(Class<?> mappedClass) {
+		try {
+			Constructor<?> ctor = mappedClass.getDeclaredConstructor();
+			if (Modifier.isAbstract(mappedClass.getModifiers()))
+				return null;
+			ctor.setAccessible(true);
+			return MethodHandles.lookup().unreflectConstructor(ctor).asType(MethodType.methodType(Object.class));
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Set value read by primitive specialized getter without BeanWrapper and
+	 * conversion, only for property types which
+	 * {@link JdbcUtils#getResultSetValue(ResultSet, int, Class)} returns
+	 * assignable value.
+	 *
+	 * @return null if not supported
+	 */
+	private static ColumnSetter createColumnSetter(PropertyDescriptor pd) {
+		Class<?> type = pd.getPropertyType();
+		if (!type.isPrimitive() && !ClassUtils.isPrimitiveWrapper(type) && type != String.class
+				&& type != BigDecimal.class)
+			return null;
+		if (type == char.class || type == Character.class)
+			return null;
+		MethodHandle mh;
+		try {
+			Method writeMethod = pd.getWriteMethod();
+			if (!Modifier.isPublic(writeMethod.getModifiers())
+					|| !Modifier.isPublic(writeMethod.getDeclaringClass().getModifiers()))
+				writeMethod.setAccessible(true);
+			mh = MethodHandles.lookup().unreflect(writeMethod);
+		} catch (Exception e) {
+			return null;
+		}
+		if (type.isPrimitive()) {
+			MethodHandle setter = mh.asType(MethodType.methodType(void.class, Object.class, type));
+			// null is not assignable to primitive, fallback to BeanWrapper
+			if (type == int.class) {
+				return (rs, index, bean) -> {
+					int v = rs.getInt(index);
+					if (v == 0 && rs.wasNull())
+						return false;
+					setter.invokeExact(bean, v);
+					return true;
+				};
+			} else if (type == long.class) {
+				return (rs, index, bean) -> {
+					long v = rs.getLong(index);
+					if (v == 0 && rs.wasNull())
+						return false;
+					setter.invokeExact(bean, v);
+					return true;
+				};
+			} else if (type == double.class) {
+				return (rs, index, bean) -> {
+					double v = rs.getDouble(index);
+					if (v == 0 && rs.wasNull())
+						return false;
+					setter.invokeExact(bean, v);
+					return true;
+				};
+			} else if (type == float.class) {
+				return (rs, index, bean) -> {
+					float v = rs.getFloat(index);
+					if (v == 0 && rs.wasNull())
+						return false;
+					setter.invokeExact(bean, v);
+					return true;
+				};
+			} else if (type == short.class) {
+				return (rs, index, bean) -> {
+					short v = rs.getShort(index);
+					if (v == 0 && rs.wasNull())
+						return false;
+					setter.invokeExact(bean, v);
+					return true;
+				};
+			} else if (type == byte.class) {
+				return (rs, index, bean) -> {
+					byte v = rs.getByte(index);
+					if (v == 0 && rs.wasNull())
+						return false;
+					setter.invokeExact(bean, v);
+					return true;
+				};
+			} else {
+				return (rs, index, bean) -> {
+					boolean v = rs.getBoolean(index);
+					if (!v && rs.wasNull())
+						return false;
+					setter.invokeExact(bean, v);
+					return true;
+				};
+			}
+		}
+		MethodHandle setter = mh.asType(MethodType.methodType(void.class, Object.class, Object.class));
+		ColumnGetter getter;
+		if (type == String.class) {
+			getter = ResultSet::getString;
+		} else if (type == BigDecimal.class) {
+			getter = ResultSet::getBigDecimal;
+		} else if (type == Integer.class) {
+			getter = (rs, index) -> {
+				int v = rs.getInt(index);
+				return v == 0 && rs.wasNull() ? null : v;
+			};
+		} else if (type == Long.class) {
+			getter = (rs, index) -> {
+				long v = rs.getLong(index);
+				return v == 0 && rs.wasNull() ? null : v;
+			};
+		} else if (type == Double.class) {
+			getter = (rs, index) -> {
+				double v = rs.getDouble(index);
+				return v == 0 && rs.wasNull() ? null : v;
+			};
+		} else if (type == Float.class) {
+			getter = (rs, index) -> {
+				float v = rs.getFloat(index);
+				return v == 0 && rs.wasNull() ? null : v;
+			};
+		} else if (type == Short.class) {
+			getter = (rs, index) -> {
+				short v = rs.getShort(index);
+				return v == 0 && rs.wasNull() ? null : v;
+			};
+		} else if (type == Byte.class) {
+			getter = (rs, index) -> {
+				byte v = rs.getByte(index);
+				return v == 0 && rs.wasNull() ? null : v;
+			};
+		} else {
+			getter = (rs, index) -> {
+				boolean v = rs.getBoolean(index);
+				return !v && rs.wasNull() ? null : v;
+			};
+		}
+		return (rs, index, bean) -> {
+			setter.invokeExact(bean, getter.get(rs, index));
+			return true;
+		};
 	}
 
 	protected void initBeanWrapper(BeanWrapper bw) {
@@ -222,4 +432,121 @@ class MyBeanPropertyRowMapper<T> implements RowMapper<T> {
 	public static <T> MyBeanPropertyRowMapper<T> newInstance(Class<T> mappedClass) {
 		return new MyBeanPropertyRowMapper<T>(mappedClass);
 	}
+
+	@FunctionalInterface
+	private interface ColumnGetter {
+
+		Object get(ResultSet rs, int index) throws SQLException;
+
+	}
+
+	@FunctionalInterface
+	private interface ColumnSetter {
+
+		/**
+		 * @return false if value should be populated by BeanWrapper
+		 */
+		boolean set(ResultSet rs, int index, Object bean) throws Throwable;
+
+	}
+
+	private static class ColumnMapping {
+
+		private final int index;
+
+		private final String column;
+
+		// null means nested property
+		private final PropertyDescriptor pd;
+
+		private final ColumnSetter setter;
+
+		ColumnMapping(int index, String column, PropertyDescriptor pd, ColumnSetter setter) {
+			this.index = index;
+			this.column = column;
+			this.pd = pd;
+			this.setter = setter;
+		}
+
+	}
+
+	// static and weak referenced, value of ThreadLocal shouldn't reference the
+	// mapper otherwise mapper is never collected from pooled threads
+	private static class CurrentRowPlan<P> {
+
+		private final WeakReference<ResultSet> resultSet;
+
+		private final WeakReference<P> rowPlan;
+
+		CurrentRowPlan(ResultSet resultSet, P rowPlan) {
+			this.resultSet = new WeakReference<>(resultSet);
+			this.rowPlan = new WeakReference<>(rowPlan);
+		}
+
+	}
+
+	/**
+	 * Column to property mapping resolved once per ResultSet shape.
+	 */
+	private class RowPlan {
+
+		private final ColumnMapping[] columnMappings;
+
+		RowPlan(String[] columns) {
+			List<ColumnMapping> list = new ArrayList<>(columns.length);
+			for (int i = 0; i < columns.length; i++) {
+				String column = columns[i];
+				String field = lowerCaseName(column.replaceAll(" ", ""));
+				PropertyDescriptor pd = mappedFields.get(field);
+				if (pd != null) {
+					list.add(new ColumnMapping(i + 1, column, pd, createColumnSetter(pd)));
+				} else if (column.indexOf('.') > 0) {
+					list.add(new ColumnMapping(i + 1, column, null, null));
+				} else if (logger.isDebugEnabled()) {
+					logger.debug("No property found for column '" + column + "' mapped to field '" + field + "'");
+				}
+			}
+			columnMappings = list.toArray(new ColumnMapping[list.size()]);
+		}
+
+		T mapRow(ResultSet rs, int rowNumber) throws SQLException {
+			T mappedObject = instantiate();
+			BeanWrapper bw = null;
+			Set<String> populatedProperties = isCheckFullyPopulated() ? new HashSet<>() : null;
+			for (ColumnMapping cm : columnMappings) {
+				PropertyDescriptor pd = cm.pd;
+				if (cm.setter != null) {
+					try {
+						if (cm.setter.set(rs, cm.index, mappedObject)) {
+							if (populatedProperties != null)
+								populatedProperties.add(pd.getName());
+							continue;
+						}
+					} catch (SQLException | RuntimeException | Error ex) {
+						throw ex;
+					} catch (Throwable ex) {
+						throw new DataRetrievalFailureException(
+								"Unable to map column '" + cm.column + "' to property '" + pd.getName() + "'", ex);
+					}
+				}
+				if (bw == null) {
+					bw = PropertyAccessorFactory.forBeanPropertyAccess(mappedObject);
+					initBeanWrapper(bw);
+				}
+				boolean fromFind = pd == null;
+				if (fromFind) {
+					pd = tryFindPropertyDescriptor(cm.column, bw);
+					if (pd == null)
+						continue;
+				}
+				populate(bw, rs, rowNumber, cm.index, cm.column, pd, fromFind);
+				if (populatedProperties != null)
+					populatedProperties.add(pd.getName());
+			}
+			checkFullyPopulated(populatedProperties);
+			return mappedObject;
+		}
+
+	}
+
 }
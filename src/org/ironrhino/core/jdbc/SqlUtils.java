@@ -297,6 +297,13 @@ public class SqlUtils {
 		return m.replaceAll("");
 	}
 
+	public static String extractOrderby(String sql) {
+		Matcher m = ORDERBY_PATTERN.matcher(sql);
+		if (!m.find())
+			return null;
+		return m.group().trim().replaceFirst("(?i)^order\\s+by\\s+", "");
+	}
+
 	static String expandCollectionParameter(String sql, String paramName, int size) {
 		if (size < 1)
 			throw new IllegalArgumentException("invalid size: " + size);
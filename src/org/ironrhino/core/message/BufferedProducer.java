@@ -0,0 +1,171 @@
+package org.ironrhino.core.message;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.ironrhino.core.metadata.Scope;
+import org.ironrhino.core.util.NameableThreadFactory;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Asynchronous producer which buffers messages and sends them in batch by
+ * {@link Queue#produceAll(java.util.Collection)} or
+ * {@link Topic#publishAll(java.util.Collection, Scope)}, a batch is sent once
+ * {@code batchSize} messages buffered or the first buffered message waited
+ * {@code lingerTime} milliseconds. {@link #send(Serializable)} blocks if
+ * {@code capacity} messages are waiting, and throws
+ * {@link IllegalStateException} once {@link #close()} is called, a message is
+ * either rejected or sent, never silently dropped.
+ * <p>
+ * Messages are lost if process crashed before they are sent, failures of
+ * sending are logged, {@link #close()} should be called to flush buffered
+ * messages.
+ * </p>
+ */
+@Slf4j
+public class BufferedProducer<T extends Serializable> implements AutoCloseable {
+
+	private final Consumer<List<T>> sender;
+
+	@Getter
+	private final int batchSize;
+
+	@Getter
+	private final long lingerTime;
+
+	private final BlockingQueue<T> buffer;
+
+	private final Thread worker;
+
+	// senders hold read lock from checking closed until message buffered
+	private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+	private volatile boolean closed;
+
+	private long sent;
+
+	private long completed;
+
+	public BufferedProducer(Consumer<List<T>> sender, int batchSize, long lingerTime, int capacity) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("batchSize should be positive");
+		if (capacity < batchSize)
+			throw new IllegalArgumentException("capacity should not less than batchSize");
+		this.sender = sender;
+		this.batchSize = batchSize;
+		this.lingerTime = lingerTime;
+		this.buffer = new LinkedBlockingQueue<>(capacity);
+		this.worker = new NameableThreadFactory("bufferedProducer").newThread(this::work);
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+
+	public BufferedProducer(Queue<T> queue, int batchSize, long lingerTime) {
+		this(queue::produceAll, batchSize, lingerTime, batchSize * 10);
+	}
+
+	public BufferedProducer(Topic<T> topic, Scope scope, int batchSize, long lingerTime) {
+		this(messages -> topic.publishAll(messages, scope), batchSize, lingerTime, batchSize * 10);
+	}
+
+	public void send(T message) throws InterruptedException {
+		closeLock.readLock().lockInterruptibly();
+		try {
+			if (closed)
+				throw new IllegalStateException("Producer is closed");
+			synchronized (this) {
+				sent++;
+			}
+			try {
+				buffer.put(message);
+			} catch (InterruptedException e) {
+				complete(1);
+				throw e;
+			}
+		} finally {
+			closeLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Wait until all messages sent before are handed over
+	 *
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public synchronized void flush() throws InterruptedException {
+		long target = sent;
+		while (completed < target && worker.isAlive())
+			wait(lingerTime + 1000);
+	}
+
+	/**
+	 * Reject new messages and wait until buffered messages are handed over,
+	 * stop waiting and keep interrupt status if interrupted, worker thread will
+	 * continue sending remaining messages
+	 */
+	@Override
+	public void close() {
+		closeLock.writeLock().lock();
+		try {
+			closed = true;
+		} finally {
+			closeLock.writeLock().unlock();
+		}
+		try {
+			worker.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.warn("Interrupted while waiting {} buffered messages to be sent", buffer.size());
+		}
+	}
+
+	private void work() {
+		List<T> batch = new ArrayList<>(batchSize);
+		while (!closed || !buffer.isEmpty()) {
+			try {
+				T first = buffer.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null)
+					continue;
+				batch.add(first);
+				long deadline = System.currentTimeMillis() + lingerTime;
+				while (batch.size() < batchSize) {
+					if (buffer.drainTo(batch, batchSize - batch.size()) > 0)
+						continue;
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0 || closed)
+						break;
+					T message = buffer.poll(remaining, TimeUnit.MILLISECONDS);
+					if (message == null)
+						break;
+					batch.add(message);
+				}
+				sender.accept(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (Throwable e) {
+				log.error("Failed to send " + batch.size() + " messages", e);
+			} finally {
+				complete(batch.size());
+				batch = new ArrayList<>(batchSize);
+			}
+		}
+	}
+
+	private synchronized void complete(int size) {
+		if (size > 0) {
+			completed += size;
+			notifyAll();
+		}
+	}
+
+}
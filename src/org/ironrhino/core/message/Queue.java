@@ -1,6 +1,7 @@
 package org.ironrhino.core.message;
 
 import java.io.Serializable;
+import java.util.Collection;
 
 public interface Queue<T extends Serializable> {
 
@@ -8,4 +9,9 @@ public interface Queue<T extends Serializable> {
 
 	void produce(T message);
 
+	default void produceAll(Collection<T> messages) {
+		for (T message : messages)
+			produce(message);
+	}
+
 }
@@ -1,6 +1,7 @@
 package org.ironrhino.core.message;
 
 import java.io.Serializable;
+import java.util.Collection;
 
 import org.ironrhino.core.metadata.Scope;
 
@@ -14,4 +15,13 @@ public interface Topic<T extends Serializable> {
 		publish(message, null);
 	}
 
+	default void publishAll(Collection<T> messages, Scope scope) {
+		for (T message : messages)
+			publish(message, scope);
+	}
+
+	default void publishAll(Collection<T> messages) {
+		publishAll(messages, null);
+	}
+
 }
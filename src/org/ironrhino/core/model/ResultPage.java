@@ -66,6 +66,23 @@ public class ResultPage<T> implements Serializable {
 	@Setter
 	private Boolean paginating;
 
+	// page by sort keys of last row of previous page instead of offset
+	@JsonIgnore
+	@Getter
+	@Setter
+	private boolean keyset;
+
+	// sort key values of last row of previous page, null means first page
+	@JsonIgnore
+	@Getter
+	@Setter
+	private Object[] cursor;
+
+	// sort key values of last row of this page, null means no more pages
+	@Getter
+	@Setter
+	private Object[] nextCursor;
+
 	@JsonIgnore
 	@Getter
 	private boolean executed;
@@ -132,6 +149,8 @@ public class ResultPage<T> implements Serializable {
 
 	@JsonIgnore
 	public boolean isLast() {
+		if (keyset && executed)
+			return nextCursor == null;
 		return this.pageNo >= getTotalPage();
 	}
 
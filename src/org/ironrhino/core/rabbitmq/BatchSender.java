@@ -0,0 +1,33 @@
+package org.ironrhino.core.rabbitmq;
+
+import java.util.Collection;
+
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+class BatchSender {
+
+	static void sendAll(AmqpTemplate amqpTemplate, String exchange, String routingKey, Collection<?> messages,
+			long confirmTimeout) {
+		if (messages.isEmpty())
+			return;
+		if (!(amqpTemplate instanceof RabbitTemplate)) {
+			for (Object message : messages)
+				amqpTemplate.convertAndSend(exchange, routingKey, message);
+			return;
+		}
+		RabbitTemplate rabbitTemplate = (RabbitTemplate) amqpTemplate;
+		ConnectionFactory cf = rabbitTemplate.getConnectionFactory();
+		boolean confirms = cf.isPublisherConfirms() || cf.isSimplePublisherConfirms();
+		// publish on one dedicated channel and wait confirms once for whole batch
+		rabbitTemplate.invoke(operations -> {
+			for (Object message : messages)
+				operations.convertAndSend(exchange, routingKey, message);
+			if (confirms)
+				operations.waitForConfirmsOrDie(confirmTimeout);
+			return null;
+		});
+	}
+
+}
@@ -1,6 +1,7 @@
 package org.ironrhino.core.rabbitmq;
 
 import java.io.Serializable;
+import java.util.Collection;
 
 import javax.annotation.PostConstruct;
 
@@ -9,6 +10,7 @@ import org.ironrhino.core.util.ReflectionUtils;
 import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -29,6 +31,9 @@ public abstract class RabbitQueue<T extends Serializable> implements Queue<T> {
 	@Setter
 	protected boolean durable = true;
 
+	@Value("${rabbitmq.confirmTimeout:10000}")
+	protected long confirmTimeout = 10000;
+
 	public RabbitQueue() {
 		Class<?> clazz = ReflectionUtils.getGenericClass(getClass(), RabbitQueue.class);
 		if (clazz != null)
@@ -45,4 +50,9 @@ public abstract class RabbitQueue<T extends Serializable> implements Queue<T> {
 		amqpTemplate.convertAndSend(getQueueName(), message);
 	}
 
+	@Override
+	public void produceAll(Collection<T> messages) {
+		BatchSender.sendAll(amqpTemplate, "", getQueueName(), messages, confirmTimeout);
+	}
+
 }
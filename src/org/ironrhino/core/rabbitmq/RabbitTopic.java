@@ -1,6 +1,7 @@
 package org.ironrhino.core.rabbitmq;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.concurrent.ExecutorService;
 
 import javax.annotation.PostConstruct;
@@ -30,6 +31,9 @@ public abstract class RabbitTopic<T extends Serializable> implements Topic<T> {
 	@Value("${rabbitmq.exchangeName:ironrhino}")
 	protected String exchangeName;
 
+	@Value("${rabbitmq.confirmTimeout:10000}")
+	protected long confirmTimeout = 10000;
+
 	protected String routingKey = "";
 
 	protected String queueName;
@@ -88,4 +92,16 @@ public abstract class RabbitTopic<T extends Serializable> implements Topic<T> {
 			amqpTemplate.convertAndSend(exchangeName, getRoutingKey(scope), message);
 		}
 	}
+
+	@Override
+	public void publishAll(Collection<T> messages, Scope scope) {
+		if (scope == null)
+			scope = Scope.GLOBAL;
+		if (scope == Scope.LOCAL) {
+			for (T message : messages)
+				publish(message, scope);
+		} else {
+			BatchSender.sendAll(amqpTemplate, exchangeName, getRoutingKey(scope), messages, confirmTimeout);
+		}
+	}
 }
@@ -1,6 +1,9 @@
 package org.ironrhino.core.redis;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -13,7 +16,9 @@ import org.ironrhino.core.util.ReflectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.support.collections.DefaultRedisList;
 
 import lombok.Setter;
@@ -28,6 +33,10 @@ public abstract class RedisQueue<T extends Serializable> implements org.ironrhin
 	@Setter
 	protected boolean consuming;
 
+	// max messages per RPUSH of produceAll
+	@Setter
+	protected int produceBatchSize = 1000;
+
 	private AtomicBoolean stopConsuming = new AtomicBoolean();
 
 	private Thread worker;
@@ -82,4 +91,21 @@ public abstract class RedisQueue<T extends Serializable> implements org.ironrhin
 		queue.add(message);
 	}
 
+	@Override
+	@SuppressWarnings("unchecked")
+	public void produceAll(Collection<T> messages) {
+		if (messages.isEmpty())
+			return;
+		byte[] key = ((RedisSerializer<String>) mqRedisTemplate.getKeySerializer()).serialize(queueName);
+		RedisSerializer<T> serializer = (RedisSerializer<T>) mqRedisTemplate.getValueSerializer();
+		List<byte[]> values = new ArrayList<>(messages.size());
+		for (T message : messages)
+			values.add(serializer.serialize(message));
+		mqRedisTemplate.executePipelined((RedisCallback<Object>) conn -> {
+			for (int i = 0; i < values.size(); i += produceBatchSize)
+				conn.rPush(key, values.subList(i, Math.min(i + produceBatchSize, values.size())).toArray(new byte[0][]));
+			return null;
+		});
+	}
+
 }
@@ -0,0 +1,308 @@
+package org.ironrhino.core.redis;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.ironrhino.core.spring.configuration.PriorityQualifier;
+import org.ironrhino.core.util.AppInfo;
+import org.ironrhino.core.util.ReflectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import io.lettuce.core.Consumer;
+import io.lettuce.core.Limit;
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.StreamMessage;
+import io.lettuce.core.XAddArgs;
+import io.lettuce.core.XReadArgs;
+import io.lettuce.core.XReadArgs.StreamOffset;
+import io.lettuce.core.api.async.RedisStreamAsyncCommands;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Reliable queue backed by redis stream, messages are read by consumer group
+ * in batches and acknowledged after consumed successfully, pending messages of
+ * dead consumers will be claimed after {@code reclaimIdleTime}.
+ * <p>
+ * Reads are non-blocking since blocking commands would stall the shared native
+ * connection, consumers sleep {@code pollInterval} when stream is drained.
+ * </p>
+ */
+public abstract class RedisStreamQueue<T extends Serializable> implements org.ironrhino.core.message.Queue<T> {
+
+	private static final byte[] FIELD_PAYLOAD = "payload".getBytes(StandardCharsets.UTF_8);
+
+	protected Logger logger = LoggerFactory.getLogger(getClass());
+
+	@Getter
+	@Setter
+	protected String queueName;
+
+	@Getter
+	@Setter
+	protected String consumerGroup = "default";
+
+	@Setter
+	protected boolean consuming;
+
+	@Getter
+	@Setter
+	protected int concurrency = 1;
+
+	@Getter
+	@Setter
+	protected int batchSize = 10;
+
+	// milliseconds
+	@Getter
+	@Setter
+	protected long pollInterval = 1000;
+
+	// milliseconds
+	@Getter
+	@Setter
+	protected long reclaimIdleTime = 60000;
+
+	// acknowledge and discard message delivered more than this
+	@Getter
+	@Setter
+	protected int maxDeliveries = 5;
+
+	// approximate max length of stream, 0 means unlimited
+	@Getter
+	@Setter
+	protected long maxLength;
+
+	private AtomicBoolean stopConsuming = new AtomicBoolean();
+
+	private List<Thread> workers = new ArrayList<>();
+
+	@Autowired(required = false)
+	private ExecutorService executorService;
+
+	@Setter
+	@Autowired
+	@PriorityQualifier({ "mqRedisTemplate", "globalRedisTemplate" })
+	private RedisTemplate<String, T> mqRedisTemplate;
+
+	private byte[] key;
+
+	public RedisStreamQueue() {
+		Class<?> clazz = ReflectionUtils.getGenericClass(getClass(), RedisStreamQueue.class);
+		queueName = clazz.getName();
+	}
+
+	@PostConstruct
+	@SuppressWarnings("unchecked")
+	public void afterPropertiesSet() {
+		key = ((RedisSerializer<String>) mqRedisTemplate.getKeySerializer()).serialize(queueName);
+		if (consuming) {
+			createGroupIfAbsent();
+			long lastReclaim = System.currentTimeMillis();
+			for (int i = 0; i < concurrency; i++) {
+				Consumer<byte[]> consumer = Consumer.from(consumerGroup.getBytes(StandardCharsets.UTF_8),
+						(AppInfo.getInstanceId() + '#' + i).getBytes(StandardCharsets.UTF_8));
+				boolean reclaiming = i == 0;
+				Runnable task = () -> {
+					long reclaimed = lastReclaim;
+					while (!stopConsuming.get()) {
+						try {
+							if (reclaiming && System.currentTimeMillis() - reclaimed > reclaimIdleTime) {
+								reclaim(consumer);
+								reclaimed = System.currentTimeMillis();
+							}
+							List<StreamMessage<byte[], byte[]>> messages = execute(commands -> commands.xreadgroup(
+									consumer, XReadArgs.Builder.count(batchSize), StreamOffset.lastConsumed(key)));
+							if (messages == null || messages.isEmpty())
+								Thread.sleep(pollInterval);
+							else
+								handle(consumer, messages);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							break;
+						} catch (Throwable e) {
+							logger.error(e.getMessage(), e);
+						}
+					}
+				};
+				if (executorService != null) {
+					executorService.execute(task);
+				} else {
+					Thread worker = new Thread(task);
+					worker.start();
+					workers.add(worker);
+				}
+			}
+		}
+	}
+
+	@PreDestroy
+	public void stop() {
+		stopConsuming.set(true);
+		workers.forEach(Thread::interrupt);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void produce(T message) {
+		byte[] payload = ((RedisSerializer<T>) mqRedisTemplate.getValueSerializer()).serialize(message);
+		XAddArgs args = xaddArgs();
+		execute(commands -> commands.xadd(key, args, FIELD_PAYLOAD, payload));
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void produceAll(Collection<T> messages) {
+		if (messages.isEmpty())
+			return;
+		RedisSerializer<T> serializer = (RedisSerializer<T>) mqRedisTemplate.getValueSerializer();
+		List<byte[]> payloads = new ArrayList<>(messages.size());
+		for (T message : messages)
+			payloads.add(serializer.serialize(message));
+		XAddArgs args = xaddArgs();
+		mqRedisTemplate.execute((RedisConnection conn) -> {
+			RedisStreamAsyncCommands<byte[], byte[]> commands = (RedisStreamAsyncCommands<byte[], byte[]>) conn
+					.getNativeConnection();
+			// async commands are written without waiting for replies
+			List<RedisFuture<String>> futures = new ArrayList<>(payloads.size());
+			for (byte[] payload : payloads)
+				futures.add(commands.xadd(key, args, FIELD_PAYLOAD, payload));
+			for (RedisFuture<String> future : futures)
+				await(future);
+			return null;
+		});
+	}
+
+	/**
+	 * Consume messages in batch, all messages will be redelivered if exception
+	 * thrown, override it for batch processing such as batch insert
+	 *
+	 * @param messages
+	 *            messages
+	 */
+	public void consume(List<T> messages) {
+		messages.forEach(this::consume);
+	}
+
+	@SuppressWarnings("unchecked")
+	protected void handle(Consumer<byte[]> consumer, List<StreamMessage<byte[], byte[]>> messages) {
+		RedisSerializer<T> serializer = (RedisSerializer<T>) mqRedisTemplate.getValueSerializer();
+		List<T> list = new ArrayList<>(messages.size());
+		for (StreamMessage<byte[], byte[]> sm : messages) {
+			// body is empty if message deleted by trimming
+			byte[] payload = sm.getBody().entrySet().stream()
+					.filter(entry -> Arrays.equals(FIELD_PAYLOAD, entry.getKey())).map(Map.Entry::getValue).findFirst()
+					.orElse(null);
+			if (payload != null)
+				list.add(serializer.deserialize(payload));
+		}
+		if (!list.isEmpty())
+			consume(list);
+		String[] ids = messages.stream().map(StreamMessage::getId).toArray(String[]::new);
+		execute(commands -> commands.xack(key, consumer.getGroup(), ids));
+	}
+
+	protected void reclaim(Consumer<byte[]> consumer) {
+		List<Object> pending = execute(commands -> commands.xpending(key, consumer.getGroup(),
+				Range.create("-", "+"), Limit.from(Math.max(batchSize, 100))));
+		if (pending == null || pending.isEmpty())
+			return;
+		List<String> claimable = new ArrayList<>();
+		List<String> exhausted = new ArrayList<>();
+		for (Object entry : pending) {
+			List<?> fields = (List<?>) entry;
+			String id = toString(fields.get(0));
+			long idle = (Long) fields.get(2);
+			long deliveries = (Long) fields.get(3);
+			if (idle < reclaimIdleTime)
+				continue;
+			if (deliveries >= maxDeliveries)
+				exhausted.add(id);
+			else
+				claimable.add(id);
+		}
+		if (!exhausted.isEmpty()) {
+			logger.error("Discard messages {} of {} delivered more than {} times", exhausted, queueName,
+					maxDeliveries);
+			execute(commands -> commands.xack(key, consumer.getGroup(), exhausted.toArray(new String[0])));
+		}
+		for (int i = 0; i < claimable.size(); i += batchSize) {
+			String[] ids = claimable.subList(i, Math.min(i + batchSize, claimable.size())).toArray(new String[0]);
+			List<StreamMessage<byte[], byte[]>> messages = execute(
+					commands -> commands.xclaim(key, consumer, reclaimIdleTime, ids));
+			if (messages != null && !messages.isEmpty()) {
+				logger.warn("Reclaimed messages {} of {}",
+						messages.stream().map(StreamMessage::getId).collect(Collectors.toList()), queueName);
+				handle(consumer, messages);
+			}
+		}
+	}
+
+	private void createGroupIfAbsent() {
+		try {
+			mqRedisTemplate.execute((RedisCallback<Object>) conn -> conn.execute("XGROUP",
+					"CREATE".getBytes(StandardCharsets.UTF_8), key, consumerGroup.getBytes(StandardCharsets.UTF_8),
+					"0".getBytes(StandardCharsets.UTF_8), "MKSTREAM".getBytes(StandardCharsets.UTF_8)));
+		} catch (Exception e) {
+			String message = String.valueOf(e.getMessage());
+			if (!message.contains("BUSYGROUP"))
+				throw e;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <R> R execute(StreamCallback<R> callback) {
+		return mqRedisTemplate.execute((RedisConnection conn) -> {
+			return await(callback.doWith((RedisStreamAsyncCommands<byte[], byte[]>) conn.getNativeConnection()));
+		});
+	}
+
+	private XAddArgs xaddArgs() {
+		XAddArgs args = new XAddArgs();
+		if (maxLength > 0)
+			args.maxlen(maxLength).approximateTrimming();
+		return args;
+	}
+
+	private static <R> R await(RedisFuture<R> future) {
+		try {
+			// command timeout is guarded by lettuce
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (Exception e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+	}
+
+	private static String toString(Object value) {
+		return value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : String.valueOf(value);
+	}
+
+	@FunctionalInterface
+	private interface StreamCallback<R> {
+
+		RedisFuture<R> doWith(RedisStreamAsyncCommands<byte[], byte[]> commands);
+
+	}
+
+}
@@ -2,6 +2,7 @@ package org.ironrhino.core.redis;
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.concurrent.ExecutorService;
 
 import javax.annotation.PostConstruct;
@@ -13,10 +14,12 @@ import org.ironrhino.core.util.ExceptionUtils;
 import org.ironrhino.core.util.ReflectionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.listener.Topic;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.SerializationException;
 
 import lombok.Setter;
@@ -109,4 +112,25 @@ public abstract class RedisTopic<T extends Serializable> implements org.ironrhin
 		}
 	}
 
+	@Override
+	@SuppressWarnings("unchecked")
+	public void publishAll(Collection<T> messages, Scope scope) {
+		if (scope == null)
+			scope = Scope.GLOBAL;
+		if (scope == Scope.LOCAL || messages.isEmpty()) {
+			for (T message : messages)
+				publish(message, scope);
+			return;
+		}
+		RedisTemplate template = globalRedisTemplate != null && scope == Scope.GLOBAL ? globalRedisTemplate
+				: mqRedisTemplate;
+		byte[] channel = ((RedisSerializer<String>) template.getStringSerializer()).serialize(getChannelName(scope));
+		RedisSerializer<T> serializer = (RedisSerializer<T>) template.getValueSerializer();
+		template.executePipelined((RedisCallback<Object>) conn -> {
+			for (T message : messages)
+				conn.publish(channel, serializer.serialize(message));
+			return null;
+		});
+	}
+
 }
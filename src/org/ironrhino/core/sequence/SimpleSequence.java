@@ -10,6 +10,15 @@ public interface SimpleSequence extends Sequence {
 		return (int) value;
 	}
 
+	default long[] nextLongValues(int count) {
+		if (count < 1)
+			throw new IllegalArgumentException("count should great than 0");
+		long[] values = new long[count];
+		for (int i = 0; i < count; i++)
+			values[i] = nextLongValue();
+		return values;
+	}
+
 	void restart();
 
 }
\ No newline at end of file
@@ -60,6 +60,8 @@ public abstract class AbstractSequenceSimpleSequence extends AbstractDatabaseSim
 
 	@Override
 	public long nextLongValue() throws DataAccessException {
+		if (getSegmentSize() > 1)
+			return nextLongValueFromSegment();
 		try (Connection con = getDataSource().getConnection();
 				Statement stmt = con.createStatement();
 				ResultSet rs = stmt.executeQuery(getQuerySequenceStatement())) {
@@ -70,6 +72,45 @@ public abstract class AbstractSequenceSimpleSequence extends AbstractDatabaseSim
 		}
 	}
 
+	@Override
+	public long[] nextLongValues(int count) throws DataAccessException {
+		if (getSegmentSize() > 1)
+			return super.nextLongValues(count);
+		if (count < 1)
+			throw new IllegalArgumentException("count should great than 0");
+		long[] values = new long[count];
+		try (Connection con = getDataSource().getConnection(); Statement stmt = con.createStatement()) {
+			for (int i = 0; i < count; i++) {
+				try (ResultSet rs = stmt.executeQuery(getQuerySequenceStatement())) {
+					rs.next();
+					values[i] = rs.getLong(1);
+				}
+			}
+			return values;
+		} catch (SQLException ex) {
+			throw new DataAccessResourceFailureException("Could not obtain next value of sequence", ex);
+		}
+	}
+
+	/**
+	 * hi/lo allocation, all nodes should use same segment size great than 1 and
+	 * never change it once used, values of different segment size overlap
+	 */
+	@Override
+	protected long reserve(int size) {
+		// raw sequence value is segment of size 1, it overlaps with other segments
+		if (size < 2)
+			throw new IllegalArgumentException("hi/lo allocation requires segment size great than 1");
+		try (Connection con = getDataSource().getConnection();
+				Statement stmt = con.createStatement();
+				ResultSet rs = stmt.executeQuery(getQuerySequenceStatement())) {
+			rs.next();
+			return Math.multiplyExact(rs.getLong(1), size);
+		} catch (SQLException ex) {
+			throw new DataAccessResourceFailureException("Could not obtain next value of sequence", ex);
+		}
+	}
+
 	@Override
 	public void restart() {
 		try (Connection con = getDataSource().getConnection(); Statement stmt = con.createStatement()) {
@@ -78,6 +119,7 @@ public abstract class AbstractSequenceSimpleSequence extends AbstractDatabaseSim
 		} catch (SQLException ex) {
 			throw new DataAccessResourceFailureException(ex.getMessage(), ex);
 		}
+		discardSegments();
 	}
 
 	protected void restartSequence(Connection con, Statement stmt) throws SQLException {
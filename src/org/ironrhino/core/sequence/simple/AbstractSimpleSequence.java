@@ -1,7 +1,14 @@
 package org.ironrhino.core.sequence.simple;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.commons.lang3.StringUtils;
 import org.ironrhino.core.sequence.SimpleSequence;
+import org.ironrhino.core.util.NameableThreadFactory;
 import org.ironrhino.core.util.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +20,19 @@ import lombok.Setter;
 
 public abstract class AbstractSimpleSequence implements SimpleSequence, InitializingBean, BeanNameAware {
 
+	private static final ExecutorService prefetchExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+		private final ThreadFactory threadFactory = new NameableThreadFactory("sequence-prefetch");
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = threadFactory.newThread(r);
+			t.setDaemon(true);
+			return t;
+		}
+
+	});
+
 	protected Logger logger = LoggerFactory.getLogger(getClass());
 
 	@Setter
@@ -24,6 +44,15 @@ public abstract class AbstractSimpleSequence implements SimpleSequence, Initiali
 	@Setter
 	private int paddingLength = 4;
 
+	// reserve values in segments and allocate them in memory if great than 1
+	@Getter
+	@Setter
+	private int segmentSize = 1;
+
+	private volatile Segment segment;
+
+	private CompletableFuture<Segment> nextSegment;
+
 	public String getSequenceName() {
 		return StringUtils.isNotBlank(sequenceName) ? sequenceName : beanName;
 	}
@@ -46,4 +75,95 @@ public abstract class AbstractSimpleSequence implements SimpleSequence, Initiali
 			this.beanName = beanName;
 		}
 	}
+
+	@Override
+	public long[] nextLongValues(int count) {
+		if (segmentSize <= 1)
+			return SimpleSequence.super.nextLongValues(count);
+		if (count < 1)
+			throw new IllegalArgumentException("count should great than 0");
+		long[] values = new long[count];
+		int filled = 0;
+		while (filled < count) {
+			Segment current = segment;
+			if (current != null) {
+				int n = count - filled;
+				long start = current.cursor.getAndAdd(n);
+				if (start <= current.max) {
+					long end = Math.min(start + n - 1, current.max);
+					for (long value = start; value <= end; value++)
+						values[filled++] = value;
+					if (start <= current.prefetchAt && current.prefetchAt <= end)
+						prefetch();
+					continue;
+				}
+			}
+			switchSegment(current);
+		}
+		return values;
+	}
+
+	protected long nextLongValueFromSegment() {
+		return nextLongValues(1)[0];
+	}
+
+	/**
+	 * Reserve consecutive values from backend
+	 *
+	 * @param size
+	 *            count of values
+	 * @return the max value of reserved values
+	 */
+	protected abstract long reserve(int size);
+
+	protected synchronized void discardSegments() {
+		segment = null;
+		if (nextSegment != null) {
+			nextSegment.cancel(false);
+			nextSegment = null;
+		}
+	}
+
+	private synchronized void prefetch() {
+		if (nextSegment == null)
+			nextSegment = CompletableFuture.supplyAsync(this::allocateSegment, prefetchExecutor);
+	}
+
+	private synchronized void switchSegment(Segment expired) {
+		if (segment != expired)
+			return;
+		Segment next = null;
+		if (nextSegment != null) {
+			try {
+				next = nextSegment.join();
+			} catch (Exception e) {
+				logger.warn("Prefetch segment of {} failed: {}", getSequenceName(), e.getMessage());
+			}
+			nextSegment = null;
+		}
+		segment = next != null ? next : allocateSegment();
+	}
+
+	private Segment allocateSegment() {
+		long max = reserve(segmentSize);
+		return new Segment(max - segmentSize + 1, max);
+	}
+
+	private static class Segment {
+
+		private final AtomicLong cursor;
+
+		private final long max;
+
+		// prefetch next segment when half consumed
+		private final long prefetchAt;
+
+		Segment(long min, long max) {
+			this.cursor = new AtomicLong(min);
+			this.max = max;
+			this.prefetchAt = min + (max - min) / 2;
+		}
+
+	}
+
 }
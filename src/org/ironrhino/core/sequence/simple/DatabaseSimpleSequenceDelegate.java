@@ -59,6 +59,7 @@ public class DatabaseSimpleSequenceDelegate extends AbstractDatabaseSimpleSequen
 		if (getCacheSize() > 1)
 			seq.setCacheSize(getCacheSize());
 		seq.setPaddingLength(getPaddingLength());
+		seq.setSegmentSize(getSegmentSize());
 		seq.setTableName(getTableName());
 		seq.setSequenceName(getSequenceName());
 		seq.afterPropertiesSet();
@@ -74,4 +75,14 @@ public class DatabaseSimpleSequenceDelegate extends AbstractDatabaseSimpleSequen
 		return seq.nextLongValue();
 	}
 
+	@Override
+	public long[] nextLongValues(int count) {
+		return seq.nextLongValues(count);
+	}
+
+	@Override
+	protected long reserve(int size) {
+		return seq.reserve(size);
+	}
+
 }
@@ -21,12 +21,32 @@ public class MySQLSimpleSequence extends AbstractDatabaseSimpleSequence {
 
 	@Override
 	public long nextLongValue() {
+		if (getSegmentSize() > 1)
+			return nextLongValueFromSegment();
+		return reserve(1);
+	}
+
+	@Override
+	public long[] nextLongValues(int count) {
+		if (getSegmentSize() > 1)
+			return super.nextLongValues(count);
+		if (count < 1)
+			throw new IllegalArgumentException("count should great than 0");
+		long max = reserve(count);
+		long[] values = new long[count];
+		for (int i = 0; i < count; i++)
+			values[i] = max - count + 1 + i;
+		return values;
+	}
+
+	@Override
+	protected long reserve(int size) {
 		try (Connection con = getDataSource().getConnection()) {
 			con.setAutoCommit(true);
 			try (Statement stmt = con.createStatement()) {
 				String sequenceName = getSequenceName();
-				stmt.executeUpdate("UPDATE `" + getTableName() + "` SET VALUE = LAST_INSERT_ID(VALUE + 1) WHERE NAME='"
-						+ sequenceName + "'");
+				stmt.executeUpdate("UPDATE `" + getTableName() + "` SET VALUE = LAST_INSERT_ID(VALUE + " + size
+						+ ") WHERE NAME='" + sequenceName + "'");
 				try (ResultSet rs = stmt.executeQuery("SELECT LAST_INSERT_ID()")) {
 					if (!rs.next()) {
 						throw new DataAccessResourceFailureException(
@@ -51,5 +71,6 @@ public class MySQLSimpleSequence extends AbstractDatabaseSimpleSequence {
 		} catch (SQLException ex) {
 			throw new DataAccessResourceFailureException(ex.getMessage(), ex);
 		}
+		discardSegments();
 	}
 }
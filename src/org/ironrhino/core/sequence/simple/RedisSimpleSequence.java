@@ -29,11 +29,32 @@ public class RedisSimpleSequence extends AbstractSimpleSequence {
 	@Override
 	public void restart() {
 		boundValueOperations.set("0");
+		discardSegments();
 	}
 
 	@Override
 	public long nextLongValue() {
-		Long value = boundValueOperations.increment(1);
+		if (getSegmentSize() > 1)
+			return nextLongValueFromSegment();
+		return reserve(1);
+	}
+
+	@Override
+	public long[] nextLongValues(int count) {
+		if (getSegmentSize() > 1)
+			return super.nextLongValues(count);
+		if (count < 1)
+			throw new IllegalArgumentException("count should great than 0");
+		long max = reserve(count);
+		long[] values = new long[count];
+		for (int i = 0; i < count; i++)
+			values[i] = max - count + 1 + i;
+		return values;
+	}
+
+	@Override
+	protected long reserve(int size) {
+		Long value = boundValueOperations.increment(size);
 		if (value == null)
 			throw new RuntimeException("Unexpected null");
 		return value;
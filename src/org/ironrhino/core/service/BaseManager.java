@@ -1,9 +1,11 @@
 package org.ironrhino.core.service;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.hibernate.LockOptions;
 import org.hibernate.Session;
@@ -26,6 +28,37 @@ public interface BaseManager<T extends Persistable<?>> {
 
 	void update(T obj);
 
+	/**
+	 * Save entities in batches, persistence context is flushed and cleared after
+	 * each batch, so entities loaded before in current transaction are detached.
+	 * Entities go through {@link #save(Persistable)} one by one if it is
+	 * overridden.
+	 *
+	 * @param objs
+	 *            entities
+	 */
+	void saveAll(Collection<T> objs);
+
+	/**
+	 * Update entities in batches by {@link #update(Persistable)}, persistence
+	 * context is flushed and cleared after each batch, so entities loaded before
+	 * in current transaction are detached.
+	 *
+	 * @param objs
+	 *            entities
+	 */
+	void updateAll(Collection<T> objs);
+
+	/**
+	 * Delete entities in batches, persistence context is flushed and cleared
+	 * after each batch, so entities loaded before in current transaction are
+	 * detached.
+	 *
+	 * @param objs
+	 *            entities
+	 */
+	void deleteAll(Collection<T> objs);
+
 	T get(Serializable id);
 
 	T getReference(Serializable id);
@@ -94,6 +127,43 @@ public interface BaseManager<T extends Persistable<?>> {
 
 	long iterate(int fetchSize, IterateCallback<T> callback, Consumer<T[]> afterCommitConsumer, DetachedCriteria dc);
 
+	/**
+	 * Split entities into id ranges with nearly equal size
+	 *
+	 * @param criteriaSupplier
+	 *            filter of entities without ordering, null means all
+	 * @param partitions
+	 *            max number of partitions
+	 * @return partitions ordered by id
+	 */
+	List<IterationPartition> partition(Supplier<DetachedCriteria> criteriaSupplier, int partitions);
+
+	/**
+	 * Iterate partitions in parallel, each partition is iterated in id order by
+	 * its own sessions and committed per fetch, completed partitions are
+	 * skipped and failed partitions resume after last committed id, callback
+	 * and afterCommitConsumer are invoked from multiple threads concurrently
+	 * so they must be thread-safe
+	 *
+	 * @param fetchSize
+	 *            fetch size
+	 * @param callback
+	 *            callback, must be thread-safe
+	 * @param afterCommitConsumer
+	 *            invoked after each commit, may be null, must be thread-safe
+	 * @param criteriaSupplier
+	 *            filter of entities without ordering, null means all
+	 * @param partitions
+	 *            partitions created by
+	 *            {@link #partition(Supplier, int)}
+	 * @param concurrency
+	 *            max partitions iterated at same time
+	 * @return total iterated rows of this run, check status of partitions for
+	 *         failures
+	 */
+	long iterate(int fetchSize, IterateCallback<T> callback, Consumer<T[]> afterCommitConsumer,
+			Supplier<DetachedCriteria> criteriaSupplier, List<IterationPartition> partitions, int concurrency);
+
 	@FunctionalInterface
 	interface IterateCallback<T> {
 		void process(T[] entityArray, Session session);
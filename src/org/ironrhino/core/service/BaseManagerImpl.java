@@ -1,19 +1,31 @@
 package org.ironrhino.core.service;
 
+import java.beans.PropertyDescriptor;
 import java.io.Serializable;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
@@ -24,6 +36,7 @@ import org.hibernate.CacheMode;
 import org.hibernate.Criteria;
 import org.hibernate.Hibernate;
 import org.hibernate.LockOptions;
+import org.hibernate.NullPrecedence;
 import org.hibernate.ObjectNotFoundException;
 import org.hibernate.ScrollMode;
 import org.hibernate.ScrollableResults;
@@ -31,16 +44,21 @@ import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
 import org.hibernate.annotations.NaturalId;
+import org.hibernate.criterion.Conjunction;
 import org.hibernate.criterion.CriteriaSpecification;
+import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.internal.CriteriaImpl;
+import org.hibernate.internal.CriteriaImpl.CriterionEntry;
 import org.hibernate.internal.CriteriaImpl.OrderEntry;
 import org.hibernate.query.Query;
 import org.hibernate.transform.ResultTransformer;
 import org.ironrhino.core.hibernate.IgnoreCaseSimpleExpression;
+import org.ironrhino.core.metadata.NotInCopy;
 import org.ironrhino.core.model.BaseTreeableEntity;
 import org.ironrhino.core.model.Ordered;
 import org.ironrhino.core.model.Persistable;
@@ -48,14 +66,19 @@ import org.ironrhino.core.model.ResultPage;
 import org.ironrhino.core.struts.EntityClassHelper;
 import org.ironrhino.core.util.AnnotationUtils;
 import org.ironrhino.core.util.BeanUtils;
+import org.ironrhino.core.util.NameableThreadFactory;
 import org.ironrhino.core.util.ReflectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.orm.hibernate5.HibernateCallback;
 import org.springframework.transaction.annotation.Transactional;
 
+import lombok.Getter;
+import lombok.Setter;
+
 @SuppressWarnings({ "unchecked", "rawtypes" })
 public abstract class BaseManagerImpl<T extends Persistable<?>> implements BaseManager<T> {
 
@@ -69,13 +92,23 @@ public abstract class BaseManagerImpl<T extends Persistable<?>> implements BaseM
 	@Autowired
 	private DeleteChecker deleteChecker;
 
+	@Getter
+	@Setter
+	@Value("${baseManager.batchSize:100}")
+	private int batchSize = 100;
+
 	private static final MethodHandle CRITERIA_IMPL_GETTER;
 
+	private static final MethodHandle ORDER_NULL_PRECEDENCE_GETTER;
+
 	static {
 		try {
 			Field f = DetachedCriteria.class.getDeclaredField("impl");
 			f.setAccessible(true);
 			CRITERIA_IMPL_GETTER = MethodHandles.lookup().unreflectGetter(f);
+			f = Order.class.getDeclaredField("nullPrecedence");
+			f.setAccessible(true);
+			ORDER_NULL_PRECEDENCE_GETTER = MethodHandles.lookup().unreflectGetter(f);
 		} catch (Exception e) {
 			throw new RuntimeException(e.getMessage(), e);
 		}
@@ -154,6 +187,108 @@ public abstract class BaseManagerImpl<T extends Persistable<?>> implements BaseM
 			session.update(obj);
 	}
 
+	@Override
+	@Transactional
+	public void saveAll(Collection<T> objs) {
+		Class<?> clazz = getEntityClass();
+		boolean idAssigned = EntityClassHelper.isIdAssigned(clazz);
+		// fullId of treeable entity is derived from generated id
+		boolean perEntity = BaseTreeableEntity.class.isAssignableFrom(clazz)
+				|| isOverridden("save", Persistable.class);
+		executeInBatches(objs, (session, batch) -> {
+			if (perEntity) {
+				for (T obj : batch)
+					save(obj);
+				return;
+			}
+			Set<Serializable> existingIds = Collections.emptySet();
+			if (idAssigned) {
+				List<Serializable> ids = new ArrayList<>(batch.size());
+				for (T obj : batch) {
+					Serializable id = obj.getId();
+					if (id == null)
+						throw new IllegalArgumentException(obj + " must have an ID");
+					ids.add(id);
+				}
+				// check existence of whole batch in one query
+				DetachedCriteria dc = detachedCriteria();
+				dc.add(Restrictions.in("id", ids));
+				dc.setProjection(Projections.id());
+				existingIds = new HashSet<>(dc.getExecutableCriteria(session).list());
+			}
+			for (T obj : batch) {
+				if (idAssigned ? !existingIds.contains(obj.getId()) : obj.isNew())
+					session.save(obj);
+				else if (!session.contains(obj))
+					session.update(obj);
+			}
+		});
+	}
+
+	@Override
+	@Transactional
+	public void updateAll(Collection<T> objs) {
+		executeInBatches(objs, (session, batch) -> {
+			for (T obj : batch)
+				update(obj);
+		});
+	}
+
+	@Override
+	@Transactional
+	public void deleteAll(Collection<T> objs) {
+		executeInBatches(objs, (session, batch) -> {
+			for (T obj : batch)
+				checkDelete(obj);
+			for (T obj : batch)
+				delete(obj, true);
+		});
+	}
+
+	// save(T) of subclass may have side effects such as encoding password
+	private boolean isOverridden(String name, Class<?>... parameterTypes) {
+		for (Class<?> c = getClass(); c != BaseManagerImpl.class && c != Object.class; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod(name, parameterTypes);
+				return true;
+			} catch (NoSuchMethodException e) {
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Flush and clear current session after each batch, notice that clear()
+	 * detaches all entities loaded in current transaction, include those loaded
+	 * by caller before.
+	 */
+	private void executeInBatches(Collection<T> objs, BiConsumer<Session, List<T>> consumer) {
+		if (objs.isEmpty())
+			return;
+		Session session = sessionFactory.getCurrentSession();
+		Integer jdbcBatchSize = session.getJdbcBatchSize();
+		session.setJdbcBatchSize(batchSize);
+		try {
+			List<T> batch = new ArrayList<>(Math.min(batchSize, objs.size()));
+			for (T obj : objs) {
+				batch.add(obj);
+				if (batch.size() == batchSize) {
+					consumer.accept(session, batch);
+					session.flush();
+					session.clear();
+					batch.clear();
+				}
+			}
+			if (!batch.isEmpty()) {
+				consumer.accept(session, batch);
+				session.flush();
+				session.clear();
+			}
+		} finally {
+			session.setJdbcBatchSize(jdbcBatchSize);
+		}
+	}
+
 	@Override
 	@Transactional
 	public void delete(T obj) {
@@ -367,20 +502,35 @@ public abstract class BaseManagerImpl<T extends Persistable<?>> implements BaseM
 		DetachedCriteria detachedCriteria = resultPage.getCriteria();
 		if (detachedCriteria == null)
 			detachedCriteria = detachedCriteria();
+		boolean keyset = resultPage.isKeyset() && resultPage.isPaginating();
 		long totalResults = -1;
 		if (resultPage.isCounting()) {
-			totalResults = countByCriteria(detachedCriteria);
-			resultPage.setTotalResults(totalResults);
-			if (resultPage.getPageNo() < 1)
-				resultPage.setPageNo(1);
-			else if (resultPage.getPageNo() > resultPage.getTotalPage()) {
-				// resultPage.setPageNo(resultPage.getTotalPage());
-				resultPage.setResult(Collections.EMPTY_LIST);
-				return resultPage;
+			if (keyset && resultPage.getCursor() != null && resultPage.getTotalResults() >= 0) {
+				// reuse count of first page
+				totalResults = resultPage.getTotalResults();
+			} else {
+				totalResults = countByCriteria(detachedCriteria);
+				resultPage.setTotalResults(totalResults);
+			}
+			if (!keyset) {
+				if (resultPage.getPageNo() < 1)
+					resultPage.setPageNo(1);
+				else if (resultPage.getPageNo() > resultPage.getTotalPage()) {
+					// resultPage.setPageNo(resultPage.getTotalPage());
+					resultPage.setResult(Collections.EMPTY_LIST);
+					return resultPage;
+				}
 			}
 		}
 		long time = System.currentTimeMillis();
-		if (resultPage.isPaginating()) {
+		if (keyset) {
+			if (!(resultPage.isCounting() && totalResults == 0)) {
+				resultPage.setResult(findListByKeyset(detachedCriteria, resultPage));
+			} else {
+				resultPage.setNextCursor(null);
+				resultPage.setResult(Collections.EMPTY_LIST);
+			}
+		} else if (resultPage.isPaginating()) {
 			int start, end;
 			if (!resultPage.isReverse()) {
 				start = (resultPage.getPageNo() - 1) * resultPage.getPageSize();
@@ -401,6 +551,98 @@ public abstract class BaseManagerImpl<T extends Persistable<?>> implements BaseM
 		return resultPage;
 	}
 
+	private List<T> findListByKeyset(DetachedCriteria dc, ResultPage<T> resultPage) {
+		CriteriaImpl impl;
+		try {
+			impl = (CriteriaImpl) CRITERIA_IMPL_GETTER.invokeExact(dc);
+		} catch (Throwable e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		List<Order> orders = new ArrayList<>();
+		Iterator<OrderEntry> it = impl.iterateOrderings();
+		while (it.hasNext())
+			orders.add(it.next().getOrder());
+		if (orders.stream().noneMatch(order -> order.getPropertyName().equals("id"))) {
+			// make sort keys unique
+			Order order = Order.asc("id");
+			dc.addOrder(order);
+			orders.add(order);
+		}
+		boolean[] nullsLast = new boolean[orders.size()];
+		for (int i = 0; i < nullsLast.length; i++) {
+			Order order = orders.get(i);
+			NullPrecedence nullPrecedence;
+			try {
+				nullPrecedence = (NullPrecedence) ORDER_NULL_PRECEDENCE_GETTER.invokeExact(order);
+			} catch (Throwable e) {
+				throw new RuntimeException(e.getMessage(), e);
+			}
+			if (nullPrecedence == null || nullPrecedence == NullPrecedence.NONE) {
+				// pin null ordering of database, treat null as the largest value
+				nullPrecedence = order.isAscending() ? NullPrecedence.LAST : NullPrecedence.FIRST;
+				order.nulls(nullPrecedence);
+			}
+			nullsLast[i] = nullPrecedence == NullPrecedence.LAST;
+		}
+		Object[] cursor = resultPage.getCursor();
+		Criterion seek = null;
+		if (cursor != null) {
+			if (cursor.length != orders.size())
+				throw new IllegalArgumentException("Cursor should contain values of " + orders);
+			// (k1 > c1) or (k1 = c1 and k2 > c2) or ...
+			Disjunction disjunction = Restrictions.disjunction();
+			for (int i = 0; i < orders.size(); i++) {
+				Order order = orders.get(i);
+				String name = order.getPropertyName();
+				Criterion after;
+				if (cursor[i] == null) {
+					if (nullsLast[i])
+						continue; // nothing after null
+					after = Restrictions.isNotNull(name);
+				} else {
+					after = order.isAscending() ? Restrictions.gt(name, cursor[i]) : Restrictions.lt(name, cursor[i]);
+					if (nullsLast[i])
+						after = Restrictions.or(after, Restrictions.isNull(name));
+				}
+				Conjunction conjunction = Restrictions.conjunction();
+				for (int j = 0; j < i; j++) {
+					String previous = orders.get(j).getPropertyName();
+					conjunction.add(cursor[j] != null ? Restrictions.eq(previous, cursor[j])
+							: Restrictions.isNull(previous));
+				}
+				conjunction.add(after);
+				disjunction.add(conjunction);
+			}
+			seek = disjunction;
+			dc.add(seek);
+		}
+		try {
+			Criteria c = dc.getExecutableCriteria(sessionFactory.getCurrentSession());
+			c.setFirstResult(0);
+			// fetch one more row to detect next page
+			c.setMaxResults(resultPage.getPageSize() + 1);
+			List<T> list = c.list();
+			Object[] nextCursor = null;
+			if (list.size() > resultPage.getPageSize()) {
+				list = new ArrayList<>(list.subList(0, resultPage.getPageSize()));
+				BeanWrapperImpl bw = new BeanWrapperImpl(list.get(list.size() - 1));
+				nextCursor = new Object[orders.size()];
+				for (int i = 0; i < nextCursor.length; i++)
+					nextCursor[i] = bw.getPropertyValue(orders.get(i).getPropertyName());
+			}
+			resultPage.setNextCursor(nextCursor);
+			return list;
+		} finally {
+			if (seek != null) {
+				// restore criteria for next page
+				Iterator<CriterionEntry> iterator = impl.iterateExpressionEntries();
+				while (iterator.hasNext())
+					if (iterator.next().getCriterion() == seek)
+						iterator.remove();
+			}
+		}
+	}
+
 	@Override
 	@Transactional(readOnly = true)
 	public long countAll() {
@@ -568,54 +810,64 @@ public abstract class BaseManagerImpl<T extends Persistable<?>> implements BaseM
 			TE root = (TE) org.springframework.beans.BeanUtils.instantiateClass(getEntityClass());
 			root.setId(0L);
 			root.setName("");
-			assemble(root, (List<TE>) findAll(Order.asc("level")));
+			root.setChildren(new ArrayList<>());
+			List<TE> list = (List<TE>) findAll(Order.asc("level"));
+			TreeNodeCopier copier = new TreeNodeCopier(getEntityClass());
+			Map<Long, TE> nodes = new HashMap<>(list.size() * 4 / 3 + 1);
+			nodes.put(root.getId(), root);
+			for (TE entity : list) {
+				// already order by level asc, parent is assembled before children
+				TE parent = nodes.get(BaseTreeControl.getParentId(entity.getFullId()));
+				if (parent == null)
+					continue;
+				TE node = (TE) copier.copy(entity);
+				node.setChildren(new ArrayList<>());
+				node.setParent(parent);
+				parent.getChildren().add(node);
+				nodes.put(node.getId(), node);
+			}
+			for (TE node : nodes.values())
+				if (node.getChildren().size() > 1)
+					((List<TE>) node.getChildren()).sort(null);
 			return root;
 		} catch (Exception e) {
 			throw new RuntimeException(e.getMessage(), e);
 		}
 	}
 
-	private <TE extends BaseTreeableEntity<TE>> void assemble(TE te, List<TE> list) throws Exception {
-		List<TE> children = new ArrayList<>();
-		Iterator<TE> it = list.iterator();
-		while (it.hasNext()) {
-			TE r = it.next();
-			// already order by level asc
-			if (r.getLevel() <= te.getLevel())
-				continue;
-			if (r.getLevel() - te.getLevel() > 1)
-				break;
-			boolean isChild = false;
-			if (te.getId() == null && StringUtils.isNotBlank(te.getFullId())) {
-				// workaround for javassist-3.16.x
-				String fullId = te.getFullId();
-				if (fullId.endsWith("."))
-					fullId = fullId.substring(0, fullId.length() - 1);
-				String id = fullId.substring(fullId.lastIndexOf('.') + 1);
-				te.setId(Long.valueOf(id));
-			}
-			String fullId = r.getFullId();
-			if (fullId.endsWith("."))
-				fullId = fullId.substring(0, fullId.length() - 1);
-			if (te.getId() == 0) {
-				if (fullId.indexOf('.') < 0)
-					isChild = true;
-			} else {
-				if (fullId.indexOf('.') > 0 && te.getFullId().equals(fullId.substring(0, fullId.lastIndexOf('.') + 1)))
-					isChild = true;
-			}
-			if (isChild) {
-				it.remove();
-				TE rr = (TE) org.springframework.beans.BeanUtils.instantiateClass(te.getClass());
-				BeanUtils.copyProperties(r, rr);
-				children.add(rr);
-				rr.setParent(te);
+	private static class TreeNodeCopier {
+
+		private final Class<?> clazz;
+
+		private final List<Method[]> accessors = new ArrayList<>();
+
+		private final boolean normalizeCollectionFields;
+
+		TreeNodeCopier(Class<?> clazz) {
+			this.clazz = clazz;
+			Set<String> ignores = AnnotationUtils.getAnnotatedPropertyNames(clazz, NotInCopy.class);
+			boolean hasCollection = false;
+			for (PropertyDescriptor pd : org.springframework.beans.BeanUtils.getPropertyDescriptors(clazz)) {
+				if (pd.getReadMethod() == null || pd.getWriteMethod() == null || ignores.contains(pd.getName())
+						|| pd.getName().equals("parent") || pd.getName().equals("children"))
+					continue;
+				accessors.add(new Method[] { pd.getReadMethod(), pd.getWriteMethod() });
+				Class<?> type = pd.getPropertyType();
+				if (type == List.class || type == Set.class || type == Map.class)
+					hasCollection = true;
 			}
+			normalizeCollectionFields = hasCollection;
+		}
+
+		Object copy(Object source) throws Exception {
+			if (normalizeCollectionFields)
+				BeanUtils.normalizeCollectionFields(source);
+			Object target = org.springframework.beans.BeanUtils.instantiateClass(clazz);
+			for (Method[] accessor : accessors)
+				accessor[1].invoke(target, accessor[0].invoke(source));
+			return target;
 		}
-		children.sort(null);
-		te.setChildren(children);
-		for (TE r : children)
-			assemble(r, list);
+
 	}
 
 	@Override
@@ -753,6 +1005,113 @@ public abstract class BaseManagerImpl<T extends Persistable<?>> implements BaseM
 		}
 	}
 
+	@Override
+	public List<IterationPartition> partition(Supplier<DetachedCriteria> criteriaSupplier, int partitions) {
+		if (partitions < 1)
+			throw new IllegalArgumentException("partitions should be positive");
+		Session session = sessionFactory.openSession();
+		try {
+			DetachedCriteria dc = criteriaSupplier != null ? criteriaSupplier.get() : detachedCriteria();
+			Criteria c = dc.getExecutableCriteria(session);
+			c.setProjection(Projections.rowCount());
+			long total = ((Number) c.uniqueResult()).longValue();
+			List<Serializable> boundaries = new ArrayList<>();
+			for (int i = 1; i < partitions && total > 0; i++) {
+				dc = criteriaSupplier != null ? criteriaSupplier.get() : detachedCriteria();
+				c = dc.getExecutableCriteria(session);
+				c.setProjection(Projections.id());
+				c.addOrder(Order.asc("id"));
+				c.setFirstResult((int) (total * i / partitions));
+				c.setMaxResults(1);
+				Serializable boundary = (Serializable) c.uniqueResult();
+				if (boundary != null
+						&& (boundaries.isEmpty() || !boundary.equals(boundaries.get(boundaries.size() - 1))))
+					boundaries.add(boundary);
+			}
+			List<IterationPartition> list = new ArrayList<>(boundaries.size() + 1);
+			Serializable from = null;
+			for (Serializable boundary : boundaries) {
+				list.add(new IterationPartition(from, boundary));
+				from = boundary;
+			}
+			list.add(new IterationPartition(from, null));
+			return list;
+		} finally {
+			session.close();
+		}
+	}
+
+	@Override
+	public long iterate(int fetchSize, IterateCallback<T> callback, Consumer<T[]> afterCommitConsumer,
+			Supplier<DetachedCriteria> criteriaSupplier, List<IterationPartition> partitions, int concurrency) {
+		if (concurrency < 1)
+			throw new IllegalArgumentException("concurrency should be positive");
+		List<IterationPartition> pending = new ArrayList<>();
+		for (IterationPartition partition : partitions)
+			if (partition.getStatus() != IterationPartition.Status.COMPLETED)
+				pending.add(partition);
+		if (pending.isEmpty())
+			return 0;
+		ExecutorService executorService = Executors.newFixedThreadPool(Math.min(concurrency, pending.size()),
+				new NameableThreadFactory("iterate-" + getEntityClass().getSimpleName()));
+		try {
+			List<Future<Long>> futures = new ArrayList<>(pending.size());
+			for (IterationPartition partition : pending) {
+				DetachedCriteria dc = criteriaSupplier != null ? criteriaSupplier.get() : detachedCriteria();
+				futures.add(executorService
+						.submit(inheritContext(() -> iterate(fetchSize, callback, afterCommitConsumer, dc, partition))));
+			}
+			long count = 0;
+			for (Future<Long> future : futures) {
+				try {
+					count += future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				} catch (ExecutionException e) {
+					logger.error(e.getMessage(), e);
+				}
+			}
+			return count;
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private long iterate(int fetchSize, IterateCallback<T> callback, Consumer<T[]> afterCommitConsumer,
+			DetachedCriteria dc, IterationPartition partition) {
+		if (partition.getLastId() != null)
+			dc.add(Restrictions.gt("id", partition.getLastId()));
+		else if (partition.getFrom() != null)
+			dc.add(Restrictions.ge("id", partition.getFrom()));
+		if (partition.getTo() != null)
+			dc.add(Restrictions.lt("id", partition.getTo()));
+		dc.addOrder(Order.asc("id"));
+		long before = partition.getCount();
+		partition.start();
+		try {
+			iterate(fetchSize, callback, entities -> {
+				partition.advance(entities.length,
+						entities.length > 0 ? (Serializable) entities[entities.length - 1].getId() : null);
+				if (afterCommitConsumer != null)
+					afterCommitConsumer.accept(entities);
+			}, dc, true);
+			partition.complete();
+			logger.info("Iterated {} {} of partition {} at {} rows/s", partition.getCount() - before,
+					getEntityClass().getSimpleName(), partition, String.format("%.2f", partition.getThroughput()));
+		} catch (RuntimeException e) {
+			partition.fail(e);
+			logger.error("Failed to iterate " + getEntityClass().getSimpleName() + " of partition " + partition
+					+ " after id " + partition.getLastId(), e);
+		}
+		return partition.getCount() - before;
+	}
+
+	// propagate context of caller thread to worker thread
+	protected <R> Callable<R> inheritContext(Callable<R> task) {
+		return task;
+	}
+
 	private class RowBuffer {
 		private T[] buffer;
 		private int currentIndex;
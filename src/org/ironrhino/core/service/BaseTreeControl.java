@@ -2,7 +2,10 @@ package org.ironrhino.core.service;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.persistence.Table;
 
@@ -29,7 +32,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 public class BaseTreeControl<T extends BaseTreeableEntity<T>> {
 
-	private volatile T tree;
+	private volatile Index<T> index;
 
 	private Class<T> entityClass;
 
@@ -50,16 +53,32 @@ public class BaseTreeControl<T extends BaseTreeableEntity<T>> {
 	}
 
 	public synchronized void rebuild() {
-		tree = null;
+		index = null;
 		getTree();
 	}
 
 	public T getTree() {
-		T temp = tree;
+		return getIndex().tree;
+	}
+
+	public T getTreeNode(Long id) {
+		if (id == null)
+			throw new IllegalArgumentException("id must not be null");
+		return getIndex().nodesById.get(id);
+	}
+
+	public T getTreeNodeByFullId(String fullId) {
+		if (fullId == null)
+			throw new IllegalArgumentException("fullId must not be null");
+		return getIndex().nodesByFullId.get(fullId);
+	}
+
+	private Index<T> getIndex() {
+		Index<T> temp = index;
 		if (temp == null) {
 			synchronized (this) {
-				if ((temp = tree) == null)
-					tree = temp = buildTree();
+				if ((temp = index) == null)
+					index = temp = new Index<>(buildTree());
 			}
 		}
 		return temp;
@@ -131,30 +150,30 @@ public class BaseTreeControl<T extends BaseTreeableEntity<T>> {
 			}
 			return null;
 		});
-		tree = null;
+		index = null;
 	}
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	private synchronized void create(T treeNode) {
-		T parent;
-		String fullId = treeNode.getFullId();
-		if (fullId.endsWith("."))
-			fullId = fullId.substring(0, fullId.length() - 1);
-		if (treeNode.getId().toString().equals(fullId)) {
-			parent = tree;
-		} else {
-			String parentId = fullId.substring(0, fullId.lastIndexOf('.'));
-			if (parentId.indexOf('.') > -1)
-				parentId = parentId.substring(parentId.lastIndexOf('.') + 1);
-			parent = tree.getDescendantOrSelfById(Long.valueOf(parentId));
-		}
+		Index<T> idx = index;
+		if (idx == null)
+			return;
+		T parent = idx.nodesById.get(getParentId(treeNode.getFullId()));
+		if (parent == null)
+			return;
 		try {
 			T t = org.springframework.beans.BeanUtils.instantiateClass(entityClass);
 			t.setChildren(new ArrayList<>());
 			BeanUtils.copyProperties(treeNode, t, new String[] { "parent", "children" });
-			parent.addChild(t);
-			if (parent.getChildren() instanceof List)
-				((List) parent.getChildren()).sort(null);
+			t.setParent(parent);
+			if (parent.getChildren() instanceof List) {
+				List list = (List) parent.getChildren();
+				int i = Collections.binarySearch(list, t);
+				list.add(i < 0 ? -i - 1 : i, t);
+			} else {
+				parent.getChildren().add(t);
+			}
+			idx.add(t);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -162,32 +181,28 @@ public class BaseTreeControl<T extends BaseTreeableEntity<T>> {
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	private synchronized void update(T treeNode) {
-		T t = tree.getDescendantOrSelfById(treeNode.getId());
+		Index<T> idx = index;
+		if (idx == null)
+			return;
+		T t = idx.nodesById.get(treeNode.getId());
 		if (t == null)
 			return;
-		boolean needsort = t.compareTo(treeNode) != 0 || !t.getFullId().equals(treeNode.getFullId());
-		if (!t.getFullId().equals(treeNode.getFullId())) {
+		boolean moved = !t.getFullId().equals(treeNode.getFullId());
+		boolean needsort = moved || t.compareTo(treeNode) != 0;
+		if (moved) {
+			T newParent = idx.nodesById.get(getParentId(treeNode.getFullId()));
 			t.getParent().getChildren().remove(t);
-			String str = treeNode.getFullId();
-			if (str.endsWith("."))
-				str = str.substring(0, str.length() - 1);
-			long newParentId = 0;
-			if (str.indexOf('.') > 0) {
-				str = str.substring(0, str.lastIndexOf('.'));
-				if (str.indexOf('.') > 0)
-					str = str.substring(str.lastIndexOf('.') + 1);
-				newParentId = Long.valueOf(str);
-			}
-			T newParent;
-			if (newParentId == 0)
-				newParent = tree;
-			else
-				newParent = tree.getDescendantOrSelfById(newParentId);
+			idx.remove(t);
+			if (newParent == null)
+				return;
 			t.setParent(newParent);
 			newParent.getChildren().add(t);
-			resetChildren(t);
 		}
 		BeanUtils.copyProperties(treeNode, t, new String[] { "parent", "children" });
+		if (moved) {
+			resetChildren(t);
+			idx.add(t);
+		}
 		if (needsort && t.getParent().getChildren() instanceof List)
 			((List) t.getParent().getChildren()).sort(null);
 	}
@@ -195,23 +210,36 @@ public class BaseTreeControl<T extends BaseTreeableEntity<T>> {
 	private void resetChildren(T treeNode) {
 		if (treeNode.isHasChildren())
 			for (T t : treeNode.getChildren()) {
-				String fullId = (t.getParent()).getFullId() + String.valueOf(t.getId()) + ".";
+				String fullId = treeNode.getFullId() + String.valueOf(t.getId()) + ".";
 				t.setFullId(fullId);
-				t.setLevel(fullId.split("\\.").length);
-				treeNode.setParent(treeNode.getParent());
+				t.setLevel(treeNode.getLevel() + 1);
 				resetChildren(t);
 			}
 	}
 
 	private synchronized void delete(T treeNode) {
-		T t = tree.getDescendantOrSelfById(treeNode.getId());
-		if (t != null)
+		Index<T> idx = index;
+		if (idx == null)
+			return;
+		T t = idx.nodesById.get(treeNode.getId());
+		if (t != null) {
 			t.getParent().getChildren().remove(t);
+			idx.remove(t);
+		}
+	}
+
+	static Long getParentId(String fullId) {
+		if (fullId.endsWith("."))
+			fullId = fullId.substring(0, fullId.length() - 1);
+		int end = fullId.lastIndexOf('.');
+		if (end < 0)
+			return 0L;
+		return Long.valueOf(fullId.substring(fullId.lastIndexOf('.', end - 1) + 1, end));
 	}
 
 	@EventListener
 	public void onApplicationEvent(EntityOperationEvent<T> event) {
-		if (tree == null)
+		if (index == null)
 			return;
 		if (event.getEntity().getClass() == entityClass) {
 			T treeNode = event.getEntity();
@@ -223,4 +251,38 @@ public class BaseTreeControl<T extends BaseTreeableEntity<T>> {
 				delete(treeNode);
 		}
 	}
+
+	private static class Index<T extends BaseTreeableEntity<T>> {
+
+		private final T tree;
+
+		private final Map<Long, T> nodesById = new ConcurrentHashMap<>();
+
+		private final Map<String, T> nodesByFullId = new ConcurrentHashMap<>();
+
+		Index(T tree) {
+			this.tree = tree;
+			nodesById.put(tree.getId(), tree);
+			for (T t : tree.getChildren())
+				add(t);
+		}
+
+		void add(T node) {
+			for (T t : node.getDescendantsAndSelf()) {
+				nodesById.put(t.getId(), t);
+				if (t.getFullId() != null)
+					nodesByFullId.put(t.getFullId(), t);
+			}
+		}
+
+		void remove(T node) {
+			for (T t : node.getDescendantsAndSelf()) {
+				nodesById.remove(t.getId(), t);
+				if (t.getFullId() != null)
+					nodesByFullId.remove(t.getFullId(), t);
+			}
+		}
+
+	}
+
 }
@@ -1,5 +1,7 @@
 package org.ironrhino.core.service;
 
+import java.util.concurrent.Callable;
+
 import org.ironrhino.core.model.Persistable;
 import org.ironrhino.core.spring.configuration.ResourcePresentConditional;
 import org.springframework.context.annotation.Primary;
@@ -22,4 +24,17 @@ public class EntityManagerImpl<T extends Persistable<?>> extends BaseManagerImpl
 		return entityClassHolder.get();
 	}
 
+	@Override
+	protected <R> Callable<R> inheritContext(Callable<R> task) {
+		Class<T> entityClass = getEntityClass();
+		return () -> {
+			entityClassHolder.set(entityClass);
+			try {
+				return task.call();
+			} finally {
+				entityClassHolder.remove();
+			}
+		};
+	}
+
 }
@@ -0,0 +1,82 @@
+package org.ironrhino.core.service;
+
+import java.io.Serializable;
+
+import lombok.Getter;
+
+/**
+ * Id range [from, to) of entities iterated by one worker, null means
+ * unbounded. {@code lastId} is the last committed id, iteration resumes after
+ * it, so partitions could be persisted and passed again to retry failed ones.
+ */
+@Getter
+public class IterationPartition implements Serializable {
+
+	private static final long serialVersionUID = -3285406290389521937L;
+
+	private final Serializable from;
+
+	private final Serializable to;
+
+	private volatile Serializable lastId;
+
+	private volatile Status status = Status.PENDING;
+
+	private volatile long count;
+
+	// rows of last run
+	private volatile long runCount;
+
+	// milliseconds of last run
+	private volatile long elapsed;
+
+	private volatile String error;
+
+	private transient volatile long startTime;
+
+	public IterationPartition(Serializable from, Serializable to) {
+		this.from = from;
+		this.to = to;
+	}
+
+	// rows per second of last run
+	public double getThroughput() {
+		long time = status == Status.RUNNING ? System.currentTimeMillis() - startTime : elapsed;
+		return time > 0 ? runCount * 1000.0 / time : 0;
+	}
+
+	void start() {
+		status = Status.RUNNING;
+		error = null;
+		runCount = 0;
+		startTime = System.currentTimeMillis();
+	}
+
+	void advance(int rows, Serializable lastId) {
+		count += rows;
+		runCount += rows;
+		if (lastId != null)
+			this.lastId = lastId;
+	}
+
+	void complete() {
+		elapsed = System.currentTimeMillis() - startTime;
+		status = Status.COMPLETED;
+	}
+
+	void fail(Throwable e) {
+		elapsed = System.currentTimeMillis() - startTime;
+		error = String.valueOf(e);
+		status = Status.FAILED;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + (from != null ? from : "") + ", " + (to != null ? to : "") + ")";
+	}
+
+	public enum Status {
+		PENDING, RUNNING, COMPLETED, FAILED;
+	}
+
+}
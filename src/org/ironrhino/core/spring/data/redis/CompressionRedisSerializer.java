@@ -0,0 +1,89 @@
+package org.ironrhino.core.spring.data.redis;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import lombok.Getter;
+
+/**
+ * Deflate bytes of delegate serializer if exceeds threshold, compressed bytes
+ * start with a two bytes header, uncompressed bytes are kept as it is so
+ * values written before compression enabled are still readable, threshold not
+ * great than 0 means never compress.
+ */
+public class CompressionRedisSerializer<T> implements RedisSerializer<T> {
+
+	// never be the first byte of utf-8 text, java serialization, json, smile or fst
+	static final byte MAGIC = (byte) 0xC1;
+
+	static final byte DEFLATE = 0x01;
+
+	@Getter
+	private final RedisSerializer<T> delegate;
+
+	@Getter
+	private final int threshold;
+
+	public CompressionRedisSerializer(RedisSerializer<T> delegate, int threshold) {
+		if (delegate == null)
+			throw new IllegalArgumentException("delegate should not be null");
+		this.delegate = delegate;
+		this.threshold = threshold;
+	}
+
+	@Override
+	public byte[] serialize(T object) throws SerializationException {
+		byte[] bytes = delegate.serialize(object);
+		if (threshold <= 0 || bytes == null || bytes.length < threshold)
+			return bytes;
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(bytes);
+			deflater.finish();
+			ByteArrayOutputStream bos = new ByteArrayOutputStream(bytes.length / 2 + 2);
+			bos.write(MAGIC);
+			bos.write(DEFLATE);
+			byte[] buffer = new byte[4096];
+			while (!deflater.finished()) {
+				int count = deflater.deflate(buffer);
+				bos.write(buffer, 0, count);
+			}
+			return bos.size() < bytes.length ? bos.toByteArray() : bytes;
+		} finally {
+			deflater.end();
+		}
+	}
+
+	@Override
+	public T deserialize(byte[] bytes) throws SerializationException {
+		if (!isCompressed(bytes))
+			return delegate.deserialize(bytes);
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(bytes, 2, bytes.length - 2);
+			ByteArrayOutputStream bos = new ByteArrayOutputStream(bytes.length * 3);
+			byte[] buffer = new byte[4096];
+			while (!inflater.finished()) {
+				int count = inflater.inflate(buffer);
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					throw new SerializationException("Cannot decompress truncated bytes");
+				bos.write(buffer, 0, count);
+			}
+			return delegate.deserialize(bos.toByteArray());
+		} catch (DataFormatException e) {
+			throw new SerializationException("Cannot decompress", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	static boolean isCompressed(byte[] bytes) {
+		return bytes != null && bytes.length > 2 && bytes[0] == MAGIC && bytes[1] == DEFLATE;
+	}
+
+}
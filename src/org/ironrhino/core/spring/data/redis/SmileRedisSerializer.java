@@ -0,0 +1,54 @@
+package org.ironrhino.core.spring.data.redis;
+
+import org.ironrhino.core.util.JsonSerializationUtils;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@SuppressWarnings("unchecked")
+public class SmileRedisSerializer<T> implements RedisSerializer<T> {
+
+	private static final ObjectMapper objectMapper = JsonSerializationUtils.createNewObjectMapper(new SmileFactory())
+			.enableDefaultTyping(ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+
+	@Override
+	public byte[] serialize(T object) throws SerializationException {
+		try {
+			if (object == null)
+				return new byte[0];
+			return objectMapper.writeValueAsBytes(new Holder(object));
+		} catch (Exception e) {
+			throw new SerializationException("Cannot serialize", e);
+		}
+	}
+
+	@Override
+	public T deserialize(byte[] bytes) throws SerializationException {
+		if (bytes == null || bytes.length == 0)
+			return null;
+		try {
+			return (T) objectMapper.readValue(bytes, Holder.class).getValue();
+		} catch (Exception e) {
+			throw new SerializationException("Cannot deserialize", e);
+		}
+	}
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	static class Holder {
+
+		// keep type of final class like Long and Enum
+		@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS)
+		private Object value;
+
+	}
+
+}
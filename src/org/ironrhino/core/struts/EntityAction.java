@@ -1687,13 +1687,13 @@ public class EntityAction<EN extends Persistable<?>> extends BaseAction {
 			if (parent == null || parent < 1) {
 				if (tree != null && tree > 0) {
 					children = new ArrayList<>();
-					children.add((EN) baseTreeControl.getTree().getDescendantOrSelfById(tree));
+					children.add((EN) baseTreeControl.getTreeNode(tree));
 					return JSON;
 				} else {
 					parentEntity = baseTreeControl.getTree();
 				}
 			} else {
-				parentEntity = baseTreeControl.getTree().getDescendantOrSelfById(parent);
+				parentEntity = baseTreeControl.getTreeNode(parent);
 			}
 			if (parentEntity != null)
 				children = parentEntity.getChildren();
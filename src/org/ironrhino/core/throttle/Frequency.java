@@ -19,4 +19,10 @@ public @interface Frequency {
 
 	TimeUnit timeUnit() default TimeUnit.HOURS;
 
+	// lease quota from cache in batches and count locally if great than 0, only
+	// for FIXED_WINDOW
+	int leaseSize() default 0;
+
+	FrequencyAlgorithm algorithm() default FrequencyAlgorithm.FIXED_WINDOW;
+
 }
@@ -0,0 +1,17 @@
+package org.ironrhino.core.throttle;
+
+public enum FrequencyAlgorithm {
+
+	// counter per fixed window, allows 2x bursts at window boundaries
+	FIXED_WINDOW,
+
+	// log of every permitted call in last window, accurate but memory consuming
+	SLIDING_LOG,
+
+	// weighted counters of current and previous window, approximated
+	SLIDING_WINDOW,
+
+	// generic cell rate algorithm, smooths calls to evenly spaced intervals
+	GCRA;
+
+}
@@ -1,6 +1,11 @@
 package org.ironrhino.core.throttle;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -9,8 +14,11 @@ import org.ironrhino.core.aop.BaseAspect;
 import org.ironrhino.core.cache.CacheManager;
 import org.ironrhino.core.util.ExpressionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import lombok.RequiredArgsConstructor;
+
 @Aspect
 @Component
 public class FrequencyAspect extends BaseAspect {
@@ -20,6 +28,11 @@ public class FrequencyAspect extends BaseAspect {
 	@Autowired
 	private CacheManager cacheManager;
 
+	@Autowired
+	private ThrottleService throttleService;
+
+	private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
 	public FrequencyAspect() {
 		order = -1000;
 	}
@@ -35,14 +48,120 @@ public class FrequencyAspect extends BaseAspect {
 		}
 		long timestamp = System.currentTimeMillis();
 		long duration = frequency.timeUnit().toMillis(frequency.duration());
-		String actualKey = key + ":" + (timestamp - timestamp % duration);
+		long windowStart = timestamp - timestamp % duration;
+		String actualKey = key + ":" + windowStart;
 		int limits = ExpressionUtils.evalInt(frequency.limits(), context, 0);
-		int used = (int) cacheManager.increment(actualKey, 1, frequency.duration(), frequency.timeUnit(), NAMESPACE);
-		if (limits >= used) {
+		boolean permitted;
+		if (frequency.algorithm() != FrequencyAlgorithm.FIXED_WINDOW) {
+			permitted = throttleService.tryAcquire(key, limits, frequency.duration(), frequency.timeUnit(),
+					frequency.algorithm());
+		} else if (frequency.leaseSize() > 0) {
+			permitted = tryAcquireFromLease(key, actualKey, windowStart + duration, limits, frequency);
+		} else {
+			int used = (int) cacheManager.increment(actualKey, 1, frequency.duration(), frequency.timeUnit(),
+					NAMESPACE);
+			permitted = limits >= used;
+		}
+		if (permitted) {
 			return jp.proceed();
 		} else {
 			throw new FrequencyLimitExceededException(key);
 		}
 	}
 
+	@Scheduled(fixedDelayString = "${frequency.leaseSweepInterval:1000}")
+	public void sweep() {
+		long now = System.currentTimeMillis();
+		leases.forEach((key, lease) -> {
+			if (lease.windowEnd <= now) {
+				leases.remove(key, lease);
+				return;
+			}
+			// give back unused quota of idle lease to other nodes before window closes
+			if (!lease.used)
+				giveBack(lease);
+			lease.used = false;
+			// other nodes may give back quota, renew lease again
+			lease.exhausted = false;
+		});
+	}
+
+	@PreDestroy
+	public void destroy() {
+		// give back unused quota to other nodes
+		leases.values().forEach(this::giveBack);
+		leases.clear();
+	}
+
+	private boolean tryAcquireFromLease(String key, String window, long windowEnd, int limits, Frequency frequency) {
+		Lease[] expired = new Lease[1];
+		Lease lease = leases.compute(key, (k, v) -> {
+			if (v != null && v.windowEnd >= windowEnd)
+				return v;
+			expired[0] = v;
+			return new Lease(window, windowEnd);
+		});
+		if (expired[0] != null)
+			giveBack(expired[0]);
+		while (true) {
+			if (lease.tryAcquire())
+				return true;
+			synchronized (lease) {
+				if (lease.remaining.get() > 0)
+					continue;
+				if (lease.exhausted)
+					return false;
+				int leaseSize = frequency.leaseSize();
+				long used = cacheManager.increment(lease.window, leaseSize, frequency.duration(),
+						frequency.timeUnit(), NAMESPACE);
+				int granted = (int) Math.max(0, Math.min(leaseSize, limits - (used - leaseSize)));
+				if (granted < leaseSize)
+					cacheManager.decrement(lease.window, leaseSize - granted, 0, TimeUnit.MILLISECONDS, NAMESPACE);
+				if (granted == 0) {
+					lease.exhausted = true;
+					return false;
+				}
+				lease.remaining.addAndGet(granted);
+			}
+		}
+	}
+
+	private void giveBack(Lease lease) {
+		int unused = lease.remaining.getAndSet(0);
+		// quota of ended window is worthless
+		if (unused > 0 && System.currentTimeMillis() < lease.windowEnd) {
+			try {
+				cacheManager.decrement(lease.window, unused, 0, TimeUnit.MILLISECONDS, NAMESPACE);
+			} catch (Exception e) {
+				logger.warn("Failed to give back unused quota of {}: {}", lease.window, e.getMessage());
+			}
+		}
+	}
+
+	@RequiredArgsConstructor
+	private static class Lease {
+
+		private final String window;
+
+		private final long windowEnd;
+
+		private final AtomicInteger remaining = new AtomicInteger();
+
+		private volatile boolean exhausted;
+
+		private volatile boolean used;
+
+		boolean tryAcquire() {
+			int current;
+			while ((current = remaining.get()) > 0) {
+				if (remaining.compareAndSet(current, current - 1)) {
+					used = true;
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
 }
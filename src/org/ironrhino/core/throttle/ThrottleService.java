@@ -11,4 +11,6 @@ public interface ThrottleService {
 	public void delay(String key, int interval, TimeUnit timeUnit, int initialDelay)
 			throws IllegalConcurrentAccessException;
 
+	public boolean tryAcquire(String key, int limits, int duration, TimeUnit timeUnit, FrequencyAlgorithm algorithm);
+
 }
\ No newline at end of file
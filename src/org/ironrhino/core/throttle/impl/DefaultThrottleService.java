@@ -1,12 +1,18 @@
 package org.ironrhino.core.throttle.impl;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import org.ironrhino.core.cache.CacheManager;
+import org.ironrhino.core.throttle.FrequencyAlgorithm;
 import org.ironrhino.core.throttle.ThrottleService;
 import org.ironrhino.core.util.IllegalConcurrentAccessException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 @Component("throttleService")
@@ -19,11 +25,13 @@ public class DefaultThrottleService implements ThrottleService {
 	private static final String KEY_SUFFIX_CONCURRENT = "$$concurrent";
 
 	@Autowired
-	private CacheManager cacheManager;
+	protected CacheManager cacheManager;
 
 	@Value("${throttleService.maxSleepTime:" + DEFAULT_MAX_SLEEP_TIME + "}")
 	private long maxSleepTime = DEFAULT_MAX_SLEEP_TIME;
 
+	private final Map<String, WindowState> states = new ConcurrentHashMap<>();
+
 	@Override
 	public void delay(String key, int interval, TimeUnit timeUnit, int initialDelay)
 			throws IllegalConcurrentAccessException {
@@ -57,4 +65,85 @@ public class DefaultThrottleService implements ThrottleService {
 		cacheManager.put(dkey, "", interval, timeUnit, NAMESPACE);
 	}
 
+	@Override
+	public boolean tryAcquire(String key, int limits, int duration, TimeUnit timeUnit, FrequencyAlgorithm algorithm) {
+		if (key == null)
+			throw new IllegalArgumentException("key should not be null");
+		if (limits <= 0)
+			return false;
+		long window = timeUnit.toMillis(duration);
+		if (window <= 0)
+			throw new IllegalArgumentException("duration should great than 0");
+		long now = System.currentTimeMillis();
+		switch (algorithm) {
+		case SLIDING_LOG:
+			SlidingLogState log = (SlidingLogState) states.computeIfAbsent(algorithm.name() + ':' + key,
+					k -> new SlidingLogState());
+			synchronized (log) {
+				while (!log.timestamps.isEmpty() && log.timestamps.peekFirst() <= now - window)
+					log.timestamps.pollFirst();
+				log.expiresAt = now + window;
+				if (log.timestamps.size() >= limits)
+					return false;
+				log.timestamps.addLast(now);
+				return true;
+			}
+		case SLIDING_WINDOW:
+			SlidingWindowState sw = (SlidingWindowState) states.computeIfAbsent(algorithm.name() + ':' + key,
+					k -> new SlidingWindowState());
+			synchronized (sw) {
+				long index = now / window;
+				if (index != sw.index) {
+					sw.previous = index - sw.index == 1 ? sw.current : 0;
+					sw.current = 0;
+					sw.index = index;
+				}
+				sw.expiresAt = (index + 2) * window;
+				double weight = (double) (window - now % window) / window;
+				if (sw.previous * weight + sw.current + 1 > limits)
+					return false;
+				sw.current++;
+				return true;
+			}
+		case GCRA:
+			GcraState gcra = (GcraState) states.computeIfAbsent(algorithm.name() + ':' + key, k -> new GcraState());
+			synchronized (gcra) {
+				double interval = (double) window / limits;
+				double tat = Math.max(gcra.tat, now);
+				if (now < tat + interval - window)
+					return false;
+				gcra.tat = tat + interval;
+				gcra.expiresAt = (long) Math.ceil(gcra.tat);
+				return true;
+			}
+		case FIXED_WINDOW:
+		default:
+			return cacheManager.increment(key + ":" + (now - now % window), 1, duration, timeUnit, NAMESPACE) <= limits;
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${throttleService.purgeInterval:60000}")
+	public void purge() {
+		long now = System.currentTimeMillis();
+		states.values().removeIf(state -> state.expiresAt < now);
+	}
+
+	private static abstract class WindowState {
+		volatile long expiresAt;
+	}
+
+	private static class SlidingLogState extends WindowState {
+		final Deque<Long> timestamps = new ArrayDeque<>();
+	}
+
+	private static class SlidingWindowState extends WindowState {
+		long index;
+		long previous;
+		long current;
+	}
+
+	private static class GcraState extends WindowState {
+		double tat;
+	}
+
 }
\ No newline at end of file
@@ -4,85 +4,199 @@ import static org.ironrhino.core.metadata.Profiles.CLOUD;
 import static org.ironrhino.core.metadata.Profiles.CLUSTER;
 import static org.ironrhino.core.metadata.Profiles.DUAL;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import org.ironrhino.core.spring.configuration.PriorityQualifier;
 import org.ironrhino.core.spring.configuration.ServiceImplementationConditional;
 import org.ironrhino.core.throttle.ConcurrencyService;
+import org.ironrhino.core.util.AppInfo;
+import org.ironrhino.core.util.CodecUtils;
+import org.ironrhino.core.util.ReleaseSignals;
+import org.ironrhino.core.util.ReleaseSignals.Signal;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Distributed semaphore, every permit is a lease of holder in sorted set scored
+ * by expiry time, leases of alive holders are renewed periodically, leases of
+ * crashed holders will expire. Waiters are woken up by release message instead
+ * of polling.
+ */
 @Component("concurrencyService")
 @ServiceImplementationConditional(profiles = { DUAL, CLOUD, CLUSTER })
+@Slf4j
 public class RedisConcurrencyService implements ConcurrencyService {
 
-	private static final String NAMESPACE = "concurrency:";
+	private static final String NAMESPACE = "concurrency:lease:";
+
+	private static final String CHANNEL_NAME = "concurrency:released";
+
+	private static final String NOW = "redis.replicate_commands() local t=redis.call('time') local now=tonumber(t[1])*1000+math.floor(tonumber(t[2])/1000) ";
+
+	@Getter
+	@Value("${concurrencyService.leaseTime:60000}")
+	private long leaseTime = 60000;
+
+	@Getter
+	@Value("${concurrencyService.maxWaitInterval:5000}")
+	private long maxWaitInterval = 5000;
 
 	@Autowired
 	@Qualifier("stringRedisTemplate")
 	@PriorityQualifier
 	private StringRedisTemplate throttleStringRedisTemplate;
 
+	@Autowired
+	@PriorityQualifier
+	private RedisMessageListenerContainer throttleRedisMessageListenerContainer;
+
+	// return 0 if acquired otherwise milliseconds until the earliest lease expires
+	private RedisScript<Long> acquireScript = new DefaultRedisScript<>(NOW
+			+ "redis.call('zremrangebyscore',KEYS[1],'-inf',now) "
+			+ "if redis.call('zcard',KEYS[1]) < tonumber(ARGV[1]) then "
+			+ "redis.call('zadd',KEYS[1],now+tonumber(ARGV[2]),ARGV[3]) "
+			+ "redis.call('pexpire',KEYS[1],ARGV[2]) return 0 end "
+			+ "local first=redis.call('zrange',KEYS[1],0,0,'withscores') return math.max(tonumber(first[2])-now,1)",
+			Long.class);
+
+	private RedisScript<Long> releaseScript = new DefaultRedisScript<>(
+			"local r=redis.call('zrem',KEYS[1],ARGV[1]) redis.call('publish',ARGV[2],ARGV[3]) return r", Long.class);
+
+	private RedisScript<Long> renewScript = new DefaultRedisScript<>(NOW
+			+ "local expiry=now+tonumber(ARGV[1]) local r=0 for i=2,#ARGV do "
+			+ "r=r+redis.call('zadd',KEYS[1],'xx','ch',expiry,ARGV[i]) end "
+			+ "if redis.call('exists',KEYS[1])==1 then redis.call('pexpire',KEYS[1],ARGV[1]) end return r",
+			Long.class);
+
+	private final String holderPrefix = AppInfo.getInstanceId(true) + '@';
+
+	private final Map<String, Deque<String>> leases = new ConcurrentHashMap<>();
+
+	private final ReleaseSignals signals = new ReleaseSignals();
+
+	@PostConstruct
+	public void init() {
+		throttleRedisMessageListenerContainer.addMessageListener((message, pattern) -> {
+			signals.signalAll(new String(message.getBody(), StandardCharsets.UTF_8));
+		}, new ChannelTopic(CHANNEL_NAME));
+	}
+
+	@PreDestroy
+	public void destroy() {
+		leases.forEach((name, tokens) -> {
+			String token;
+			while ((token = tokens.poll()) != null)
+				doRelease(name, token);
+		});
+	}
+
 	@Override
 	public boolean tryAcquire(String name, int permits) {
-		String key = NAMESPACE + name;
-		Long value = throttleStringRedisTemplate.opsForValue().increment(key, 1);
-		boolean success = value != null && value.intValue() <= permits;
-		if (!success)
-			throttleStringRedisTemplate.opsForValue().increment(key, -1);
-		return success;
+		return doAcquire(name, permits) == 0;
 	}
 
 	@Override
 	public boolean tryAcquire(String name, int permits, long timeout, TimeUnit unit) throws InterruptedException {
 		if (timeout <= 0)
 			return tryAcquire(name, permits);
-		String key = NAMESPACE + name;
-		Long value = throttleStringRedisTemplate.opsForValue().increment(key, 1);
-		boolean success = value != null && value.intValue() <= permits;
-		if (!success)
-			throttleStringRedisTemplate.opsForValue().increment(key, -1);
-		long millisTimeout = unit.toMillis(timeout);
-		long start = System.currentTimeMillis();
-		while (!success) {
-			Thread.sleep(100);
-			if ((System.currentTimeMillis() - start) >= millisTimeout)
-				break;
-			value = throttleStringRedisTemplate.opsForValue().increment(key, 1);
-			success = value != null && value.intValue() <= permits;
-			if (!success)
-				throttleStringRedisTemplate.opsForValue().increment(key, -1);
-		}
-		return success;
+		return acquire(name, permits, System.nanoTime() + unit.toNanos(timeout));
 	}
 
 	@Override
-	public void acquire(String name, int permits) {
-		String key = NAMESPACE + name;
-		Long value = throttleStringRedisTemplate.opsForValue().increment(key, 1);
-		boolean success = value != null && value.intValue() <= permits;
-		if (!success)
-			throttleStringRedisTemplate.opsForValue().increment(key, -1);
-		while (!success) {
+	public void acquire(String name, int permits) throws InterruptedException {
+		acquire(name, permits, Long.MAX_VALUE);
+	}
+
+	@Override
+	public void release(String name) {
+		String[] token = new String[1];
+		leases.computeIfPresent(name, (key, tokens) -> {
+			token[0] = tokens.poll();
+			return tokens.isEmpty() ? null : tokens;
+		});
+		if (token[0] == null)
+			throw new IllegalArgumentException("No permit of '" + name + "' held by this node");
+		doRelease(name, token[0]);
+	}
+
+	@Scheduled(fixedDelayString = "${concurrencyService.renewInterval:20000}")
+	public void renew() {
+		leases.forEach((name, tokens) -> {
+			List<String> args = new ArrayList<>(tokens.size() + 1);
+			args.add(String.valueOf(leaseTime));
+			args.addAll(tokens);
+			if (args.size() == 1)
+				return;
 			try {
-				Thread.sleep(100);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+				throttleStringRedisTemplate.execute(renewScript, Collections.singletonList(NAMESPACE + name),
+						args.toArray());
+			} catch (Exception e) {
+				log.error("Failed to renew leases of '{}': {}", name, e.getMessage());
+			}
+		});
+	}
+
+	private boolean acquire(String name, int permits, long deadline) throws InterruptedException {
+		Signal signal = signals.enter(name);
+		try {
+			while (true) {
+				long version = signal.getVersion();
+				long delay = doAcquire(name, permits);
+				if (delay == 0)
+					return true;
+				long remaining = deadline == Long.MAX_VALUE ? Long.MAX_VALUE
+						: TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (remaining <= 0)
+					return false;
+				// wake up by release message or when earliest lease expires
+				signal.await(version, Math.min(Math.min(remaining, delay), maxWaitInterval));
 			}
-			value = throttleStringRedisTemplate.opsForValue().increment(key, 1);
-			success = value != null && value.intValue() <= permits;
-			if (!success)
-				throttleStringRedisTemplate.opsForValue().increment(key, -1);
+		} finally {
+			signals.leave(name, signal);
 		}
+	}
 
+	private long doAcquire(String name, int permits) {
+		String token = holderPrefix + CodecUtils.nextId();
+		Long result = throttleStringRedisTemplate.execute(acquireScript, Collections.singletonList(NAMESPACE + name),
+				String.valueOf(permits), String.valueOf(leaseTime), token);
+		if (result == null)
+			throw new RuntimeException("Unexpected null");
+		if (result == 0)
+			leases.compute(name, (key, tokens) -> {
+				if (tokens == null)
+					tokens = new ConcurrentLinkedDeque<>();
+				tokens.push(token);
+				return tokens;
+			});
+		return result;
 	}
 
-	@Override
-	public void release(String name) {
-		String key = NAMESPACE + name;
-		throttleStringRedisTemplate.opsForValue().increment(key, -1);
+	private void doRelease(String name, String token) {
+		throttleStringRedisTemplate.execute(releaseScript, Collections.singletonList(NAMESPACE + name), token,
+				CHANNEL_NAME, name);
 	}
 
 }
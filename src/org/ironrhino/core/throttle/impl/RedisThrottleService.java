@@ -0,0 +1,80 @@
+package org.ironrhino.core.throttle.impl;
+
+import static org.ironrhino.core.metadata.Profiles.CLOUD;
+import static org.ironrhino.core.metadata.Profiles.CLUSTER;
+import static org.ironrhino.core.metadata.Profiles.DUAL;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.ironrhino.core.spring.configuration.PriorityQualifier;
+import org.ironrhino.core.spring.configuration.ServiceImplementationConditional;
+import org.ironrhino.core.throttle.FrequencyAlgorithm;
+import org.ironrhino.core.util.CodecUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evaluates sliding window and GCRA algorithms atomically by lua script, use
+ * clock of redis server instead of application nodes, takes precedence over
+ * {@link DefaultThrottleService} if activated.
+ */
+@Primary
+@Component("redisThrottleService")
+@ServiceImplementationConditional(profiles = { DUAL, CLOUD, CLUSTER })
+public class RedisThrottleService extends DefaultThrottleService {
+
+	private static final String NAMESPACE = "throttle:";
+
+	// ARGV: limits, window, algorithm, member of sliding log
+	private RedisScript<Long> acquireScript = new DefaultRedisScript<>(
+			"redis.replicate_commands() local t=redis.call('time') local now=tonumber(t[1])*1000+math.floor(tonumber(t[2])/1000) "
+					+ "local limits=tonumber(ARGV[1]) local window=tonumber(ARGV[2]) "
+					+ "if ARGV[3]=='SLIDING_LOG' then redis.call('zremrangebyscore',KEYS[1],'-inf',now-window) "
+					+ "if redis.call('zcard',KEYS[1]) >= limits then return 0 end "
+					+ "redis.call('zadd',KEYS[1],now,ARGV[4]) redis.call('pexpire',KEYS[1],window) return 1 "
+					+ "elseif ARGV[3]=='SLIDING_WINDOW' then local index=math.floor(now/window) "
+					+ "local previous=tonumber(redis.call('hget',KEYS[1],tostring(index-1)) or '0') "
+					+ "local current=tonumber(redis.call('hget',KEYS[1],tostring(index)) or '0') "
+					+ "if previous*(window-now%window)/window+current+1 > limits then return 0 end "
+					+ "redis.call('hincrby',KEYS[1],tostring(index),1) "
+					+ "if redis.call('hlen',KEYS[1]) > 2 then for _,f in ipairs(redis.call('hkeys',KEYS[1])) do "
+					+ "if tonumber(f) < index-1 then redis.call('hdel',KEYS[1],f) end end end "
+					+ "redis.call('pexpire',KEYS[1],window*2) return 1 "
+					+ "else local interval=window/limits "
+					+ "local tat=math.max(tonumber(redis.call('get',KEYS[1]) or '0'),now) "
+					+ "if now < tat+interval-window then return 0 end tat=tat+interval "
+					+ "redis.call('set',KEYS[1],string.format('%.3f',tat),'px',math.ceil(tat-now)) return 1 end",
+			Long.class);
+
+	@Autowired
+	@Qualifier("stringRedisTemplate")
+	@PriorityQualifier
+	private StringRedisTemplate throttleStringRedisTemplate;
+
+	@Override
+	public boolean tryAcquire(String key, int limits, int duration, TimeUnit timeUnit, FrequencyAlgorithm algorithm) {
+		if (algorithm == FrequencyAlgorithm.FIXED_WINDOW)
+			return super.tryAcquire(key, limits, duration, timeUnit, algorithm);
+		if (key == null)
+			throw new IllegalArgumentException("key should not be null");
+		if (limits <= 0)
+			return false;
+		long window = timeUnit.toMillis(duration);
+		if (window <= 0)
+			throw new IllegalArgumentException("duration should great than 0");
+		String actualKey = NAMESPACE + algorithm.name().toLowerCase() + ':' + key;
+		Long result = throttleStringRedisTemplate.execute(acquireScript, Collections.singletonList(actualKey),
+				String.valueOf(limits), String.valueOf(window), algorithm.name(),
+				algorithm == FrequencyAlgorithm.SLIDING_LOG ? CodecUtils.nextId() : "");
+		if (result == null)
+			throw new RuntimeException("Unexpected null");
+		return result == 1;
+	}
+
+}
@@ -0,0 +1,65 @@
+package org.ironrhino.core.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named signals for threads waiting for release of distributed resources like
+ * locks and permits, signal of a name is created when first thread enters and
+ * discarded when last thread leaves.
+ */
+public class ReleaseSignals {
+
+	private final Map<String, Signal> signals = new ConcurrentHashMap<>();
+
+	public Signal enter(String name) {
+		return signals.compute(name, (key, signal) -> {
+			if (signal == null)
+				signal = new Signal();
+			signal.waiters++;
+			return signal;
+		});
+	}
+
+	public void leave(String name, Signal signal) {
+		signals.computeIfPresent(name, (key, current) -> {
+			if (current != signal)
+				return current;
+			return --current.waiters > 0 ? current : null;
+		});
+	}
+
+	public void signalAll(String name) {
+		Signal signal = signals.get(name);
+		if (signal != null)
+			signal.signalAll();
+	}
+
+	int size() {
+		return signals.size();
+	}
+
+	public static class Signal {
+
+		private volatile long version;
+
+		// guarded by map compute
+		private int waiters;
+
+		public long getVersion() {
+			return version;
+		}
+
+		public synchronized void signalAll() {
+			version++;
+			notifyAll();
+		}
+
+		public synchronized void await(long expectedVersion, long millis) throws InterruptedException {
+			if (version == expectedVersion)
+				wait(millis);
+		}
+
+	}
+
+}
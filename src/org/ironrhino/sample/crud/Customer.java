@@ -104,7 +104,7 @@ public class Customer extends BaseRecordableEntity {
 	@SearchableComponent
 	private Set<String> tags;
 
-	@UiConfig(type = "treeselect", width = "100px", description = "activeRegions.description", pickUrl = "/common/region/children", template = "<#if value?has_content><#list value as id><span class=\"label\">${beans['regionTreeControl'].tree.getDescendantOrSelfById(id).name}</span><#sep> </#list></#if>")
+	@UiConfig(type = "treeselect", width = "100px", description = "activeRegions.description", pickUrl = "/common/region/children", template = "<#if value?has_content><#list value as id><span class=\"label\">${beans['regionTreeControl'].getTreeNode(id).name}</span><#sep> </#list></#if>")
 	private Long[] activeRegions;
 
 	@SearchableComponent(nestSearchableProperties = "name")
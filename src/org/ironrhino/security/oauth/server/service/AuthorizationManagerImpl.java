@@ -1,6 +1,7 @@
 package org.ironrhino.security.oauth.server.service;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 
 import org.ironrhino.core.aop.AopContext;
@@ -52,4 +53,28 @@ public class AuthorizationManagerImpl extends BaseManagerImpl<Authorization> imp
 		return super.delete(id);
 	}
 
+	@Override
+	@Transactional
+	@EvictCache(namespace = "oauth:authorization", key = "${key = [];foreach (authorization : authorizations) {"
+			+ " key.add(authorization.accessToken); } return key;}")
+	public void saveAll(Collection<Authorization> authorizations) {
+		super.saveAll(authorizations);
+	}
+
+	@Override
+	@Transactional
+	@EvictCache(namespace = "oauth:authorization", key = "${key = [];foreach (authorization : authorizations) {"
+			+ " key.add(authorization.accessToken); } return key;}")
+	public void updateAll(Collection<Authorization> authorizations) {
+		super.updateAll(authorizations);
+	}
+
+	@Override
+	@Transactional
+	@EvictCache(namespace = "oauth:authorization", key = "${key = [];foreach (authorization : authorizations) {"
+			+ " key.add(authorization.accessToken); } return key;}")
+	public void deleteAll(Collection<Authorization> authorizations) {
+		super.deleteAll(authorizations);
+	}
+
 }
@@ -1,6 +1,7 @@
 package org.ironrhino.security.oauth.server.service;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 
 import org.ironrhino.core.aop.AopContext;
@@ -50,4 +51,28 @@ public class ClientManagerImpl extends BaseManagerImpl<Client> implements Client
 		return super.delete(id);
 	}
 
+	@Override
+	@Transactional
+	@EvictCache(namespace = "oauth:client", key = "${key = [];foreach (client : clients) {"
+			+ " key.add(client.id); } return key;}")
+	public void saveAll(Collection<Client> clients) {
+		super.saveAll(clients);
+	}
+
+	@Override
+	@Transactional
+	@EvictCache(namespace = "oauth:client", key = "${key = [];foreach (client : clients) {"
+			+ " key.add(client.id); } return key;}")
+	public void updateAll(Collection<Client> clients) {
+		super.updateAll(clients);
+	}
+
+	@Override
+	@Transactional
+	@EvictCache(namespace = "oauth:client", key = "${key = [];foreach (client : clients) {"
+			+ " key.add(client.id); } return key;}")
+	public void deleteAll(Collection<Client> clients) {
+		super.deleteAll(clients);
+	}
+
 }
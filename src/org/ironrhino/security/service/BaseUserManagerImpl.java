@@ -2,6 +2,7 @@ package org.ironrhino.security.service;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -85,6 +86,30 @@ public abstract class BaseUserManagerImpl<T extends BaseUser> extends BaseManage
 		return super.delete(id);
 	}
 
+	@Override
+	@Transactional
+	@EvictCache(namespace = DEFAULT_CACHE_NAMESPACE, key = "${key = [];foreach (user : users) {"
+			+ " key.add(user.username); } return key;}")
+	public void saveAll(Collection<T> users) {
+		super.saveAll(users);
+	}
+
+	@Override
+	@Transactional
+	@EvictCache(namespace = DEFAULT_CACHE_NAMESPACE, key = "${key = [];foreach (user : users) {"
+			+ " key.add(user.username); } return key;}")
+	public void updateAll(Collection<T> users) {
+		super.updateAll(users);
+	}
+
+	@Override
+	@Transactional
+	@EvictCache(namespace = DEFAULT_CACHE_NAMESPACE, key = "${key = [];foreach (user : users) {"
+			+ " key.add(user.username); } return key;}")
+	public void deleteAll(Collection<T> users) {
+		super.deleteAll(users);
+	}
+
 	@Override
 	@Transactional
 	@EvictCache(namespace = DEFAULT_CACHE_NAMESPACE, key = "${user.username}")
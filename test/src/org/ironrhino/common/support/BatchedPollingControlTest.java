@@ -0,0 +1,231 @@
+package org.ironrhino.common.support;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ironrhino.common.model.PollingStatus;
+import org.ironrhino.core.service.EntityManager;
+import org.ironrhino.core.service.HibernateConfiguration;
+import org.ironrhino.core.spring.configuration.RedisConfiguration;
+import org.ironrhino.sample.polling.BalanceQuery;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = { HibernateConfiguration.class, BatchedPollingControlTest.Config.class })
+@TestPropertySource(properties = {
+		"annotatedClasses=org.ironrhino.sample.polling.BalanceQuery,org.ironrhino.common.support.PollingQuery,org.ironrhino.common.support.JoinedBalanceQuery" })
+public class BatchedPollingControlTest {
+
+	@Autowired
+	private EntityManager<BalanceQuery> entityManager;
+
+	@Autowired
+	private TestPollingControl testPollingControl;
+
+	@Autowired
+	private EntityManager<JoinedBalanceQuery> joinedEntityManager;
+
+	@Autowired
+	private JoinedPollingControl joinedPollingControl;
+
+	@Test
+	public void testDequeue() {
+		BalanceQuery ok1 = save("ok1", 0);
+		BalanceQuery ok2 = save("ok2", 0);
+		BalanceQuery ok3 = save("ok3", 1);
+		BalanceQuery io = save("io", 0);
+		BalanceQuery io2 = save("io2", 2);
+		BalanceQuery bad = save("bad", 0);
+		BalanceQuery exhausted = save("exhausted", 3);
+		List<String> ids = new ArrayList<>();
+		for (BalanceQuery bq : Arrays.asList(ok1, ok2, ok3, io, io2, bad, exhausted))
+			ids.add(bq.getId());
+		ids.add(ok1.getId());
+		ids.add("notexists");
+		testPollingControl.push(ids, false);
+		testPollingControl.doDequeue();
+		assertThat(testPollingControl.getQueueDepth(), is(0L));
+		assertThat(testPollingControl.handled, is(6));
+
+		entityManager.setEntityClass(BalanceQuery.class);
+		for (BalanceQuery bq : Arrays.asList(ok1, ok2, ok3)) {
+			BalanceQuery reloaded = entityManager.get(bq.getId());
+			assertThat(reloaded.getStatus(), is(PollingStatus.SUCCESSFUL));
+			assertThat(reloaded.getBalance().intValue(), is(bq.getAccountNo().length()));
+			assertThat(reloaded.getAttempts(), is(bq.getAttempts() + 1));
+			assertThat(reloaded.getErrorInfo(), is(nullValue()));
+			assertThat(reloaded.getModifyDate(), is(notNullValue()));
+		}
+		BalanceQuery reloaded = entityManager.get(io.getId());
+		assertThat(reloaded.getStatus(), is(PollingStatus.TEMPORARY_ERROR));
+		assertThat(reloaded.getAttempts(), is(1));
+		reloaded = entityManager.get(io2.getId());
+		assertThat(reloaded.getStatus(), is(PollingStatus.FAILED));
+		assertThat(reloaded.getAttempts(), is(3));
+		reloaded = entityManager.get(bad.getId());
+		assertThat(reloaded.getStatus(), is(PollingStatus.FAILED));
+		assertThat(reloaded.getAttempts(), is(1));
+		assertThat(reloaded.getErrorInfo().contains("Illegal accountNo"), is(true));
+		reloaded = entityManager.get(exhausted.getId());
+		assertThat(reloaded.getStatus(), is(PollingStatus.FAILED));
+		assertThat(reloaded.getAttempts(), is(3));
+		assertThat(reloaded.getErrorInfo(), is("max attempts reached"));
+	}
+
+	@Test
+	public void testDequeueIgnoreChangedStatus() {
+		BalanceQuery bq = save("ok", 0);
+		testPollingControl.push(Collections.singletonList(bq.getId()), false);
+		testPollingControl.beforeHandle = () -> entityManager.executeUpdate(
+				"update BalanceQuery t set t.status=?1 where t.id=?2", PollingStatus.FAILED, bq.getId());
+		testPollingControl.doDequeue();
+		entityManager.setEntityClass(BalanceQuery.class);
+		BalanceQuery reloaded = entityManager.get(bq.getId());
+		assertThat(reloaded.getStatus(), is(PollingStatus.FAILED));
+		assertThat(reloaded.getBalance(), is(nullValue()));
+	}
+
+	@Test
+	public void testDequeueJoinedInheritance() {
+		List<String> ids = new ArrayList<>();
+		for (String accountNo : Arrays.asList("ok", "io", "bad")) {
+			JoinedBalanceQuery bq = new JoinedBalanceQuery();
+			bq.setAccountNo(accountNo);
+			bq.setStatus(PollingStatus.PROCESSING);
+			joinedEntityManager.setEntityClass(JoinedBalanceQuery.class);
+			joinedEntityManager.save(bq);
+			ids.add(bq.getId());
+		}
+		joinedPollingControl.push(ids, false);
+		joinedPollingControl.doDequeue();
+		joinedEntityManager.setEntityClass(JoinedBalanceQuery.class);
+		JoinedBalanceQuery reloaded = joinedEntityManager.get(ids.get(0));
+		assertThat(reloaded.getStatus(), is(PollingStatus.SUCCESSFUL));
+		assertThat(reloaded.getBalance().intValue(), is(2));
+		assertThat(reloaded.getAttempts(), is(1));
+		reloaded = joinedEntityManager.get(ids.get(1));
+		assertThat(reloaded.getStatus(), is(PollingStatus.TEMPORARY_ERROR));
+		assertThat(reloaded.getAttempts(), is(1));
+		reloaded = joinedEntityManager.get(ids.get(2));
+		assertThat(reloaded.getStatus(), is(PollingStatus.FAILED));
+		assertThat(reloaded.getErrorInfo().contains("Illegal accountNo"), is(true));
+		joinedEntityManager.executeUpdate("delete from JoinedBalanceQuery");
+	}
+
+	@After
+	public void cleanup() {
+		testPollingControl.handled = 0;
+		testPollingControl.beforeHandle = null;
+		entityManager.setEntityClass(BalanceQuery.class);
+		entityManager.executeUpdate("delete from BalanceQuery");
+	}
+
+	private BalanceQuery save(String accountNo, int attempts) {
+		BalanceQuery bq = new BalanceQuery();
+		bq.setAccountNo(accountNo);
+		bq.setStatus(PollingStatus.PROCESSING);
+		bq.setAttempts(attempts);
+		entityManager.save(bq);
+		return bq;
+	}
+
+	static class TestPollingControl extends BatchedPollingControl<BalanceQuery> {
+
+		private volatile int handled;
+
+		private volatile Runnable beforeHandle;
+
+		@Override
+		protected Map<BalanceQuery, Result> handle(List<BalanceQuery> bqs) throws Exception {
+			if (beforeHandle != null)
+				beforeHandle.run();
+			handled += bqs.size();
+			Map<BalanceQuery, Result> result = new HashMap<>();
+			for (BalanceQuery bq : bqs) {
+				if (bq.getAccountNo().startsWith("io"))
+					result.put(bq, Result.of(new IOException("I/O Error")));
+				else if (bq.getAccountNo().startsWith("bad"))
+					result.put(bq, Result.of(new IllegalArgumentException("Illegal accountNo: " + bq.getAccountNo())));
+				else
+					result.put(bq,
+							Result.of(Collections.singletonMap("balance", new BigDecimal(bq.getAccountNo().length()))));
+			}
+			return result;
+		}
+
+		@Override
+		protected int getBatchLimit() {
+			return 4;
+		}
+
+		@Override
+		protected String getQueueName() {
+			return "test.batchedPollingControl";
+		}
+
+	}
+
+	static class JoinedPollingControl extends BatchedPollingControl<JoinedBalanceQuery> {
+
+		@Override
+		protected Map<JoinedBalanceQuery, Result> handle(List<JoinedBalanceQuery> bqs) throws Exception {
+			Map<JoinedBalanceQuery, Result> result = new HashMap<>();
+			for (JoinedBalanceQuery bq : bqs) {
+				if (bq.getAccountNo().startsWith("io"))
+					result.put(bq, Result.of(new IOException("I/O Error")));
+				else if (bq.getAccountNo().startsWith("bad"))
+					result.put(bq, Result.of(new IllegalArgumentException("Illegal accountNo: " + bq.getAccountNo())));
+				else
+					result.put(bq,
+							Result.of(Collections.singletonMap("balance", new BigDecimal(bq.getAccountNo().length()))));
+			}
+			return result;
+		}
+
+		@Override
+		protected int getBatchLimit() {
+			return 4;
+		}
+
+		@Override
+		protected String getQueueName() {
+			return "test.joinedPollingControl";
+		}
+
+	}
+
+	@Configuration
+	static class Config extends RedisConfiguration {
+
+		@Bean
+		public TestPollingControl testPollingControl() {
+			return new TestPollingControl();
+		}
+
+		@Bean
+		public JoinedPollingControl joinedPollingControl() {
+			return new JoinedPollingControl();
+		}
+
+	}
+
+}
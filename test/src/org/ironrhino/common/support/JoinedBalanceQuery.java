@@ -0,0 +1,21 @@
+package org.ironrhino.common.support;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Entity;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+public class JoinedBalanceQuery extends PollingQuery {
+
+	private static final long serialVersionUID = -1658283929171096187L;
+
+	private String accountNo;
+
+	private BigDecimal balance;
+
+}
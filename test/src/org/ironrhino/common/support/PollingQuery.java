@@ -0,0 +1,15 @@
+package org.ironrhino.common.support;
+
+import javax.persistence.Entity;
+import javax.persistence.Inheritance;
+import javax.persistence.InheritanceType;
+
+import org.ironrhino.common.model.BasePollingEntity;
+
+@Entity
+@Inheritance(strategy = InheritanceType.JOINED)
+public class PollingQuery extends BasePollingEntity {
+
+	private static final long serialVersionUID = 2271375486391873125L;
+
+}
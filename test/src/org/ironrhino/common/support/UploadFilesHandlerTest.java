@@ -0,0 +1,171 @@
+package org.ironrhino.common.support;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.ServletContext;
+
+import org.ironrhino.common.support.UploadFilesHandlerTest.UploadFilesHandlerConfiguration;
+import org.ironrhino.core.fs.FileStorage;
+import org.ironrhino.core.fs.impl.LocalFileStorage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = UploadFilesHandlerConfiguration.class)
+@TestPropertySource(properties = "fileStorage.uri=file:///tmp/fs-upload")
+public class UploadFilesHandlerTest {
+
+	private static final String CONTENT = "0123456789abcdefghij";
+
+	private static final String URI = "/assets/upload/range/test.txt";
+
+	@Autowired
+	private FileStorage fileStorage;
+
+	@Autowired
+	private UploadFilesHandler uploadFilesHandler;
+
+	@Before
+	public void setup() throws IOException {
+		byte[] bytes = CONTENT.getBytes(StandardCharsets.UTF_8);
+		fileStorage.write(new ByteArrayInputStream(bytes), "/upload/range/test.txt", bytes.length);
+	}
+
+	@After
+	public void cleanup() {
+		fileStorage.delete("/upload/range/test.txt");
+		fileStorage.delete("/upload/range");
+		fileStorage.delete("/upload");
+	}
+
+	@Test
+	public void testFull() throws Exception {
+		MockHttpServletResponse response = handle(new MockHttpServletRequest("GET", URI));
+		assertThat(response.getStatus(), is(200));
+		assertThat(response.getContentAsString(), is(CONTENT));
+		assertThat(response.getContentLengthLong(), is((long) CONTENT.length()));
+		assertThat(response.getHeader("Accept-Ranges"), is("bytes"));
+		assertThat(response.getHeader("ETag"), is(notNullValue()));
+		assertThat(handle(new MockHttpServletRequest("GET", "/assets/upload/range/notexists.txt")).getStatus(),
+				is(404));
+	}
+
+	@Test
+	public void testConditional() throws Exception {
+		String etag = handle(new MockHttpServletRequest("GET", URI)).getHeader("ETag");
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", URI);
+		request.addHeader("If-None-Match", etag);
+		assertThat(handle(request).getStatus(), is(304));
+		request = new MockHttpServletRequest("GET", URI);
+		request.addHeader("If-None-Match", "\"other\"");
+		assertThat(handle(request).getStatus(), is(200));
+	}
+
+	@Test
+	public void testSingleRange() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", URI);
+		request.addHeader("Range", "bytes=2-5");
+		MockHttpServletResponse response = handle(request);
+		assertThat(response.getStatus(), is(206));
+		assertThat(response.getContentAsString(), is("2345"));
+		assertThat(response.getContentLengthLong(), is(4L));
+		assertThat(response.getHeader("Content-Range"), is("bytes 2-5/20"));
+
+		request = new MockHttpServletRequest("GET", URI);
+		request.addHeader("Range", "bytes=-3");
+		response = handle(request);
+		assertThat(response.getStatus(), is(206));
+		assertThat(response.getContentAsString(), is("hij"));
+	}
+
+	@Test
+	public void testMultipleRanges() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", URI);
+		request.addHeader("Range", "bytes=0-1,10-11,1-2");
+		MockHttpServletResponse response = handle(request);
+		assertThat(response.getStatus(), is(206));
+		assertThat(response.getContentType(), startsWith("multipart/byteranges; boundary="));
+		String boundary = response.getContentType().substring(response.getContentType().indexOf('=') + 1);
+		String body = response.getContentAsString();
+		assertThat(response.getContentLengthLong(), is((long) body.length()));
+		String expected = "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-2/20\r\n\r\n012"
+				+ "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 10-11/20\r\n\r\nab"
+				+ "\r\n--" + boundary + "--\r\n";
+		assertThat(body, is(expected));
+	}
+
+	@Test
+	public void testIfRange() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", URI);
+		request.addHeader("Range", "bytes=2-5");
+		request.addHeader("If-Range", "\"stale\"");
+		MockHttpServletResponse response = handle(request);
+		assertThat(response.getStatus(), is(200));
+		assertThat(response.getContentAsString(), is(CONTENT));
+	}
+
+	@Test
+	public void testUnsatisfiableRange() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", URI);
+		request.addHeader("Range", "bytes=30-40");
+		MockHttpServletResponse response = handle(request);
+		assertThat(response.getStatus(), is(416));
+		assertThat(response.getHeader("Content-Range"), is("bytes */20"));
+	}
+
+	@Test
+	public void testInvalidRange() throws Exception {
+		for (String range : new String[] { "bytes=5-3", "bytes=abc", "items=0-1" }) {
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", URI);
+			request.addHeader("Range", range);
+			MockHttpServletResponse response = handle(request);
+			assertThat(response.getStatus(), is(200));
+			assertThat(response.getContentAsString(), is(CONTENT));
+		}
+	}
+
+	private MockHttpServletResponse handle(MockHttpServletRequest request) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		uploadFilesHandler.handle(request, response);
+		return response;
+	}
+
+	@Configuration
+	static class UploadFilesHandlerConfiguration {
+
+		@Bean
+		public FileStorage fileStorage() {
+			return new LocalFileStorage();
+		}
+
+		@Bean
+		public ServletContext servletContext() {
+			return new MockServletContext();
+		}
+
+		@Bean
+		public UploadFilesHandler uploadFilesHandler() {
+			return new UploadFilesHandler();
+		}
+
+	}
+
+}
@@ -0,0 +1,133 @@
+package org.ironrhino.core.aop;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+import org.ironrhino.core.event.EntityOperationBatchEvent;
+import org.ironrhino.core.event.EntityOperationEvent;
+import org.ironrhino.core.event.EntityOperationType;
+import org.ironrhino.core.event.EventPublisher;
+import org.ironrhino.core.metadata.Scope;
+import org.ironrhino.core.model.Persistable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+public class PublishAspectTest {
+
+	private PublishAspect publishAspect;
+
+	private EventPublisher eventPublisher;
+
+	private EntityPersister persister;
+
+	@Before
+	public void setup() {
+		publishAspect = new PublishAspect();
+		eventPublisher = mock(EventPublisher.class);
+		ReflectionTestUtils.setField(publishAspect, "eventPublisher", eventPublisher);
+		persister = mock(EntityPersister.class);
+		Type type = mock(Type.class);
+		when(persister.getPropertyNames()).thenReturn(new String[] { "name", "parent", "description" });
+		when(persister.getPropertyTypes()).thenReturn(new Type[] { type, type, type });
+	}
+
+	@After
+	public void cleanup() {
+		publishAspect.afterCompletion(0);
+	}
+
+	@Test
+	public void testSingleEvents() {
+		for (long i = 1; i <= 3; i++)
+			add(new PostInsertEvent(new Item(i, "item" + i), i, null, persister, null));
+		publishAspect.afterCommit();
+		verify(eventPublisher, times(3)).publish(any(EntityOperationEvent.class), eq(Scope.LOCAL));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testBatchEvent() {
+		BatchItem created = new BatchItem(1L, "created");
+		BatchItem updated = new BatchItem(2L, "updated");
+		BatchItem parent = new BatchItem(3L, "parent");
+		BatchItem deleted = new BatchItem(4L, "deleted");
+		add(new PostInsertEvent(created, 1L, null, persister, null));
+		add(new PostUpdateEvent(created, 1L, new Object[] { "created", null, "x" }, null, new int[] { 2 }, persister,
+				null));
+		add(new PostUpdateEvent(updated, 2L, new Object[] { "updated", parent, null }, null, new int[] { 1 },
+				persister, null));
+		add(new PostUpdateEvent(updated, 2L, new Object[] { "renamed", parent, null }, null, new int[] { 0 },
+				persister, null));
+		add(new PostUpdateEvent(parent, 3L, new Object[] { "parent", null, null }, null, null, persister, null));
+		add(new PostDeleteEvent(deleted, 4L, null, persister, null));
+		publishAspect.afterCommit();
+
+		ArgumentCaptor<ApplicationEvent> captor = ArgumentCaptor.forClass(ApplicationEvent.class);
+		verify(eventPublisher, times(1)).publish(captor.capture(), eq(Scope.GLOBAL));
+		EntityOperationBatchEvent<BatchItem> event = (EntityOperationBatchEvent<BatchItem>) captor.getValue();
+		assertThat(event.getEntityClass() == BatchItem.class, is(true));
+		assertThat(event.size(), is(4));
+		assertThat(event.getIds(EntityOperationType.CREATE), is(Arrays.asList(1L)));
+		assertThat(event.getIds(EntityOperationType.UPDATE), is(Arrays.asList(2L, 3L)));
+		assertThat(event.getIds(EntityOperationType.DELETE), is(Arrays.asList(4L)));
+		assertThat(event.getChangedFields(1L), is(nullValue()));
+		assertThat(event.getChangedFields(2L).size(), is(2));
+		assertThat(event.getChangedFields(2L).get("name"), is("renamed"));
+		assertThat(event.getChangedFields(2L).get("parent"), is(3L));
+		assertThat(event.getChangedFields(3L), is(nullValue()));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void add(Object event) {
+		((List<Object>) (List<?>) PublishAspect.getHibernateEvents(true)).add(event);
+	}
+
+	@PublishAware(scope = Scope.LOCAL)
+	@AllArgsConstructor
+	@Getter
+	static class Item implements Persistable<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		private Long id;
+
+		private String name;
+
+	}
+
+	@PublishAware(scope = Scope.GLOBAL, batch = true)
+	@AllArgsConstructor
+	@Getter
+	static class BatchItem implements Persistable<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		private Long id;
+
+		private String name;
+
+	}
+
+}
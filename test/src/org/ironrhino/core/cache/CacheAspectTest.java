@@ -11,6 +11,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.aopalliance.intercept.MethodInterceptor;
@@ -42,11 +43,12 @@ public class CacheAspectTest {
 	private TimeService timeService;
 
 	@Autowired
-	private CacheManager cacheManager;
+	private TtlCacheManager cacheManager;
 
 	@Before
 	public void init() {
 		personRepository.clearCount();
+		cacheManager.ttlCalls.set(0);
 	}
 
 	@After
@@ -109,6 +111,161 @@ public class CacheAspectTest {
 		es.shutdown();
 	}
 
+	@Test
+	public void testSingleFlight() throws Exception {
+		Person person = new Person();
+		person.setName("test");
+		personRepository.save(person);
+		int THREADS = 50;
+		ExecutorService es = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch cdl = new CountDownLatch(THREADS);
+		AtomicInteger hits = new AtomicInteger();
+		for (int n = 0; n < THREADS; n++) {
+			es.execute(() -> {
+				try {
+					start.await();
+					if (person.equals(personRepository.getSlowly(person.getName())))
+						hits.incrementAndGet();
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				cdl.countDown();
+			});
+		}
+		start.countDown();
+		cdl.await();
+		assertThat(hits.get(), is(THREADS));
+		assertThat(personRepository.count(), is(1));
+		es.shutdown();
+	}
+
+	@Test
+	public void testSingleFlightSlowerThanWaitTimeout() throws Exception {
+		Person person = new Person();
+		person.setName("test");
+		personRepository.save(person);
+		int THREADS = 20;
+		ExecutorService es = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch cdl = new CountDownLatch(THREADS);
+		AtomicInteger hits = new AtomicInteger();
+		for (int n = 0; n < THREADS; n++) {
+			es.execute(() -> {
+				try {
+					start.await();
+					if (person.equals(personRepository.getVerySlowly(person.getName())))
+						hits.incrementAndGet();
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				cdl.countDown();
+			});
+		}
+		start.countDown();
+		cdl.await();
+		assertThat(hits.get(), is(THREADS));
+		assertThat(personRepository.count(), is(1));
+		es.shutdown();
+	}
+
+	@Test
+	public void testMultipleKeys() {
+		Person person = new Person();
+		person.setName("test");
+		personRepository.save(person);
+		for (int i = 0; i < 5; i++) {
+			assertThat(personRepository.getWithAlias(person.getName()), is(person));
+			assertThat(personRepository.count(), is(1));
+		}
+		assertThat(cacheManager.get("alias_" + person.getName(), PersonRepository.CACHE_NAMESPACE), is(person));
+		cacheManager.delete(person.getName(), PersonRepository.CACHE_NAMESPACE);
+		assertThat(personRepository.getWithAlias(person.getName()), is(person));
+		assertThat(personRepository.count(), is(1));
+		cacheManager.delete("alias_" + person.getName(), PersonRepository.CACHE_NAMESPACE);
+	}
+
+	@Test
+	public void testServeStaleOnError() throws Exception {
+		Person person = new Person();
+		person.setName("test");
+		personRepository.save(person);
+		assertThat(personRepository.getOrFail(person.getName()), is(person));
+		assertThat(cacheManager.get("_STALE_" + person.getName(), PersonRepository.CACHE_NAMESPACE), is(person));
+		Thread.sleep(1100);
+		personRepository.setFailing(true);
+		try {
+			assertThat(personRepository.getOrFail(person.getName()), is(person));
+			assertThat(personRepository.count(), is(2));
+		} finally {
+			personRepository.setFailing(false);
+		}
+		personRepository.remove(person.getName());
+		boolean error = false;
+		personRepository.setFailing(true);
+		try {
+			personRepository.getOrFail(person.getName());
+		} catch (IllegalStateException e) {
+			error = true;
+		} finally {
+			personRepository.setFailing(false);
+		}
+		assertThat(error, is(true));
+	}
+
+	@Test
+	public void testNoStaleWithoutServeStaleOnError() {
+		Person person = new Person();
+		person.setName("test");
+		personRepository.save(person);
+		assertThat(personRepository.get(person.getName()), is(person));
+		assertThat(cacheManager.get(person.getName(), PersonRepository.CACHE_NAMESPACE), is(person));
+		assertThat(cacheManager.get("_STALE_" + person.getName(), PersonRepository.CACHE_NAMESPACE),
+				is(nullValue()));
+	}
+
+	@Test
+	public void testRefreshAhead() throws Exception {
+		Person person = new Person();
+		person.setName("test");
+		personRepository.save(person);
+		assertThat(personRepository.getWithRefreshAhead(person.getName()), is(person));
+		assertThat(personRepository.count(), is(1));
+		for (int i = 0; i < 10; i++)
+			assertThat(personRepository.getWithRefreshAhead(person.getName()), is(person));
+		// hits outside refresh window never look up ttl
+		assertThat(cacheManager.ttlCalls.get(), is(0));
+		assertThat(personRepository.count(), is(1));
+		Thread.sleep(1100);
+		for (int i = 0; i < 10; i++)
+			assertThat(personRepository.getWithRefreshAhead(person.getName()), is(person));
+		assertThat(cacheManager.ttlCalls.get(), is(1));
+		for (int i = 0; i < 50 && personRepository.count() < 2; i++)
+			Thread.sleep(20);
+		assertThat(personRepository.count(), is(2));
+		Thread.sleep(1100);
+		// refreshed entry is still alive after original timeToLive
+		assertThat(personRepository.getWithRefreshAhead(person.getName()), is(person));
+		assertThat(personRepository.count(), is(2));
+		cacheManager.delete("_REFRESH_" + person.getName(), PersonRepository.CACHE_NAMESPACE);
+	}
+
+	@Test
+	public void testRefreshAheadWithMultipleKeys() throws Exception {
+		Person person = new Person();
+		person.setName("test");
+		personRepository.save(person);
+		// alias expires earlier than name
+		cacheManager.put("test", person, 2, TimeUnit.SECONDS, PersonRepository.CACHE_NAMESPACE);
+		cacheManager.put("alias_test", person, 500, TimeUnit.MILLISECONDS, PersonRepository.CACHE_NAMESPACE);
+		assertThat(personRepository.getWithRefreshAheadAndAlias(person.getName()), is(person));
+		for (int i = 0; i < 50 && personRepository.count() < 1; i++)
+			Thread.sleep(20);
+		assertThat(personRepository.count(), is(1));
+		cacheManager.delete("alias_test", PersonRepository.CACHE_NAMESPACE);
+		cacheManager.delete("_REFRESH_test_alias_test", PersonRepository.CACHE_NAMESPACE);
+	}
+
 	@Test
 	public void testJdkDynamicProxy() throws Exception {
 		long nanoTime = timeService.nanoTime();
@@ -143,6 +300,8 @@ public class CacheAspectTest {
 
 		public AtomicInteger count = new AtomicInteger();
 
+		private volatile boolean failing;
+
 		@EvictCache(key = "${person.name}", namespace = CACHE_NAMESPACE)
 		public void save(Person person) {
 			people.put(person.getName(), person);
@@ -154,6 +313,47 @@ public class CacheAspectTest {
 			return people.get(name);
 		}
 
+		@CheckCache(key = "${name}", throughPermits = THROUGH_PERMITS, waitTimeout = 2000, namespace = CACHE_NAMESPACE)
+		public Person getSlowly(String name) throws InterruptedException {
+			count.incrementAndGet();
+			Thread.sleep(200);
+			return people.get(name);
+		}
+
+		// slower than default waitTimeout
+		@CheckCache(key = "${name}", throughPermits = THROUGH_PERMITS, namespace = CACHE_NAMESPACE)
+		public Person getVerySlowly(String name) throws InterruptedException {
+			count.incrementAndGet();
+			Thread.sleep(500);
+			return people.get(name);
+		}
+
+		@CheckCache(key = "${[name,'alias_'+name]}", namespace = CACHE_NAMESPACE)
+		public Person getWithAlias(String name) {
+			count.incrementAndGet();
+			return people.get(name);
+		}
+
+		@CheckCache(key = "${name}", timeToLive = "1", serveStaleOnError = true, namespace = CACHE_NAMESPACE)
+		public Person getOrFail(String name) {
+			count.incrementAndGet();
+			if (failing)
+				throw new IllegalStateException("failing");
+			return people.get(name);
+		}
+
+		@CheckCache(key = "${name}", timeToLive = "2", refreshAhead = 0.5f, namespace = CACHE_NAMESPACE)
+		public Person getWithRefreshAhead(String name) {
+			count.incrementAndGet();
+			return people.get(name);
+		}
+
+		@CheckCache(key = "${[name,'alias_'+name]}", timeToLive = "2", refreshAhead = 0.5f, namespace = CACHE_NAMESPACE)
+		public Person getWithRefreshAheadAndAlias(String name) {
+			count.incrementAndGet();
+			return people.get(name);
+		}
+
 		@CheckCache(key = "${name}", cacheNull = true, namespace = CACHE_NAMESPACE)
 		public Person getWithCacheNull(String name) {
 			count.incrementAndGet();
@@ -173,6 +373,10 @@ public class CacheAspectTest {
 			count.set(0);
 		}
 
+		protected void setFailing(boolean failing) {
+			this.failing = failing;
+		}
+
 	}
 
 	public interface TimeService {
@@ -185,13 +389,49 @@ public class CacheAspectTest {
 
 	}
 
+	static class TtlCacheManager extends Cache2kCacheManager {
+
+		private final Map<String, Long> expirations = new ConcurrentHashMap<>();
+
+		private final AtomicInteger ttlCalls = new AtomicInteger();
+
+		@Override
+		public void put(String key, Object value, int timeToLive, TimeUnit timeUnit, String namespace) {
+			super.put(key, value, timeToLive, timeUnit, namespace);
+			expirations.put(namespace + ':' + key, System.currentTimeMillis() + timeUnit.toMillis(timeToLive));
+		}
+
+		@Override
+		public boolean putIfAbsent(String key, Object value, int timeToLive, TimeUnit timeUnit, String namespace) {
+			boolean b = super.putIfAbsent(key, value, timeToLive, timeUnit, namespace);
+			if (b)
+				expirations.put(namespace + ':' + key, System.currentTimeMillis() + timeUnit.toMillis(timeToLive));
+			return b;
+		}
+
+		@Override
+		public long ttl(String key, String namespace) {
+			ttlCalls.incrementAndGet();
+			Long expiration = expirations.get(namespace + ':' + key);
+			if (expiration == null || !exists(key, namespace))
+				return -2;
+			return Math.max(expiration - System.currentTimeMillis(), 0);
+		}
+
+		@Override
+		public boolean supportsGetTtl() {
+			return true;
+		}
+
+	}
+
 	@Configuration
 	@EnableAspectJAutoProxy(proxyTargetClass = true)
 	static class CacheConfiguration {
 
 		@Bean
-		public CacheManager cacheManager() {
-			return new Cache2kCacheManager();
+		public TtlCacheManager cacheManager() {
+			return new TtlCacheManager();
 		}
 
 		@Bean
@@ -73,6 +73,36 @@ public abstract class CacheManagerTestBase {
 		assertThat(cacheManager.mget(map.keySet(), NAMESPACE).get("test2"), is(nullValue()));
 	}
 
+	@Test
+	public void testMultiWithTtiAndPutIfAbsent() {
+		Map<String, Object> map = new HashMap<>();
+		for (int i = 0; i < 10; i++)
+			map.put("test" + i, "value" + i);
+		Map<String, Boolean> result = cacheManager.mputIfAbsent(map, 2, TimeUnit.SECONDS, NAMESPACE);
+		for (int i = 0; i < 10; i++)
+			assertThat(result.get("test" + i), is(true));
+		map.put("test0", "newvalue");
+		assertThat(cacheManager.mputIfAbsent(map, 2, TimeUnit.SECONDS, NAMESPACE).get("test0"), is(false));
+		assertThat(cacheManager.get("test0", NAMESPACE), is("value0"));
+		try {
+			TimeUnit.MILLISECONDS.sleep(1500);
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		Map<String, Object> values = cacheManager.mgetWithTti(map.keySet(), NAMESPACE, 2, TimeUnit.SECONDS);
+		for (int i = 1; i < 10; i++)
+			assertThat(values.get("test" + i), is(map.get("test" + i)));
+		try {
+			TimeUnit.MILLISECONDS.sleep(1000);
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		assertThat(cacheManager.get("test1", NAMESPACE), is("value1"));
+		cacheManager.mdelete(map.keySet(), NAMESPACE);
+		assertThat(cacheManager.mgetWithTti(map.keySet(), NAMESPACE, 2, TimeUnit.SECONDS).get("test2"),
+				is(nullValue()));
+	}
+
 	@Test
 	public void testTtlAndIdle() {
 		String key = "key";
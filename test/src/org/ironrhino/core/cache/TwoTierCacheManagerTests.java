@@ -0,0 +1,75 @@
+package org.ironrhino.core.cache;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ironrhino.core.cache.TwoTierCacheManagerTests.TwoTierCacheManagerConfiguration;
+import org.ironrhino.core.cache.impl.RedisCacheManager;
+import org.ironrhino.core.cache.impl.TwoTierCacheManager;
+import org.ironrhino.core.spring.configuration.RedisConfiguration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = TwoTierCacheManagerConfiguration.class)
+@TestPropertySource(properties = { TwoTierCacheManager.NAMESPACES_PREFIX + "test\\:test=60",
+		TwoTierCacheManager.NAMESPACES_PREFIX + "test\\:near=60" })
+public class TwoTierCacheManagerTests extends CacheManagerTestBase {
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private RedisCacheManager anotherNode;
+
+	@Test
+	public void testInvalidation() throws Exception {
+		String namespace = "test:near";
+		String key = "key";
+		cacheManager.put(key, "value", 10, TimeUnit.SECONDS, namespace);
+		assertThat(anotherNode.get(key, namespace), is("value"));
+		cacheManager.put(key, "value2", 10, TimeUnit.SECONDS, namespace);
+		TimeUnit.MILLISECONDS.sleep(200);
+		assertThat(anotherNode.get(key, namespace), is("value2"));
+		cacheManager.delete(key, namespace);
+		TimeUnit.MILLISECONDS.sleep(200);
+		assertThat(anotherNode.get(key, namespace), is(nullValue()));
+	}
+
+	@Test
+	public void testRenewTimeToIdle() {
+		String namespace = "test:near";
+		String key = "tti";
+		cacheManager.put(key, "value", 3, TimeUnit.SECONDS, namespace);
+		assertThat(cacheManager.getWithTti(key, namespace, 10, TimeUnit.SECONDS), is("value"));
+		// local hit is renewed in background
+		assertThat(cacheManager.ttl(key, namespace) <= 3000, is(true));
+		((TwoTierCacheManager) cacheManager).renewPending();
+		assertThat(cacheManager.ttl(key, namespace) > 3000, is(true));
+		cacheManager.delete(key, namespace);
+	}
+
+	@Configuration
+	static class TwoTierCacheManagerConfiguration extends RedisConfiguration {
+
+		@Bean
+		public CacheManager cacheManager() {
+			return new TwoTierCacheManager();
+		}
+
+		@Bean
+		public RedisCacheManager anotherNode() {
+			return new TwoTierCacheManager();
+		}
+
+	}
+}
@@ -0,0 +1,121 @@
+package org.ironrhino.core.coordination;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.ironrhino.core.coordination.RedisFairLockServiceTests.RedisFairLockServiceConfiguration;
+import org.ironrhino.core.coordination.impl.RedisLockService;
+import org.ironrhino.core.spring.configuration.RedisConfiguration;
+import org.ironrhino.core.util.CodecUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = RedisFairLockServiceConfiguration.class)
+@TestPropertySource(properties = { "lockService.fair=true", "lockService.reentrant=true",
+		"lockService.maxWaitInterval=5000" })
+public class RedisFairLockServiceTests extends LockServiceTestBase {
+
+	@Autowired
+	private LockService lockService;
+
+	@Autowired
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Test
+	public void testReentrant() {
+		String name = CodecUtils.nextId();
+		assertThat(lockService.tryLock(name), is(true));
+		assertThat(lockService.tryLock(name), is(true));
+		lockService.unlock(name);
+		assertThat(tryLockInOtherThread(name), is(false));
+		lockService.unlock(name);
+		assertThat(tryLockInOtherThread(name), is(true));
+	}
+
+	@Test
+	public void testFifo() throws Exception {
+		String name = CodecUtils.nextId();
+		lockService.lock(name);
+		int waiters = 5;
+		ExecutorService es = Executors.newFixedThreadPool(waiters);
+		List<Integer> order = new CopyOnWriteArrayList<>();
+		CountDownLatch cdl = new CountDownLatch(waiters);
+		long time = System.currentTimeMillis();
+		try {
+			for (int i = 0; i < waiters; i++) {
+				int index = i;
+				es.execute(() -> {
+					if (lockService.tryLock(name, 10, TimeUnit.SECONDS)) {
+						order.add(index);
+						lockService.unlock(name);
+					}
+					cdl.countDown();
+				});
+				Thread.sleep(100);
+			}
+			lockService.unlock(name);
+			cdl.await();
+		} finally {
+			es.shutdown();
+		}
+		time = System.currentTimeMillis() - time;
+		assertThat(order.toString(), is("[0, 1, 2, 3, 4]"));
+		// woken up by release message rather than maxWaitInterval
+		assertThat(time < 2000, is(true));
+	}
+
+	@Test
+	public void testReentrantAfterLockLost() {
+		String name = CodecUtils.nextId();
+		assertThat(lockService.tryLock(name), is(true));
+		// expired then acquired by other node
+		stringRedisTemplate.opsForValue().set("lock:" + name, "other$1");
+		assertThat(lockService.tryLock(name), is(false));
+		stringRedisTemplate.delete("lock:" + name);
+		assertThat(lockService.tryLock(name), is(true));
+		lockService.unlock(name);
+		assertThat(tryLockInOtherThread(name), is(true));
+	}
+
+	private boolean tryLockInOtherThread(String name) {
+		ExecutorService es = Executors.newSingleThreadExecutor();
+		try {
+			return es.submit(() -> {
+				boolean success = lockService.tryLock(name);
+				if (success)
+					lockService.unlock(name);
+				return success;
+			}).get();
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		} finally {
+			es.shutdown();
+		}
+	}
+
+	@Configuration
+	static class RedisFairLockServiceConfiguration extends RedisConfiguration {
+
+		@Bean
+		public LockService lockService() {
+			return new RedisLockService();
+		}
+
+	}
+
+}
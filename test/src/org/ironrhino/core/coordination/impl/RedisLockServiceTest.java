@@ -24,6 +24,10 @@ import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @RunWith(SpringRunner.class)
 @ContextConfiguration(classes = RedisLockServiceConfig.class)
 public class RedisLockServiceTest {
@@ -95,6 +99,27 @@ public class RedisLockServiceTest {
 		lockService.unlock("key");
 	}
 
+	@Test
+	public void testRecordHoldTime() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		Metrics.addRegistry(registry);
+		try {
+			assertThat(lockService.isReentrant(), is(false));
+			given(opsForValue.setIfAbsent("lock:hold", holder(), lockService.getMaxHoldTime(), TimeUnit.SECONDS))
+					.willReturn(true);
+			given(stringRedisTemplate.execute(ArgumentMatchers.<RedisScript<Long>>any(),
+					argThat(keys -> keys != null && keys.contains("lock:hold")), eq(holder()))).willReturn(1L);
+			for (int i = 0; i < 2; i++) {
+				assertThat(lockService.tryLock("hold"), is(true));
+				lockService.unlock("hold");
+			}
+			Timer timer = registry.find("lock.hold").tag("name", "hold").timer();
+			assertThat(timer != null && timer.count() == 2, is(true));
+		} finally {
+			Metrics.removeRegistry(registry);
+		}
+	}
+
 	static class RedisLockServiceConfig {
 
 		@Bean
@@ -0,0 +1,231 @@
+package org.ironrhino.core.event;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.ironrhino.core.event.ApplicationEventMulticaster.RejectionPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ApplicationEventMulticasterTest {
+
+	private ApplicationEventMulticaster multicaster;
+
+	private MockEnvironment env;
+
+	@Before
+	public void setup() {
+		multicaster = new ApplicationEventMulticaster();
+		env = new MockEnvironment();
+		ReflectionTestUtils.setField(multicaster, "env", env);
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		multicaster.destroy();
+	}
+
+	@Test
+	public void testOrderedByKey() throws Exception {
+		int keys = 10;
+		int eventsPerKey = 100;
+		// queue of every worker holds all events, overflow is covered by testOverflowOfKeyedEvents
+		env.setProperty(ApplicationEventMulticaster.LANES_PREFIX + KeyedEvent.class.getName() + ".queueCapacity",
+				String.valueOf(keys * eventsPerKey * multicaster.getConcurrency()));
+		Map<Object, List<Integer>> received = new ConcurrentHashMap<>();
+		CountDownLatch latch = new CountDownLatch(keys * eventsPerKey);
+		multicaster.addApplicationListener((ApplicationListener<KeyedEvent>) event -> {
+			received.computeIfAbsent(event.getOrderingKey(), k -> new CopyOnWriteArrayList<>()).add(event.index);
+			latch.countDown();
+		});
+		for (int i = 0; i < eventsPerKey; i++)
+			for (int key = 0; key < keys; key++)
+				multicaster.multicastEvent(new KeyedEvent(key, i));
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		for (List<Integer> list : received.values()) {
+			List<Integer> expected = new ArrayList<>();
+			for (int i = 0; i < eventsPerKey; i++)
+				expected.add(i);
+			assertThat(list, is(expected));
+		}
+	}
+
+	@Test
+	public void testIsolation() throws Exception {
+		CountDownLatch blocker = new CountDownLatch(1);
+		CountDownLatch other = new CountDownLatch(1);
+		multicaster.addApplicationListener(new ApplicationListener<KeyedEvent>() {
+			@Override
+			public void onApplicationEvent(KeyedEvent event) {
+				try {
+					blocker.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		multicaster.addApplicationListener(new ApplicationListener<OtherEvent>() {
+			@Override
+			public void onApplicationEvent(OtherEvent event) {
+				other.countDown();
+			}
+		});
+		for (int i = 0; i < 10; i++)
+			multicaster.multicastEvent(new KeyedEvent(0, i));
+		assertThat(multicaster.getQueueSize(KeyedEvent.class), is(9));
+		multicaster.multicastEvent(new OtherEvent());
+		assertTrue(other.await(5, TimeUnit.SECONDS));
+		blocker.countDown();
+	}
+
+	@Test
+	public void testOverflowOfKeyedEvents() throws Exception {
+		env.setProperty(ApplicationEventMulticaster.LANES_PREFIX + KeyedEvent.class.getName() + ".concurrency", "1");
+		env.setProperty(ApplicationEventMulticaster.LANES_PREFIX + KeyedEvent.class.getName() + ".queueCapacity",
+				"2");
+		CountDownLatch blocker = new CountDownLatch(1);
+		CountDownLatch latch = new CountDownLatch(10);
+		List<Integer> received = new CopyOnWriteArrayList<>();
+		List<Thread> threads = new CopyOnWriteArrayList<>();
+		multicaster.addApplicationListener((ApplicationListener<KeyedEvent>) event -> {
+			threads.add(Thread.currentThread());
+			if (event.index == 0) {
+				try {
+					blocker.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			received.add(event.index);
+			latch.countDown();
+		});
+		Thread publisher = new Thread(() -> {
+			for (int i = 0; i < 10; i++)
+				multicaster.multicastEvent(new KeyedEvent(0, i));
+		});
+		publisher.start();
+		publisher.join(500);
+		// blocked by full queue instead of running or discarding events
+		assertThat(publisher.isAlive(), is(true));
+		assertThat(multicaster.getQueueSize(KeyedEvent.class), is(2));
+		blocker.countDown();
+		publisher.join(5000);
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 10; i++)
+			expected.add(i);
+		assertThat(received, is(expected));
+		assertThat(threads.contains(publisher), is(false));
+	}
+
+	@Test
+	public void testCallerRuns() throws Exception {
+		env.setProperty(ApplicationEventMulticaster.LANES_PREFIX + IndexedEvent.class.getName() + ".concurrency", "1");
+		env.setProperty(ApplicationEventMulticaster.LANES_PREFIX + IndexedEvent.class.getName() + ".queueCapacity",
+				"2");
+		CountDownLatch blocker = new CountDownLatch(1);
+		List<Thread> threads = new CopyOnWriteArrayList<>();
+		multicaster.addApplicationListener((ApplicationListener<IndexedEvent>) event -> {
+			threads.add(Thread.currentThread());
+			if (event.index == 0) {
+				try {
+					blocker.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		for (int i = 0; i < 4; i++)
+			multicaster.multicastEvent(new IndexedEvent(i));
+		assertThat(threads.contains(Thread.currentThread()), is(true));
+		blocker.countDown();
+	}
+
+	@Test
+	public void testDiscardOldest() throws Exception {
+		ReflectionTestUtils.setField(multicaster, "rejectionPolicy", RejectionPolicy.DISCARD_OLDEST);
+		env.setProperty(ApplicationEventMulticaster.LANES_PREFIX + IndexedEvent.class.getName() + ".concurrency", "1");
+		env.setProperty(ApplicationEventMulticaster.LANES_PREFIX + IndexedEvent.class.getName() + ".queueCapacity",
+				"2");
+		CountDownLatch blocker = new CountDownLatch(1);
+		CountDownLatch latch = new CountDownLatch(3);
+		List<Integer> received = new CopyOnWriteArrayList<>();
+		multicaster.addApplicationListener((ApplicationListener<IndexedEvent>) event -> {
+			if (event.index == 0) {
+				try {
+					blocker.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			received.add(event.index);
+			latch.countDown();
+		});
+		for (int i = 0; i < 5; i++)
+			multicaster.multicastEvent(new IndexedEvent(i));
+		blocker.countDown();
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		Thread.sleep(100);
+		List<Integer> expected = new ArrayList<>();
+		expected.add(0);
+		expected.add(3);
+		expected.add(4);
+		assertThat(received, is(expected));
+	}
+
+	static class KeyedEvent extends ApplicationEvent implements OrderedEvent {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int index;
+
+		KeyedEvent(Integer key, int index) {
+			super(key);
+			this.index = index;
+		}
+
+		@Override
+		public Object getOrderingKey() {
+			return getSource();
+		}
+
+	}
+
+	static class IndexedEvent extends ApplicationEvent {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int index;
+
+		IndexedEvent(int index) {
+			super("indexed");
+			this.index = index;
+		}
+
+	}
+
+	static class OtherEvent extends ApplicationEvent {
+
+		private static final long serialVersionUID = 1L;
+
+		OtherEvent() {
+			super("other");
+		}
+
+	}
+
+}
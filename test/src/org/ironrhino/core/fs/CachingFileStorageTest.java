@@ -0,0 +1,110 @@
+package org.ironrhino.core.fs;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+
+import org.ironrhino.core.fs.CachingFileStorageTest.CachingFileStorageTestConfiguration;
+import org.ironrhino.core.fs.impl.CachingFileStorage;
+import org.ironrhino.core.fs.impl.LocalFileStorage;
+import org.ironrhino.core.spring.configuration.PriorityQualifier;
+import org.ironrhino.core.spring.configuration.PriorityQualifierPostProcessor;
+import org.ironrhino.core.util.AppInfo;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = CachingFileStorageTestConfiguration.class)
+public class CachingFileStorageTest extends FileStorageTestBase {
+
+	@Test
+	public void testCaching() throws IOException {
+		FileStorage delegate = spy(createLocalFileStorage());
+		CachingFileStorage cfs = new CachingFileStorage(delegate);
+		try {
+			String path = "/caching/test.txt";
+			assertThat(cfs.exists(path), is(false));
+			assertThat(cfs.open(path), is(nullValue()));
+			assertThat(cfs.getFileInfo(path), is(nullValue()));
+			// negative cached
+			verify(delegate, times(1)).getFileInfo(path);
+			byte[] bytes = "test".getBytes();
+			cfs.write(new ByteArrayInputStream(bytes), path, bytes.length);
+			assertThat(cfs.isDirectory("/caching"), is(true));
+			assertThat(cfs.exists(path), is(true));
+			FileInfo fileInfo = cfs.getFileInfo(path);
+			assertThat(fileInfo, is(notNullValue()));
+			assertThat(fileInfo.getSize(), is(4L));
+			assertThat(cfs.getLastModified(path), is(fileInfo.getLastModified()));
+			assertThat(cfs.isDirectory(path), is(false));
+			verify(delegate, times(2)).getFileInfo(path);
+			assertThat(cfs.rename(path, "/caching/test2.txt"), is(true));
+			assertThat(cfs.exists(path), is(false));
+			assertThat(cfs.exists("/caching/test2.txt"), is(true));
+			assertThat(cfs.delete("/caching/test2.txt"), is(true));
+			assertThat(cfs.exists("/caching/test2.txt"), is(false));
+			assertThat(cfs.delete("/caching"), is(true));
+			assertThat(cfs.isDirectory("/caching"), is(false));
+		} finally {
+			cfs.destroy();
+		}
+	}
+
+	@Test
+	public void testEnabledByProperty() {
+		AppInfo.getApplicationContextProperties().setProperty("fileStorage.caching.enabled", "true");
+		try (AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext()) {
+			ctx.registerBean("fileStorage", FileStorage.class, CachingFileStorageTest::createLocalFileStorage);
+			ctx.register(PriorityQualifierPostProcessor.class, CachingFileStorageConfiguration.class,
+					UploadFileStorageHolder.class);
+			ctx.refresh();
+			FileStorage uploadFileStorage = ctx.getBean(UploadFileStorageHolder.class).uploadFileStorage;
+			assertThat(uploadFileStorage, instanceOf(CachingFileStorage.class));
+		} finally {
+			AppInfo.getApplicationContextProperties().remove("fileStorage.caching.enabled");
+		}
+	}
+
+	static class UploadFileStorageHolder {
+
+		@Autowired
+		@Qualifier("fileStorage")
+		@PriorityQualifier
+		private FileStorage uploadFileStorage;
+
+	}
+
+	static LocalFileStorage createLocalFileStorage() {
+		LocalFileStorage fs = new LocalFileStorage();
+		fs.setUri(URI.create("file:///tmp/fs-caching"));
+		fs.afterPropertiesSet();
+		return fs;
+	}
+
+	@Configuration
+	static class CachingFileStorageTestConfiguration {
+
+		@Bean
+		public FileStorage fileStorage() {
+			return new CachingFileStorage(createLocalFileStorage());
+		}
+
+	}
+
+}
@@ -2,16 +2,21 @@ package org.ironrhino.core.fs;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.List;
 
 import org.ironrhino.core.fs.impl.LocalFileStorage;
+import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class FileStorageMigrationTest {
 
@@ -19,6 +24,9 @@ public class FileStorageMigrationTest {
 
 	static FileStorage target;
 
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 	@BeforeClass
 	public static void setup() {
 		LocalFileStorage fs1 = new LocalFileStorage();
@@ -31,6 +39,11 @@ public class FileStorageMigrationTest {
 		target = fs2;
 	}
 
+	@After
+	public void clean() {
+		cleanup();
+	}
+
 	@AfterClass
 	public static void cleanup() {
 		try {
@@ -57,6 +70,51 @@ public class FileStorageMigrationTest {
 		verify(target);
 	}
 
+	@Test
+	public void testParallelMigration() throws IOException {
+		for (int i = 0; i < 10; i++)
+			for (int j = 0; j < 10; j++)
+				writeToFile(source, "text", "/test" + i + "/test" + j + ".txt");
+		FileStorageMigrator migrator = new FileStorageMigrator(source, target);
+		migrator.setConcurrency(4);
+		migrator.setPageSize(3);
+		FileStorageMigrator.Progress progress = migrator.migrate("/");
+		assertThat(progress.getCopied(), is(100L));
+		assertThat(progress.getBytes(), is(400L));
+		verify(source);
+		verify(target);
+		progress = migrator.migrate("/");
+		assertThat(progress.getCopied(), is(0L));
+		assertThat(progress.getSkipped(), is(100L));
+	}
+
+	@Test
+	public void testResume() throws IOException {
+		for (int i = 0; i < 10; i++)
+			for (int j = 0; j < 10; j++)
+				writeToFile(source, "text", "/test" + i + "/test" + j + ".txt");
+		// directory in place of file makes writing fail
+		target.mkdir("/test5/test5.txt");
+		File checkpoint = new File(temporaryFolder.getRoot(), "fs-migration.checkpoint");
+		FileStorageMigrator migrator = new FileStorageMigrator(source, target);
+		migrator.setConcurrency(4);
+		migrator.setPageSize(3);
+		migrator.setCheckpointFile(checkpoint);
+		try {
+			migrator.migrate("/");
+			fail("migration should fail");
+		} catch (IOException e) {
+			assertThat(checkpoint.exists(), is(true));
+		}
+		target.delete("/test5/test5.txt");
+		FileStorageMigrator.Progress progress = migrator.migrate("/");
+		assertThat(progress.getCopied(), is(1L));
+		// completed directories and pages are not visited again
+		assertThat(progress.getSkipped() < 10, is(true));
+		assertThat(checkpoint.exists(), is(false));
+		verify(target);
+	}
+
 	protected static void verify(FileStorage fs) throws IOException {
 		List<FileInfo> list = fs.listFilesAndDirectory("/");
 		assertThat(list.size(), is(10));
@@ -81,7 +139,7 @@ public class FileStorageMigrationTest {
 			if (entry.isFile()) {
 				fs.delete(path);
 			} else {
-				cleanup(target, path);
+				cleanup(fs, path);
 			}
 		}
 		fs.delete(directory);
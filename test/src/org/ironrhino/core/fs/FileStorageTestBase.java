@@ -7,7 +7,9 @@ import static org.hamcrest.MatcherAssert.assertThat;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
@@ -16,6 +18,7 @@ import java.util.stream.Collectors;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.util.StreamUtils;
 
 public abstract class FileStorageTestBase {
 
@@ -148,6 +151,30 @@ public abstract class FileStorageTestBase {
 		fs.delete("/test");
 	}
 
+	@Test
+	public void testRangedRead() throws IOException {
+		String text = "0123456789";
+		String path = "/test/range.txt";
+		writeToFile(fs, text, path);
+		try (InputStream is = fs.open(path, 2, 5)) {
+			assertThat(StreamUtils.copyToString(is, StandardCharsets.UTF_8), is("23456"));
+		}
+		try (InputStream is = fs.open(path, 8, 5)) {
+			assertThat(StreamUtils.copyToString(is, StandardCharsets.UTF_8), is("89"));
+		}
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		assertThat(fs.transferTo(path, 3, 4, os), is(4L));
+		assertThat(os.toString("UTF-8"), is("3456"));
+		FileInfo info = fs.getFileInfo(path);
+		assertThat(info, is(notNullValue()));
+		assertThat(info.isFile(), is(true));
+		assertThat(info.getSize() == text.length() || info.getSize() == -1, is(true));
+		assertThat(fs.getFileInfo("/test/notexists.txt"), is(nullValue()));
+		assertThat(fs.getFileInfo("/test"), is(nullValue()));
+		fs.delete(path);
+		fs.delete("/test");
+	}
+
 	private static boolean isFile(List<FileInfo> files, String name) {
 		for (FileInfo file : files) {
 			if (file.getName().equals(name))
@@ -1,7 +1,17 @@
 package org.ironrhino.core.fs;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
 import org.ironrhino.core.fs.LocalFileStorageTest.LocalFileStorageConfiguration;
 import org.ironrhino.core.fs.impl.LocalFileStorage;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -14,6 +24,25 @@ import org.springframework.test.context.junit4.SpringRunner;
 @TestPropertySource(properties = "fileStorage.uri=file:///tmp/fs")
 public class LocalFileStorageTest extends FileStorageTestBase {
 
+	@Test
+	public void testTransferToFile() throws Exception {
+		String path = "/test/transfer.txt";
+		fs.write(new ByteArrayInputStream("0123456789".getBytes(StandardCharsets.UTF_8)), path);
+		File target = File.createTempFile("transfer", ".txt");
+		try {
+			try (FileOutputStream os = new FileOutputStream(target)) {
+				os.write('[');
+				assertThat(fs.transferTo(path, 3, 4, os), is(4L));
+				os.write(']');
+			}
+			assertThat(new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8), is("[3456]"));
+		} finally {
+			target.delete();
+			fs.delete(path);
+			fs.delete("/test");
+		}
+	}
+
 	@Configuration
 	static class LocalFileStorageConfiguration {
 
@@ -1,15 +1,22 @@
 package org.ironrhino.core.jdbc;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
 
+import java.lang.ref.WeakReference;
 import java.util.Date;
+import java.util.List;
 
 import javax.persistence.Column;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 
 import org.junit.Test;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 
 import lombok.Data;
 
@@ -28,6 +35,12 @@ public class EntityBeanPropertyRowMapperTest {
 		@Enumerated(EnumType.STRING)
 		private Grade grade2;
 
+		private int age;
+
+		private Long score;
+
+		private boolean active;
+
 	}
 
 	@Test
@@ -37,4 +50,68 @@ public class EntityBeanPropertyRowMapperTest {
 		assertThat(mapper.underscoreName("grade2"), is("g2"));
 	}
 
+	@Test
+	public void testMapRow() {
+		SingleConnectionDataSource ds = new SingleConnectionDataSource("jdbc:h2:mem:rowmapper", "sa", "", true);
+		try {
+			JdbcTemplate jdbcTemplate = new JdbcTemplate(ds);
+			jdbcTemplate.execute(
+					"create table person (name varchar(20), date_of_birth timestamp, grade1 int, g2 varchar(10), age int, score bigint, active boolean)");
+			jdbcTemplate.update("insert into person values ('a', current_timestamp, 1, 'C', 10, 100, true)");
+			jdbcTemplate.update("insert into person values ('b', null, null, null, 20, null, false)");
+			EntityBeanPropertyRowMapper<Person> mapper = new EntityBeanPropertyRowMapper<>(Person.class);
+			List<Person> list = jdbcTemplate.query("select * from person order by name", mapper);
+			assertThat(list.size(), is(2));
+			Person a = list.get(0);
+			assertThat(a.getName(), is("a"));
+			assertThat(a.getDateOfBirth() != null, is(true));
+			assertThat(a.getGrade1(), is(Grade.B));
+			assertThat(a.getGrade2(), is(Grade.C));
+			assertThat(a.getAge(), is(10));
+			assertThat(a.getScore(), is(100L));
+			assertThat(a.isActive(), is(true));
+			Person b = list.get(1);
+			assertThat(b.getName(), is("b"));
+			assertThat(b.getDateOfBirth(), is(nullValue()));
+			assertThat(b.getGrade2(), is(nullValue()));
+			assertThat(b.getAge(), is(20));
+			assertThat(b.getScore(), is(nullValue()));
+			assertThat(b.isActive(), is(false));
+			// same shape with another ResultSet
+			assertThat(jdbcTemplate.query("select * from person order by name", mapper).get(1).getAge(), is(20));
+			// null to primitive
+			jdbcTemplate.update("update person set age=null where name='b'");
+			try {
+				jdbcTemplate.query("select name,age from person", mapper);
+				fail("null should not be assigned to primitive");
+			} catch (TypeMismatchException e) {
+			}
+			mapper.setPrimitivesDefaultedForNullValue(true);
+			assertThat(jdbcTemplate.query("select name,age from person where name='b'", mapper).get(0).getAge(), is(0));
+		} finally {
+			ds.destroy();
+		}
+	}
+
+	@Test
+	public void testMapperNotRetainedByThread() throws Exception {
+		SingleConnectionDataSource ds = new SingleConnectionDataSource("jdbc:h2:mem:rowmapperleak", "sa", "", true);
+		try {
+			JdbcTemplate jdbcTemplate = new JdbcTemplate(ds);
+			jdbcTemplate.execute("create table person (name varchar(20), age int)");
+			jdbcTemplate.update("insert into person values ('a', 10)");
+			EntityBeanPropertyRowMapper<Person> mapper = new EntityBeanPropertyRowMapper<>(Person.class);
+			assertThat(jdbcTemplate.query("select * from person", mapper).size(), is(1));
+			WeakReference<?> ref = new WeakReference<>(mapper);
+			mapper = null;
+			for (int i = 0; i < 10 && ref.get() != null; i++) {
+				System.gc();
+				Thread.sleep(100);
+			}
+			assertThat(ref.get(), is(nullValue()));
+		} finally {
+			ds.destroy();
+		}
+	}
+
 }
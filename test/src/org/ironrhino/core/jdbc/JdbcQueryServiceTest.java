@@ -0,0 +1,117 @@
+package org.ironrhino.core.jdbc;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.ironrhino.core.model.ResultPage;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+public class JdbcQueryServiceTest {
+
+	private static SingleConnectionDataSource dataSource;
+
+	private static JdbcQueryService jdbcQueryService;
+
+	@BeforeClass
+	public static void setup() {
+		dataSource = new SingleConnectionDataSource("jdbc:h2:mem:jdbcQueryService;DB_CLOSE_DELAY=-1", "sa", "", true);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("create table t_item (code varchar(10), grade int)");
+		for (int i = 0; i < 10; i++)
+			jdbcTemplate.update("insert into t_item values (?,?)", "code" + i, i % 3);
+		jdbcTemplate.execute("create table t_score (code varchar(10), score int)");
+		for (int i = 0; i < 10; i++)
+			jdbcTemplate.update("insert into t_score values (?,?)", "code" + i, i % 3 == 0 ? null : i % 4);
+		jdbcQueryService = new JdbcQueryService();
+		jdbcQueryService.setJdbcTemplate(jdbcTemplate);
+		jdbcQueryService.init();
+	}
+
+	@AfterClass
+	public static void destroy() {
+		dataSource.destroy();
+	}
+
+	@Test
+	public void testQueryByOffset() {
+		ResultPage<Map<String, Object>> rp = new ResultPage<>();
+		rp.setCriteria(new QueryCriteria("select * from t_item i order by i.code", Collections.emptyMap()));
+		rp.setPageSize(4);
+		rp.setPageNo(3);
+		rp = jdbcQueryService.query(rp);
+		assertThat(rp.getTotalResults(), is(10L));
+		assertThat(rp.getResult().size(), is(2));
+		assertThat(rp.getResult().iterator().next().get("code"), is("code8"));
+	}
+
+	@Test
+	public void testQueryByKeyset() {
+		ResultPage<Map<String, Object>> rp = new ResultPage<>();
+		rp.setCriteria(new QueryCriteria("select * from t_item i where i.grade < :grade order by i.grade desc, i.code",
+				Collections.singletonMap("grade", 3)));
+		rp.setKeyset(true);
+		rp.setPageSize(4);
+		List<String> codes = new ArrayList<>();
+		int pages = 0;
+		do {
+			rp.setCursor(rp.getNextCursor());
+			rp = jdbcQueryService.query(rp);
+			assertThat(rp.getTotalResults(), is(10L));
+			for (Map<String, Object> row : rp.getResult())
+				codes.add((String) row.get("code"));
+			pages++;
+		} while (!rp.isLast());
+		assertThat(pages, is(3));
+		assertThat(codes.size(), is(10));
+		assertThat(codes.get(0), is("code2"));
+		assertThat(codes.get(2), is("code8"));
+		assertThat(codes.get(3), is("code1"));
+		assertThat(codes.get(9), is("code9"));
+
+		rp = new ResultPage<>();
+		rp.setCriteria(new QueryCriteria("select * from t_item order by code", Collections.emptyMap()));
+		rp.setKeyset(true);
+		rp.setCounting(false);
+		rp.setPageSize(5);
+		rp = jdbcQueryService.query(rp);
+		assertThat(rp.getTotalResults(), is(-1L));
+		assertThat(rp.getNextCursor(), is(notNullValue()));
+		rp.setCursor(rp.getNextCursor());
+		rp = jdbcQueryService.query(rp);
+		assertThat(rp.getResult().size(), is(5));
+		assertThat(rp.getNextCursor(), is(nullValue()));
+	}
+
+	@Test
+	public void testQueryByKeysetOnNullableKey() {
+		for (String orderby : new String[] { "score, code", "score desc, code", "score nulls first, code desc" }) {
+			ResultPage<Map<String, Object>> rp = new ResultPage<>();
+			rp.setCriteria(new QueryCriteria("select * from t_score order by " + orderby, Collections.emptyMap()));
+			rp.setKeyset(true);
+			rp.setCounting(false);
+			rp.setPageSize(3);
+			List<Map<String, Object>> rows = new ArrayList<>();
+			do {
+				rp.setCursor(rp.getNextCursor());
+				rp = jdbcQueryService.query(rp);
+				rows.addAll(rp.getResult());
+			} while (!rp.isLast());
+			assertThat(rows.stream().map(row -> row.get("code")).distinct().count(), is(10L));
+			// null is treated as the largest value unless specified
+			List<Map<String, Object>> nulls = orderby.startsWith("score,") ? rows.subList(6, 10) : rows.subList(0, 4);
+			assertThat(nulls.stream().allMatch(row -> row.get("score") == null), is(true));
+		}
+	}
+
+}
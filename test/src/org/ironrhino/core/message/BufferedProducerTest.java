@@ -0,0 +1,106 @@
+package org.ironrhino.core.message;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class BufferedProducerTest {
+
+	@Test
+	public void testFlushBySize() throws Exception {
+		List<List<String>> batches = new CopyOnWriteArrayList<>();
+		try (BufferedProducer<String> producer = new BufferedProducer<>(batches::add, 10, 60000, 100)) {
+			for (int i = 0; i < 30; i++)
+				producer.send("message" + i);
+			producer.flush();
+			assertThat(batches.stream().mapToInt(List::size).sum(), is(30));
+			assertTrue(batches.stream().allMatch(batch -> batch.size() <= 10));
+			assertThat(batches.get(0).get(0), is("message0"));
+		}
+	}
+
+	@Test
+	public void testFlushByLingerTime() throws Exception {
+		List<List<String>> batches = new CopyOnWriteArrayList<>();
+		try (BufferedProducer<String> producer = new BufferedProducer<>(batches::add, 100, 50, 1000)) {
+			producer.send("message");
+			Thread.sleep(500);
+			assertThat(batches.size(), is(1));
+			assertThat(batches.get(0).size(), is(1));
+		}
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		List<List<String>> batches = new CopyOnWriteArrayList<>();
+		BufferedProducer<String> producer = new BufferedProducer<>(batches::add, 100, 60000, 1000);
+		for (int i = 0; i < 10; i++)
+			producer.send("message" + i);
+		producer.close();
+		assertThat(batches.stream().mapToInt(List::size).sum(), is(10));
+	}
+
+	@Test
+	public void testSendFailure() throws Exception {
+		List<List<String>> batches = new CopyOnWriteArrayList<>();
+		try (BufferedProducer<String> producer = new BufferedProducer<>(batch -> {
+			if (batch.contains("poison"))
+				throw new RuntimeException("failed");
+			batches.add(batch);
+		}, 1, 0, 10)) {
+			producer.send("poison");
+			producer.send("message");
+			producer.flush();
+			assertThat(batches.size(), is(1));
+			assertThat(batches.get(0).get(0), is("message"));
+		}
+	}
+
+	@Test
+	public void testConcurrentSendAndClose() throws Exception {
+		List<List<String>> batches = new CopyOnWriteArrayList<>();
+		BufferedProducer<String> producer = new BufferedProducer<>(batches::add, 10, 10, 100);
+		int THREADS = 10;
+		ExecutorService es = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch cdl = new CountDownLatch(THREADS);
+		AtomicInteger accepted = new AtomicInteger();
+		for (int n = 0; n < THREADS; n++) {
+			es.execute(() -> {
+				try {
+					while (true) {
+						producer.send("message");
+						accepted.incrementAndGet();
+					}
+				} catch (IllegalStateException | InterruptedException e) {
+					// closed
+				} finally {
+					cdl.countDown();
+				}
+			});
+		}
+		Thread.sleep(100);
+		producer.close();
+		assertTrue(cdl.await(5, TimeUnit.SECONDS));
+		es.shutdown();
+		assertThat(batches.stream().mapToInt(List::size).sum(), is(accepted.get()));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSendAfterClose() throws Exception {
+		BufferedProducer<String> producer = new BufferedProducer<>(batch -> {
+		}, 10, 10, 100);
+		producer.close();
+		producer.send("message");
+	}
+
+}
@@ -0,0 +1,145 @@
+package org.ironrhino.core.redis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.ironrhino.core.metadata.Scope;
+import org.ironrhino.core.redis.RedisQueueTests.RedisQueueConfiguration;
+import org.ironrhino.core.spring.configuration.RedisConfiguration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = RedisQueueConfiguration.class)
+public class RedisQueueTests {
+
+	@Autowired
+	private TestQueue testQueue;
+
+	@Autowired
+	private TestStreamQueue testStreamQueue;
+
+	@Autowired
+	private TestTopic testTopic;
+
+	@Test
+	public void testProduceAll() throws Exception {
+		List<String> messages = messages(2500);
+		testQueue.latch = new CountDownLatch(messages.size());
+		testQueue.produceAll(messages);
+		assertTrue(testQueue.latch.await(10, TimeUnit.SECONDS));
+		assertThat(testQueue.consumed.size(), is(messages.size()));
+	}
+
+	@Test
+	public void testStreamProduceAll() throws Exception {
+		List<String> messages = messages(500);
+		testStreamQueue.latch = new CountDownLatch(messages.size());
+		testStreamQueue.produceAll(messages);
+		assertTrue(testStreamQueue.latch.await(10, TimeUnit.SECONDS));
+		assertThat(testStreamQueue.consumed.size(), is(messages.size()));
+	}
+
+	@Test
+	public void testPublishAll() throws Exception {
+		List<String> messages = messages(500);
+		testTopic.latch = new CountDownLatch(messages.size());
+		testTopic.publishAll(messages, Scope.APPLICATION);
+		assertTrue(testTopic.latch.await(10, TimeUnit.SECONDS));
+		assertThat(testTopic.consumed.size(), is(messages.size()));
+	}
+
+	private static List<String> messages(int size) {
+		List<String> messages = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			messages.add("message" + i);
+		return messages;
+	}
+
+	public static class TestQueue extends RedisQueue<String> {
+
+		private final Set<String> consumed = ConcurrentHashMap.newKeySet();
+
+		private volatile CountDownLatch latch = new CountDownLatch(0);
+
+		@Override
+		public void consume(String message) {
+			if (consumed.add(message))
+				latch.countDown();
+		}
+
+	}
+
+	public static class TestStreamQueue extends RedisStreamQueue<String> {
+
+		private final Set<String> consumed = ConcurrentHashMap.newKeySet();
+
+		private volatile CountDownLatch latch = new CountDownLatch(0);
+
+		@Override
+		public void consume(String message) {
+			if (consumed.add(message))
+				latch.countDown();
+		}
+
+	}
+
+	public static class TestTopic extends RedisTopic<String> {
+
+		private final Set<String> consumed = ConcurrentHashMap.newKeySet();
+
+		private volatile CountDownLatch latch = new CountDownLatch(0);
+
+		@Override
+		public void subscribe(String message) {
+			if (consumed.add(message))
+				latch.countDown();
+		}
+
+	}
+
+	@Configuration
+	static class RedisQueueConfiguration extends RedisConfiguration {
+
+		@Bean
+		public TestQueue testQueue() {
+			TestQueue queue = new TestQueue();
+			queue.setQueueName("test.produceAllQueue");
+			queue.setConsuming(true);
+			queue.setProduceBatchSize(1000);
+			return queue;
+		}
+
+		@Bean
+		public TestStreamQueue testStreamQueue() {
+			TestStreamQueue queue = new TestStreamQueue();
+			queue.setQueueName("test.produceAllStreamQueue");
+			queue.setConsuming(true);
+			queue.setBatchSize(100);
+			queue.setPollInterval(100);
+			return queue;
+		}
+
+		@Bean
+		public TestTopic testTopic() {
+			TestTopic topic = new TestTopic();
+			topic.setChannelName("test.publishAllTopic");
+			return topic;
+		}
+
+	}
+
+}
@@ -0,0 +1,116 @@
+package org.ironrhino.core.redis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ironrhino.core.redis.RedisStreamQueueTests.RedisStreamQueueConfiguration;
+import org.ironrhino.core.spring.configuration.RedisConfiguration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = RedisStreamQueueConfiguration.class)
+public class RedisStreamQueueTests {
+
+	@Autowired
+	private BatchQueue batchQueue;
+
+	@Autowired
+	private FlakyQueue flakyQueue;
+
+	@Test
+	public void testBatchConsume() throws Exception {
+		int messages = 100;
+		batchQueue.latch = new CountDownLatch(messages);
+		for (int i = 0; i < messages; i++)
+			batchQueue.produce("message" + i);
+		assertTrue(batchQueue.latch.await(10, TimeUnit.SECONDS));
+		assertThat(batchQueue.consumed.size(), is(messages));
+		assertTrue(batchQueue.maxBatchSize.get() > 1);
+	}
+
+	@Test
+	public void testReclaim() throws Exception {
+		flakyQueue.produce("flaky");
+		assertTrue(flakyQueue.latch.await(10, TimeUnit.SECONDS));
+		assertTrue(flakyQueue.failed.get());
+	}
+
+	public static class BatchQueue extends RedisStreamQueue<String> {
+
+		private final Set<String> consumed = ConcurrentHashMap.newKeySet();
+
+		private final AtomicInteger maxBatchSize = new AtomicInteger();
+
+		private volatile CountDownLatch latch = new CountDownLatch(0);
+
+		@Override
+		public void consume(List<String> messages) {
+			maxBatchSize.accumulateAndGet(messages.size(), Math::max);
+			super.consume(messages);
+		}
+
+		@Override
+		public void consume(String message) {
+			if (consumed.add(message))
+				latch.countDown();
+		}
+
+	}
+
+	public static class FlakyQueue extends RedisStreamQueue<String> {
+
+		private final AtomicBoolean failed = new AtomicBoolean();
+
+		private final CountDownLatch latch = new CountDownLatch(1);
+
+		@Override
+		public void consume(String message) {
+			if (failed.compareAndSet(false, true))
+				throw new RuntimeException("crashed");
+			latch.countDown();
+		}
+
+	}
+
+	@Configuration
+	static class RedisStreamQueueConfiguration extends RedisConfiguration {
+
+		@Bean
+		public BatchQueue batchQueue() {
+			BatchQueue queue = new BatchQueue();
+			queue.setQueueName("test.batchQueue");
+			queue.setConsuming(true);
+			queue.setConcurrency(2);
+			queue.setBatchSize(20);
+			queue.setPollInterval(200);
+			return queue;
+		}
+
+		@Bean
+		public FlakyQueue flakyQueue() {
+			FlakyQueue queue = new FlakyQueue();
+			queue.setQueueName("test.flakyQueue");
+			queue.setConsuming(true);
+			queue.setPollInterval(100);
+			queue.setReclaimIdleTime(500);
+			return queue;
+		}
+
+	}
+
+}
@@ -35,5 +35,12 @@ public class DatabaseSequenceTest extends SequenceTestBase {
 			return cs;
 		}
 
+		@Bean
+		public Sequence sample3Sequence(DataSource dataSource) {
+			DatabaseSimpleSequenceDelegate ss = new DatabaseSimpleSequenceDelegate(dataSource);
+			ss.setSegmentSize(100);
+			return ss;
+		}
+
 	}
 }
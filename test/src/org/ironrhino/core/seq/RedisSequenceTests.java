@@ -31,6 +31,13 @@ public class RedisSequenceTests extends SequenceTestBase {
 			cs.setPaddingLength(7);
 			return cs;
 		}
+
+		@Bean
+		public Sequence sample3Sequence() {
+			RedisSimpleSequence ss = new RedisSimpleSequence();
+			ss.setSegmentSize(100);
+			return ss;
+		}
 	}
 
 }
@@ -4,6 +4,8 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -11,6 +13,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.ironrhino.core.sequence.Sequence;
+import org.ironrhino.core.sequence.SimpleSequence;
 import org.ironrhino.core.util.DateUtils;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -31,6 +34,9 @@ public abstract class SequenceTestBase {
 	@Autowired
 	private Sequence sample2Sequence;
 
+	@Autowired
+	private SimpleSequence sample3Sequence;
+
 	@BeforeClass
 	public static void setup() {
 		executorService = Executors.newFixedThreadPool(THREADS);
@@ -51,11 +57,34 @@ public abstract class SequenceTestBase {
 		test(true);
 	}
 
+	@Test
+	public void testSegment() throws InterruptedException {
+		test(sample3Sequence);
+	}
+
+	@Test
+	public void testNextLongValues() {
+		for (SimpleSequence seq : new SimpleSequence[] { (SimpleSequence) sample1Sequence, sample3Sequence }) {
+			long[] values = seq.nextLongValues(150);
+			assertThat(values.length, is(150));
+			Set<Long> set = new HashSet<>();
+			for (long value : values)
+				set.add(value);
+			for (long value : seq.nextLongValues(150))
+				set.add(value);
+			set.add(seq.nextLongValue());
+			assertThat(set.size(), is(301));
+		}
+	}
+
 	private void test(boolean cyclic) throws InterruptedException {
+		test(cyclic ? sample2Sequence : sample1Sequence);
+	}
+
+	private void test(Sequence seq) throws InterruptedException {
 		final ConcurrentHashMap<String, Long> map = new ConcurrentHashMap<>(THREADS * LOOP * 2);
 		final CountDownLatch cdl = new CountDownLatch(THREADS);
 		final AtomicInteger count = new AtomicInteger();
-		final Sequence seq = cyclic ? sample2Sequence : sample1Sequence;
 		long time = System.currentTimeMillis();
 		for (int i = 0; i < THREADS; i++) {
 			executorService.execute(() -> {
@@ -0,0 +1,121 @@
+package org.ironrhino.core.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ironrhino.common.model.TreeNode;
+import org.ironrhino.common.support.TreeNodeControl;
+import org.ironrhino.core.event.EntityOperationEvent;
+import org.ironrhino.core.event.EntityOperationType;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = { HibernateConfiguration.class, BaseTreeControlTest.Config.class })
+@TestPropertySource(properties = { "annotatedClasses=org.ironrhino.common.model.TreeNode" })
+public class BaseTreeControlTest {
+
+	@Autowired
+	private EntityManager<TreeNode> entityManager;
+
+	@Autowired
+	private TreeNodeControl treeNodeControl;
+
+	@Test
+	public void test() {
+		TreeNode a = save("a", 1, null);
+		TreeNode b = save("b", 0, null);
+		TreeNode a1 = save("a1", 0, a);
+		save("a2", 0, a);
+		TreeNode a11 = save("a11", 0, a1);
+
+		TreeNode tree = treeNodeControl.getTree();
+		assertThat(names(tree.getChildren()), is("[b, a]"));
+		assertThat(names(treeNodeControl.getTreeNode(a.getId()).getChildren()), is("[a1, a2]"));
+		assertThat(treeNodeControl.getTreeNode(a11.getId()).getParent(),
+				is(sameInstance(treeNodeControl.getTreeNode(a1.getId()))));
+		assertThat(treeNodeControl.getTreeNodeByFullId(a11.getFullId()).getName(), is("a11"));
+		assertThat(treeNodeControl.getTreeNode(a11.getId()).getLevel(), is(3));
+		assertThat(treeNodeControl.getTreeNode(a11.getId()).getFullname(), is("a/a1/a11"));
+
+		TreeNode b1 = save("b1", 0, b);
+		treeNodeControl.onApplicationEvent(new EntityOperationEvent<>(b1, EntityOperationType.CREATE));
+		TreeNode a0 = save("a0", -1, a);
+		treeNodeControl.onApplicationEvent(new EntityOperationEvent<>(a0, EntityOperationType.CREATE));
+		assertThat(treeNodeControl.getTreeNode(b1.getId()).getParent(),
+				is(sameInstance(treeNodeControl.getTreeNode(b.getId()))));
+		assertThat(names(treeNodeControl.getTreeNode(a.getId()).getChildren()), is("[a0, a1, a2]"));
+
+		// move a1 with descendants to b
+		TreeNode moved = new TreeNode();
+		moved.setId(a1.getId());
+		moved.setName("a1");
+		moved.setDisplayOrder(1);
+		moved.setFullId(b.getFullId() + a1.getId() + ".");
+		moved.setLevel(2);
+		String oldFullId = a11.getFullId();
+		treeNodeControl.onApplicationEvent(new EntityOperationEvent<>(moved, EntityOperationType.UPDATE));
+		assertThat(names(treeNodeControl.getTreeNode(a.getId()).getChildren()), is("[a0, a2]"));
+		assertThat(names(treeNodeControl.getTreeNode(b.getId()).getChildren()), is("[b1, a1]"));
+		TreeNode node = treeNodeControl.getTreeNode(a11.getId());
+		assertThat(node.getFullId(), is(moved.getFullId() + a11.getId() + "."));
+		assertThat(node.getLevel(), is(3));
+		assertThat(node.getFullname(), is("b/a1/a11"));
+		assertThat(treeNodeControl.getTreeNodeByFullId(oldFullId), is(nullValue()));
+		assertThat(treeNodeControl.getTreeNodeByFullId(node.getFullId()), is(sameInstance(node)));
+
+		treeNodeControl.onApplicationEvent(new EntityOperationEvent<>(moved, EntityOperationType.DELETE));
+		assertThat(names(treeNodeControl.getTreeNode(b.getId()).getChildren()), is("[b1]"));
+		assertThat(treeNodeControl.getTreeNode(a1.getId()), is(nullValue()));
+		assertThat(treeNodeControl.getTreeNode(a11.getId()), is(nullValue()));
+		assertThat(treeNodeControl.getTreeNodeByFullId(node.getFullId()), is(nullValue()));
+	}
+
+	private TreeNode save(String name, int displayOrder, TreeNode parent) {
+		entityManager.setEntityClass(TreeNode.class);
+		TreeNode node = new TreeNode();
+		node.setName(name);
+		node.setDisplayOrder(displayOrder);
+		node.setParent(parent);
+		entityManager.save(node);
+		return node;
+	}
+
+	private static String names(Iterable<TreeNode> nodes) {
+		List<String> names = new ArrayList<>();
+		for (TreeNode node : nodes)
+			names.add(node.getName());
+		return names.toString();
+	}
+
+	@After
+	public void clearData() {
+		entityManager.setEntityClass(TreeNode.class);
+		entityManager.executeUpdate("update TreeNode t set t.parent=null");
+		entityManager.executeUpdate("delete from TreeNode t");
+		treeNodeControl.rebuild();
+	}
+
+	@Configuration
+	static class Config {
+
+		@Bean
+		public TreeNodeControl treeNodeControl() {
+			return new TreeNodeControl();
+		}
+
+	}
+
+}
@@ -0,0 +1,140 @@
+package org.ironrhino.core.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Restrictions;
+import org.ironrhino.common.model.Gender;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = { HibernateConfiguration.class, EntityManagerBatchTest.Config.class })
+@TestPropertySource(properties = {
+		"annotatedClasses=org.ironrhino.core.service.Person,org.ironrhino.core.service.Product",
+		"baseManager.batchSize=20" })
+public class EntityManagerBatchTest {
+
+	@Autowired
+	private EntityManager<Person> entityManager;
+
+	@Autowired
+	private EntityManager<Product> productManager;
+
+	@Autowired
+	private PersonManager personManager;
+
+	@Test
+	public void testGeneratedId() {
+		entityManager.setEntityClass(Person.class);
+		List<Person> list = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			Person person = new Person();
+			person.setName("test" + i);
+			person.setGender(Gender.MALE);
+			person.setDateOfBirth(new Date());
+			list.add(person);
+		}
+		entityManager.saveAll(list);
+		assertThat(entityManager.countAll(), is(50L));
+		assertThat(list.get(49).getLifyCycleEvents().contains("PostPersist"), is(true));
+
+		for (Person person : list)
+			person.setGender(Gender.FEMALE);
+		entityManager.updateAll(list);
+		DetachedCriteria dc = entityManager.detachedCriteria();
+		dc.add(Restrictions.eq("gender", Gender.FEMALE));
+		assertThat(entityManager.countByCriteria(dc), is(50L));
+
+		Person person = new Person();
+		person.setName("test50");
+		list.add(person);
+		list.get(0).setGender(Gender.MALE);
+		entityManager.saveAll(list);
+		assertThat(entityManager.countAll(), is(51L));
+		assertThat(entityManager.countByCriteria(dc), is(49L));
+
+		entityManager.deleteAll(list.subList(0, 30));
+		assertThat(entityManager.countAll(), is(21L));
+	}
+
+	@Test
+	public void testAssignedId() {
+		productManager.setEntityClass(Product.class);
+		List<Product> list = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			Product product = new Product();
+			product.setId("p" + i);
+			product.setName("product" + i);
+			list.add(product);
+		}
+		productManager.saveAll(list.subList(0, 10));
+		for (Product product : list)
+			product.setName("renamed");
+		productManager.saveAll(list);
+		assertThat(productManager.countAll(), is(30L));
+		DetachedCriteria dc = productManager.detachedCriteria();
+		dc.add(Restrictions.eq("name", "renamed"));
+		assertThat(productManager.countByCriteria(dc), is(30L));
+
+		productManager.deleteAll(list);
+		assertThat(productManager.countAll(), is(0L));
+	}
+
+	@Test
+	public void testOverriddenSave() {
+		List<Person> list = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			Person person = new Person();
+			person.setName("test" + i);
+			list.add(person);
+		}
+		personManager.saveAll(list);
+		entityManager.setEntityClass(Person.class);
+		DetachedCriteria dc = entityManager.detachedCriteria();
+		dc.add(Restrictions.eq("gender", Gender.FEMALE));
+		assertThat(entityManager.countByCriteria(dc), is(30L));
+	}
+
+	@After
+	public void clearData() {
+		entityManager.setEntityClass(Person.class);
+		entityManager.executeUpdate("delete from Person p");
+		productManager.setEntityClass(Product.class);
+		productManager.executeUpdate("delete from Product p");
+	}
+
+	static class PersonManager extends BaseManagerImpl<Person> {
+
+		@Override
+		public void save(Person person) {
+			if (person.getGender() == null)
+				person.setGender(Gender.FEMALE);
+			super.save(person);
+		}
+
+	}
+
+	@Configuration
+	static class Config {
+
+		@Bean
+		public PersonManager personManager() {
+			return new PersonManager();
+		}
+
+	}
+
+}
@@ -12,7 +12,10 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import javax.persistence.PostLoad;
 import javax.persistence.PostPersist;
@@ -231,6 +234,65 @@ public class EntityManagerTest {
 		assertThat(entityManager.countAll(), is(0L));
 	}
 
+	@Test
+	public void testFindByResultPageWithKeyset() {
+		prepareData();
+		DetachedCriteria dc = entityManager.detachedCriteria();
+		dc.addOrder(Order.desc("name"));
+		ResultPage<Person> rp = new ResultPage<>();
+		rp.setKeyset(true);
+		rp.setPageSize(4);
+		rp.setCriteria(dc);
+		List<String> names = new ArrayList<>();
+		int pages = 0;
+		do {
+			rp.setCursor(rp.getNextCursor());
+			rp = entityManager.findByResultPage(rp);
+			assertThat(rp.getTotalResults(), is(9L));
+			for (Person p : rp.getResult())
+				names.add(p.getName());
+			pages++;
+		} while (!rp.isLast());
+		assertThat(pages, is(3));
+		assertThat(names.size(), is(9));
+		for (int i = 0; i < names.size(); i++)
+			assertThat(names.get(i), is("test" + (8 - i)));
+
+		entityManager.delete(entityManager.findByNaturalId("test0"));
+		rp.setCursor(null);
+		rp.setCounting(false);
+		rp.setPageSize(8);
+		rp = entityManager.findByResultPage(rp);
+		assertThat(rp.getResult().size(), is(8));
+		assertThat(rp.getNextCursor(), is(nullValue()));
+		assertThat(rp.isLast(), is(true));
+	}
+
+	@Test
+	public void testFindByResultPageWithKeysetOnNullableKey() {
+		prepareData();
+		entityManager.executeUpdate("update Person p set p.gender=null where p.name in ('test2','test5','test7')");
+		for (Order order : new Order[] { Order.asc("gender"), Order.desc("gender") }) {
+			DetachedCriteria dc = entityManager.detachedCriteria();
+			dc.addOrder(order);
+			ResultPage<Person> rp = new ResultPage<>();
+			rp.setKeyset(true);
+			rp.setCounting(false);
+			rp.setPageSize(2);
+			rp.setCriteria(dc);
+			List<Person> persons = new ArrayList<>();
+			do {
+				rp.setCursor(rp.getNextCursor());
+				rp = entityManager.findByResultPage(rp);
+				persons.addAll(rp.getResult());
+			} while (!rp.isLast());
+			assertThat(persons.stream().map(Person::getName).distinct().count(), is(9L));
+			// null is treated as the largest value
+			List<Person> nulls = order.isAscending() ? persons.subList(6, 9) : persons.subList(0, 3);
+			assertThat(nulls.stream().allMatch(p -> p.getGender() == null), is(true));
+		}
+	}
+
 	@Test
 	public void testHql() {
 		prepareData();
@@ -401,6 +463,65 @@ public class EntityManagerTest {
 
 	}
 
+	@Test
+	public void testIterateInParallel() {
+		prepareData();
+		List<IterationPartition> partitions = entityManager.partition(null, 4);
+		assertThat(partitions.size(), is(4));
+		assertThat(partitions.get(0).getFrom(), is(nullValue()));
+		assertThat(partitions.get(3).getTo(), is(nullValue()));
+		for (int i = 1; i < partitions.size(); i++)
+			assertThat(partitions.get(i).getFrom(), is(partitions.get(i - 1).getTo()));
+
+		Supplier<DetachedCriteria> males = () -> {
+			DetachedCriteria dc = entityManager.detachedCriteria();
+			dc.add(Restrictions.eq("gender", Gender.MALE));
+			return dc;
+		};
+		AtomicInteger ai = new AtomicInteger();
+		long count = entityManager.iterate(2, (entities, session) -> {
+			for (Person p : entities) {
+				p.setGender(Gender.FEMALE);
+				session.update(p);
+			}
+		}, people -> ai.getAndAdd(people.length), males, entityManager.partition(males, 2), 2);
+		assertThat(count, is(5L));
+		assertThat(ai.get(), is(5));
+		assertThat(entityManager.countByCriteria(males.get()), is(0L));
+
+		Set<String> names = ConcurrentHashMap.newKeySet();
+		partitions = entityManager.partition(null, 3);
+		names.add("failed");
+		count = entityManager.iterate(2, (entities, session) -> {
+			for (Person p : entities) {
+				if (p.getName().equals("test5") && names.add("failed"))
+					throw new RuntimeException("for test");
+				p.setGender(Gender.MALE);
+				session.update(p);
+			}
+		}, null, null, partitions, 3);
+		assertThat(count, is(9L));
+		assertThat(partitions.stream().allMatch(p -> p.getStatus() == IterationPartition.Status.COMPLETED), is(true));
+
+		names.remove("failed");
+		count = entityManager.iterate(2, (entities, session) -> {
+			for (Person p : entities) {
+				if (p.getName().equals("test5") && names.add("failed"))
+					throw new RuntimeException("for test");
+			}
+		}, null, null, partitions = entityManager.partition(null, 3), 3);
+		IterationPartition failed = partitions.stream()
+				.filter(p -> p.getStatus() == IterationPartition.Status.FAILED).findFirst().orElse(null);
+		assertThat(failed, is(notNullValue()));
+		long failedCount = failed.getCount();
+		long resumed = entityManager.iterate(2, (entities, session) -> {
+		}, null, null, partitions, 3);
+		assertThat(failed.getStatus(), is(IterationPartition.Status.COMPLETED));
+		assertThat(resumed, is(failed.getCount() - failedCount));
+		assertThat(count + resumed, is(9L));
+		assertThat(entityManager.countByCriteria(males.get()), is(9L));
+	}
+
 	@Test(expected = ConstraintViolationException.class)
 	public void testValidation() {
 		entityManager.setEntityClass(Person.class);
@@ -0,0 +1,27 @@
+package org.ironrhino.core.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+
+public class IterationPartitionTest {
+
+	@Test
+	public void testThroughputOfLastRun() throws Exception {
+		IterationPartition partition = new IterationPartition(null, null);
+		partition.start();
+		partition.advance(100000, 1L);
+		partition.fail(new RuntimeException("failed"));
+		Thread.sleep(10);
+		partition.start();
+		partition.advance(10, 2L);
+		Thread.sleep(10);
+		partition.complete();
+		assertThat(partition.getCount(), is(100010L));
+		assertThat(partition.getRunCount(), is(10L));
+		assertThat(partition.getThroughput() <= 10 * 1000.0 / partition.getElapsed(), is(true));
+		assertThat(partition.getThroughput() > 0, is(true));
+	}
+
+}
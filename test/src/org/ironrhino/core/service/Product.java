@@ -0,0 +1,23 @@
+package org.ironrhino.core.service;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import org.ironrhino.core.model.AbstractEntity;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+public class Product extends AbstractEntity<String> {
+
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private String id;
+
+	private String name;
+
+}
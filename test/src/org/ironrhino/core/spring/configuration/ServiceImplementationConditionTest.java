@@ -4,6 +4,8 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.fail;
 
+import org.ironrhino.core.cache.impl.RedisCacheManager;
+import org.ironrhino.core.cache.impl.TwoTierCacheManager;
 import org.junit.Test;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.context.ApplicationContext;
@@ -43,6 +45,21 @@ public class ServiceImplementationConditionTest {
 		}
 	}
 
+	@Test
+	public void testProfileExpression() {
+		try (AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext()) {
+			ctx.getEnvironment().setActiveProfiles("dual");
+			ctx.register(RedisCacheManager.class, TwoTierCacheManager.class);
+			assertThat(ctx.getBeanDefinition("cacheManager").getBeanClassName(), is(RedisCacheManager.class.getName()));
+		}
+		try (AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext()) {
+			ctx.getEnvironment().setActiveProfiles("dual", "near-cache");
+			ctx.register(TwoTierCacheManager.class, RedisCacheManager.class);
+			assertThat(ctx.getBeanDefinition("cacheManager").getBeanClassName(),
+					is(TwoTierCacheManager.class.getName()));
+		}
+	}
+
 	private void expectNotPresent(ApplicationContext context, Class<?> beanType) {
 		try {
 			context.getBean(beanType);
@@ -0,0 +1,42 @@
+package org.ironrhino.core.spring.data.redis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+public class CompressionRedisSerializerTest extends RedisSerializerTestBase {
+
+	@Override
+	protected RedisSerializer<Object> getRedisSerializer() {
+		return new CompressionRedisSerializer<>(new FallbackToStringSerializer(), 16);
+	}
+
+	@Test
+	public void testCompress() {
+		RedisSerializer<Object> serializer = getRedisSerializer();
+		String value = StringUtils.repeat("ironrhino", 100);
+		byte[] bytes = serializer.serialize(value);
+		assertThat(CompressionRedisSerializer.isCompressed(bytes), is(true));
+		assertThat(bytes.length < value.length() / 2, is(true));
+		assertThat(serializer.deserialize(bytes), is(value));
+		assertThat(CompressionRedisSerializer.isCompressed(serializer.serialize("ironrhino")), is(false));
+	}
+
+	@Test
+	public void testMixedValues() {
+		RedisSerializer<Object> plain = new FallbackToStringSerializer();
+		RedisSerializer<Object> compression = getRedisSerializer();
+		RedisSerializer<Object> disabled = new CompressionRedisSerializer<>(new FallbackToStringSerializer(), 0);
+		String value = StringUtils.repeat("ironrhino", 100);
+		assertThat(compression.deserialize(plain.serialize(value)), is(value));
+		assertThat(disabled.deserialize(compression.serialize(value)), is(value));
+		assertThat(CompressionRedisSerializer.isCompressed(disabled.serialize(value)), is(false));
+		RedisSerializer<Object> fst = new CompressionRedisSerializer<>(new FstRedisSerializer<>(), 16);
+		assertThat(fst.deserialize(new FstRedisSerializer<>().serialize(value)), is(value));
+		assertThat(fst.deserialize(fst.serialize(value)), is(value));
+	}
+
+}
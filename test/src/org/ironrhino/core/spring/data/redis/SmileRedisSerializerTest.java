@@ -0,0 +1,12 @@
+package org.ironrhino.core.spring.data.redis;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+public class SmileRedisSerializerTest extends RedisSerializerTestBase {
+
+	@Override
+	protected RedisSerializer<Object> getRedisSerializer() {
+		return new SmileRedisSerializer<>();
+	}
+
+}
@@ -1,5 +1,9 @@
 package org.ironrhino.core.throttle;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -13,6 +17,7 @@ import java.util.concurrent.TimeUnit;
 import org.ironrhino.core.cache.CacheManager;
 import org.ironrhino.core.cache.impl.Cache2kCacheManager;
 import org.ironrhino.core.throttle.FrequencyAspectTest.FrequencyConfiguration;
+import org.ironrhino.core.throttle.impl.DefaultThrottleService;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,6 +34,12 @@ public class FrequencyAspectTest {
 	@Autowired
 	private EchoService echoService;
 
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private FrequencyAspect frequencyAspect;
+
 	@Test(expected = FrequencyLimitExceededException.class)
 	public void test() throws Throwable {
 		int concurrency = 10;
@@ -72,6 +83,72 @@ public class FrequencyAspectTest {
 		}
 	}
 
+	@Test
+	public void testLease() throws Throwable {
+		int concurrency = 10;
+		ExecutorService es = Executors.newFixedThreadPool(concurrency);
+		Collection<Callable<String>> tasks = new ArrayList<>();
+		for (int i = 0; i < concurrency * 2; i++)
+			tasks.add(() -> echoService.leasedEcho("test"));
+		List<Future<String>> results = es.invokeAll(tasks);
+		int permitted = 0;
+		for (Future<String> f : results) {
+			try {
+				f.get();
+				permitted++;
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof FrequencyLimitExceededException);
+			}
+		}
+		assertEquals(5, permitted);
+		assertEquals(5L, cacheManager.increment("leased:" + (System.currentTimeMillis() / 60000 * 60000), 0, 0,
+				TimeUnit.SECONDS, "frequency"));
+		es.shutdown();
+	}
+
+	@Test
+	public void testLeaseSweep() throws Throwable {
+		String window = "idleLeased:" + (System.currentTimeMillis() / 60000 * 60000);
+		echoService.idleLeasedEcho("test");
+		assertEquals(2L, cacheManager.increment(window, 0, 0, TimeUnit.SECONDS, "frequency"));
+		frequencyAspect.sweep();
+		frequencyAspect.sweep();
+		// unused quota of idle lease is given back
+		assertEquals(1L, cacheManager.increment(window, 0, 0, TimeUnit.SECONDS, "frequency"));
+		echoService.idleLeasedEcho("test");
+		echoService.idleLeasedEcho("test");
+		try {
+			echoService.idleLeasedEcho("test");
+			fail("lease should be exhausted");
+		} catch (FrequencyLimitExceededException e) {
+		}
+		// another node gives back quota
+		cacheManager.decrement(window, 1, 0, TimeUnit.SECONDS, "frequency");
+		frequencyAspect.sweep();
+		echoService.idleLeasedEcho("test");
+	}
+
+	@Test
+	public void testSlidingWindow() throws Throwable {
+		int concurrency = 10;
+		ExecutorService es = Executors.newFixedThreadPool(concurrency);
+		Collection<Callable<String>> tasks = new ArrayList<>();
+		for (int i = 0; i < concurrency; i++)
+			tasks.add(() -> echoService.slidingEcho("test"));
+		List<Future<String>> results = es.invokeAll(tasks);
+		int permitted = 0;
+		for (Future<String> f : results) {
+			try {
+				f.get();
+				permitted++;
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof FrequencyLimitExceededException);
+			}
+		}
+		assertEquals(5, permitted);
+		es.shutdown();
+	}
+
 	public static class EchoService {
 
 		@Frequency(limits = "5", duration = 2, timeUnit = TimeUnit.SECONDS)
@@ -80,6 +157,22 @@ public class FrequencyAspectTest {
 			return s;
 		}
 
+		@Frequency(key = "leased", limits = "5", duration = 1, timeUnit = TimeUnit.MINUTES, leaseSize = 2)
+		public String leasedEcho(String s) throws Exception {
+			return s;
+		}
+
+		@Frequency(key = "idleLeased", limits = "3", duration = 1, timeUnit = TimeUnit.MINUTES, leaseSize = 2)
+		public String idleLeasedEcho(String s) throws Exception {
+			return s;
+		}
+
+		@Frequency(key = "sliding", limits = "5", duration = 1, timeUnit = TimeUnit.MINUTES,
+				algorithm = FrequencyAlgorithm.SLIDING_WINDOW)
+		public String slidingEcho(String s) throws Exception {
+			return s;
+		}
+
 	}
 
 	@Configuration
@@ -91,6 +184,11 @@ public class FrequencyAspectTest {
 			return new Cache2kCacheManager();
 		}
 
+		@Bean
+		public ThrottleService throttleService() {
+			return new DefaultThrottleService();
+		}
+
 		@Bean
 		public EchoService echoService() {
 			return new EchoService();
@@ -0,0 +1,83 @@
+package org.ironrhino.core.throttle;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.ironrhino.core.spring.configuration.RedisConfiguration;
+import org.ironrhino.core.throttle.RedisConcurrencyServiceTests.RedisConcurrencyServiceConfiguration;
+import org.ironrhino.core.throttle.impl.RedisConcurrencyService;
+import org.ironrhino.core.util.CodecUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = RedisConcurrencyServiceConfiguration.class)
+@TestPropertySource(properties = { "concurrencyService.leaseTime=2000", "concurrencyService.maxWaitInterval=10000" })
+public class RedisConcurrencyServiceTests {
+
+	@Autowired
+	private ConcurrencyService concurrencyService;
+
+	@Test
+	public void testTryAcquire() {
+		String name = CodecUtils.nextId();
+		assertTrue(concurrencyService.tryAcquire(name, 2));
+		assertTrue(concurrencyService.tryAcquire(name, 2));
+		assertFalse(concurrencyService.tryAcquire(name, 2));
+		concurrencyService.release(name);
+		assertTrue(concurrencyService.tryAcquire(name, 2));
+		concurrencyService.release(name);
+		concurrencyService.release(name);
+	}
+
+	@Test
+	public void testWakeupOnRelease() throws Exception {
+		String name = CodecUtils.nextId();
+		assertTrue(concurrencyService.tryAcquire(name, 1));
+		ExecutorService es = Executors.newSingleThreadExecutor();
+		try {
+			Future<Long> future = es.submit(() -> {
+				long time = System.currentTimeMillis();
+				assertTrue(concurrencyService.tryAcquire(name, 1, 1, TimeUnit.SECONDS));
+				return System.currentTimeMillis() - time;
+			});
+			Thread.sleep(200);
+			concurrencyService.release(name);
+			assertTrue(future.get() < 1000);
+			concurrencyService.release(name);
+		} finally {
+			es.shutdown();
+		}
+	}
+
+	@Test
+	public void testExpiredLease() throws Exception {
+		String name = CodecUtils.nextId();
+		assertTrue(concurrencyService.tryAcquire(name, 1));
+		assertFalse(concurrencyService.tryAcquire(name, 1));
+		// holder crashed without release and renewal
+		assertTrue(concurrencyService.tryAcquire(name, 1, 3, TimeUnit.SECONDS));
+	}
+
+	@Configuration
+	static class RedisConcurrencyServiceConfiguration extends RedisConfiguration {
+
+		@Bean
+		public ConcurrencyService concurrencyService() {
+			return new RedisConcurrencyService();
+		}
+
+	}
+
+}
@@ -0,0 +1,33 @@
+package org.ironrhino.core.throttle;
+
+import org.ironrhino.core.cache.CacheManager;
+import org.ironrhino.core.cache.impl.Cache2kCacheManager;
+import org.ironrhino.core.spring.configuration.RedisConfiguration;
+import org.ironrhino.core.throttle.RedisThrottleServiceTests.RedisThrottleServiceConfiguration;
+import org.ironrhino.core.throttle.impl.RedisThrottleService;
+import org.junit.runner.RunWith;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = RedisThrottleServiceConfiguration.class)
+public class RedisThrottleServiceTests extends ThrottleServiceTest {
+
+	@Configuration
+	static class RedisThrottleServiceConfiguration extends RedisConfiguration {
+
+		@Bean
+		public CacheManager cacheManager() {
+			return new Cache2kCacheManager();
+		}
+
+		@Bean
+		public ThrottleService throttleService() {
+			return new RedisThrottleService();
+		}
+
+	}
+
+}
@@ -1,5 +1,8 @@
 package org.ironrhino.core.throttle;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -14,6 +17,7 @@ import org.ironrhino.core.cache.CacheManager;
 import org.ironrhino.core.cache.impl.Cache2kCacheManager;
 import org.ironrhino.core.throttle.ThrottleServiceTest.ConcurrencyConfiguration;
 import org.ironrhino.core.throttle.impl.DefaultThrottleService;
+import org.ironrhino.core.util.CodecUtils;
 import org.ironrhino.core.util.IllegalConcurrentAccessException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -53,6 +57,49 @@ public class ThrottleServiceTest {
 		}
 	}
 
+	@Test
+	public void testFixedWindow() throws Exception {
+		testAlgorithm(FrequencyAlgorithm.FIXED_WINDOW);
+	}
+
+	@Test
+	public void testSlidingLog() throws Exception {
+		testAlgorithm(FrequencyAlgorithm.SLIDING_LOG);
+		String key = CodecUtils.nextId();
+		testAlgorithm(key, FrequencyAlgorithm.SLIDING_LOG);
+		// no burst whenever window boundary passed
+		Thread.sleep(600);
+		assertFalse(throttleService.tryAcquire(key, 5, 1, TimeUnit.SECONDS, FrequencyAlgorithm.SLIDING_LOG));
+	}
+
+	@Test
+	public void testSlidingWindow() throws Exception {
+		testAlgorithm(FrequencyAlgorithm.SLIDING_WINDOW);
+	}
+
+	@Test
+	public void testGcra() throws Exception {
+		String key = CodecUtils.nextId();
+		testAlgorithm(key, FrequencyAlgorithm.GCRA);
+		// emission interval is 200ms after burst
+		Thread.sleep(250);
+		assertTrue(throttleService.tryAcquire(key, 5, 1, TimeUnit.SECONDS, FrequencyAlgorithm.GCRA));
+		assertFalse(throttleService.tryAcquire(key, 5, 1, TimeUnit.SECONDS, FrequencyAlgorithm.GCRA));
+	}
+
+	private void testAlgorithm(FrequencyAlgorithm algorithm) throws Exception {
+		String key = CodecUtils.nextId();
+		testAlgorithm(key, algorithm);
+		Thread.sleep(2000);
+		assertTrue(throttleService.tryAcquire(key, 5, 1, TimeUnit.SECONDS, algorithm));
+	}
+
+	private void testAlgorithm(String key, FrequencyAlgorithm algorithm) throws Exception {
+		for (int i = 0; i < 5; i++)
+			assertTrue(throttleService.tryAcquire(key, 5, 1, TimeUnit.SECONDS, algorithm));
+		assertFalse(throttleService.tryAcquire(key, 5, 1, TimeUnit.SECONDS, algorithm));
+	}
+
 	@Configuration
 	@EnableAspectJAutoProxy(proxyTargetClass = true)
 	static class ConcurrencyConfiguration {
@@ -0,0 +1,55 @@
+package org.ironrhino.core.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.ironrhino.core.util.ReleaseSignals.Signal;
+import org.junit.Test;
+
+public class ReleaseSignalsTest {
+
+	@Test
+	public void testDiscardWhenNoWaiter() {
+		ReleaseSignals signals = new ReleaseSignals();
+		Signal signal = signals.enter("test");
+		assertThat(signals.enter("test"), sameInstance(signal));
+		assertThat(signals.size(), is(1));
+		signals.leave("test", signal);
+		assertThat(signals.size(), is(1));
+		signals.leave("test", signal);
+		assertThat(signals.size(), is(0));
+		// stale signal should not affect new one
+		Signal newSignal = signals.enter("test");
+		signals.leave("test", signal);
+		assertThat(signals.size(), is(1));
+		signals.leave("test", newSignal);
+		assertThat(signals.size(), is(0));
+	}
+
+	@Test
+	public void testSignalAll() throws Exception {
+		ReleaseSignals signals = new ReleaseSignals();
+		Signal signal = signals.enter("test");
+		long version = signal.getVersion();
+		CountDownLatch latch = new CountDownLatch(1);
+		Thread t = new Thread(() -> {
+			try {
+				signal.await(version, 10000);
+				latch.countDown();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		t.start();
+		TimeUnit.MILLISECONDS.sleep(100);
+		signals.signalAll("test");
+		assertThat(latch.await(1, TimeUnit.SECONDS), is(true));
+		signals.leave("test", signal);
+		signals.signalAll("test");
+	}
+
+}
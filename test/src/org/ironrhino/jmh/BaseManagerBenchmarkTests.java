@@ -0,0 +1,111 @@
+package org.ironrhino.jmh;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.ironrhino.common.model.Gender;
+import org.ironrhino.core.service.BaseManager;
+import org.ironrhino.core.service.EntityManager;
+import org.ironrhino.core.service.HibernateConfiguration;
+import org.ironrhino.core.service.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+/**
+ * Save 1000 entities into embedded H2, {@code save} calls
+ * {@link BaseManager#save(org.ironrhino.core.model.Persistable)} per entity
+ * and {@code saveAll} calls {@link BaseManager#saveAll(java.util.Collection)}
+ * once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 2, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 2, time = 2, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BaseManagerBenchmarkTests {
+
+	private static final int ROWS = 1000;
+
+	private AnnotationConfigApplicationContext ctx;
+
+	private EntityManager<Person> entityManager;
+
+	private int sequence;
+
+	@SuppressWarnings("unchecked")
+	@Setup(Level.Trial)
+	public void setup() {
+		ctx = new AnnotationConfigApplicationContext();
+		Map<String, Object> properties = new HashMap<>();
+		properties.put("jdbc.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+		properties.put("jdbc.username", "sa");
+		properties.put("annotatedClasses", Person.class.getName());
+		properties.put("baseManager.batchSize", "100");
+		properties.put("hibernate.show_sql", "false");
+		ctx.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+		ctx.register(HibernateConfiguration.class);
+		ctx.refresh();
+		entityManager = ctx.getBean(EntityManager.class);
+		entityManager.setEntityClass(Person.class);
+	}
+
+	@TearDown(Level.Iteration)
+	public void clear() {
+		entityManager.executeUpdate("delete from Person p");
+	}
+
+	@TearDown(Level.Trial)
+	public void teardown() {
+		ctx.close();
+	}
+
+	@Benchmark
+	public void save() {
+		for (Person person : createPeople())
+			entityManager.save(person);
+	}
+
+	@Benchmark
+	public void saveAll() {
+		entityManager.saveAll(createPeople());
+	}
+
+	private List<Person> createPeople() {
+		List<Person> list = new ArrayList<>(ROWS);
+		for (int i = 0; i < ROWS; i++) {
+			Person person = new Person();
+			person.setName("name" + sequence);
+			person.setCode("code" + sequence++);
+			person.setGender(i % 2 == 0 ? Gender.MALE : Gender.FEMALE);
+			list.add(person);
+		}
+		return list;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(BaseManagerBenchmarkTests.class.getName()).shouldFailOnError(true)
+				.build();
+		new Runner(opt).run();
+	}
+
+}
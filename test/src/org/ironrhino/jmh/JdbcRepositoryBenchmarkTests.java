@@ -0,0 +1,123 @@
+package org.ironrhino.jmh;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.ironrhino.common.model.Gender;
+import org.ironrhino.core.jdbc.EntityBeanPropertyRowMapper;
+import org.ironrhino.core.jdbc.JdbcRepositoryFactoryBean;
+import org.ironrhino.core.jdbc.Person;
+import org.ironrhino.core.jdbc.PersonRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+/**
+ * Per call overhead of {@link JdbcRepositoryFactoryBean} compared with
+ * {@link NamedParameterJdbcTemplate} against embedded H2, {@code template*}
+ * are baselines with shared row mapper, {@code templatePerCallRowMapper}
+ * creates row mapper per call as repository did before invocation plans.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 2, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 2, time = 2, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JdbcRepositoryBenchmarkTests {
+
+	private static final String SQL_GET = "select * from t_person where name=:name";
+
+	private static final String SQL_COUNT = "select count(*) from t_person where name like concat(:namePrefix,'%')";
+
+	private SingleConnectionDataSource dataSource;
+
+	private PersonRepository personRepository;
+
+	private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+	private RowMapper<Person> rowMapper;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		dataSource = new SingleConnectionDataSource("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1", "sa", "", true);
+		personRepository = JdbcRepositoryFactoryBean.create(PersonRepository.class, dataSource);
+		namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+		rowMapper = new EntityBeanPropertyRowMapper<>(Person.class);
+		personRepository.createTable();
+		for (int i = 0; i < 100; i++) {
+			Person person = new Person();
+			person.setName("name" + i);
+			person.setGender(i % 2 == 0 ? Gender.MALE : Gender.FEMALE);
+			person.setAge(i);
+			person.setAmount(new BigDecimal(i));
+			personRepository.save(person);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void teardown() {
+		personRepository.dropTable();
+		dataSource.destroy();
+	}
+
+	@Benchmark
+	public Person repositoryGet() {
+		return personRepository.get("name50");
+	}
+
+	@Benchmark
+	public Person templateGet() {
+		List<Person> list = namedParameterJdbcTemplate.query(SQL_GET, Collections.singletonMap("name", "name50"),
+				rowMapper);
+		return list.isEmpty() ? null : list.get(0);
+	}
+
+	@Benchmark
+	public Person templatePerCallRowMapper() {
+		List<Person> list = namedParameterJdbcTemplate.query(SQL_GET, Collections.singletonMap("name", "name50"),
+				new EntityBeanPropertyRowMapper<>(Person.class));
+		return list.isEmpty() ? null : list.get(0);
+	}
+
+	@Benchmark
+	public int repositoryCount() {
+		return personRepository.countByNamePrefix("name5");
+	}
+
+	@Benchmark
+	public Integer templateCount() {
+		return namedParameterJdbcTemplate.queryForObject(SQL_COUNT, Collections.singletonMap("namePrefix", "name5"),
+				Integer.class);
+	}
+
+	@Benchmark
+	public List<Person> repositoryTemplated() {
+		return personRepository.searchByNameOrGender("name50", Gender.MALE);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(JdbcRepositoryBenchmarkTests.class.getName())
+				.shouldFailOnError(true).build();
+		new Runner(opt).run();
+	}
+
+}
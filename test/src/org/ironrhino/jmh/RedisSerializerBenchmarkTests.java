@@ -0,0 +1,151 @@
+package org.ironrhino.jmh;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.ironrhino.core.spring.data.redis.CompressionRedisSerializer;
+import org.ironrhino.core.spring.data.redis.FallbackToStringSerializer;
+import org.ironrhino.core.spring.data.redis.FstRedisSerializer;
+import org.ironrhino.core.spring.data.redis.JsonRedisSerializer;
+import org.ironrhino.core.spring.data.redis.SmileRedisSerializer;
+import org.ironrhino.security.domain.User;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 2, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 2, time = 2, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedisSerializerBenchmarkTests {
+
+	@Param({ "java", "json", "fst", "smile" })
+	private String codec;
+
+	@Param({ "0", "512" })
+	private int compressionThreshold;
+
+	@Param({ "1", "100" })
+	private int entities;
+
+	private RedisSerializer<Object> serializer;
+
+	private Object value;
+
+	private byte[] bytes;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		RedisSerializer<Object> delegate;
+		switch (codec) {
+		case "json":
+			delegate = new JsonRedisSerializer<>();
+			break;
+		case "fst":
+			delegate = new FstRedisSerializer<>();
+			break;
+		case "smile":
+			delegate = new SmileRedisSerializer<>();
+			break;
+		default:
+			delegate = new FallbackToStringSerializer();
+		}
+		serializer = new CompressionRedisSerializer<>(delegate, compressionThreshold);
+		if (entities == 1) {
+			value = createUser(0);
+		} else {
+			List<User> list = new ArrayList<>(entities);
+			for (int i = 0; i < entities; i++)
+				list.add(createUser(i));
+			value = list;
+		}
+		bytes = serializer.serialize(value);
+	}
+
+	@Benchmark
+	public byte[] encode(EncodedSize size) {
+		byte[] result = serializer.serialize(value);
+		size.report(result.length);
+		return result;
+	}
+
+	@Benchmark
+	public Object decode() {
+		return serializer.deserialize(bytes);
+	}
+
+	private static User createUser(int i) {
+		User user = new User();
+		user.setUsername("username" + i);
+		user.setPassword("$2a$10$6z1OTKvIbkGKn4l1Ykq2euGZ/CiO9sY5rSGJTAJu7tH3dZ0vKmc4a");
+		user.setName("name" + i);
+		user.setEmail("username" + i + "@ironrhino.org");
+		user.setPhone("1380000" + String.format("%04d", i));
+		user.setAccountExpireDate(new Date());
+		user.setPasswordModifyDate(new Date());
+		user.setAuthorities(Collections.singletonList(new SimpleGrantedAuthority("ROLE_BUILTIN_USER")));
+		Map<String, String> attributes = new HashMap<>();
+		attributes.put("department", "department" + i % 10);
+		attributes.put("title", "title" + i % 5);
+		user.setAttributes(attributes);
+		return user;
+	}
+
+	// reported as secondary result "encodedBytes" of encode for comparing codecs
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class EncodedSize {
+
+		public long encodedBytes;
+
+		private boolean reporting;
+
+		private boolean reported;
+
+		@Setup(Level.Iteration)
+		public void setup(IterationParams params) {
+			// events are summed across iterations, count size in first measurement iteration only
+			encodedBytes = 0;
+			reporting = !reported && params.getType() == IterationType.MEASUREMENT;
+		}
+
+		void report(int size) {
+			if (reporting) {
+				encodedBytes = size;
+				reported = true;
+			}
+		}
+
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(RedisSerializerBenchmarkTests.class.getName())
+				.shouldFailOnError(true).build();
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,143 @@
+package org.ironrhino.jmh;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+
+import org.ironrhino.core.jdbc.EntityBeanPropertyRowMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import lombok.Data;
+
+/**
+ * Map 1000 rows of H2 cached in {@link CachedRowSet}, {@code legacy} is
+ * {@link EntityBeanPropertyRowMapper} subclass which falls back to populating
+ * by BeanWrapper.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 2, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 2, time = 2, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowMapperBenchmarkTests {
+
+	private static final int ROWS = 1000;
+
+	@Param({ "10", "50" })
+	private int columns;
+
+	@Param({ "legacy", "planned" })
+	private String mapper;
+
+	private RowMapper<?> rowMapper;
+
+	private CachedRowSet resultSet;
+
+	@Setup(Level.Trial)
+	public void setup() throws SQLException {
+		Class<?> entityClass = columns == 10 ? Entity10.class : Entity50.class;
+		rowMapper = createRowMapper(entityClass, mapper.equals("legacy"));
+		SingleConnectionDataSource ds = new SingleConnectionDataSource("jdbc:h2:mem:rowmapper" + columns, "sa", "",
+				true);
+		try {
+			JdbcTemplate jdbcTemplate = new JdbcTemplate(ds);
+			StringJoiner ddl = new StringJoiner(",", "create table entity (", ")");
+			List<Field> fields = new ArrayList<>();
+			for (Field f : entityClass.getDeclaredFields()) {
+				if (Modifier.isStatic(f.getModifiers()))
+					continue;
+				fields.add(f);
+				Class<?> type = f.getType();
+				String columnType = type == String.class ? "varchar(50)"
+						: type == BigDecimal.class ? "decimal(19,2)"
+								: type == long.class || type == Long.class ? "bigint" : "int";
+				ddl.add(f.getName() + " " + columnType);
+			}
+			jdbcTemplate.execute(ddl.toString());
+			for (int i = 0; i < ROWS; i++) {
+				StringJoiner values = new StringJoiner(",", "insert into entity values (", ")");
+				for (Field f : fields)
+					values.add(f.getType() == String.class ? "'value" + i + "'" : String.valueOf(i));
+				jdbcTemplate.update(values.toString());
+			}
+			resultSet = jdbcTemplate.query("select * from entity", rs -> {
+				CachedRowSet crs = RowSetProvider.newFactory().createCachedRowSet();
+				crs.populate(rs);
+				return crs;
+			});
+		} finally {
+			ds.destroy();
+		}
+	}
+
+	@Benchmark
+	public List<Object> map() throws SQLException {
+		List<Object> list = new ArrayList<>(ROWS);
+		ResultSet rs = resultSet;
+		rs.beforeFirst();
+		int rowNum = 0;
+		while (rs.next())
+			list.add(rowMapper.mapRow(rs, rowNum++));
+		return list;
+	}
+
+	private static <T> RowMapper<T> createRowMapper(Class<T> entityClass, boolean legacy) {
+		if (legacy)
+			return new EntityBeanPropertyRowMapper<T>(entityClass) {
+			};
+		return new EntityBeanPropertyRowMapper<>(entityClass);
+	}
+
+	@Data
+	public static class Entity10 {
+		private int i0, i1;
+		private long l0, l1;
+		private String s0, s1;
+		private BigDecimal d0, d1;
+		private Integer w0, w1;
+	}
+
+	@Data
+	public static class Entity50 {
+		private int i0, i1, i2, i3, i4, i5, i6, i7, i8, i9;
+		private long l0, l1, l2, l3, l4, l5, l6, l7, l8, l9;
+		private String s0, s1, s2, s3, s4, s5, s6, s7, s8, s9;
+		private BigDecimal d0, d1, d2, d3, d4, d5, d6, d7, d8, d9;
+		private Integer w0, w1, w2, w3, w4, w5, w6, w7, w8, w9;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(RowMapperBenchmarkTests.class.getName()).shouldFailOnError(true)
+				.build();
+		new Runner(opt).run();
+	}
+
+}